@@ -1,68 +1,52 @@
 package com.tyron.code.language;
 
-import android.os.Bundle;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.tyron.builder.model.DiagnosticWrapper;
+import com.tyron.code.language.textmate.BaseIncrementalAnalyzeManager;
 import com.tyron.editor.Editor;
 
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.Lexer;
 import org.antlr.v4.runtime.Token;
-import org.apache.commons.io.input.CharSequenceReader;
 
-import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
 
-import io.github.rosemoe.sora.lang.analysis.StyleReceiver;
-import io.github.rosemoe.sora.lang.styling.MappedSpans;
-import io.github.rosemoe.sora.lang.styling.Styles;
-import io.github.rosemoe.sora.text.CharPosition;
-import io.github.rosemoe.sora.text.ContentReference;
+import io.github.rosemoe.sora.lang.analysis.IncrementalAnalyzeManager.LineTokenizeResult;
+import io.github.rosemoe.sora.lang.styling.CodeBlock;
+import io.github.rosemoe.sora.lang.styling.Span;
+import io.github.rosemoe.sora.text.Content;
 import io.github.rosemoe.sora.widget.schemes.EditorColorScheme;
 
-public abstract class AbstractCodeAnalyzer<T> extends DiagnosticAnalyzeManager<T> {
+/**
+ * Highlights code using the tokens of an ANTLR lexer.
+ * <p>
+ * The text is lexed one line at a time, the lexer mode at the end of each line is kept so
+ * an edit only lexes the changed lines and the lines after it until the state at the end of
+ * a line is the same as before the edit. Tokens that span multiple lines such as block
+ * comments must be written with lexer modes for them to be highlighted correctly.
+ */
+public abstract class AbstractCodeAnalyzer
+        extends BaseIncrementalAnalyzeManager<AbstractCodeAnalyzer.LexerState, AbstractCodeAnalyzer.LineToken> {
+
+    private static final int NO_COLOR = -1;
 
-    private final Map<Integer, Integer> mColorMap = new HashMap<>();
+    private int[] mColors = new int[0];
 
-    private StyleReceiver mReceiver;
-    private Token mPreviousToken;
-    private Styles mLastStyles;
+    private final ThreadLocal<Lexer> mLexer = new ThreadLocal<>();
     protected List<DiagnosticWrapper> mDiagnostics = new ArrayList<>();
 
     public AbstractCodeAnalyzer() {
         setup();
     }
 
-    @Override
-    public void setReceiver(@Nullable StyleReceiver receiver) {
-        super.setReceiver(receiver);
-
-        mReceiver = receiver;
-    }
-
-    @Override
-    public void insert(CharPosition start, CharPosition end, CharSequence insertedContent) {
-        rerunWithBg();
-    }
-
-    @Override
-    public void delete(CharPosition start, CharPosition end, CharSequence deletedContent) {
-        rerunWithBg();
-    }
-
-    @Override
-    public void reset(@NonNull ContentReference content, @NonNull Bundle extraArguments) {
-        super.reset(content, extraArguments);
-    }
-
-    @Override
     public void setDiagnostics(Editor editor, List<DiagnosticWrapper> diagnostics) {
         mDiagnostics = diagnostics;
     }
@@ -88,7 +72,15 @@ public abstract class AbstractCodeAnalyzer<T> extends DiagnosticAnalyzeManager<T
      * @param tokenType the token type from the provided lexer
      */
     protected void putColor(int id, int tokenType) {
-        mColorMap.put(tokenType, id);
+        if (tokenType < 0) {
+            return;
+        }
+        if (tokenType >= mColors.length) {
+            int oldLength = mColors.length;
+            mColors = Arrays.copyOf(mColors, Math.max(tokenType + 1, oldLength * 2));
+            Arrays.fill(mColors, oldLength, mColors.length, NO_COLOR);
+        }
+        mColors[tokenType] = id;
     }
 
     /**
@@ -96,105 +88,205 @@ public abstract class AbstractCodeAnalyzer<T> extends DiagnosticAnalyzeManager<T
      */
     public abstract Lexer getLexer(CharStream input);
 
-    public abstract void analyzeInBackground(CharSequence contents);
+    /**
+     * @return the color id mapped to the token type, or {@link EditorColorScheme#TEXT_NORMAL}
+     * if the token type has no color
+     */
+    public int getColor(int tokenType) {
+        if (tokenType < 0 || tokenType >= mColors.length || mColors[tokenType] == NO_COLOR) {
+            return EditorColorScheme.TEXT_NORMAL;
+        }
+        return mColors[tokenType];
+    }
 
-    public Integer getColor(int tokenType) {
-        return mColorMap.get(tokenType);
+    /**
+     * Called for each token to get its color, override to color a token depending on the
+     * token before it
+     *
+     * @param previousTokenType the type of the previous token on the default channel, which
+     *                          may be on a previous line, or {@link Token#INVALID_TYPE}
+     */
+    protected int getColor(int tokenType, int previousTokenType) {
+        return getColor(tokenType);
     }
 
     /**
-     * Called before {@link #analyze(StringBuilder, Delegate)}
-     * is called, commonly used to clear object caches before starting the analysis
+     * @return whether the token type opens a code block, such as an opening brace
      */
-    protected void beforeAnalyze() {
+    protected boolean isBlockStart(int tokenType) {
+        return false;
+    }
 
+    /**
+     * @return whether the token type closes the code block opened by the last
+     * {@link #isBlockStart(int)} token
+     */
+    protected boolean isBlockEnd(int tokenType) {
+        return false;
     }
 
     @Override
-    protected Styles analyze(StringBuilder text, Delegate<T> delegate) {
-        Styles styles = new Styles();
-        boolean loaded = getExtraArguments().getBoolean("loaded", false);
-        if (!loaded) {
-            return styles;
-        }
-        beforeAnalyze();
-
-        MappedSpans.Builder result = new MappedSpans.Builder(1024);
-
-        try {
-            Lexer lexer = getLexer(CharStreams.fromReader(new CharSequenceReader(text)));
-            while (!delegate.isCancelled()) {
-                Token token = lexer.nextToken();
-                if (token == null) {
-                    break;
-                }
-                if (token.getType() == Token.EOF) {
-                    break;
-                }
+    public LexerState getInitialState() {
+        return LexerState.INITIAL;
+    }
 
-                boolean skip = onNextToken(token, styles, result);
-                if (skip) {
-                    mPreviousToken = token;
-                    continue;
-                }
+    @Override
+    public boolean stateEquals(LexerState state, LexerState another) {
+        return state.equals(another);
+    }
 
-                Integer id = getColor(token.getType());
-                if (id == null) {
-                    id = EditorColorScheme.TEXT_NORMAL;
-                }
-                result.addIfNeeded(token.getLine() - 1, token.getCharPositionInLine(), id);
+    @Override
+    public Result<LexerState, LineToken> tokenizeLine(CharSequence line, LexerState state) {
+        Lexer lexer = getLexer(line.toString());
+        lexer._mode = state.mode;
+        for (int mode : state.modeStack) {
+            lexer._modeStack.push(mode);
+        }
 
-                mPreviousToken = token;
+        List<LineToken> tokens = new ArrayList<>();
+        List<Span> spans = new ArrayList<>();
+        int previousType = state.previousTokenType;
+        int lastColor = NO_COLOR;
+        while (true) {
+            Token token = lexer.nextToken();
+            if (token == null || token.getType() == Token.EOF) {
+                break;
             }
-
-            if (mPreviousToken != null) {
-                result.determine(mPreviousToken.getLine() - 1);
+            int type = token.getType();
+            int column = token.getCharPositionInLine();
+            tokens.add(new LineToken(type, column));
+
+            int color = getColor(type, previousType);
+            if (color != lastColor) {
+                spans.add(Span.obtain(column, color));
+                lastColor = color;
             }
-
-            styles.spans = result.build();
-            styles.finishBuilding();
-            afterAnalyze(text, styles, result);
-
-            if (mShouldAnalyzeInBg) {
-                analyzeInBackground(text);
+            if (token.getChannel() == Token.DEFAULT_CHANNEL) {
+                previousType = type;
             }
-        } catch (IOException e) {
-            // ignored
+        }
+        if (spans.isEmpty() || spans.get(0).column != 0) {
+            spans.add(0, Span.obtain(0, EditorColorScheme.TEXT_NORMAL));
         }
 
-        mLastStyles = styles;
-        return styles;
+        int[] modeStack = lexer._modeStack.toArray();
+        return new Result<>(new LexerState(lexer._mode, modeStack, previousType), tokens, spans);
     }
 
-    @Nullable
-    protected Styles getLastStyles() {
-        return mLastStyles;
+    @Override
+    public List<Span> generateSpansForLine(LineTokenizeResult<LexerState, LineToken> tokens) {
+        // the spans are created by tokenizeLine
+        return Collections.singletonList(Span.obtain(0, EditorColorScheme.TEXT_NORMAL));
     }
 
     /**
-     * Called after the analysis has been done, used to finalize the {@link MappedSpans.Builder}
+     * Computes the code blocks from the tokens kept for each line, the text is not lexed
+     * again.
      */
-    protected void afterAnalyze(CharSequence content, Styles styles, MappedSpans.Builder colors) {
-
+    @Override
+    public List<CodeBlock> computeBlocks(Content text, CodeBlockAnalyzeDelegate delegate) {
+        List<CodeBlock> blocks = new ArrayList<>();
+        Deque<CodeBlock> open = new ArrayDeque<>();
+        int maxSwitch = 1;
+        int currentSwitch = 0;
+        for (int line = 0; line < text.getLineCount() && delegate.isNotCancelled(); line++) {
+            List<LineToken> tokens = getState(line).tokens;
+            if (tokens == null) {
+                continue;
+            }
+            for (LineToken token : tokens) {
+                if (isBlockStart(token.type)) {
+                    if (open.isEmpty()) {
+                        maxSwitch = Math.max(maxSwitch, currentSwitch);
+                        currentSwitch = 0;
+                    }
+                    currentSwitch++;
+                    CodeBlock block = new CodeBlock();
+                    block.startLine = line;
+                    block.startColumn = token.column;
+                    open.push(block);
+                } else if (isBlockEnd(token.type) && !open.isEmpty()) {
+                    CodeBlock block = open.pop();
+                    block.endLine = line;
+                    block.endColumn = token.column;
+                    if (block.startLine != block.endLine) {
+                        blocks.add(block);
+                    }
+                }
+            }
+        }
+        if (open.isEmpty()) {
+            maxSwitch = Math.max(maxSwitch, currentSwitch);
+        }
+        delegate.setSuppressSwitch(maxSwitch + 10);
+        return blocks;
     }
 
-    @Nullable
-    public Token getPreviousToken() {
-        return mPreviousToken;
+    /**
+     * The lexer is reused for each line, one lexer is created for each analysis thread
+     */
+    private Lexer getLexer(String line) {
+        CharStream input = CharStreams.fromString(line);
+        Lexer lexer = mLexer.get();
+        if (lexer == null) {
+            lexer = getLexer(input);
+            lexer.removeErrorListeners();
+            mLexer.set(lexer);
+        } else {
+            lexer.setInputStream(input);
+        }
+        return lexer;
     }
 
     /**
-     * Called when the lexer has moved to the next token
-     * @param currentToken the current token
-     * @param styles
-     * @param colors the current colors object, can be modified
-     * @return true if the analyzer should skip on the next token
+     * A token of a line, the text of the token is not kept
      */
-    public boolean onNextToken(Token currentToken, Styles styles, MappedSpans.Builder colors) {
-        return false;
+    public static final class LineToken {
+
+        public final int type;
+        public final int column;
+
+        public LineToken(int type, int column) {
+            this.type = type;
+            this.column = column;
+        }
     }
 
-    public void update(Styles styles) {
-        mReceiver.setStyles(this, styles);
+    /**
+     * The state of the lexer at the end of a line
+     */
+    public static final class LexerState {
+
+        static final LexerState INITIAL =
+                new LexerState(Lexer.DEFAULT_MODE, new int[0], Token.INVALID_TYPE);
+
+        final int mode;
+        final int[] modeStack;
+        final int previousTokenType;
+
+        LexerState(int mode, @NonNull int[] modeStack, int previousTokenType) {
+            this.mode = mode;
+            this.modeStack = modeStack;
+            this.previousTokenType = previousTokenType;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LexerState)) {
+                return false;
+            }
+            LexerState that = (LexerState) o;
+            return mode == that.mode &&
+                   previousTokenType == that.previousTokenType &&
+                   Arrays.equals(modeStack, that.modeStack);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * mode + previousTokenType) + Arrays.hashCode(modeStack);
+        }
     }
 }
@@ -4,20 +4,10 @@ import com.tyron.code.language.AbstractCodeAnalyzer;
 
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.Lexer;
-import org.antlr.v4.runtime.Token;
 
-import java.util.Stack;
-
-import io.github.rosemoe.sora.lang.styling.CodeBlock;
-import io.github.rosemoe.sora.lang.styling.MappedSpans;
-import io.github.rosemoe.sora.lang.styling.Styles;
 import io.github.rosemoe.sora.widget.schemes.EditorColorScheme;
 
-public class JsonAnalyzer extends AbstractCodeAnalyzer<Object> {
-
-    private final Stack<CodeBlock> mBlockLines = new Stack<>();
-    private int mMaxSwitch;
-    private int mCurrSwitch;
+public class JsonAnalyzer extends AbstractCodeAnalyzer {
 
     @Override
     public Lexer getLexer(CharStream input) {
@@ -37,66 +27,21 @@ public class JsonAnalyzer extends AbstractCodeAnalyzer<Object> {
     }
 
     @Override
-    public void analyzeInBackground(CharSequence contents) {
-
-    }
-
-    @Override
-    protected void beforeAnalyze() {
-        mBlockLines.clear();
-        mMaxSwitch = 1;
-        mCurrSwitch = 0;
+    protected int getColor(int tokenType, int previousTokenType) {
+        // a string after a colon is a value, not a key
+        if (tokenType == JSONLexer.STRING && previousTokenType == JSONLexer.COLON) {
+            return EditorColorScheme.LITERAL;
+        }
+        return super.getColor(tokenType, previousTokenType);
     }
 
     @Override
-    public boolean onNextToken(Token currentToken, Styles styles, MappedSpans.Builder colors) {
-        int line = currentToken.getLine() - 1;
-        int column = currentToken.getCharPositionInLine();
-
-        switch (currentToken.getType()) {
-            case JSONLexer.STRING:
-                Token previousToken = getPreviousToken();
-                if (previousToken != null) {
-                    if (previousToken.getType() == JSONLexer.COLON) {
-                        colors.addIfNeeded(line, column, EditorColorScheme.LITERAL);
-                        return true;
-                    }
-                }
-                break;
-            case JSONLexer.RBRACE:
-                if (!mBlockLines.isEmpty()) {
-                    CodeBlock b = mBlockLines.pop();
-                    b.endLine = line;
-                    b.endColumn = column;
-                    if (b.startLine != b.endLine) {
-                        styles.addCodeBlock(b);
-                    }
-                }
-                return false;
-            case JSONLexer.LBRACE:
-                if (mBlockLines.isEmpty()) {
-                    if (mCurrSwitch > mMaxSwitch) {
-                        mMaxSwitch = mCurrSwitch;
-                    }
-                    mCurrSwitch = 0;
-                }
-                mCurrSwitch++;
-                CodeBlock block = styles.obtainNewBlock();
-                block.startLine = line;
-                block.startColumn = column;
-                mBlockLines.push(block);
-                return false;
-        }
-        return false;
+    protected boolean isBlockStart(int tokenType) {
+        return tokenType == JSONLexer.LBRACE;
     }
 
     @Override
-    protected void afterAnalyze(CharSequence content, Styles styles, MappedSpans.Builder colors) {
-        if (mBlockLines.isEmpty()) {
-            if (mMaxSwitch > mCurrSwitch) {
-                mMaxSwitch = mCurrSwitch;
-            }
-        }
-        styles.setSuppressSwitch(mMaxSwitch + 10);
+    protected boolean isBlockEnd(int tokenType) {
+        return tokenType == JSONLexer.RBRACE;
     }
 }
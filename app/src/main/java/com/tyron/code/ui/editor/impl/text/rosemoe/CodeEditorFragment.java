@@ -37,6 +37,7 @@ import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.FileManager;
 import com.tyron.builder.project.api.Module;
 import com.tyron.builder.project.listener.FileListener;
+import com.tyron.builder.project.listener.TextChange;
 import com.tyron.code.ApplicationLoader;
 import com.tyron.code.R;
 import com.tyron.code.analyzer.BaseTextmateAnalyzer;
@@ -146,6 +147,7 @@ public class CodeEditorFragment extends Fragment implements Savable,
 
     private boolean mCanSave = false;
     private boolean mReading = false;
+    private boolean mApplyingSnapshotChange = false;
 
     private View.OnTouchListener mDragToOpenListener;
 
@@ -366,10 +368,11 @@ public class CodeEditorFragment extends Fragment implements Savable,
             }
         });
         mEditor.subscribeEvent(ContentChangeEvent.class, (event, unsubscribe) -> {
-            if (event.getAction() == ContentChangeEvent.ACTION_SET_NEW_TEXT) {
+            if (event.getAction() == ContentChangeEvent.ACTION_SET_NEW_TEXT ||
+                mApplyingSnapshotChange) {
                 return;
             }
-            updateFile(event.getEditor().getText());
+            updateFile(event);
         });
 
         LogViewModel logViewModel =
@@ -511,6 +514,30 @@ public class CodeEditorFragment extends Fragment implements Savable,
         }
     }
 
+    /**
+     * Applies only the changed text to the editor if it still shows the contents before the
+     * change, so the cursor and the undo history of the rest of the file are kept.
+     */
+    @Override
+    public void onSnapshotChanged(File file, CharSequence contents, @Nullable TextChange change) {
+        if (change == null || mEditor == null || !mCurrentFile.equals(file)) {
+            onSnapshotChanged(file, contents);
+            return;
+        }
+        int previousLength = contents.length() - (change.getNewEnd() - change.getOldEnd());
+        if (mEditor.getText().length() != previousLength) {
+            onSnapshotChanged(file, contents);
+            return;
+        }
+        mApplyingSnapshotChange = true;
+        try {
+            mEditor.getContent().replace(change.getStart(), change.getOldEnd(),
+                    change.getNewText());
+        } finally {
+            mApplyingSnapshotChange = false;
+        }
+    }
+
     @Override
     public boolean canSave() {
         return mCanSave && !mReading;
@@ -686,6 +713,39 @@ public class CodeEditorFragment extends Fragment implements Savable,
         }
     }
 
+    /**
+     * Applies only the changed text to the snapshot of the file, so the whole document is
+     * not copied on each edit.
+     */
+    private void updateFile(ContentChangeEvent event) {
+        Project project = ProjectManager.getInstance().getCurrentProject();
+        if (project == null) {
+            return;
+        }
+        Module module = project.getModule(mCurrentFile);
+        if (module == null) {
+            return;
+        }
+        FileManager fileManager = module.getFileManager();
+        if (!fileManager.isOpened(mCurrentFile)) {
+            return;
+        }
+        int start = event.getChangeStart().index;
+        int end = event.getAction() == ContentChangeEvent.ACTION_DELETE
+                ? event.getChangeEnd().index
+                : start;
+        CharSequence text = event.getAction() == ContentChangeEvent.ACTION_INSERT
+                ? event.getChangedText()
+                : "";
+        fileManager.applySnapshotChange(mCurrentFile, start, end, text, this);
+
+        // the snapshot is out of sync with the editor, replace it with the editor's content
+        Optional<CharSequence> snapshot = fileManager.getFileContent(mCurrentFile);
+        if (!snapshot.isPresent() || snapshot.get().length() != mEditor.getText().length()) {
+            updateFile(mEditor.getText());
+        }
+    }
+
     public CodeEditorView getEditor() {
         return mEditor;
     }
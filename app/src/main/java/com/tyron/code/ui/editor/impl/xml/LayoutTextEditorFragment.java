@@ -56,8 +56,11 @@ public class LayoutTextEditorFragment extends CodeEditorFragment {
 
         File currentFile = getEditor().getCurrentFile();
         if (ProjectUtils.isLayoutXMLFile(currentFile)) {
+            // the preview shows the text being edited, not the saved file
+            String contents = getEditor().getText().toString();
             getChildFragmentManager().beginTransaction().add(R.id.layout_editor_container,
-                    LayoutEditorFragment.newInstance(currentFile)).addToBackStack(null).commit();
+                    LayoutEditorFragment.newInstance(currentFile, contents))
+                    .addToBackStack(null).commit();
         } else {
             // TODO: handle unknown files
 //            JavaCompilerProvider service =
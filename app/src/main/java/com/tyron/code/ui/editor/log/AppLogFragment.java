@@ -24,10 +24,10 @@ import com.tyron.common.util.ShareUtils;
 import com.tyron.fileeditor.api.FileEditorManager;
 import com.tyron.terminal.TerminalSession;
 import com.tyron.terminal.TerminalSessionClientAdapter;
+import com.tyron.terminal.view.TerminalOutputPump;
 import com.tyron.terminal.view.TerminalView;
 import com.tyron.terminal.view.TerminalViewClientAdapter;
 
-import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
 import java.util.logging.Handler;
@@ -52,6 +52,7 @@ public class AppLogFragment extends Fragment
     private LogAdapter mAdapter;
     private RecyclerView mRecyclerView;
     private TerminalView mTerminalView;
+    private TerminalOutputPump mOutputPump;
 
     public static OutputStream outputStream;
     public static OutputStream errorOutputStream;
@@ -89,21 +90,18 @@ public class AppLogFragment extends Fragment
 
             mTerminalView = new TerminalView(requireContext(), null);
             mTerminalView.setTextSize(20);
-            mTerminalView.setTerminalViewClient(new TerminalViewClientAdapter(mTerminalView));
-            mTerminalView.attachSession(session);
-
-            outputStream = new OutputStream() {
+            mTerminalView.setTerminalViewClient(new TerminalViewClientAdapter(mTerminalView) {
                 @Override
-                public void write(int b) throws IOException {
-                    write(new byte[]{(byte) b}, 0, 1);
+                public void onEmulatorSet() {
+                    mOutputPump.onEmulatorSet();
                 }
+            });
+            mTerminalView.attachSession(session);
 
-                @Override
-                public void write(byte[] b, int off, int len) throws IOException {
-                    mTerminalView.mEmulator.append(b, off + len);
-                    mTerminalView.postInvalidate();
-                }
-            };
+            // build output is written from the build threads, it is appended to the
+            // terminal on the main thread once per frame
+            mOutputPump = new TerminalOutputPump(mTerminalView);
+            outputStream = mOutputPump.getOutputStream();
 
             mRoot.addView(mTerminalView, new ViewGroup.LayoutParams(-1, -1));
             return mRoot;
@@ -161,6 +159,10 @@ public class AppLogFragment extends Fragment
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+
+        if (mOutputPump != null) {
+            mOutputPump.close();
+        }
     }
 
     private void process(List<DiagnosticWrapper> texts) {
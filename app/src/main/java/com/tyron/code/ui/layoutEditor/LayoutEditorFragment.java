@@ -71,6 +71,7 @@ import kotlin.Pair;
 public class LayoutEditorFragment extends Fragment implements ProjectManager.OnProjectOpenListener {
 
     public static final String KEY_SAVE = "KEY_SAVE";
+    private static final String KEY_CONTENTS = "contents";
 
     /**
      * Creates a new LayoutEditorFragment instance for a layout xml file.
@@ -78,8 +79,17 @@ public class LayoutEditorFragment extends Fragment implements ProjectManager.OnP
      * {@code ProjectManager#getCurrentProject} is not null
      */
     public static LayoutEditorFragment newInstance(File file) {
+        return newInstance(file, null);
+    }
+
+    /**
+     * Creates a new LayoutEditorFragment that shows the given contents of the layout file
+     * instead of the contents saved to disk.
+     */
+    public static LayoutEditorFragment newInstance(File file, @Nullable String contents) {
         Bundle args = new Bundle();
         args.putSerializable("file", file);
+        args.putString(KEY_CONTENTS, contents);
         LayoutEditorFragment fragment = new LayoutEditorFragment();
         fragment.setArguments(args);
         return fragment;
@@ -87,6 +97,7 @@ public class LayoutEditorFragment extends Fragment implements ProjectManager.OnP
 
     private final ExecutorService mService = Executors.newSingleThreadExecutor();
     private LayoutEditorViewModel mEditorViewModel;
+    private LayoutPreviewViewModel mPreviewViewModel;
 
     private File mCurrentFile;
     private PreviewLayoutInflater mInflater;
@@ -174,6 +185,8 @@ public class LayoutEditorFragment extends Fragment implements ProjectManager.OnP
                 CompletionEngine.isIndexing();
         mEditorViewModel = new ViewModelProvider(this)
                 .get(LayoutEditorViewModel.class);
+        mPreviewViewModel = new ViewModelProvider(requireActivity())
+                .get(LayoutPreviewViewModel.class);
         requireActivity().getOnBackPressedDispatcher().addCallback(this, new OnBackPressedCallback(true) {
             @Override
             public void handleOnBackPressed() {
@@ -188,6 +201,12 @@ public class LayoutEditorFragment extends Fragment implements ProjectManager.OnP
                                         .setMessage("An unknown error has occurred during layout conversion")
                                         .show();
                             } else {
+                                // layouts that include this one use the edited layout,
+                                // the next preview compiles only what changed after it
+                                String name = getLayoutName();
+                                PreviewLayoutInflater inflater = mInflater;
+                                mService.execute(() -> inflater.updateLayout(name, converted));
+
                                 Bundle args = new Bundle();
                                 args.putString("text", converted);
                                 getParentFragmentManager().setFragmentResult(KEY_SAVE,
@@ -320,10 +339,21 @@ public class LayoutEditorFragment extends Fragment implements ProjectManager.OnP
         setLoadingText("Parsing xml files");
 
         // need to wrap the context to a default theme so
-        // material widgets wont use CodeAssist's theme
-        ContextThemeWrapper wrapper = new ContextThemeWrapper(requireContext(), R.style.Theme_MaterialComponents_DayNight);
-        mInflater = new PreviewLayoutInflater(wrapper, (AndroidModule) module);
-        mInflater.parseResources(mService).whenComplete((inflater, exception) ->
+        // material widgets wont use CodeAssist's theme, the inflater is kept after
+        // this fragment is destroyed so it can't use the activity
+        ContextThemeWrapper wrapper = new ContextThemeWrapper(
+                requireContext().getApplicationContext(),
+                R.style.Theme_MaterialComponents_DayNight);
+        mInflater = mPreviewViewModel.getInflater(wrapper, (AndroidModule) module);
+        // the layouts that have not changed since the last time are taken from the cache
+        String contents = requireArguments().getString(KEY_CONTENTS);
+        String name = getLayoutName();
+        mInflater.parseResources(mService).thenApply(inflater -> {
+            if (contents != null) {
+                inflater.updateLayout(name, contents);
+            }
+            return inflater;
+        }).whenComplete((inflater, exception) ->
                 requireActivity().runOnUiThread(() -> {
                     if (inflater == null) {
                         exit(getString(R.string.error),
@@ -344,8 +374,7 @@ public class LayoutEditorFragment extends Fragment implements ProjectManager.OnP
         Optional<ProteusView> optionalView;
 
         try {
-            optionalView = mInflater.inflateLayout(file.getName()
-                    .replace(".xml", ""));
+            optionalView = mInflater.inflateLayout(getLayoutName(file));
         } catch (ProteusInflateException e) {
             optionalView = Optional.empty();
         }
@@ -506,6 +535,14 @@ public class LayoutEditorFragment extends Fragment implements ProjectManager.OnP
         }
     }
 
+    private String getLayoutName() {
+        return getLayoutName(mCurrentFile);
+    }
+
+    private static String getLayoutName(File file) {
+        return file.getName().replace(".xml", "");
+    }
+
     private String convertLayoutToXml() {
         if (mInflater != null) {
             LayoutToXmlConverter converter =
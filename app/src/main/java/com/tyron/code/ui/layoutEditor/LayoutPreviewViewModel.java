@@ -0,0 +1,40 @@
+package com.tyron.code.ui.layoutEditor;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.ViewModel;
+
+import com.tyron.builder.project.api.AndroidModule;
+import com.tyron.layoutpreview.inflate.PreviewLayoutInflater;
+
+/**
+ * Keeps the {@link PreviewLayoutInflater} of a module while the layout editor is closed and
+ * opened again, so the layouts compiled before are taken from the cache of its compiler.
+ */
+public class LayoutPreviewViewModel extends ViewModel {
+
+    private AndroidModule mModule;
+    private PreviewLayoutInflater mInflater;
+
+    /**
+     * @param context the context used to create the views, it is kept as long as the inflater
+     *                so it should not be an activity
+     * @return the inflater of the module, a new one is created if the module has changed
+     */
+    @NonNull
+    public synchronized PreviewLayoutInflater getInflater(@NonNull Context context,
+                                                          @NonNull AndroidModule module) {
+        if (mInflater == null || mModule != module) {
+            mInflater = new PreviewLayoutInflater(context, module);
+            mModule = module;
+        }
+        return mInflater;
+    }
+
+    @Override
+    protected synchronized void onCleared() {
+        mInflater = null;
+        mModule = null;
+    }
+}
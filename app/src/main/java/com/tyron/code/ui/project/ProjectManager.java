@@ -36,11 +36,13 @@ import com.tyron.code.ui.editor.log.AppLogFragment;
 import com.tyron.code.util.ProjectUtils;
 import com.tyron.common.logging.IdeLog;
 import com.tyron.common.util.DebouncerStore;
-import com.tyron.completion.java.compiler.Parser;
+import com.tyron.completion.java.JavaCompilerProvider;
+import com.tyron.completion.java.compiler.JavaCompilerService;
 import com.tyron.completion.java.parse.CompilationInfo;
+import com.tyron.completion.java.parse.PrunedSources;
 import com.tyron.completion.java.provider.CompletionEngine;
-import com.tyron.completion.java.provider.PruneMethodBodies;
 import com.tyron.completion.progress.ProgressManager;
+import com.tyron.completion.progress.TaskPriority;
 import com.tyron.completion.xml.task.InjectResourcesTask;
 import com.tyron.completion.xml.v2.events.XmlReparsedEvent;
 import com.tyron.completion.xml.v2.events.XmlResourceChangeEvent;
@@ -68,7 +70,6 @@ import java.util.Set;
 import java.util.function.Consumer;
 
 import javax.tools.JavaFileObject;
-import javax.tools.SimpleJavaFileObject;
 
 public class ProjectManager {
 
@@ -160,11 +161,24 @@ public class ProjectManager {
         mCurrentProject.getEventManager().subscribeEvent(FileDeletedEvent.class, (event, u) -> {
             modifiedEventConsumer.accept(event.getDeletedFile());
 
-            mCurrentProject.getEventManager().dispatchEvent(new XmlReparsedEvent(event.getDeletedFile()));
+            JavaCompilerService compiler = JavaCompilerProvider.getIfCreated();
+            if (compiler != null) {
+                compiler.onFileDeleted(event.getDeletedFile());
+            }
+
+            // resource files are reported by the repository once its rescan is done
+            if (!ProjectUtils.isResourceXMLFile(event.getDeletedFile())) {
+                mCurrentProject.getEventManager().dispatchEvent(new XmlReparsedEvent(event.getDeletedFile()));
+            }
         });
         // listen for newly created files and notify the resources repository
         mCurrentProject.getEventManager().subscribeEvent(FileCreatedEvent.class, (event, u) -> {
             modifiedEventConsumer.accept(event.getFile());
+
+            JavaCompilerService compiler = JavaCompilerProvider.getIfCreated();
+            if (compiler != null) {
+                compiler.onFileCreated(event.getFile());
+            }
         });
         mCurrentProject.getEventManager().subscribeEvent(XmlReparsedEvent.class,
                 (event, unsubscribe) -> DebouncerStore.DEFAULT.registerOrGetDebouncer("ResourceInjector").debounce(300, () -> ProgressManager.getInstance().runNonCancelableAsync(() -> {
@@ -182,7 +196,7 @@ public class ProjectManager {
                             IdeLog.getLogger().severe(e.getMessage());
                         }
                     }
-                })));
+                }, TaskPriority.BACKGROUND)));
 
         // the following will extract the jar files if it does not exist
         BuildModule.getAndroidJar();
@@ -357,21 +371,15 @@ public class ProjectManager {
         module.index();
 
         JavaModule javaModule = (JavaModule) module;
-        for (File value : javaModule.getJavaFiles().values()) {
-            CompilationInfo info = CompilationInfo.get(module.getProject(), value);
-            if (info == null) {
-                continue;
-            }
-            info.updateImmediately(new SimpleJavaFileObject(value.toURI(),
-                    JavaFileObject.Kind.SOURCE) {
-                @Override
-                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
-                    Parser parser = Parser.parseFile(module.getProject(), value.toPath());
-                    // During indexing, statements inside methods are not needed so
-                    // it is stripped to speed up the index process
-                    return new PruneMethodBodies(info.impl.getJavacTask()).scan(parser.root, 0L);
-                }
-            });
+        CompilationInfo info = CompilationInfo.get(module);
+        if (info != null) {
+            long start = System.currentTimeMillis();
+            List<JavaFileObject> sources =
+                    PrunedSources.create(javaModule, javaModule.getJavaFiles().values());
+            IdeLog.getLogger().info("Pruned " + sources.size() + " files of " +
+                                    module.getName() + " in " +
+                                    (System.currentTimeMillis() - start) + "ms");
+            info.updateAll(sources);
         }
 
         KotlinEnvironment kotlinEnvironment = KotlinEnvironment.Companion.get(module);
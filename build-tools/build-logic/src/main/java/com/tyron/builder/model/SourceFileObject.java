@@ -51,6 +51,13 @@ public class SourceFileObject extends SimpleJavaFileObject {
 		mProject = project;
 	}
 
+	/**
+	 * @return the module this file belongs to, or null if unknown
+	 */
+	public JavaModule getModule() {
+		return mProject;
+	}
+
 	@Override
 	public CharSequence getCharContent(boolean ignoreEncodingErrors) {
 		if (mProject != null) {
@@ -51,6 +51,27 @@ public interface FileManager {
         setSnapshotContent(file, content, true);
     }
 
+    /**
+     * Replace the text between start and end of the stored contents of an opened file,
+     * without notifying the passed FileListener
+     * @param file The file
+     * @param start The start of the replaced text
+     * @param end The end of the replaced text in the current contents
+     * @param text The text to insert
+     * @param listener The listener to ignore
+     */
+    default void applySnapshotChange(@NonNull File file, int start, int end,
+                                     @NonNull CharSequence text, FileListener listener) {
+        Optional<CharSequence> content = getFileContent(file);
+        if (!content.isPresent()) {
+            return;
+        }
+        String newContent = new StringBuilder(content.get())
+                .replace(start, end, text.toString())
+                .toString();
+        setSnapshotContent(file, newContent, listener);
+    }
+
     /**
      * Mark the file as closed and save its stored snapshot to disk
      * @param file the file to be saved
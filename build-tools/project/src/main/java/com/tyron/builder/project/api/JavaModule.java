@@ -4,9 +4,11 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.tyron.builder.model.CodeAssistLibrary;
+import com.tyron.builder.project.util.ClassNameIndex;
 import com.tyron.builder.project.util.PackageTrie;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,10 +27,30 @@ public interface JavaModule extends Module {
 
     void addJavaFile(@NonNull File javaFile);
 
+    /**
+     * @return the java files and injected classes directly inside the given package. An
+     * injected class replaces a java file with the same fully qualified name.
+     */
+    @NonNull
+    List<File> getJavaFiles(@NonNull String packageName);
+
+    /**
+     * @return the fully qualified name of a java file or injected class of this module
+     * without reading the file, or null if the file is not part of this module
+     */
+    @Nullable
+    String getClassName(@NonNull File javaFile);
+
     List<File> getLibraries();
 
     void addLibrary(@NonNull CodeAssistLibrary jar);
 
+    /**
+     * Removes the library and its classes from this module, the classes of the other
+     * libraries are not re-indexed.
+     */
+    void removeLibrary(@NonNull CodeAssistLibrary jar);
+
     /**
      * Sets the map of md5 hash to its library source
      */
@@ -54,6 +76,14 @@ public interface JavaModule extends Module {
     @NonNull
     PackageTrie getClassIndex();
 
+    /**
+     * @return The indexes of the class names in the libraries of this module, sorted by
+     * their simple names. Use this instead of {@link #getClassIndex()} when looking up
+     * classes by a prefix of their simple name.
+     */
+    @NonNull
+    Collection<ClassNameIndex> getClassNameIndexes();
+
     /**
      * @return The resources directory of the project. Note that
      * this is different from android's res directory
@@ -106,6 +106,22 @@ public class AndroidModuleImpl extends JavaModuleImpl implements AndroidModule {
         }
     }
 
+    @Override
+    public void removeLibrary(@NonNull CodeAssistLibrary library) {
+        if (!libraries.remove(library)) {
+            return;
+        }
+
+        if (library instanceof CodeAssistAndroidLibrary) {
+            CodeAssistAndroidLibrary androidLibrary = (CodeAssistAndroidLibrary) library;
+            for (File compileJarFile : androidLibrary.getCompileJarFiles()) {
+                removeJar(compileJarFile);
+            }
+        } else {
+            super.removeLibrary(library);
+        }
+    }
+
     @Override
     public File getAndroidResourcesDirectory() {
         File custom = getPathSetting("android_resources_directory");
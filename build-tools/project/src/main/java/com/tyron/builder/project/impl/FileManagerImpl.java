@@ -7,20 +7,21 @@ import androidx.annotation.Nullable;
 
 import com.tyron.builder.project.api.FileManager;
 import com.tyron.builder.project.listener.FileListener;
+import com.tyron.builder.project.listener.TextChange;
+import com.tyron.builder.project.util.TextSnapshot;
 import com.tyron.common.util.ThreadUtil;
 
-import org.apache.commons.io.FileUtils;
-
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -29,15 +30,15 @@ public class FileManagerImpl implements FileManager {
 
     private static class FileState {
 
-        private String mContents;
+        private TextSnapshot mContents;
         private Instant mModified;
 
-        public FileState(String contents, Instant modified) {
+        public FileState(TextSnapshot contents, Instant modified) {
             mContents = contents;
             mModified = modified;
         }
 
-        public String getContents() {
+        public TextSnapshot getContents() {
             return mContents;
         }
 
@@ -45,7 +46,7 @@ public class FileManagerImpl implements FileManager {
             return mModified;
         }
 
-        public void setContents(String content) {
+        public void setContents(TextSnapshot content) {
             mContents = content;
         }
 
@@ -99,51 +100,72 @@ public class FileManagerImpl implements FileManager {
     @Override
     public void openFileForSnapshot(@NonNull File file, String content) {
         long lastModified = file.lastModified();
-        FileState state = new FileState(content, Instant.ofEpochMilli(lastModified));
+        FileState state = new FileState(TextSnapshot.of(content), Instant.ofEpochMilli(lastModified));
         mSnapshots.put(file, state);
     }
 
     @Override
     public void setSnapshotContent(@NonNull File file, String content, FileListener listener) {
-        if (!mSnapshots.containsKey(file)) {
-            return;
-        }
+        setSnapshotContent(file, content, listener, true);
+    }
 
-        mSnapshots.computeIfPresent(file, (f, state) -> {
-            boolean equals = Objects.equals(content, state.getContents());
-            state.setContents(content);
-            if (!equals) {
-                state.setModified(Instant.now());
-            }
-            return state;
-        });
+    @Override
+    public void setSnapshotContent(@NonNull File file, String content, boolean notify) {
+        setSnapshotContent(file, content, null, notify);
+    }
 
-        for (FileListener l : mListeners) {
-            if (l.equals(listener)) {
-                continue;
+    private void setSnapshotContent(File file, String content, FileListener ignored,
+                                    boolean notify) {
+        TextSnapshot snapshot;
+        TextChange change;
+        synchronized (mSnapshots) {
+            FileState state = mSnapshots.get(file);
+            if (state == null) {
+                return;
+            }
+            TextSnapshot old = state.getContents();
+            change = TextChange.compute(old.toString(), content, old.getVersion() + 1);
+            if (change == null) {
+                return;
             }
-            l.onSnapshotChanged(file, content);
+            snapshot = TextSnapshot.of(content, change.getVersion());
+            state.setContents(snapshot);
+            state.setModified(Instant.now());
+        }
+        if (notify) {
+            notifyListeners(file, snapshot, change, ignored);
         }
     }
 
+    /**
+     * Applies the change to the stored snapshot instead of replacing the whole content, the
+     * unchanged text is shared with the previous snapshot.
+     */
     @Override
-    public void setSnapshotContent(@NonNull File file, String content, boolean notify) {
-        if (!mSnapshots.containsKey(file)) {
-            return;
+    public void applySnapshotChange(@NonNull File file, int start, int end,
+                                    @NonNull CharSequence text, FileListener listener) {
+        TextSnapshot snapshot;
+        TextChange change;
+        synchronized (mSnapshots) {
+            FileState state = mSnapshots.get(file);
+            if (state == null) {
+                return;
+            }
+            snapshot = state.getContents().replace(start, end, text);
+            change = new TextChange(start, end, text.toString(), snapshot.getVersion());
+            state.setContents(snapshot);
+            state.setModified(Instant.now());
         }
+        notifyListeners(file, snapshot, change, listener);
+    }
 
-        mSnapshots.computeIfPresent(file, (f, state) -> {
-            boolean equals = Objects.equals(content, state.getContents());
-            state.setContents(content);
-            if (!equals) {
-                state.setModified(Instant.now());
-            }
-            return state;
-        });
-        if (notify) {
-            for (FileListener listener : mListeners) {
-                listener.onSnapshotChanged(file, content);
+    private void notifyListeners(File file, TextSnapshot snapshot, TextChange change,
+                                 FileListener ignored) {
+        for (FileListener l : mListeners) {
+            if (l.equals(ignored)) {
+                continue;
             }
+            l.onSnapshotChanged(file, snapshot, change);
         }
     }
 
@@ -153,9 +175,7 @@ public class FileManagerImpl implements FileManager {
             if (file.exists()) {
                 try {
                     FileState state = mSnapshots.get(file);
-                    FileUtils.writeStringToFile(file,
-                            state.getContents(),
-                            StandardCharsets.UTF_8);
+                    writeContents(file, state.getContents());
                 } catch (IOException e) {
                     Log.d(TAG, "Failed to save file " + file.getName(), e);
                 }
@@ -192,8 +212,7 @@ public class FileManagerImpl implements FileManager {
     public void saveContents() {
         mService.execute(() -> mSnapshots.forEach((k, v) -> {
             try {
-                FileUtils.writeStringToFile(k,
-                                            v.getContents(), StandardCharsets.UTF_8);
+                writeContents(k, v.getContents());
                 Instant instant = Instant.ofEpochMilli(k.lastModified());
                 ThreadUtil.runOnUiThread(() -> setLastModified(k, instant));
             } catch (IOException e) {
@@ -201,4 +220,10 @@ public class FileManagerImpl implements FileManager {
             }
         }));
     }
-}
\ No newline at end of file
+
+    private static void writeContents(File file, TextSnapshot contents) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            contents.writeTo(writer);
+        }
+    }
+}
@@ -7,7 +7,10 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.tyron.builder.model.CodeAssistLibrary;
 import com.tyron.builder.project.api.JavaModule;
+import com.tyron.builder.project.util.ClassNameIndex;
+import com.tyron.builder.project.util.ClassNameIndexStore;
 import com.tyron.builder.project.util.PackageTrie;
+import com.tyron.builder.project.util.SourcePackageIndex;
 import com.tyron.common.util.StringSearch;
 
 import org.apache.commons.io.FileUtils;
@@ -18,12 +21,15 @@ import org.jetbrains.kotlin.com.intellij.util.ReflectionUtil;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -39,6 +45,13 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
     // the index of all the class files in this module
     private final PackageTrie mClassIndex = new PackageTrie();
 
+    // the simple name index of each jar in this module
+    private final Map<File, ClassNameIndex> mClassNameIndexes = new ConcurrentHashMap<>();
+
+    // the java files and injected classes of this module by package
+    private final SourcePackageIndex mJavaFileIndex = new SourcePackageIndex();
+    private final SourcePackageIndex mInjectedClassIndex = new SourcePackageIndex();
+
     public JavaModuleImpl(File root) {
         super(root);
         mJavaFiles = new HashMap<>();
@@ -54,6 +67,12 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
         return mClassIndex;
     }
 
+    @NonNull
+    @Override
+    public Collection<ClassNameIndex> getClassNameIndexes() {
+        return mClassNameIndexes.values();
+    }
+
     @NonNull
     @Override
     public Map<String, File> getJavaFiles() {
@@ -68,8 +87,10 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
 
     @Override
     public void removeJavaFile(@NonNull String packageName) {
-        mJavaFiles.remove(packageName);
-        mClassIndex.remove(packageName);
+        if (mJavaFiles.remove(packageName) != null) {
+            mClassIndex.remove(packageName);
+        }
+        mJavaFileIndex.remove(packageName);
     }
 
     @Override
@@ -78,8 +99,39 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
             return;
         }
         String className = getFullyQualifiedName(javaFile);
-        mJavaFiles.put(className, javaFile);
-        mClassIndex.add(className);
+        // the same file is added again when the module is indexed, the class index counts
+        // each source of a class once
+        if (mJavaFiles.put(className, javaFile) == null) {
+            mClassIndex.add(className);
+        }
+        mJavaFileIndex.put(className, javaFile);
+    }
+
+    @NonNull
+    @Override
+    public List<File> getJavaFiles(@NonNull String packageName) {
+        List<File> injected = mInjectedClassIndex.getFiles(packageName);
+        if (injected.isEmpty()) {
+            return mJavaFileIndex.getFiles(packageName);
+        }
+        Map<String, File> files = new HashMap<>();
+        for (File file : mJavaFileIndex.getFiles(packageName)) {
+            files.put(mJavaFileIndex.getClassName(file), file);
+        }
+        for (File file : injected) {
+            files.put(mInjectedClassIndex.getClassName(file), file);
+        }
+        return new ArrayList<>(files.values());
+    }
+
+    @Nullable
+    @Override
+    public String getClassName(@NonNull File javaFile) {
+        String className = mInjectedClassIndex.getClassName(javaFile);
+        if (className != null) {
+            return className;
+        }
+        return mJavaFileIndex.getClassName(javaFile);
     }
 
     @Override
@@ -126,10 +178,34 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
         }
     }
 
+    @Override
+    public void removeLibrary(@NonNull CodeAssistLibrary library) {
+        File jar = library.getSourceFile();
+        if (jar == null || !mLibraries.remove(jar)) {
+            return;
+        }
+        removeJar(jar);
+    }
+
     protected void putJar(File file) throws IOException {
-        if (file == null) {
+        if (file == null || mClassNameIndexes.containsKey(file)) {
             return;
         }
+
+        // the class names of the jar are already known from a previous session,
+        // no need to read the jar again
+        ClassNameIndex cachedIndex = ClassNameIndexStore.getInstance().getCachedIndex(file);
+        if (cachedIndex != null) {
+            cachedIndex.processClassNames("", true, className -> {
+                mClassFiles.put(className, file);
+                mClassIndex.add(className);
+                return true;
+            });
+            mClassNameIndexes.put(file, cachedIndex);
+            return;
+        }
+
+        List<String> classNames = new ArrayList<>();
         try (JarFile jar = new JarFile(file)) {
             Enumeration<JarEntry> entries = jar.entries();
             while (entries.hasMoreElements()) {
@@ -149,9 +225,43 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
                         .substring(0, entry.getName().length() - ".class".length());
 
                 mClassFiles.put(packageName, file);
-                mClassIndex.add(packageName);
+                classNames.add(packageName);
             }
         }
+        mClassIndex.addAll(classNames);
+        mClassNameIndexes.put(file, ClassNameIndexStore.getInstance().getIndex(file, classNames));
+    }
+
+    /**
+     * Removes the classes of the jar from the indexes of this module, classes from other
+     * jars are left untouched.
+     */
+    protected void removeJar(File file) {
+        ClassNameIndex index = mClassNameIndexes.remove(file);
+        if (index == null) {
+            return;
+        }
+        Set<String> shared = new HashSet<>();
+        index.processClassNames("", true, className -> {
+            mClassIndex.remove(className);
+            if (mClassFiles.remove(className, file) && mClassIndex.contains(className)) {
+                shared.add(className);
+            }
+            return true;
+        });
+        if (shared.isEmpty()) {
+            return;
+        }
+
+        // the classes are also in another jar, which was replaced when this jar was added
+        for (Map.Entry<File, ClassNameIndex> entry : mClassNameIndexes.entrySet()) {
+            entry.getValue().processClassNames("", true, className -> {
+                if (shared.contains(className)) {
+                    mClassFiles.putIfAbsent(className, entry.getKey());
+                }
+                return true;
+            });
+        }
     }
 
     @NonNull
@@ -227,6 +337,7 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
 
         String className = getFullyQualifiedName(javaFile);
         mInjectedClassesMap.put(className, javaFile);
+        mInjectedClassIndex.put(className, javaFile);
     }
 
     private static String getFullyQualifiedName(@NonNull File javaFile) {
@@ -253,7 +364,11 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
     @Override
     public void clear() {
         mJavaFiles.clear();
+        mJavaFileIndex.clear();
+        mClassFiles.clear();
+        mClassIndex.clear();
         mLibraries.clear();
+        mClassNameIndexes.clear();
         mLibraryHashMap.clear();
     }
 }
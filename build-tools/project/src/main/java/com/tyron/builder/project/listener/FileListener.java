@@ -1,8 +1,22 @@
 package com.tyron.builder.project.listener;
 
+import androidx.annotation.Nullable;
+
 import java.io.File;
 
 public interface FileListener {
 
     void onSnapshotChanged(File file, CharSequence contents);
+
+    /**
+     * Called instead of {@link #onSnapshotChanged(File, CharSequence)} when the change is known,
+     * listeners that keep their own copy of the file can apply the change instead of copying
+     * the contents.
+     *
+     * @param contents The new contents, an immutable snapshot that can be kept
+     * @param change   The change applied to the previous contents, or null if unknown
+     */
+    default void onSnapshotChanged(File file, CharSequence contents, @Nullable TextChange change) {
+        onSnapshotChanged(file, contents);
+    }
 }
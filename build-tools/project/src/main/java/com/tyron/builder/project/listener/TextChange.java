@@ -0,0 +1,118 @@
+package com.tyron.builder.project.listener;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Describes an edit of an opened file: the text between {@link #getStart()} and
+ * {@link #getOldEnd()} of the previous contents was replaced by {@link #getNewText()}.
+ */
+public class TextChange {
+
+    private final int mStart;
+    private final int mOldEnd;
+    private final CharSequence mNewText;
+    private final long mVersion;
+
+    public TextChange(int start, int oldEnd, @NonNull CharSequence newText, long version) {
+        mStart = start;
+        mOldEnd = oldEnd;
+        mNewText = newText;
+        mVersion = version;
+    }
+
+    /**
+     * Computes the change between two texts by skipping their common prefix and suffix.
+     *
+     * @return the change, or null if the texts are equal
+     */
+    @Nullable
+    public static TextChange compute(@NonNull CharSequence oldText,
+                                     @NonNull CharSequence newText,
+                                     long version) {
+        int oldLength = oldText.length();
+        int newLength = newText.length();
+        int prefix = 0;
+        int max = Math.min(oldLength, newLength);
+        while (prefix < max && oldText.charAt(prefix) == newText.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix == oldLength && prefix == newLength) {
+            return null;
+        }
+        int suffix = 0;
+        max -= prefix;
+        while (suffix < max &&
+               oldText.charAt(oldLength - suffix - 1) == newText.charAt(newLength - suffix - 1)) {
+            suffix++;
+        }
+        return new TextChange(prefix, oldLength - suffix,
+                newText.subSequence(prefix, newLength - suffix), version);
+    }
+
+    /**
+     * Combines this change with a change applied after it into a single change of the
+     * contents before this change. The replaced region covers both changes.
+     *
+     * @param next     the change applied to the contents after this change
+     * @param contents the contents after the next change
+     */
+    @NonNull
+    public TextChange merge(@NonNull TextChange next, @NonNull CharSequence contents) {
+        int delta = getNewEnd() - mOldEnd;
+        // the end of the next change in the contents before this change
+        int nextOldEnd;
+        if (next.mOldEnd <= mStart) {
+            nextOldEnd = next.mOldEnd;
+        } else if (next.mOldEnd >= getNewEnd()) {
+            nextOldEnd = next.mOldEnd - delta;
+        } else {
+            nextOldEnd = mOldEnd;
+        }
+        int start = Math.min(mStart, next.mStart);
+        int oldEnd = Math.max(mOldEnd, nextOldEnd);
+        int newEnd = oldEnd + delta + next.getNewEnd() - next.mOldEnd;
+        return new TextChange(start, oldEnd, contents.subSequence(start, newEnd), next.mVersion);
+    }
+
+    public int getStart() {
+        return mStart;
+    }
+
+    /**
+     * @return the end of the replaced text in the previous contents
+     */
+    public int getOldEnd() {
+        return mOldEnd;
+    }
+
+    /**
+     * @return the end of the inserted text in the new contents
+     */
+    public int getNewEnd() {
+        return mStart + mNewText.length();
+    }
+
+    @NonNull
+    public CharSequence getNewText() {
+        return mNewText;
+    }
+
+    /**
+     * @return the version of the contents after this change
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "TextChange{" +
+               "start=" + mStart +
+               ", oldEnd=" + mOldEnd +
+               ", newText='" + mNewText + '\'' +
+               ", version=" + mVersion +
+               '}';
+    }
+}
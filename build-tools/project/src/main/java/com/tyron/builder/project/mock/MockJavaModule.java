@@ -7,7 +7,9 @@ import com.tyron.builder.model.ModuleSettings;
 import com.tyron.builder.project.api.FileManager;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.impl.ModuleImpl;
+import com.tyron.builder.project.util.ClassNameIndex;
 import com.tyron.builder.project.util.PackageTrie;
+import com.tyron.builder.project.util.SourcePackageIndex;
 import com.tyron.common.util.StringSearch;
 
 import org.jetbrains.annotations.NotNull;
@@ -18,6 +20,7 @@ import org.jetbrains.kotlin.com.intellij.util.keyFMap.KeyFMap;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +35,7 @@ public class MockJavaModule extends ModuleImpl implements JavaModule {
 
     private final KeyFMap mDataMap = KeyFMap.EMPTY_MAP;
     private final Map<String, File> mJavaFiles = new HashMap<>();
+    private final SourcePackageIndex mJavaFileIndex = new SourcePackageIndex();
 
     private final FileManager mFileManager;
     private final File mRootDir;
@@ -57,6 +61,7 @@ public class MockJavaModule extends ModuleImpl implements JavaModule {
     @Override
     public void removeJavaFile(@NonNull String packageName) {
         mJavaFiles.remove(packageName);
+        mJavaFileIndex.remove(packageName);
     }
 
     @Override
@@ -69,6 +74,19 @@ public class MockJavaModule extends ModuleImpl implements JavaModule {
             className = packageName + "." + javaFile.getName().replace(".java", "");
         }
         mJavaFiles.put(className, javaFile);
+        mJavaFileIndex.put(className, javaFile);
+    }
+
+    @NonNull
+    @Override
+    public List<File> getJavaFiles(@NonNull String packageName) {
+        return mJavaFileIndex.getFiles(packageName);
+    }
+
+    @Nullable
+    @Override
+    public String getClassName(@NonNull File javaFile) {
+        return mJavaFileIndex.getClassName(javaFile);
     }
 
     @Override
@@ -81,6 +99,11 @@ public class MockJavaModule extends ModuleImpl implements JavaModule {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void removeLibrary(@NonNull CodeAssistLibrary jar) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void putLibraryHashes(Map<String, CodeAssistLibrary> hashes) {
         // no op
@@ -103,6 +126,12 @@ public class MockJavaModule extends ModuleImpl implements JavaModule {
         return new PackageTrie();
     }
 
+    @NonNull
+    @Override
+    public Collection<ClassNameIndex> getClassNameIndexes() {
+        return Collections.emptyList();
+    }
+
     @NonNull
     @Override
     public File getResourcesDir() {
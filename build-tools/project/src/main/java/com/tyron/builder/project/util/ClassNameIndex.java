@@ -0,0 +1,337 @@
+package com.tyron.builder.project.util;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * An immutable index of fully qualified class names sorted by their simple names.
+ *
+ * <p>The index is stored in a flat binary form so it can be memory-mapped straight from disk
+ * without materializing every class name on the heap. Queries do a binary search on the
+ * case-insensitive simple name and only decode the entries that match.</p>
+ *
+ * Layout of the buffer:
+ * <pre>
+ *     int magic
+ *     int version
+ *     int count
+ *     int[count] offsets of each entry, sorted by simple name
+ *     entries: u2 simple name start, u2 length, modified UTF-8 bytes of the fqn
+ * </pre>
+ */
+public class ClassNameIndex {
+
+    private static final int MAGIC = 0x434E4958;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+
+    private static final Comparator<String> SIMPLE_NAME_ORDER = (a, b) -> {
+        int result = compareLowercase(simpleName(a), simpleName(b));
+        if (result != 0) {
+            return result;
+        }
+        return a.compareTo(b);
+    };
+
+    public static final ClassNameIndex EMPTY = create(new ArrayList<>());
+
+    /**
+     * Creates an in-memory index from the given fully qualified names.
+     */
+    @NonNull
+    public static ClassNameIndex create(@NonNull Collection<String> classNames) {
+        List<String> sorted = new ArrayList<>(new LinkedHashSet<>(classNames));
+        sorted.sort(SIMPLE_NAME_ORDER);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(output)) {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(sorted.size());
+
+            int offset = HEADER_SIZE + sorted.size() * 4;
+            List<byte[]> entries = new ArrayList<>(sorted.size());
+            for (String name : sorted) {
+                byte[] entry = encodeEntry(name);
+                entries.add(entry);
+                data.writeInt(offset);
+                offset += entry.length;
+            }
+            for (byte[] entry : entries) {
+                data.write(entry);
+            }
+        } catch (IOException e) {
+            // names longer than 65535 bytes, not a valid class name
+            throw new IllegalArgumentException(e);
+        }
+        return new ClassNameIndex(ByteBuffer.wrap(output.toByteArray()));
+    }
+
+    /**
+     * Memory-maps a previously written index.
+     *
+     * @throws IOException if the file cannot be read or is not a valid index
+     */
+    @NonNull
+    public static ClassNameIndex open(@NonNull File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE ||
+                buffer.getInt(0) != MAGIC ||
+                buffer.getInt(4) != VERSION) {
+                throw new IOException("Invalid class name index: " + file);
+            }
+            return new ClassNameIndex(buffer);
+        }
+    }
+
+    private final ByteBuffer mBuffer;
+    private final int mSize;
+
+    private ClassNameIndex(ByteBuffer buffer) {
+        mBuffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        mSize = buffer.getInt(8);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Writes this index to the given file so it can be opened later with {@link #open(File)}
+     */
+    public void write(@NonNull File file) throws IOException {
+        ByteBuffer duplicate = mBuffer.duplicate();
+        duplicate.position(0);
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (duplicate.hasRemaining()) {
+                channel.write(duplicate);
+            }
+        }
+    }
+
+    /**
+     * Process all the class names whose simple name matches the given query.
+     * A class matches if its simple name starts with the query, or if the query is
+     * a camel hump abbreviation of the simple name, e.g. {@code SBu} for {@code StringBuilder}
+     *
+     * @param query the text typed by the user, an empty query matches every class
+     * @param caseSensitive whether the prefix should be matched case sensitively
+     * @param processor receives the fully qualified names, return false to stop processing
+     * @return false if the processor has stopped the processing
+     */
+    public boolean processClassNames(@NonNull String query,
+                                     boolean caseSensitive,
+                                     @NonNull Predicate<String> processor) {
+        if (mSize == 0) {
+            return true;
+        }
+
+        boolean camelHumps = hasCamelHumps(query);
+        // camel humps can only use the first character to narrow down the range
+        String rangePrefix = camelHumps ? query.substring(0, 1) : query;
+        int index = lowerBound(rangePrefix);
+        for (; index < mSize; index++) {
+            int offset = mBuffer.getInt(HEADER_SIZE + index * 4);
+            if (!startsWithLowercase(offset, rangePrefix)) {
+                break;
+            }
+
+            String name = readName(offset);
+            String simpleName = simpleName(name);
+            boolean matches = caseSensitive
+                    ? simpleName.startsWith(query)
+                    : simpleName.regionMatches(true, 0, query, 0, query.length());
+            if (!matches && camelHumps) {
+                matches = matchesCamelHumps(simpleName, query);
+            }
+            if (matches && !processor.test(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the first entry whose simple name is not less than the prefix.
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = mSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int offset = mBuffer.getInt(HEADER_SIZE + mid * 4);
+            if (comparePrefixLowercase(offset, prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean startsWithLowercase(int offset, String prefix) {
+        return comparePrefixLowercase(offset, prefix) == 0;
+    }
+
+    /**
+     * Compares the first {@code prefix.length()} characters of the simple name of the entry
+     * at the offset with the prefix, ignoring case. Only decodes the characters needed.
+     */
+    private int comparePrefixLowercase(int offset, String prefix) {
+        int simpleStart = mBuffer.getShort(offset) & 0xFFFF;
+        int length = mBuffer.getShort(offset + 2) & 0xFFFF;
+        int position = offset + 4 + simpleStart;
+        int end = offset + 4 + length;
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if (position >= end) {
+                return -1;
+            }
+            int b = mBuffer.get(position) & 0xFF;
+            char c;
+            if (b < 0x80) {
+                c = (char) b;
+                position += 1;
+            } else if ((b & 0xE0) == 0xC0) {
+                c = (char) (((b & 0x1F) << 6) | (mBuffer.get(position + 1) & 0x3F));
+                position += 2;
+            } else {
+                c = (char) (((b & 0x0F) << 12) |
+                            ((mBuffer.get(position + 1) & 0x3F) << 6) |
+                            (mBuffer.get(position + 2) & 0x3F));
+                position += 3;
+            }
+            int result = Character.compare(Character.toLowerCase(c),
+                    Character.toLowerCase(prefix.charAt(i)));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private String readName(int offset) {
+        int length = mBuffer.getShort(offset + 2) & 0xFFFF;
+        char[] chars = new char[length];
+        int count = 0;
+        int position = offset + 4;
+        int end = position + length;
+        while (position < end) {
+            int b = mBuffer.get(position) & 0xFF;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+                position += 1;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | (mBuffer.get(position + 1) & 0x3F));
+                position += 2;
+            } else {
+                chars[count++] = (char) (((b & 0x0F) << 12) |
+                                         ((mBuffer.get(position + 1) & 0x3F) << 6) |
+                                         (mBuffer.get(position + 2) & 0x3F));
+                position += 3;
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static byte[] encodeEntry(String name) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (DataOutputStream data = new DataOutputStream(output)) {
+            data.writeShort(modifiedUtfLength(name, name.lastIndexOf('.') + 1));
+            // writes the u2 length followed by the modified UTF-8 bytes
+            data.writeUTF(name);
+        }
+        return output.toByteArray();
+    }
+
+    private static int modifiedUtfLength(String string, int end) {
+        int length = 0;
+        for (int i = 0; i < end; i++) {
+            char c = string.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length += 1;
+            } else if (c > 0x07FF) {
+                length += 3;
+            } else {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    private static boolean hasCamelHumps(String query) {
+        for (int i = 1; i < query.length(); i++) {
+            if (Character.isUpperCase(query.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the pattern matches the humps of the name. Each upper case character
+     * in the pattern starts a new hump and lower case characters must follow the
+     * current hump.
+     */
+    static boolean matchesCamelHumps(String name, String pattern) {
+        if (pattern.isEmpty()) {
+            return true;
+        }
+        if (name.isEmpty() || name.charAt(0) != pattern.charAt(0)) {
+            return false;
+        }
+        int nameIndex = 1;
+        for (int i = 1; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (nameIndex < name.length() && name.charAt(nameIndex) == c) {
+                nameIndex++;
+                continue;
+            }
+            if (!Character.isUpperCase(c)) {
+                return false;
+            }
+            while (nameIndex < name.length() && name.charAt(nameIndex) != c) {
+                nameIndex++;
+            }
+            if (nameIndex >= name.length()) {
+                return false;
+            }
+            nameIndex++;
+        }
+        return true;
+    }
+
+    private static String simpleName(String name) {
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private static int compareLowercase(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            int result = Character.compare(Character.toLowerCase(a.charAt(i)),
+                    Character.toLowerCase(b.charAt(i)));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(a.length(), b.length());
+    }
+}
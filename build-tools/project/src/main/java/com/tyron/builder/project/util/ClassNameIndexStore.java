@@ -0,0 +1,168 @@
+package com.tyron.builder.project.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.hash.Hashing;
+import com.tyron.common.ApplicationPaths;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Stores a {@link ClassNameIndex} for each library jar on disk, keyed by the hash of the jar.
+ * Indexes are memory-mapped once opened and shared between every module that uses the jar.
+ */
+public class ClassNameIndexStore {
+
+    private static final String INDEX_EXTENSION = ".cnidx";
+
+    private static volatile ClassNameIndexStore sInstance;
+
+    public static ClassNameIndexStore getInstance() {
+        if (sInstance == null) {
+            synchronized (ClassNameIndexStore.class) {
+                if (sInstance == null) {
+                    sInstance = new ClassNameIndexStore(getDefaultDirectory());
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    @Nullable
+    private static File getDefaultDirectory() {
+        try {
+            return new File(ApplicationPaths.getCacheDir(), "class-name-index");
+        } catch (Throwable e) {
+            // no application context, e.g. during tests. Indexes are kept in memory only.
+            return null;
+        }
+    }
+
+    private final Map<String, ClassNameIndex> mIndexes = new ConcurrentHashMap<>();
+    private final File mDirectory;
+
+    public ClassNameIndexStore(@Nullable File directory) {
+        mDirectory = directory;
+    }
+
+    /**
+     * Returns the index of the given jar, reading the jar only if there is no index
+     * for it yet.
+     */
+    @NonNull
+    public ClassNameIndex getIndex(@NonNull File jar) {
+        return getIndex(jar, null);
+    }
+
+    /**
+     * Returns the index of the given jar.
+     *
+     * @param classNames the top level classes of the jar if they are already known,
+     *                   used to avoid reading the jar again when there is no index yet.
+     */
+    @NonNull
+    public ClassNameIndex getIndex(@NonNull File jar, @Nullable Collection<String> classNames) {
+        String key = getKey(jar);
+        return mIndexes.computeIfAbsent(key, it -> loadOrCreate(it, jar, classNames));
+    }
+
+    /**
+     * Returns the index of the given jar only if it has already been created, either in this
+     * session or in a previous one. This never reads the jar.
+     */
+    @Nullable
+    public ClassNameIndex getCachedIndex(@NonNull File jar) {
+        String key = getKey(jar);
+        ClassNameIndex index = mIndexes.get(key);
+        if (index != null || mDirectory == null) {
+            return index;
+        }
+        File indexFile = new File(mDirectory, key + INDEX_EXTENSION);
+        if (!indexFile.exists()) {
+            return null;
+        }
+        try {
+            index = ClassNameIndex.open(indexFile);
+        } catch (IOException e) {
+            return null;
+        }
+        ClassNameIndex previous = mIndexes.putIfAbsent(key, index);
+        return previous != null ? previous : index;
+    }
+
+    private ClassNameIndex loadOrCreate(String key,
+                                        File jar,
+                                        @Nullable Collection<String> classNames) {
+        File indexFile = mDirectory == null ? null : new File(mDirectory, key + INDEX_EXTENSION);
+        if (indexFile != null && indexFile.exists()) {
+            try {
+                return ClassNameIndex.open(indexFile);
+            } catch (IOException e) {
+                // corrupted or from an older version, recreate it below
+            }
+        }
+
+        if (classNames == null) {
+            try {
+                classNames = getTopLevelClasses(jar);
+            } catch (IOException e) {
+                return ClassNameIndex.EMPTY;
+            }
+        }
+
+        ClassNameIndex index = ClassNameIndex.create(classNames);
+        if (indexFile != null && (mDirectory.exists() || mDirectory.mkdirs())) {
+            try {
+                File temp = new File(mDirectory, key + ".tmp");
+                index.write(temp);
+                if (temp.renameTo(indexFile)) {
+                    return ClassNameIndex.open(indexFile);
+                }
+            } catch (IOException e) {
+                // use the in memory index
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The key of a jar is derived from its path, size and last modified time so the
+     * contents of the jar does not have to be read to know if the index is up to date.
+     */
+    private static String getKey(File jar) {
+        return Hashing.murmur3_128()
+                .newHasher()
+                .putString(jar.getAbsolutePath(), StandardCharsets.UTF_8)
+                .putLong(jar.length())
+                .putLong(jar.lastModified())
+                .hash()
+                .toString();
+    }
+
+    private static List<String> getTopLevelClasses(File file) throws IOException {
+        List<String> classNames = new ArrayList<>();
+        try (JarFile jar = new JarFile(file)) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (!name.endsWith(".class") || name.contains("$")) {
+                    continue;
+                }
+                classNames.add(name.substring(0, name.length() - ".class".length())
+                                       .replace('/', '.'));
+            }
+        }
+        return classNames;
+    }
+}
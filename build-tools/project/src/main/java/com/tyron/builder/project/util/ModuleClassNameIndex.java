@@ -0,0 +1,108 @@
+package com.tyron.builder.project.util;
+
+import androidx.annotation.NonNull;
+
+import com.tyron.builder.project.api.JavaModule;
+import com.tyron.builder.project.api.KotlinModule;
+import com.tyron.builder.project.api.Module;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Looks up classes by their simple names in a module and the modules it depends on.
+ * Library classes are answered from their {@link ClassNameIndex} while source classes are
+ * matched directly, so no full set of class names is created per query.
+ */
+public class ModuleClassNameIndex {
+
+    private ModuleClassNameIndex() {
+
+    }
+
+    /**
+     * Process the fully qualified names of the classes visible from the module whose simple
+     * names match the query. Each name is only passed once to the processor.
+     *
+     * @param module the module to search, including its module dependencies
+     * @param query the prefix or camel humps of the simple name
+     * @param caseSensitive whether prefixes are matched case sensitively
+     * @param processor receives the fully qualified names, return false to stop
+     * @return false if the processor has stopped the processing
+     */
+    public static boolean processClassNames(@NonNull Module module,
+                                            @NonNull String query,
+                                            boolean caseSensitive,
+                                            @NonNull Predicate<String> processor) {
+        Set<String> processed = new HashSet<>();
+        Predicate<String> unique = name -> !processed.add(name) || processor.test(name);
+
+        Deque<Module> queue = new ArrayDeque<>();
+        Set<Module> visitedModules = new HashSet<>();
+        queue.addLast(module);
+
+        while (!queue.isEmpty()) {
+            Module current = queue.removeFirst();
+            if (!visitedModules.add(current)) {
+                continue;
+            }
+
+            if (current instanceof JavaModule) {
+                JavaModule javaModule = (JavaModule) current;
+                if (!processSourceNames(javaModule.getJavaFiles().keySet(), query,
+                        caseSensitive, unique)) {
+                    return false;
+                }
+                if (!processSourceNames(javaModule.getInjectedClasses().keySet(), query,
+                        caseSensitive, unique)) {
+                    return false;
+                }
+                for (ClassNameIndex index : javaModule.getClassNameIndexes()) {
+                    if (!index.processClassNames(query, caseSensitive, unique)) {
+                        return false;
+                    }
+                }
+            }
+            if (current instanceof KotlinModule) {
+                if (!processSourceNames(((KotlinModule) current).getKotlinFiles().keySet(),
+                        query, caseSensitive, unique)) {
+                    return false;
+                }
+            }
+
+            if (current.getProject() == null) {
+                continue;
+            }
+            for (String path : current.getModuleDependencies()) {
+                Module dependingModule = current.getProject().getModuleByName(path);
+                if (dependingModule != null && !visitedModules.contains(dependingModule)) {
+                    queue.addLast(dependingModule);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean processSourceNames(Collection<String> classNames,
+                                              String query,
+                                              boolean caseSensitive,
+                                              Predicate<String> processor) {
+        for (String className : classNames) {
+            String simpleName = className.substring(className.lastIndexOf('.') + 1);
+            boolean matches = caseSensitive
+                    ? simpleName.startsWith(query)
+                    : simpleName.regionMatches(true, 0, query, 0, query.length());
+            if (!matches) {
+                matches = ClassNameIndex.matchesCamelHumps(simpleName, query);
+            }
+            if (matches && !processor.test(className)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
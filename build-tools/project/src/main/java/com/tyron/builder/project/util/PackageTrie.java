@@ -3,13 +3,11 @@ package com.tyron.builder.project.util;
 import androidx.annotation.NonNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
 
 /**
  * A trie that stores package segments to a node.
@@ -22,13 +20,40 @@ import java.util.function.Function;
  *     /  \
  * String Object
  * </p>
+ *
+ * Nodes are stored in arrays indexed by node id, so a node only costs the id of its segment,
+ * its leaf count and a sorted array of the ids of its children instead of an object and a hash
+ * map. Segments are interned, a segment such as {@code internal} or {@code R} is stored once
+ * no matter how many packages contain it.
+ * Leaves are reference counted, so a class added by two libraries, or by a source file and a
+ * library, is kept until both of them remove it.
  */
 public class PackageTrie {
 
-    private final Node mRoot;
+    private static final int ROOT = 0;
+    private static final int[] NO_CHILDREN = new int[0];
+
+    private static final int NO_SEGMENT = -1;
+
+    // interned segments, indexed by segment id. Segments are kept until the trie is cleared
+    private String[] mSegments = new String[64];
+    private int mSegmentCount;
+    // open addressing table of segment id + 1 by the hash of the segment, 0 is an empty slot
+    private int[] mSegmentTable = new int[128];
+
+    // node data, indexed by node id
+    private int[] mNodeSegment = new int[64];
+    private int[] mLeafCount = new int[64];
+    private int[][] mChildren = new int[64][];
+    private int mNodeCount;
+
+    // ids of removed nodes that can be reused
+    private int[] mFreeNodes = new int[16];
+    private int mFreeCount;
 
     public PackageTrie() {
-        mRoot = new Node();
+        // the root node has no segment
+        newNode(NO_SEGMENT);
     }
 
     /**
@@ -36,14 +61,28 @@ public class PackageTrie {
      *
      * @param fqn The fully qualified name of a class, including its name
      */
-    public void add(@NonNull String fqn) {
-        String[] parts = getParts(fqn);
-        Node current = mRoot;
-        for (String part : parts) {
-            current = current.getOrCreateChild(part);
+    public synchronized void add(@NonNull String fqn) {
+        int current = ROOT;
+        int start = 0;
+        while (start <= fqn.length()) {
+            int end = fqn.indexOf('.', start);
+            if (end == -1) {
+                end = fqn.length();
+            }
+            current = getOrCreateChild(current, intern(fqn, start, end));
+            start = end + 1;
         }
         // this is the end node, so mark it as a leaf
-        current.isLeaf = true;
+        mLeafCount[current]++;
+    }
+
+    /**
+     * Add all the fully qualified names to the index.
+     */
+    public synchronized void addAll(@NonNull Iterable<String> fqns) {
+        for (String fqn : fqns) {
+            add(fqn);
+        }
     }
 
     public void remove(@NonNull String fqn) {
@@ -62,155 +101,285 @@ public class PackageTrie {
      * @param fqn The package name
      * @param leafOnly Whether to delete the leaf only
      */
-    public void remove(@NonNull String fqn, boolean leafOnly) {
+    public synchronized void remove(@NonNull String fqn, boolean leafOnly) {
         String[] parts = getParts(fqn);
-        Node current = mRoot;
+        int[] path = new int[parts.length + 1];
+        path[0] = ROOT;
         for (int i = 0; i < parts.length; i++) {
-            String part = parts[i];
-            boolean isLeaf = i == parts.length - 1;
+            int child = findChild(path[i], parts[i]);
+            if (child == -1) {
+                return;
+            }
+            path[i + 1] = child;
+        }
+
+        int node = path[parts.length];
+        if (leafOnly) {
+            if (mLeafCount[node] == 0) {
+                return;
+            }
+            mLeafCount[node]--;
+        } else {
+            mLeafCount[node] = 0;
+            freeChildren(node);
+        }
 
-            if (current == null) {
+        // unlink the nodes that are no longer used
+        for (int i = parts.length; i > 0; i--) {
+            int current = path[i];
+            if (mLeafCount[current] > 0 || mChildren[current].length > 0) {
                 break;
             }
-            if (current.getChildren() == null) {
-                current = null;
-            } else {
-                Node next = current.getChildren().get(part);
-                if (next != null && (isLeaf || !leafOnly)) {
-                    current.getChildren().remove(next.getValue());
-                }
-                current = next;
+            removeChild(path[i - 1], current);
+            freeNode(current);
+        }
+    }
+
+    /**
+     * @return whether the fully qualified name has been added and not removed yet
+     */
+    public synchronized boolean contains(@NonNull String fqn) {
+        int current = ROOT;
+        for (String part : getParts(fqn)) {
+            current = findChild(current, part);
+            if (current == -1) {
+                return false;
             }
         }
+        return mLeafCount[current] > 0;
+    }
+
+    /**
+     * Removes all the names from the index
+     */
+    public synchronized void clear() {
+        freeChildren(ROOT);
+        mLeafCount[ROOT] = 0;
+        Arrays.fill(mSegments, 0, mSegmentCount, null);
+        Arrays.fill(mSegmentTable, 0);
+        mSegmentCount = 0;
     }
 
-    public List<String> getMatchingPackages(String packageQuery) {
+    public synchronized List<String> getMatchingPackages(String packageQuery) {
         List<String> result = new ArrayList<>();
-        StringBuilder currentPackage = new StringBuilder();
         String[] parts = getParts(packageQuery);
-        Node current = mRoot;
+        int current = ROOT;
         for (String part : parts) {
-            if (current == null || current.getChildren() == null || !current.getChildren().containsKey(part)) {
+            current = findChild(current, part);
+            if (current == -1) {
                 return result;
             }
-
-            if (current.isLeaf) {
-                String fqn = currentPackage.length() > 0
-                        ? currentPackage + "." + part
-                        : part;
-                result.add(fqn);
-            } else {
-                boolean insertDot = currentPackage.length() > 0;
-                if (insertDot) {
-                    currentPackage.append('.');
-                }
-                currentPackage.append(part);
-            }
-
-            current = current.getChildren().get(part);
         }
 
-        if (current.getChildren() != null) {
-            for (Node node : current.getChildren().values()) {
-                recurse(node, currentPackage.toString(), result);
-            }
+        StringBuilder currentPackage = new StringBuilder(packageQuery);
+        for (int child : mChildren[current]) {
+            recurse(child, currentPackage, result);
         }
-
         return result;
     }
 
-    public Set<String> getTopLevelNonLeafNodes() {
-        if (mRoot.getChildren() == null) {
+    public synchronized Set<String> getTopLevelNonLeafNodes() {
+        int[] children = mChildren[ROOT];
+        if (children.length == 0) {
             return Collections.emptySet();
         }
 
-        return mRoot.getChildren().keySet();
+        Set<String> result = new HashSet<>();
+        for (int child : children) {
+            result.add(mSegments[mNodeSegment[child]]);
+        }
+        return result;
     }
 
-    public Set<String> getLeafNodes() {
-        return new HashSet<>(getLeafNodes("", mRoot));
+    public synchronized Set<String> getLeafNodes() {
+        List<String> result = new ArrayList<>();
+        StringBuilder currentPackage = new StringBuilder();
+        for (int child : mChildren[ROOT]) {
+            recurse(child, currentPackage, result);
+        }
+        return new HashSet<>(result);
     }
 
-    private Set<String> getLeafNodes(String currentPackage, Node current) {
-        if (current.isLeaf) {
-            return Collections.singleton(currentPackage);
-        } else {
-            if (current.getChildren() == null || current.getChildren().isEmpty()) {
-                return Collections.emptySet();
-            }
-            Set<String> leafNodes = new HashSet<>();
-            for (Node value : current.getChildren().values()) {
-                String newPackage = currentPackage.isEmpty()
-                        ? value.getValue()
-                        : currentPackage + "." + value.getValue();
-                leafNodes.addAll(getLeafNodes(newPackage, value));
-            }
-            return leafNodes;
-        }
+    /**
+     * @return the number of nodes in this trie, excluding the root
+     */
+    public synchronized int getNodeCount() {
+        return mNodeCount - mFreeCount - 1;
     }
 
-    private void recurse(Node node, String currentPackage, List<String> result) {
-        if (node.isLeaf) {
-            String newResult = currentPackage.length() > 0
-                    ? currentPackage + "." + node.getValue()
-                    : node.getValue();
-            result.add(newResult);
-        } else {
-            currentPackage = currentPackage.isEmpty()
-                    ? node.getValue()
-                    : currentPackage + "." + node.getValue();
+    private void recurse(int node, StringBuilder currentPackage, List<String> result) {
+        int length = currentPackage.length();
+        if (length > 0) {
+            currentPackage.append('.');
         }
+        currentPackage.append(mSegments[mNodeSegment[node]]);
 
-        if (node.getChildren() == null) {
-            return;
+        if (mLeafCount[node] > 0) {
+            result.add(currentPackage.toString());
         }
-        for (Node child : node.getChildren().values()) {
+        for (int child : mChildren[node]) {
             recurse(child, currentPackage, result);
         }
+
+        currentPackage.setLength(length);
     }
 
-    private String[] getParts(String fqn) {
-        if (fqn.contains(".")) {
-            return fqn.split("\\.");
+    /**
+     * @return the id of the segment between start and end of the name, or
+     * {@code -(slot) - 1} of the empty slot of the table where it would be added
+     */
+    private int findSegment(String name, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + name.charAt(i);
+        }
+        int mask = mSegmentTable.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        int length = end - start;
+        while (true) {
+            int entry = mSegmentTable[slot];
+            if (entry == 0) {
+                return -(slot + 1);
+            }
+            String segment = mSegments[entry - 1];
+            if (segment.length() == length && name.regionMatches(start, segment, 0, length)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
         }
-        return new String[]{fqn};
     }
 
-    private static class Node {
-
-        private Map<String, Node> mChildren;
-
-        private boolean isLeaf;
-
-        private String mValue;
+    private int intern(String name, int start, int end) {
+        int found = findSegment(name, start, end);
+        if (found >= 0) {
+            return found;
+        }
+        int id = mSegmentCount++;
+        if (id == mSegments.length) {
+            mSegments = Arrays.copyOf(mSegments, id * 2);
+        }
+        mSegments[id] = name.substring(start, end);
+        if (mSegmentCount * 2 > mSegmentTable.length) {
+            // keep the table at most half full
+            mSegmentTable = new int[mSegmentTable.length * 2];
+            for (int i = 0; i < mSegmentCount; i++) {
+                String segment = mSegments[i];
+                mSegmentTable[-findSegment(segment, 0, segment.length()) - 1] = i + 1;
+            }
+        } else {
+            mSegmentTable[-found - 1] = id + 1;
+        }
+        return id;
+    }
 
-        public Node() {
+    private int newNode(int segment) {
+        int node;
+        if (mFreeCount > 0) {
+            node = mFreeNodes[--mFreeCount];
+        } else {
+            if (mNodeCount == mNodeSegment.length) {
+                int newLength = mNodeSegment.length * 2;
+                mNodeSegment = Arrays.copyOf(mNodeSegment, newLength);
+                mLeafCount = Arrays.copyOf(mLeafCount, newLength);
+                mChildren = Arrays.copyOf(mChildren, newLength);
+            }
+            node = mNodeCount++;
+        }
+        mNodeSegment[node] = segment;
+        mLeafCount[node] = 0;
+        mChildren[node] = NO_CHILDREN;
+        return node;
+    }
 
+    private void freeNode(int node) {
+        mNodeSegment[node] = NO_SEGMENT;
+        mChildren[node] = NO_CHILDREN;
+        if (mFreeCount == mFreeNodes.length) {
+            mFreeNodes = Arrays.copyOf(mFreeNodes, mFreeNodes.length * 2);
         }
+        mFreeNodes[mFreeCount++] = node;
+    }
 
-        public Node(String value) {
-            mValue = value;
+    private void freeChildren(int node) {
+        for (int child : mChildren[node]) {
+            freeChildren(child);
+            freeNode(child);
         }
+        mChildren[node] = NO_CHILDREN;
+    }
 
-        public Node getOrCreateChild(String part) {
-            if (mChildren == null) {
-                mChildren = new HashMap<>();
+    /**
+     * Children are sorted by the id of their segment so they can be binary searched.
+     *
+     * @return the index of the child with the segment, or {@code -(insertion point) - 1}
+     */
+    private int searchChild(int[] children, int segment) {
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int childSegment = mNodeSegment[children[mid]];
+            if (childSegment < segment) {
+                low = mid + 1;
+            } else if (childSegment > segment) {
+                high = mid - 1;
+            } else {
+                return mid;
             }
+        }
+        return -(low + 1);
+    }
 
-            return mChildren.computeIfAbsent(part, Node::new);
+    private int findChild(int node, String segment) {
+        int id = findSegment(segment, 0, segment.length());
+        if (id < 0) {
+            return -1;
         }
+        int[] children = mChildren[node];
+        int index = searchChild(children, id);
+        return index < 0 ? -1 : children[index];
+    }
 
-        public Map<String, Node> getChildren() {
-            return mChildren;
+    private int getOrCreateChild(int node, int segment) {
+        int[] children = mChildren[node];
+        int index = searchChild(children, segment);
+        if (index >= 0) {
+            return children[index];
         }
 
-        public String getValue() {
-            return mValue;
+        int child = newNode(segment);
+        int insertion = -(index + 1);
+        int[] newChildren = new int[children.length + 1];
+        System.arraycopy(children, 0, newChildren, 0, insertion);
+        newChildren[insertion] = child;
+        System.arraycopy(children, insertion, newChildren, insertion + 1,
+                children.length - insertion);
+        // mChildren may have been resized by newNode
+        mChildren[node] = newChildren;
+        return child;
+    }
+
+    private void removeChild(int node, int child) {
+        int[] children = mChildren[node];
+        int index = searchChild(children, mNodeSegment[child]);
+        if (index < 0) {
+            return;
+        }
+        if (children.length == 1) {
+            mChildren[node] = NO_CHILDREN;
+            return;
         }
+        int[] newChildren = new int[children.length - 1];
+        System.arraycopy(children, 0, newChildren, 0, index);
+        System.arraycopy(children, index + 1, newChildren, index,
+                children.length - index - 1);
+        mChildren[node] = newChildren;
+    }
 
-        @Override
-        public String toString() {
-            return "Node{" + "isLeaf=" + isLeaf + ", mValue='" + mValue + '\'' + '}';
+    private String[] getParts(String fqn) {
+        if (fqn.contains(".")) {
+            return fqn.split("\\.");
         }
+        return new String[]{fqn};
     }
 }
@@ -0,0 +1,87 @@
+package com.tyron.builder.project.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes the source files of a module by their package, so the files of a package can be
+ * listed without scanning every file of the module. The fully qualified name of each file
+ * is kept as well so it does not have to be parsed from the file again.
+ */
+public class SourcePackageIndex {
+
+    // package name -> fully qualified name -> file
+    private final Map<String, Map<String, File>> mPackages = new HashMap<>();
+    private final Map<File, String> mClassNames = new HashMap<>();
+
+    public synchronized void put(@NonNull String className, @NonNull File file) {
+        // the package declaration of the file may have changed
+        String previous = mClassNames.get(file);
+        if (previous != null) {
+            remove(previous);
+        }
+        remove(className);
+        Map<String, File> files = mPackages.get(getPackageName(className));
+        if (files == null) {
+            files = new HashMap<>();
+            mPackages.put(getPackageName(className), files);
+        }
+        files.put(className, file);
+        mClassNames.put(file, className);
+    }
+
+    public synchronized void remove(@NonNull String className) {
+        String packageName = getPackageName(className);
+        Map<String, File> files = mPackages.get(packageName);
+        if (files == null) {
+            return;
+        }
+        File removed = files.remove(className);
+        if (removed != null) {
+            mClassNames.remove(removed, className);
+        }
+        if (files.isEmpty()) {
+            mPackages.remove(packageName);
+        }
+    }
+
+    /**
+     * @return the files directly inside the package, files of its sub packages are not
+     * included
+     */
+    @NonNull
+    public synchronized List<File> getFiles(@NonNull String packageName) {
+        Map<String, File> files = mPackages.get(packageName);
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(files.values());
+    }
+
+    /**
+     * @return the fully qualified name the file has been indexed with, or null if the file
+     * is not in this index
+     */
+    @Nullable
+    public synchronized String getClassName(@NonNull File file) {
+        return mClassNames.get(file);
+    }
+
+    public synchronized void clear() {
+        mPackages.clear();
+        mClassNames.clear();
+    }
+
+    @NonNull
+    public static String getPackageName(@NonNull String className) {
+        int lastDot = className.lastIndexOf('.');
+        return lastDot == -1 ? "" : className.substring(0, lastDot);
+    }
+}
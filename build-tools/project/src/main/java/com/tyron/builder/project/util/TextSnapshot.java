@@ -0,0 +1,303 @@
+package com.tyron.builder.project.util;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable text stored as a rope. Editing a snapshot returns a new snapshot that shares
+ * the unchanged parts of the text with the old one, so keeping the previous versions of a
+ * document or handing them to other threads does not copy the document.
+ *
+ * Leaves point to a region of a string instead of copying it, only the inserted text and
+ * small leaves that are merged together are copied.
+ */
+public final class TextSnapshot implements CharSequence {
+
+    private static final int MAX_LEAF_LENGTH = 1024;
+    private static final int MAX_DEPTH = 48;
+
+    private static final TextSnapshot EMPTY = new TextSnapshot(new Leaf("", 0, 0), 0, "");
+
+    private final Node mRoot;
+    private final long mVersion;
+    private volatile String mString;
+
+    private TextSnapshot(Node root, long version, String string) {
+        mRoot = root;
+        mVersion = version;
+        mString = string;
+    }
+
+    @NonNull
+    public static TextSnapshot empty() {
+        return EMPTY;
+    }
+
+    @NonNull
+    public static TextSnapshot of(@NonNull CharSequence text) {
+        return of(text, 0);
+    }
+
+    @NonNull
+    public static TextSnapshot of(@NonNull CharSequence text, long version) {
+        if (text instanceof TextSnapshot) {
+            TextSnapshot snapshot = (TextSnapshot) text;
+            return new TextSnapshot(snapshot.mRoot, version, snapshot.mString);
+        }
+        String string = text.toString();
+        return new TextSnapshot(build(string, 0, string.length()), version, string);
+    }
+
+    /**
+     * The version is increased by one on each edit, it can be used to check whether a
+     * consumer has missed a change.
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Replace the text between start (inclusive) and end (exclusive) with the given text.
+     *
+     * @return the edited snapshot, this snapshot is not modified
+     */
+    @NonNull
+    public TextSnapshot replace(int start, int end, @NonNull CharSequence text) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException(
+                    "start: " + start + ", end: " + end + ", length: " + length());
+        }
+        Node root = concat(concat(sub(mRoot, 0, start), leaves(text)),
+                sub(mRoot, end, mRoot.length));
+        if (root.depth > MAX_DEPTH) {
+            root = rebalance(root);
+        }
+        return new TextSnapshot(root, mVersion + 1, null);
+    }
+
+    @NonNull
+    public TextSnapshot insert(int index, @NonNull CharSequence text) {
+        return replace(index, index, text);
+    }
+
+    @NonNull
+    public TextSnapshot delete(int start, int end) {
+        return replace(start, end, "");
+    }
+
+    @Override
+    public int length() {
+        return mRoot.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        String string = mString;
+        if (string != null) {
+            return string.charAt(index);
+        }
+        if (index < 0 || index >= mRoot.length) {
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length());
+        }
+        Node node = mRoot;
+        while (node instanceof Concat) {
+            Concat concat = (Concat) node;
+            if (index < concat.left.length) {
+                node = concat.left;
+            } else {
+                index -= concat.left.length;
+                node = concat.right;
+            }
+        }
+        Leaf leaf = (Leaf) node;
+        return leaf.text.charAt(leaf.offset + index);
+    }
+
+    @NonNull
+    @Override
+    public TextSnapshot subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException(
+                    "start: " + start + ", end: " + end + ", length: " + length());
+        }
+        return new TextSnapshot(sub(mRoot, start, end), mVersion, null);
+    }
+
+    /**
+     * Write the text to the writer without creating a string of the whole text
+     */
+    public void writeTo(@NonNull Writer writer) throws IOException {
+        String string = mString;
+        if (string != null) {
+            writer.write(string);
+            return;
+        }
+        for (Leaf leaf : collectLeaves(mRoot)) {
+            writer.write(leaf.text, leaf.offset, leaf.length);
+        }
+    }
+
+    public boolean contentEquals(@NonNull CharSequence other) {
+        if (other == this) {
+            return true;
+        }
+        if (other.length() != length()) {
+            return false;
+        }
+        return toString().contentEquals(other);
+    }
+
+    /**
+     * The string is created on the first call and kept for the following ones
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        String string = mString;
+        if (string == null) {
+            StringBuilder builder = new StringBuilder(mRoot.length);
+            for (Leaf leaf : collectLeaves(mRoot)) {
+                builder.append(leaf.text, leaf.offset, leaf.offset + leaf.length);
+            }
+            string = builder.toString();
+            mString = string;
+        }
+        return string;
+    }
+
+    private abstract static class Node {
+        final int length;
+        final int depth;
+
+        Node(int length, int depth) {
+            this.length = length;
+            this.depth = depth;
+        }
+    }
+
+    private static final class Leaf extends Node {
+        final String text;
+        final int offset;
+
+        Leaf(String text, int offset, int length) {
+            super(length, 0);
+            this.text = text;
+            this.offset = offset;
+        }
+    }
+
+    private static final class Concat extends Node {
+        final Node left;
+        final Node right;
+
+        Concat(Node left, Node right) {
+            super(left.length + right.length, Math.max(left.depth, right.depth) + 1);
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    private static Node build(String text, int start, int end) {
+        if (end - start <= MAX_LEAF_LENGTH) {
+            return new Leaf(text, start, end - start);
+        }
+        int middle = (start + end) >>> 1;
+        return new Concat(build(text, start, middle), build(text, middle, end));
+    }
+
+    private static Node leaves(CharSequence text) {
+        if (text instanceof TextSnapshot) {
+            return ((TextSnapshot) text).mRoot;
+        }
+        String string = text.toString();
+        return build(string, 0, string.length());
+    }
+
+    private static Node sub(Node node, int start, int end) {
+        if (start == 0 && end == node.length) {
+            return node;
+        }
+        if (start == end) {
+            return EMPTY.mRoot;
+        }
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            return new Leaf(leaf.text, leaf.offset + start, end - start);
+        }
+        Concat concat = (Concat) node;
+        int split = concat.left.length;
+        if (end <= split) {
+            return sub(concat.left, start, end);
+        }
+        if (start >= split) {
+            return sub(concat.right, start - split, end - split);
+        }
+        return concat(sub(concat.left, start, split), sub(concat.right, 0, end - split));
+    }
+
+    private static Node concat(Node left, Node right) {
+        if (left.length == 0) {
+            return right;
+        }
+        if (right.length == 0) {
+            return left;
+        }
+        if (left.length + right.length <= MAX_LEAF_LENGTH &&
+            left instanceof Leaf && right instanceof Leaf) {
+            Leaf l = (Leaf) left;
+            Leaf r = (Leaf) right;
+            String merged = new StringBuilder(l.length + r.length)
+                    .append(l.text, l.offset, l.offset + l.length)
+                    .append(r.text, r.offset, r.offset + r.length)
+                    .toString();
+            return new Leaf(merged, 0, merged.length());
+        }
+        return new Concat(left, right);
+    }
+
+    private static Node rebalance(Node root) {
+        List<Leaf> leaves = collectLeaves(root);
+        // merge the small leaves left behind by edits
+        List<Node> merged = new ArrayList<>(leaves.size());
+        for (Leaf leaf : leaves) {
+            int last = merged.size() - 1;
+            if (last >= 0) {
+                Node joined = concat(merged.get(last), leaf);
+                if (joined instanceof Leaf) {
+                    merged.set(last, joined);
+                    continue;
+                }
+            }
+            merged.add(leaf);
+        }
+        return balance(merged, 0, merged.size());
+    }
+
+    private static Node balance(List<Node> nodes, int start, int end) {
+        if (end - start == 1) {
+            return nodes.get(start);
+        }
+        int middle = (start + end) >>> 1;
+        return new Concat(balance(nodes, start, middle), balance(nodes, middle, end));
+    }
+
+    private static List<Leaf> collectLeaves(Node root) {
+        List<Leaf> leaves = new ArrayList<>();
+        List<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            if (node instanceof Concat) {
+                stack.add(((Concat) node).right);
+                stack.add(((Concat) node).left);
+            } else if (node.length > 0) {
+                leaves.add((Leaf) node);
+            }
+        }
+        return leaves;
+    }
+}
@@ -0,0 +1,149 @@
+package com.tyron.builder.project.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.tyron.builder.model.CodeAssistLibrary;
+import com.tyron.builder.project.util.PackageTrie;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+public class JavaModuleImplTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void testRemoveJavaFileAddedTwice() throws Exception {
+        JavaModuleImpl module = new JavaModuleImpl(mFolder.getRoot());
+        File file = createJavaFile("com.test", "Main");
+
+        // indexing the module adds the files that are already known again
+        module.addJavaFile(file);
+        module.addJavaFile(file);
+        assertEquals(Collections.singletonList("com.test.Main"),
+                module.getClassIndex().getMatchingPackages("com.test"));
+
+        module.removeJavaFile("com.test.Main");
+        assertTrue(module.getClassIndex().getMatchingPackages("com.test").isEmpty());
+    }
+
+    @Test
+    public void testRemoveUnknownJavaFile() throws Exception {
+        JavaModuleImpl module = new JavaModuleImpl(mFolder.getRoot());
+        module.addJavaFile(createJavaFile("com.test", "Main"));
+
+        module.removeJavaFile("com.test.Other");
+        module.removeJavaFile("com.test.Other");
+        assertEquals(Collections.singletonList("com.test.Main"),
+                module.getClassIndex().getMatchingPackages("com.test"));
+    }
+
+    @Test
+    public void testClearRemovesClasses() throws Exception {
+        JavaModuleImpl module = new JavaModuleImpl(mFolder.getRoot());
+        File file = createJavaFile("com.test", "Main");
+        module.addJavaFile(file);
+
+        module.clear();
+        module.addJavaFile(file);
+        module.removeJavaFile("com.test.Main");
+        assertTrue(module.getClassIndex().getLeafNodes().isEmpty());
+    }
+
+    @Test
+    public void testRemoveLibrary() throws Exception {
+        JavaModuleImpl module = new JavaModuleImpl(mFolder.getRoot());
+        CodeAssistLibrary first = CodeAssistLibrary.forJar(
+                createJar("first.jar", "com.first.A", "com.shared.Shared"));
+        CodeAssistLibrary second = CodeAssistLibrary.forJar(
+                createJar("second.jar", "com.second.B", "com.shared.Shared"));
+        module.addLibrary(first);
+        module.addLibrary(second);
+        assertTrue(module.getClassIndex().contains("com.first.A"));
+        assertTrue(module.getClassIndex().contains("com.second.B"));
+
+        module.removeLibrary(second);
+        PackageTrie index = module.getClassIndex();
+        assertFalse(index.contains("com.second.B"));
+        assertTrue(index.getMatchingPackages("com.second").isEmpty());
+        // the class is still in the first library
+        assertTrue(index.contains("com.shared.Shared"));
+        assertTrue(index.contains("com.first.A"));
+        assertEquals(new HashSet<>(Arrays.asList("com.first.A", "com.shared.Shared")),
+                module.getAllClasses());
+        assertEquals(Collections.singletonList(first.getSourceFile()), module.getLibraries());
+        assertEquals(1, module.getClassNameIndexes().size());
+
+        module.removeLibrary(first);
+        assertTrue(index.getLeafNodes().isEmpty());
+        assertTrue(module.getAllClasses().isEmpty());
+        assertTrue(module.getClassNameIndexes().isEmpty());
+    }
+
+    @Test
+    public void testRemoveLibraryKeepsJavaFile() throws Exception {
+        JavaModuleImpl module = new JavaModuleImpl(mFolder.getRoot());
+        module.addJavaFile(createJavaFile("com.test", "Main"));
+        CodeAssistLibrary library = CodeAssistLibrary.forJar(
+                createJar("library.jar", "com.test.Main"));
+        module.addLibrary(library);
+
+        module.removeLibrary(library);
+        // removing it again does not remove the source file
+        module.removeLibrary(library);
+        assertTrue(module.getClassIndex().contains("com.test.Main"));
+
+        module.removeJavaFile("com.test.Main");
+        assertFalse(module.getClassIndex().contains("com.test.Main"));
+    }
+
+    @Test
+    public void testAddLibraryAgainAfterRemove() throws Exception {
+        JavaModuleImpl module = new JavaModuleImpl(mFolder.getRoot());
+        CodeAssistLibrary library = CodeAssistLibrary.forJar(
+                createJar("library.jar", "com.library.A"));
+        module.addLibrary(library);
+        module.removeLibrary(library);
+        module.addLibrary(library);
+
+        assertTrue(module.getClassIndex().contains("com.library.A"));
+        module.removeLibrary(library);
+        assertTrue(module.getClassIndex().getLeafNodes().isEmpty());
+    }
+
+    private File createJar(String name, String... classNames) throws Exception {
+        File jar = new File(mFolder.getRoot(), name);
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String className : classNames) {
+                out.putNextEntry(new JarEntry(className.replace('.', '/') + ".class"));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private File createJavaFile(String packageName, String className) throws Exception {
+        File directory = new File(mFolder.getRoot(), packageName.replace('.', '/'));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalStateException("Unable to create " + directory);
+        }
+        File file = new File(directory, className + ".java");
+        String contents = "package " + packageName + ";\n\npublic class " + className + " {}\n";
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
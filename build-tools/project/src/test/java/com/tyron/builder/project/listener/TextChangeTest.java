@@ -0,0 +1,61 @@
+package com.tyron.builder.project.listener;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TextChangeTest {
+
+    @Test
+    public void testMergeDisjointChanges() {
+        // "Hello World" -> "Hello Rope" -> ">> Hello Rope"
+        TextChange first = new TextChange(6, 11, "Rope", 1);
+        TextChange second = new TextChange(0, 0, ">> ", 2);
+        TextChange merged = first.merge(second, ">> Hello Rope");
+
+        assertEquals(0, merged.getStart());
+        assertEquals(11, merged.getOldEnd());
+        assertEquals(">> Hello Rope", merged.getNewText().toString());
+        assertEquals(2, merged.getVersion());
+        assertEquals(">> Hello Rope", apply("Hello World", merged));
+    }
+
+    @Test
+    public void testMergeOverlappingChanges() {
+        // "Hello World" -> "Hello Rope" -> "Hello Ropes!"
+        TextChange first = new TextChange(6, 11, "Rope", 1);
+        TextChange second = new TextChange(9, 10, "es!", 2);
+        TextChange merged = first.merge(second, "Hello Ropes!");
+
+        assertEquals(6, merged.getStart());
+        assertEquals(11, merged.getOldEnd());
+        assertEquals("Ropes!", merged.getNewText().toString());
+    }
+
+    @Test
+    public void testMergeRandomChanges() {
+        Random random = new Random(42);
+        String original = "abcdefghijklmnopqrstuvwxyz0123456789";
+        for (int round = 0; round < 1000; round++) {
+            StringBuilder text = new StringBuilder(original);
+            TextChange merged = null;
+            for (int i = 0; i < 5; i++) {
+                int start = random.nextInt(text.length() + 1);
+                int end = Math.min(text.length(), start + random.nextInt(5));
+                String newText = random.nextInt(3) == 0 ? "" : "x" + i;
+                text.replace(start, end, newText);
+
+                TextChange change = new TextChange(start, end, newText, i + 1);
+                merged = merged == null ? change : merged.merge(change, text.toString());
+            }
+            assertEquals(text.toString(), apply(original, merged));
+        }
+    }
+
+    private static String apply(String text, TextChange change) {
+        return text.substring(0, change.getStart()) + change.getNewText() +
+               text.substring(change.getOldEnd());
+    }
+}
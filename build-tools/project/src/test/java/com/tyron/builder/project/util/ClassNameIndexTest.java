@@ -0,0 +1,81 @@
+package com.tyron.builder.project.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ClassNameIndexTest {
+
+    private static final List<String> CLASSES = Arrays.asList(
+            "java.lang.String",
+            "java.lang.StringBuilder",
+            "java.lang.Object",
+            "android.widget.TextView",
+            "android.text.TextUtils",
+            "com.example.string.Strings",
+            "Unnamed"
+    );
+
+    @Test
+    public void testPrefix() {
+        ClassNameIndex index = ClassNameIndex.create(CLASSES);
+        assertEquals(CLASSES.size(), index.size());
+
+        List<String> result = query(index, "Str", true);
+        assertEquals(3, result.size());
+        assertTrue(result.contains("java.lang.String"));
+        assertTrue(result.contains("java.lang.StringBuilder"));
+        assertTrue(result.contains("com.example.string.Strings"));
+
+        assertTrue(query(index, "str", true).isEmpty());
+        assertEquals(3, query(index, "str", false).size());
+        assertEquals(CLASSES.size(), query(index, "", true).size());
+        assertEquals(Arrays.asList("Unnamed"), query(index, "Un", true));
+    }
+
+    @Test
+    public void testCamelHumps() {
+        ClassNameIndex index = ClassNameIndex.create(CLASSES);
+
+        assertEquals(Arrays.asList("java.lang.StringBuilder"), query(index, "SB", true));
+        assertEquals(Arrays.asList("android.widget.TextView"), query(index, "TeV", true));
+        assertTrue(query(index, "SX", true).isEmpty());
+    }
+
+    @Test
+    public void testStopProcessing() {
+        ClassNameIndex index = ClassNameIndex.create(CLASSES);
+
+        List<String> result = new ArrayList<>();
+        boolean completed = index.processClassNames("", true, name -> {
+            result.add(name);
+            return false;
+        });
+        assertFalse(completed);
+        assertEquals(1, result.size());
+    }
+
+    @Test
+    public void testWriteAndOpen() throws Exception {
+        File file = File.createTempFile("classes", ".cnidx");
+        file.deleteOnExit();
+
+        ClassNameIndex.create(CLASSES).write(file);
+        ClassNameIndex index = ClassNameIndex.open(file);
+        assertEquals(CLASSES.size(), index.size());
+        assertEquals(Arrays.asList("android.text.TextUtils"), query(index, "TextU", true));
+    }
+
+    private static List<String> query(ClassNameIndex index, String query, boolean caseSensitive) {
+        List<String> result = new ArrayList<>();
+        index.processClassNames(query, caseSensitive, result::add);
+        return result;
+    }
+}
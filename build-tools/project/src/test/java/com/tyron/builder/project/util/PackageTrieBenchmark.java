@@ -0,0 +1,102 @@
+package com.tyron.builder.project.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Compares the retained heap of the {@link PackageTrie} against the previous
+ * {@code HashMap} per node layout.
+ *
+ * By default the jars of the classpath are indexed, pass the jars as the argument, e.g.
+ * {@code android.jar:appcompat.jar:...}, to measure a real android classpath. Run manually,
+ * it is not part of the unit tests.
+ */
+public class PackageTrieBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String jars = args.length > 0 ? args[0] : System.getProperty("java.class.path");
+        List<String> classNames = new ArrayList<>();
+        for (String path : jars.split(File.pathSeparator)) {
+            File file = new File(path);
+            if (file.isFile() && file.getName().endsWith(".jar")) {
+                readClassNames(file, classNames);
+            }
+        }
+
+        long before = usedMemory();
+        HashMapTrie legacy = new HashMapTrie();
+        classNames.forEach(legacy::add);
+        long legacySize = usedMemory() - before;
+
+        before = usedMemory();
+        PackageTrie trie = new PackageTrie();
+        trie.addAll(classNames);
+        long trieSize = usedMemory() - before;
+
+        System.out.println("Classes: " + classNames.size() + ", nodes: " + trie.getNodeCount());
+        System.out.println("HashMap trie: " + legacySize / 1024 + " KB");
+        System.out.println("PackageTrie: " + trieSize / 1024 + " KB");
+
+        // keep both alive until measured
+        int legacyRoots = legacy.mRoot.mChildren == null ? 0 : legacy.mRoot.mChildren.size();
+        System.out.println("Top level packages: " + legacyRoots + ", " +
+                           trie.getTopLevelNonLeafNodes().size());
+    }
+
+    private static void readClassNames(File file, List<String> classNames) throws IOException {
+        try (JarFile jar = new JarFile(file)) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.endsWith(".class") && !name.contains("$")) {
+                    classNames.add(name.substring(0, name.length() - ".class".length())
+                                           .replace('/', '.'));
+                }
+            }
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * The previous layout of the package trie
+     */
+    private static class HashMapTrie {
+
+        private final Node mRoot = new Node(null);
+
+        void add(String fqn) {
+            Node current = mRoot;
+            for (String part : fqn.split("\\.")) {
+                if (current.mChildren == null) {
+                    current.mChildren = new HashMap<>();
+                }
+                current = current.mChildren.computeIfAbsent(part, Node::new);
+            }
+            current.isLeaf = true;
+        }
+
+        private static class Node {
+            private final String mValue;
+            private Map<String, Node> mChildren;
+            private boolean isLeaf;
+
+            Node(String value) {
+                mValue = value;
+            }
+        }
+    }
+}
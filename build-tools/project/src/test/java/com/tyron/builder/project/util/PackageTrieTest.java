@@ -2,7 +2,14 @@ package com.tyron.builder.project.util;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 
 public class PackageTrieTest {
 
@@ -47,4 +54,122 @@ public class PackageTrieTest {
         List<String> packages = trie.getMatchingPackages("a");
         assert packages.size() == 1;
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRemoveKeepsOtherLibraries() {
+        PackageTrie trie = new PackageTrie();
+        // the same class added by two libraries
+        trie.add("a.b.Class");
+        trie.add("a.b.Class");
+        trie.add("a.b.Other");
+
+        trie.remove("a.b.Class");
+        assert trie.getMatchingPackages("a.b").contains("a.b.Class");
+
+        trie.remove("a.b.Class");
+        trie.remove("a.b.Other");
+        assert trie.getMatchingPackages("a").isEmpty();
+        assert trie.getNodeCount() == 0;
+    }
+
+    @Test
+    public void testAddRemoveLookup() {
+        PackageTrie trie = new PackageTrie();
+        trie.add("java.util.List");
+        trie.add("java.util.internal.List");
+        trie.add("android.util.Log");
+
+        assert trie.contains("java.util.List");
+        assert trie.contains("java.util.internal.List");
+        assert trie.contains("android.util.Log");
+        // packages are not leaves
+        assert !trie.contains("java.util");
+        assert !trie.contains("android.util.List");
+        assert !trie.contains("kotlin.List");
+
+        trie.remove("java.util.List");
+        assert !trie.contains("java.util.List");
+        assert trie.contains("java.util.internal.List");
+        assert trie.getMatchingPackages("java.util").equals(
+                Collections.singletonList("java.util.internal.List"));
+
+        trie.remove("java.util.internal.List");
+        trie.remove("android.util.Log");
+        assert trie.getLeafNodes().isEmpty();
+        assert trie.getNodeCount() == 0;
+
+        // the freed nodes are reused
+        trie.add("android.util.Log");
+        assert trie.contains("android.util.Log");
+        assert trie.getNodeCount() == 3;
+    }
+
+    @Test
+    public void testSharedSegments() {
+        PackageTrie trie = new PackageTrie();
+        trie.add("a.R");
+        trie.add("b.R");
+        trie.add("R");
+
+        assert trie.getLeafNodes().equals(new HashSet<>(Arrays.asList("a.R", "b.R", "R")));
+        trie.remove("a.R");
+        assert trie.contains("b.R");
+        assert trie.contains("R");
+        assert trie.getMatchingPackages("a").isEmpty();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Random random = new Random(42);
+        String[] segments = {"a", "b", "c", "R", "util", "internal"};
+        PackageTrie trie = new PackageTrie();
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            StringBuilder name = new StringBuilder(segments[random.nextInt(segments.length)]);
+            int depth = random.nextInt(4);
+            for (int j = 0; j < depth; j++) {
+                name.append('.').append(segments[random.nextInt(segments.length)]);
+            }
+            String fqn = name.toString();
+            if (random.nextBoolean()) {
+                trie.add(fqn);
+                expected.merge(fqn, 1, Integer::sum);
+            } else {
+                trie.remove(fqn);
+                expected.computeIfPresent(fqn, (key, count) -> count == 1 ? null : count - 1);
+            }
+            assert trie.contains(fqn) == expected.containsKey(fqn);
+        }
+        assert trie.getLeafNodes().equals(expected.keySet());
+    }
+
+    @Test
+    public void testClear() {
+        PackageTrie trie = new PackageTrie();
+        trie.add("a.b.Class");
+        trie.add("c.Class");
+        trie.clear();
+        assert trie.getLeafNodes().isEmpty();
+        assert trie.getNodeCount() == 0;
+
+        trie.add("a.b.Class");
+        assert trie.getMatchingPackages("a.b").size() == 1;
+        assert trie.contains("a.b.Class");
+        assert !trie.contains("c.Class");
+    }
+
+    @Test
+    public void testLeafWithChildren() {
+        PackageTrie trie = new PackageTrie();
+        trie.add("a.b");
+        trie.add("a.b.c");
+
+        Set<String> leafNodes = trie.getLeafNodes();
+        assert leafNodes.size() == 2;
+        assert leafNodes.contains("a.b");
+        assert leafNodes.contains("a.b.c");
+
+        trie.remove("a", false);
+        assert trie.getLeafNodes().isEmpty();
+    }
+}
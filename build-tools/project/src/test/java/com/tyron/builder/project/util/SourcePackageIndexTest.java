@@ -0,0 +1,48 @@
+package com.tyron.builder.project.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+
+public class SourcePackageIndexTest {
+
+    @Test
+    public void testPackages() {
+        File a = new File("src/com/example/A.java");
+        File b = new File("src/com/example/sub/B.java");
+        File c = new File("src/C.java");
+
+        SourcePackageIndex index = new SourcePackageIndex();
+        index.put("com.example.A", a);
+        index.put("com.example.sub.B", b);
+        index.put("C", c);
+
+        // sub packages are not included
+        assertEquals(Collections.singletonList(a), index.getFiles("com.example"));
+        assertEquals(Collections.singletonList(b), index.getFiles("com.example.sub"));
+        assertEquals(Collections.singletonList(c), index.getFiles(""));
+        assertEquals(Collections.emptyList(), index.getFiles("com"));
+        assertEquals("com.example.sub.B", index.getClassName(b));
+    }
+
+    @Test
+    public void testMoveAndRemove() {
+        File a = new File("src/com/example/A.java");
+
+        SourcePackageIndex index = new SourcePackageIndex();
+        index.put("com.example.A", a);
+        // the package declaration of the file has changed
+        index.put("com.other.A", a);
+
+        assertEquals(Collections.emptyList(), index.getFiles("com.example"));
+        assertEquals(Collections.singletonList(a), index.getFiles("com.other"));
+
+        index.remove("com.other.A");
+        assertEquals(Collections.emptyList(), index.getFiles("com.other"));
+        assertNull(index.getClassName(a));
+    }
+}
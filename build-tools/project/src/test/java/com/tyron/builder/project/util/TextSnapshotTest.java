@@ -0,0 +1,71 @@
+package com.tyron.builder.project.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.tyron.builder.project.listener.TextChange;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Random;
+
+public class TextSnapshotTest {
+
+    @Test
+    public void testEdits() {
+        TextSnapshot snapshot = TextSnapshot.of("Hello World");
+        TextSnapshot edited = snapshot.replace(6, 11, "Rope").insert(0, ">> ").delete(3, 4);
+
+        assertEquals("Hello World", snapshot.toString());
+        assertEquals(">> ello Rope", edited.toString());
+        assertEquals(3, edited.getVersion());
+        assertEquals("Rope", edited.subSequence(8, 12).toString());
+        assertEquals('R', edited.charAt(8));
+    }
+
+    @Test
+    public void testRandomEditsMatchStringBuilder() throws Exception {
+        Random random = new Random(42);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            expected.append((char) ('a' + random.nextInt(26)));
+        }
+        TextSnapshot snapshot = TextSnapshot.of(expected.toString());
+
+        for (int i = 0; i < 5_000; i++) {
+            int start = random.nextInt(expected.length() + 1);
+            int end = Math.min(expected.length(), start + random.nextInt(10));
+            String text = random.nextInt(3) == 0 ? "" : "x" + i;
+            expected.replace(start, end, text);
+            snapshot = snapshot.replace(start, end, text);
+
+            int index = random.nextInt(expected.length());
+            assertEquals(expected.charAt(index), snapshot.charAt(index));
+        }
+
+        assertEquals(expected.length(), snapshot.length());
+        assertEquals(expected.toString(), snapshot.toString());
+
+        StringWriter writer = new StringWriter();
+        TextSnapshot.of(snapshot.subSequence(100, 2000)).writeTo(writer);
+        assertEquals(expected.substring(100, 2000), writer.toString());
+    }
+
+    @Test
+    public void testComputeChange() {
+        TextChange change = TextChange.compute("int a = 1;", "int abc = 1;", 1);
+        assert change != null;
+        assertEquals(5, change.getStart());
+        assertEquals(5, change.getOldEnd());
+        assertEquals("bc", change.getNewText().toString());
+
+        change = TextChange.compute("aaaa", "aa", 1);
+        assert change != null;
+        assertEquals(2, change.getStart());
+        assertEquals(4, change.getOldEnd());
+        assertEquals("", change.getNewText().toString());
+
+        assertNull(TextChange.compute("same", "same", 1));
+    }
+}
@@ -30,6 +30,7 @@ import org.apache.commons.io.filefilter.TrueFileFilter;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -38,6 +39,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
 
@@ -60,6 +65,12 @@ public class SimpleResourceRepository implements Repository {
         sParsers = parsers.build();
     }
 
+    /**
+     * Files are parsed in parallel, the parsers do not keep any state between files
+     */
+    private static final ForkJoinPool sParsePool =
+            new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
     private final Logger logger = IdeLog.getCurrentLogger(this);
 
     private final File mResDir;
@@ -84,6 +95,7 @@ public class SimpleResourceRepository implements Repository {
     protected void parse(File resDir, ResourceNamespace namespace, String name) throws IOException {
         Collection<File> dirs = FileUtils.listFilesAndDirs(resDir, FalseFileFilter.INSTANCE,
                                                            TrueFileFilter.INSTANCE);
+        List<Callable<ParsedFile>> tasks = new ArrayList<>();
         for (File dir : dirs) {
 
             ResourceParser parser = getParser(dir);
@@ -94,16 +106,71 @@ public class SimpleResourceRepository implements Repository {
             Collection<File> xmlFiles =
                     FileUtils.listFiles(dir, TrueFileFilter.INSTANCE, FalseFileFilter.INSTANCE);
             for (File xmlFile : xmlFiles) {
-                try {
-                    String contents = FileUtils.readFileToString(xmlFile, StandardCharsets.UTF_8);
-                    parseFile(parser, xmlFile, contents, dir.getName(), namespace, name);
-                } catch (IOException e) {
-                    logger.warning("Unable to parse " + xmlFile.getName() + ": " + e.getMessage());
+                tasks.add(() -> {
+                    try {
+                        String contents = FileUtils.readFileToString(xmlFile, StandardCharsets.UTF_8);
+                        List<ResourceValue> values =
+                                parser.parse(xmlFile, contents, namespace, name);
+                        return new ParsedFile(xmlFile, dir.getName(), values);
+                    } catch (IOException e) {
+                        logger.warning("Unable to parse " + xmlFile.getName() + ": " + e.getMessage());
+                        return null;
+                    }
+                });
+            }
+        }
+
+        List<Future<ParsedFile>> results;
+        try {
+            results = sParsePool.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing " + resDir);
+        }
+
+        // add the values in the order the files were listed, so the order of the items
+        // with the same name does not depend on which file finished parsing first
+        synchronized (this) {
+            for (Future<ParsedFile> result : results) {
+                ParsedFile parsed = getResult(result);
+                if (parsed != null) {
+                    addValues(parsed.file, parsed.folderName, parsed.values);
                 }
             }
         }
     }
 
+    @Nullable
+    private static ParsedFile getResult(Future<ParsedFile> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // invokeAll has already waited for the task
+            throw new AssertionError(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private static class ParsedFile {
+        final File file;
+        final String folderName;
+        final List<ResourceValue> values;
+
+        ParsedFile(File file, String folderName, List<ResourceValue> values) {
+            this.file = file;
+            this.folderName = folderName;
+            this.values = values;
+        }
+    }
+
     @Nullable
     private ResourceParser getParser(@NotNull File directory) {
         ResourceFolderType folderType = ResourceFolderType.getFolderType(directory.getName());
@@ -120,6 +187,12 @@ public class SimpleResourceRepository implements Repository {
                            @NotNull ResourceNamespace namespace,
                            @Nullable String libraryName) throws IOException {
         List<ResourceValue> values = parser.parse(xmlFile, contents, namespace, libraryName);
+        addValues(xmlFile, folderName, values);
+    }
+
+    private synchronized void addValues(@NotNull File xmlFile,
+                                        @NotNull String folderName,
+                                        @NotNull List<ResourceValue> values) {
         for (ResourceValue value : values) {
             ListMultimap<String, ResourceItem> tableValue =
                     mTable.getOrPutEmpty(value.getNamespace(), value.getResourceType());
@@ -6,12 +6,27 @@ import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
-/** Cache maps a file + an arbitrary key to a value. When the file is modified, the mapping expires. */
+/**
+ * Cache maps a file + an arbitrary key to a value.
+ *
+ * <p>By default a mapping expires when the file is modified on disk, this is checked with
+ * the last modified time of the file on every lookup. Caches whose files are edited through
+ * the editor can disable this check and call {@link #invalidate(Path)} when the contents of
+ * a file change instead.</p>
+ *
+ * <p>The cache can be bounded by a maximum weight, when it is exceeded the entries of the
+ * least recently used files are evicted.</p>
+ */
 public class Cache<K, V> {
+
     public static class Key<K> {
         public final Path file;
         public final K key;
@@ -23,7 +38,7 @@ public class Cache<K, V> {
 
         @Override
         public boolean equals(Object other) {
-            if (other.getClass() != Cache.Key.class) return false;
+            if (other == null || other.getClass() != Cache.Key.class) return false;
             Cache.Key that = (Cache.Key) other;
             return Objects.equals(this.key, that.key) && Objects.equals(this.file, that.file);
         }
@@ -34,67 +49,271 @@ public class Cache<K, V> {
         }
     }
 
-    private class Value {
+    /**
+     * Computes the weight of an entry, used to bound the size of the cache.
+     */
+    public interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    private static class Value<V> {
         final V value;
         final Instant created = Instant.now();
+        final int weight;
 
-        Value(V value) {
+        Value(V value, int weight) {
             this.value = value;
+            this.weight = weight;
         }
     }
 
-    private final Map<Key<K>, Value> map = new HashMap<>();
+    /**
+     * Used in place of null keys, e.g. for caches that have one value per file
+     */
+    private static final Object NULL_KEY = new Object();
+
+    /**
+     * Entries grouped by their file in access order, so all the keys of a file can be
+     * invalidated at once and the least recently used files are evicted first.
+     */
+    private final LinkedHashMap<Path, Map<Object, Value<V>>> mEntries =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    private final int mMaximumWeight;
+    private final Weigher<? super K, ? super V> mWeigher;
+    private final boolean mCheckModified;
+    private long mTotalWeight;
+
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+    private final AtomicLong mEvictionCount = new AtomicLong();
+
+    /**
+     * Creates an unbounded cache whose entries expire when their files are modified on disk.
+     */
+    public Cache() {
+        this(Integer.MAX_VALUE, (k, v) -> 1, true);
+    }
+
+    /**
+     * Creates a cache bounded by the number of entries.
+     *
+     * @param maximumSize the maximum number of entries
+     * @param checkModified whether to check the last modified time of the file on lookups,
+     *                      if false entries are only removed by eviction or invalidation
+     */
+    public Cache(int maximumSize, boolean checkModified) {
+        this(maximumSize, (k, v) -> 1, checkModified);
+    }
+
+    /**
+     * Creates a cache bounded by the total weight of its entries.
+     *
+     * @param maximumWeight the maximum total weight of the entries
+     * @param weigher computes the weight of each entry
+     * @param checkModified whether to check the last modified time of the file on lookups,
+     *                      if false entries are only removed by eviction or invalidation
+     */
+    public Cache(int maximumWeight,
+                 Weigher<? super K, ? super V> weigher,
+                 boolean checkModified) {
+        mMaximumWeight = maximumWeight;
+        mWeigher = weigher;
+        mCheckModified = checkModified;
+    }
 
     public boolean has(Path file, K k) {
         return !needs(file, k);
     }
 
-    public void clear() {
-        map.clear();
+    public synchronized void clear() {
+        mEntries.clear();
+        mTotalWeight = 0;
     }
 
-    public boolean needs(Path file, K k) {
-        // If key is not in map, it needs to be loaded
-        Key<K> key = new Key<>(file, k);
-        if (!map.containsKey(key)) return true;
+    public synchronized boolean needs(Path file, K k) {
+        return getValidValue(file, k) == null;
+    }
 
-        // If key was loaded before file was last modified, it needs to be reloaded
-        Value value = map.get(key);
-        FileTime modified = null;
-        try {
-            modified = Files.getLastModifiedTime(file);
-        } catch (IOException e) {
-            modified = FileTime.from(Instant.now());
-        }
-        // TODO remove all keys associated with file when file changes
-        boolean before = value.created.isBefore(modified.toInstant());
-        return before;
+    /**
+     * Checks and gets the value in one call, use this instead of {@link #needs(Path, Object)}
+     * followed by {@link #get(Path, Object)} when the cache is invalidated from another
+     * thread, the entry may be removed between the two calls.
+     *
+     * @return the value, or null if it needs to be loaded
+     */
+    public synchronized V getIfPresent(Path file, K k) {
+        Value<V> value = getValidValue(file, k);
+        return value == null ? null : value.value;
     }
 
     @SafeVarargs
-    public final void remove(Path file, K... keys) {
+    public final synchronized void remove(Path file, K... keys) {
+        Map<Object, Value<V>> values = mEntries.get(file);
+        if (values == null) {
+            return;
+        }
         for (K k : keys) {
-            Key<K> key = new Key<>(file, k);
-            map.remove(key);
+            Value<V> removed = values.remove(mask(k));
+            if (removed != null) {
+                mTotalWeight -= removed.weight;
+            }
+        }
+        if (values.isEmpty()) {
+            mEntries.remove(file);
+        }
+    }
+
+    /**
+     * Removes all the keys associated with the file, should be called when the
+     * contents of the file has changed.
+     */
+    public synchronized void invalidate(Path file) {
+        Map<Object, Value<V>> values = mEntries.remove(file);
+        if (values != null) {
+            for (Value<V> value : values.values()) {
+                mTotalWeight -= value.weight;
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the keys currently in this cache
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized Set<Key<K>> getKeys() {
+        Set<Key<K>> keys = new HashSet<>();
+        for (Map.Entry<Path, Map<Object, Value<V>>> entry : mEntries.entrySet()) {
+            for (Object k : entry.getValue().keySet()) {
+                keys.add(new Key<>(entry.getKey(), (K) unmask(k)));
+            }
+        }
+        return keys;
+    }
+
+    public synchronized void load(Path file, K k, V v) {
+        Value<V> value = new Value<>(v, mWeigher.weigh(k, v));
+        Map<Object, Value<V>> values = mEntries.get(file);
+        if (values == null) {
+            values = new HashMap<>(4);
+            mEntries.put(file, values);
+        }
+        Object key = mask(k);
+        Value<V> previous = values.put(key, value);
+        if (previous != null) {
+            mTotalWeight -= previous.weight;
         }
+        mTotalWeight += value.weight;
+        evict(file, key);
+    }
+
+    public synchronized V get(Path file, K k) {
+        Value<V> value = getValue(file, k);
+        if (value == null) {
+            throw new IllegalArgumentException(k + " is not in cache for file " + file);
+        }
+        return value.value;
+    }
+
+    /**
+     * @return the number of lookups that found a valid entry
+     */
+    public long getHitCount() {
+        return mHitCount.get();
     }
 
-    public Set<Key<K>> getKeys() {
-        return map.keySet();
+    /**
+     * @return the number of lookups that needed the value to be loaded
+     */
+    public long getMissCount() {
+        return mMissCount.get();
     }
 
-    public void load(Path file, K k, V v) {
-        // TODO limit total size of cache
-        Key<K> key = new Key<>(file, k);
-        Value value = new Value(v);
-        map.put(key, value);
+    /**
+     * @return the number of entries removed to stay below the maximum weight
+     */
+    public long getEvictionCount() {
+        return mEvictionCount.get();
     }
 
-    public V get(Path file, K k) {
-        Key<K> key = new Key<>(file, k);
-        if (!map.containsKey(key)) {
-            throw new IllegalArgumentException(k + " is not in map " + map);
+    public synchronized long getTotalWeight() {
+        return mTotalWeight;
+    }
+
+    private Value<V> getValidValue(Path file, K k) {
+        // If key is not in map, it needs to be loaded
+        Value<V> value = getValue(file, k);
+        if (value == null) {
+            mMissCount.incrementAndGet();
+            return null;
         }
-        return (V) map.get(key).value;
+
+        if (mCheckModified) {
+            // If key was loaded before file was last modified, it needs to be reloaded
+            FileTime modified;
+            try {
+                modified = Files.getLastModifiedTime(file);
+            } catch (IOException e) {
+                modified = FileTime.from(Instant.now());
+            }
+            if (value.created.isBefore(modified.toInstant())) {
+                mMissCount.incrementAndGet();
+                return null;
+            }
+        }
+        mHitCount.incrementAndGet();
+        return value;
+    }
+
+    private Value<V> getValue(Path file, K k) {
+        Map<Object, Value<V>> values = mEntries.get(file);
+        if (values == null) {
+            return null;
+        }
+        return values.get(mask(k));
+    }
+
+    /**
+     * Evicts the least recently used files until the cache is within its maximum weight.
+     * The other keys of the file that has just been loaded are evicted last, the loaded
+     * entry itself is always kept.
+     */
+    private void evict(Path loadedFile, Object loadedKey) {
+        Iterator<Map.Entry<Path, Map<Object, Value<V>>>> iterator =
+                mEntries.entrySet().iterator();
+        while (mTotalWeight > mMaximumWeight && iterator.hasNext()) {
+            Map.Entry<Path, Map<Object, Value<V>>> eldest = iterator.next();
+            if (eldest.getKey().equals(loadedFile)) {
+                continue;
+            }
+            iterator.remove();
+            for (Value<V> value : eldest.getValue().values()) {
+                mTotalWeight -= value.weight;
+                mEvictionCount.incrementAndGet();
+            }
+        }
+
+        Map<Object, Value<V>> values = mEntries.get(loadedFile);
+        if (values == null) {
+            return;
+        }
+        Iterator<Map.Entry<Object, Value<V>>> valueIterator = values.entrySet().iterator();
+        while (mTotalWeight > mMaximumWeight && valueIterator.hasNext()) {
+            Map.Entry<Object, Value<V>> entry = valueIterator.next();
+            if (entry.getKey().equals(loadedKey)) {
+                continue;
+            }
+            valueIterator.remove();
+            mTotalWeight -= entry.getValue().weight;
+            mEvictionCount.incrementAndGet();
+        }
+    }
+
+    private static Object mask(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    private static Object unmask(Object key) {
+        return key == NULL_KEY ? null : key;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,362 @@
+package com.tyron.common.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An inverted index from the words of source files to the files that contain them.
+ *
+ * <p>A word is a run of characters accepted by {@link #isWordChar(char)}, the same definition
+ * used by {@link StringSearch#containsWord(Path, String)}, so looking up a word here gives the
+ * same answer as scanning every file without reading them again.</p>
+ *
+ * <p>Files are indexed from disk when they are first seen and must be kept up to date with
+ * {@link #update(Path, CharSequence)} when their contents change, e.g. from the snapshot
+ * events of a file manager. Changed files are only read again on the next lookup, so updating
+ * a file on every edit does not scan it every time. The index can be saved and loaded back in the next session,
+ * entries whose files have been modified since then are dropped on load.</p>
+ */
+public class WordIndex {
+
+    private static final int MAGIC = 0x57494458;
+    private static final int VERSION = 1;
+
+    /**
+     * Files larger than this are only partially indexed, same as {@link StringSearch}
+     */
+    private static final int MAX_FILE_SIZE = 1024 * 1024;
+
+    /**
+     * Marks entries that were indexed from unsaved contents, they are never trusted when
+     * the index is loaded again.
+     */
+    private static final long MODIFIED_UNKNOWN = -1;
+
+    private static class Entry {
+        final long modified;
+        final String[] words;
+
+        Entry(long modified, String[] words) {
+            this.modified = modified;
+            this.words = words;
+        }
+    }
+
+    private static class Posting {
+        final String word;
+        final Set<Path> files = new HashSet<>(4);
+
+        Posting(String word) {
+            this.word = word;
+        }
+    }
+
+    private final Map<String, Posting> mPostings = new HashMap<>();
+    private final Map<Path, Entry> mEntries = new HashMap<>();
+    /**
+     * The contents of the files that changed since they were indexed, their words are read
+     * on the next lookup
+     */
+    private final Map<Path, CharSequence> mChanged = new HashMap<>();
+
+    @Nullable
+    private final File mStorage;
+    private boolean mModified;
+
+    public WordIndex() {
+        this(null);
+    }
+
+    /**
+     * @param storage the file where this index is saved, may not exist yet
+     */
+    public WordIndex(@Nullable File storage) {
+        mStorage = storage;
+    }
+
+    /**
+     * Loads the index previously saved in the given file. A corrupted or missing file
+     * results in an empty index.
+     */
+    @NonNull
+    public static WordIndex load(@NonNull File storage) {
+        WordIndex index = new WordIndex(storage);
+        if (!storage.exists()) {
+            return index;
+        }
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(storage)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return index;
+            }
+            int fileCount = input.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                Path path = Paths.get(input.readUTF());
+                long modified = input.readLong();
+                int wordCount = input.readInt();
+                String[] words = new String[wordCount];
+                for (int j = 0; j < wordCount; j++) {
+                    words[j] = input.readUTF();
+                }
+
+                if (modified != MODIFIED_UNKNOWN && modified == path.toFile().lastModified()) {
+                    index.put(path, modified, Arrays.asList(words));
+                }
+            }
+        } catch (IOException e) {
+            index.clear();
+        }
+        // nothing new to save, dropped entries are indexed again when they are synced
+        index.mModified = false;
+        return index;
+    }
+
+    /**
+     * Saves this index to its storage if it has changed since it was loaded.
+     */
+    public synchronized void save() throws IOException {
+        flushChanged();
+        if (mStorage == null || !mModified) {
+            return;
+        }
+        File parent = mStorage.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        File temp = new File(mStorage.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(mEntries.size());
+            for (Map.Entry<Path, Entry> entry : mEntries.entrySet()) {
+                output.writeUTF(entry.getKey().toString());
+                output.writeLong(entry.getValue().modified);
+                output.writeInt(entry.getValue().words.length);
+                for (String word : entry.getValue().words) {
+                    output.writeUTF(word);
+                }
+            }
+        }
+        if (!temp.renameTo(mStorage)) {
+            FileUtils.deleteQuietly(temp);
+            throw new IOException("Unable to save word index to " + mStorage);
+        }
+        mModified = false;
+    }
+
+    /**
+     * Indexes the file from disk if it is not in the index yet.
+     */
+    public synchronized void index(@NonNull Path file) {
+        if (mEntries.containsKey(file) || mChanged.containsKey(file)) {
+            return;
+        }
+        File ioFile = file.toFile();
+        long modified = ioFile.lastModified();
+        String contents;
+        try {
+            contents = readContents(ioFile);
+        } catch (IOException e) {
+            return;
+        }
+        put(file, modified, getWords(contents));
+    }
+
+    /**
+     * Replaces the words of the file with the words of the given contents. Used when the
+     * contents of the file changes without being saved to disk.
+     * <p>
+     * The contents are only read on the next lookup, they must not be modified afterwards.
+     */
+    public synchronized void update(@NonNull Path file, @NonNull CharSequence contents) {
+        mChanged.put(file, contents);
+        mModified = true;
+    }
+
+    public synchronized void remove(@NonNull Path file) {
+        mChanged.remove(file);
+        removeEntry(file);
+    }
+
+    private void removeEntry(Path file) {
+        Entry entry = mEntries.remove(file);
+        if (entry == null) {
+            return;
+        }
+        for (String word : entry.words) {
+            Posting posting = mPostings.get(word);
+            if (posting != null) {
+                posting.files.remove(file);
+                if (posting.files.isEmpty()) {
+                    mPostings.remove(word);
+                }
+            }
+        }
+        mModified = true;
+    }
+
+    /**
+     * Removes the file, or the files inside it if it is a directory.
+     */
+    public synchronized void removeRecursively(@NonNull Path file) {
+        flushChanged();
+        List<Path> removed = new ArrayList<>();
+        for (Path indexed : mEntries.keySet()) {
+            if (indexed.startsWith(file)) {
+                removed.add(indexed);
+            }
+        }
+        removed.forEach(this::remove);
+    }
+
+    /**
+     * Makes this index contain exactly the given files, files that are not indexed yet are
+     * read from disk and files that are no longer present are removed.
+     */
+    public synchronized void sync(@NonNull Collection<Path> files) {
+        flushChanged();
+        Set<Path> fileSet = files instanceof Set ? (Set<Path>) files : new HashSet<>(files);
+        List<Path> removed = new ArrayList<>();
+        for (Path indexed : mEntries.keySet()) {
+            if (!fileSet.contains(indexed)) {
+                removed.add(indexed);
+            }
+        }
+        removed.forEach(this::remove);
+        for (Path file : fileSet) {
+            index(file);
+        }
+    }
+
+    public synchronized void clear() {
+        mModified = !mEntries.isEmpty();
+        mChanged.clear();
+        mEntries.clear();
+        mPostings.clear();
+    }
+
+    /**
+     * @return the indexed files that contain the word
+     */
+    @NonNull
+    public synchronized Set<Path> getFiles(@NonNull String word) {
+        flushChanged();
+        Posting posting = mPostings.get(word);
+        if (posting == null) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(posting.files);
+    }
+
+    /**
+     * Checks whether the file contains the word, indexing the file first if needed.
+     */
+    public synchronized boolean containsWord(@NonNull Path file, @NonNull String word) {
+        index(file);
+        flushChanged();
+        Posting posting = mPostings.get(word);
+        return posting != null && posting.files.contains(file);
+    }
+
+    public synchronized boolean contains(@NonNull Path file) {
+        return mEntries.containsKey(file) || mChanged.containsKey(file);
+    }
+
+    public synchronized int getFileCount() {
+        flushChanged();
+        return mEntries.size();
+    }
+
+    /**
+     * Reads the words of the files that changed since the last lookup
+     */
+    private void flushChanged() {
+        if (mChanged.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<Path, CharSequence> changed : mChanged.entrySet()) {
+            removeEntry(changed.getKey());
+            // flatten the contents once instead of reading them character by character
+            put(changed.getKey(), MODIFIED_UNKNOWN, getWords(changed.getValue().toString()));
+        }
+        mChanged.clear();
+    }
+
+    private void put(Path file, long modified, Collection<String> words) {
+        String[] array = new String[words.size()];
+        int i = 0;
+        for (String word : words) {
+            Posting posting = mPostings.get(word);
+            if (posting == null) {
+                posting = new Posting(word);
+                mPostings.put(word, posting);
+            }
+            posting.files.add(file);
+            // files share the instance of the word held by the posting
+            array[i++] = posting.word;
+        }
+        mEntries.put(file, new Entry(modified, array));
+        mModified = true;
+    }
+
+    private static String readContents(File file) throws IOException {
+        if (file.length() <= MAX_FILE_SIZE) {
+            return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[MAX_FILE_SIZE];
+        try (FileInputStream input = new FileInputStream(file)) {
+            int read = input.read(bytes);
+            return new String(bytes, 0, Math.max(read, 0), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @return the distinct words of the contents
+     */
+    @NonNull
+    public static Set<String> getWords(@NonNull CharSequence contents) {
+        Set<String> words = new HashSet<>();
+        int start = -1;
+        for (int i = 0; i < contents.length(); i++) {
+            boolean wordChar = isWordChar(contents.charAt(i));
+            if (wordChar && start == -1) {
+                start = i;
+            } else if (!wordChar && start != -1) {
+                words.add(contents.subSequence(start, i).toString());
+                start = -1;
+            }
+        }
+        if (start != -1) {
+            words.add(contents.subSequence(start, contents.length()).toString());
+        }
+        return words;
+    }
+
+    public static boolean isWordChar(char c) {
+        return Character.isAlphabetic(c) || Character.isDigit(c) || c == '$' || c == '_';
+    }
+}
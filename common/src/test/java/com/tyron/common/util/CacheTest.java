@@ -0,0 +1,95 @@
+package com.tyron.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class CacheTest {
+
+    private static final Path FILE_A = Paths.get("/project/A.java");
+    private static final Path FILE_B = Paths.get("/project/B.java");
+    private static final Path FILE_C = Paths.get("/project/C.java");
+
+    @Test
+    public void testInvalidateRemovesAllKeysOfFile() {
+        Cache<String, Boolean> cache = new Cache<>(100, false);
+        cache.load(FILE_A, "foo", true);
+        cache.load(FILE_A, "bar", false);
+        cache.load(FILE_B, "foo", true);
+
+        assertTrue(cache.has(FILE_A, "foo"));
+        cache.invalidate(FILE_A);
+
+        assertTrue(cache.needs(FILE_A, "foo"));
+        assertTrue(cache.needs(FILE_A, "bar"));
+        assertTrue(cache.has(FILE_B, "foo"));
+        assertEquals(1, cache.getTotalWeight());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedFile() {
+        Cache<String, Boolean> cache = new Cache<>(2, false);
+        cache.load(FILE_A, "foo", true);
+        cache.load(FILE_B, "foo", true);
+        // access A so B becomes the least recently used
+        assertTrue(cache.has(FILE_A, "foo"));
+        cache.load(FILE_C, "foo", true);
+
+        assertTrue(cache.has(FILE_A, "foo"));
+        assertFalse(cache.has(FILE_B, "foo"));
+        assertTrue(cache.has(FILE_C, "foo"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testWeigher() {
+        Cache<Void, String> cache = new Cache<>(10, (key, value) -> value.length(), false);
+        cache.load(FILE_A, null, "12345");
+        cache.load(FILE_B, null, "123456");
+
+        assertTrue(cache.needs(FILE_A, null));
+        assertEquals("123456", cache.get(FILE_B, null));
+        assertEquals(6, cache.getTotalWeight());
+    }
+
+    @Test
+    public void testLoadedFileIsNotEvicted() {
+        Cache<String, Boolean> cache = new Cache<>(1, false);
+        cache.load(FILE_A, "foo", true);
+        cache.load(FILE_A, "bar", true);
+
+        assertTrue(cache.has(FILE_A, "bar"));
+        assertFalse(cache.has(FILE_A, "foo"));
+    }
+
+    @Test
+    public void testGetIfPresent() {
+        Cache<String, Boolean> cache = new Cache<>(10, false);
+        assertNull(cache.getIfPresent(FILE_A, "foo"));
+        cache.load(FILE_A, "foo", true);
+        assertEquals(Boolean.TRUE, cache.getIfPresent(FILE_A, "foo"));
+
+        cache.invalidate(FILE_A);
+        assertNull(cache.getIfPresent(FILE_A, "foo"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testCounters() {
+        Cache<String, Boolean> cache = new Cache<>(10, false);
+        assertTrue(cache.needs(FILE_A, "foo"));
+        cache.load(FILE_A, "foo", true);
+        assertFalse(cache.needs(FILE_A, "foo"));
+        assertFalse(cache.needs(FILE_A, "foo"));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+}
@@ -0,0 +1,163 @@
+package com.tyron.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class WordIndexTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void testIndexFromDisk() throws IOException {
+        Path a = createFile("A.java", "class A { Foo foo; }");
+        Path b = createFile("B.java", "class B extends FooBar {}");
+
+        WordIndex index = new WordIndex();
+        index.sync(Arrays.asList(a, b));
+
+        assertEquals(Collections.singleton(a), index.getFiles("Foo"));
+        assertEquals(Collections.singleton(b), index.getFiles("FooBar"));
+        assertTrue(index.containsWord(a, "foo"));
+        assertFalse(index.containsWord(b, "Foo"));
+        assertEquals(2, index.getFiles("class").size());
+    }
+
+    @Test
+    public void testUpdateAndSync() throws IOException {
+        Path a = createFile("A.java", "class A { Foo foo; }");
+        Path b = createFile("B.java", "class B {}");
+
+        WordIndex index = new WordIndex();
+        index.sync(Arrays.asList(a, b));
+        index.update(a, "class A { Bar bar; }");
+
+        assertTrue(index.getFiles("Foo").isEmpty());
+        assertEquals(Collections.singleton(a), index.getFiles("Bar"));
+
+        index.sync(Collections.singletonList(a));
+        assertFalse(index.contains(b));
+        assertEquals(Collections.singleton(a), index.getFiles("class"));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Path a = createFile("A.java", "class A { Foo foo; }");
+        Path b = createFile("B.java", "class B {}");
+        File storage = new File(mFolder.getRoot(), "index/words.bin");
+
+        WordIndex index = new WordIndex(storage);
+        index.sync(Arrays.asList(a, b));
+        // unsaved contents must not be trusted in the next session
+        index.update(b, "class B { Foo foo; }");
+        index.save();
+
+        WordIndex loaded = WordIndex.load(storage);
+        assertTrue(loaded.contains(a));
+        assertFalse(loaded.contains(b));
+        assertEquals(Collections.singleton(a), loaded.getFiles("Foo"));
+    }
+
+    @Test
+    public void testRemoveRecursively() throws IOException {
+        Path a = createFile("A.java", "class A {}");
+        File directory = mFolder.newFolder("pkg");
+        File b = new File(directory, "B.java");
+        FileUtils.writeStringToFile(b, "class B {}", StandardCharsets.UTF_8);
+
+        WordIndex index = new WordIndex();
+        index.sync(Arrays.asList(a, b.toPath()));
+        index.removeRecursively(directory.toPath());
+
+        assertTrue(index.contains(a));
+        assertFalse(index.contains(b.toPath()));
+        index.removeRecursively(a);
+        assertEquals(0, index.getFileCount());
+    }
+
+    @Test
+    public void testUpdateIsReadOnLookup() throws IOException {
+        Path a = createFile("A.java", "class A { Foo foo; }");
+        WordIndex index = new WordIndex();
+        index.sync(Collections.singletonList(a));
+
+        AtomicInteger reads = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            String contents = "class A { Bar" + i + " bar; }";
+            index.update(a, new CharSequence() {
+                @Override
+                public int length() {
+                    return contents.length();
+                }
+
+                @Override
+                public char charAt(int index) {
+                    return contents.charAt(index);
+                }
+
+                @NonNull
+                @Override
+                public CharSequence subSequence(int start, int end) {
+                    return contents.subSequence(start, end);
+                }
+
+                @NonNull
+                @Override
+                public String toString() {
+                    reads.incrementAndGet();
+                    return contents;
+                }
+            });
+        }
+        assertEquals(0, reads.get());
+        assertTrue(index.contains(a));
+
+        // only the last contents are read
+        assertEquals(Collections.singleton(a), index.getFiles("Bar99"));
+        assertTrue(index.getFiles("Foo").isEmpty());
+        assertTrue(index.getFiles("Bar98").isEmpty());
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void testRemoveDiscardsPendingUpdate() throws IOException {
+        Path a = createFile("A.java", "class A { Foo foo; }");
+        WordIndex index = new WordIndex();
+        index.sync(Collections.singletonList(a));
+        index.update(a, "class A { Bar bar; }");
+        index.remove(a);
+
+        assertFalse(index.contains(a));
+        assertTrue(index.getFiles("Bar").isEmpty());
+    }
+
+    @Test
+    public void testGetWords() {
+        assertEquals(Arrays.asList("a$b", "c_d", "e1"),
+                WordIndex.getWords("a$b.c_d(e1)").stream().sorted()
+                        .collect(Collectors.toList()));
+    }
+
+    private Path createFile(String name, String contents) throws IOException {
+        File file = mFolder.newFile(name);
+        FileUtils.writeStringToFile(file, contents, StandardCharsets.UTF_8);
+        return file.toPath();
+    }
+}
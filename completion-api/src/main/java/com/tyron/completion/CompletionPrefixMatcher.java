@@ -29,13 +29,26 @@ public class CompletionPrefixMatcher {
     }
 
     public static MatchLevel computeMatchLevel(String candidateName, String completionPrefix) {
+        return computeMatchLevel(candidateName, candidateName.toLowerCase(),
+                completionPrefix, completionPrefix.toLowerCase());
+    }
+
+    /**
+     * Same as {@link #computeMatchLevel(String, String)} but with the lower case forms already
+     * computed, so callers matching many candidates against the same prefix do not have to
+     * convert them again.
+     */
+    public static MatchLevel computeMatchLevel(String candidateName,
+                                               String lowerCandidateName,
+                                               String completionPrefix,
+                                               String lowerCompletionPrefix) {
         if (candidateName.startsWith(completionPrefix)) {
             return candidateName.length() == completionPrefix.length()
                     ? MatchLevel.CASE_SENSITIVE_EQUAL
                     : MatchLevel.CASE_SENSITIVE_PREFIX;
         }
 
-        if (candidateName.toLowerCase().startsWith(completionPrefix.toLowerCase())) {
+        if (lowerCandidateName.startsWith(lowerCompletionPrefix)) {
             return candidateName.length() == completionPrefix.length()
                     ? MatchLevel.CASE_INSENSITIVE_EQUAL
                     : MatchLevel.CASE_INSENSITIVE_PREFIX;
@@ -8,21 +8,55 @@ import com.tyron.completion.CompletionParameters;
 import com.tyron.completion.CompletionProvider;
 import com.tyron.completion.model.CompletionList;
 import com.tyron.completion.progress.ProcessCanceledException;
+import com.tyron.completion.progress.ProgressIndicator;
+import com.tyron.completion.progress.ProgressManager;
+import com.tyron.completion.progress.TaskPriority;
 import com.tyron.editor.Editor;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
  * Main entry point for the completions api.
+ *
+ * <p>The providers of a request run in parallel in the pool of {@link ProgressManager} with
+ * {@link TaskPriority#INTERACTIVE} priority, so they start before queued background work.
+ * The results of each
+ * provider are passed to the caller as soon as it finishes so fast providers are shown while
+ * slower ones are still running. A provider that exceeds its latency budget is canceled and
+ * a new request cancels the providers of the previous one, providers stop at their next
+ * call to {@link ProgressManager#checkCanceled()}.</p>
+ *
+ * <p>When the user types more identifier characters after a complete result, the previous
+ * result is narrowed with {@link CompletionList#narrow(CompletionList, String)} instead of
+ * running the providers again.</p>
  */
 public class CompletionEngine {
 
+    /**
+     * The default time a provider may take, including the time it is queued, before it is
+     * canceled
+     */
+    private static final long DEFAULT_PROVIDER_TIMEOUT_MS = 3000;
+
+    /**
+     * How often the caller checks for timeouts and cancellation while waiting for results
+     */
+    private static final long POLL_INTERVAL_MS = 20;
+
     private static CompletionEngine sInstance = null;
 
-    public static CompletionEngine getInstance() {
+    public static synchronized CompletionEngine getInstance() {
         if (sInstance == null) {
             sInstance = new CompletionEngine();
         }
@@ -31,10 +65,26 @@ public class CompletionEngine {
 
     private final Logger logger = IdeLog.getCurrentLogger(this);
 
+    private final Executor mExecutor =
+            ProgressManager.getInstance().getExecutor(TaskPriority.INTERACTIVE);
+
+    private volatile long mProviderTimeout = DEFAULT_PROVIDER_TIMEOUT_MS;
+
+    private Request mCurrentRequest;
+    private LastResult mLastResult;
+
     public CompletionEngine() {
 
     }
 
+    /**
+     * Sets the maximum time in milliseconds a single provider may take before its results
+     * are discarded.
+     */
+    public void setProviderTimeout(long timeout) {
+        mProviderTimeout = timeout;
+    }
+
     public CompletionList complete(Project project,
                                    Module module,
                                    Editor editor,
@@ -44,13 +94,6 @@ public class CompletionEngine {
                                    int line,
                                    int column,
                                    long index) {
-        if (project.isCompiling() || project.isIndexing()) {
-            return CompletionList.EMPTY;
-        }
-
-        CompletionList list = new CompletionList();
-        list.items = new ArrayList<>();
-
         CompletionParameters parameters = CompletionParameters.builder()
                 .setProject(project)
                 .setModule(module)
@@ -62,26 +105,287 @@ public class CompletionEngine {
                 .setColumn(column)
                 .setIndex(index)
                 .build();
+        return complete(parameters, null);
+    }
+
+    /**
+     * Runs all the providers that accept the file of the parameters.
+     *
+     * @param parameters the parameters of the request
+     * @param partialResults if not null, receives the results of each provider as soon as
+     *                       it finishes. Called from the calling thread.
+     * @return the merged results of all providers that finished in time, in provider order
+     * @throws ProcessCanceledException if a newer request has been made or the calling
+     *                                  thread has been canceled
+     */
+    public CompletionList complete(@NotNull CompletionParameters parameters,
+                                   @Nullable Consumer<CompletionList> partialResults) {
+        Project project = parameters.getProject();
+        if (project.isCompiling() || project.isIndexing()) {
+            return CompletionList.EMPTY;
+        }
+
         List<CompletionProvider> providers = CompletionProvider.forParameters(parameters);
-        for (CompletionProvider provider : providers) {
-            try {
-                CompletionList complete = provider.complete(parameters);
-                if (complete != null) {
-                    list.items.addAll(complete.items);
+        Request request = new Request(parameters, providers.size());
+        LastResult lastResult;
+        synchronized (this) {
+            if (mCurrentRequest != null) {
+                mCurrentRequest.cancel();
+            }
+            mCurrentRequest = request;
+            lastResult = mLastResult;
+            mLastResult = null;
+        }
+
+        try {
+            if (lastResult != null && lastResult.canNarrow(parameters)) {
+                return narrow(request, lastResult, partialResults);
+            }
+
+            for (int i = 0; i < providers.size(); i++) {
+                Task task = new Task(i, providers.get(i));
+                request.tasks[i] = task;
+                mExecutor.execute(() -> run(request, task));
+            }
+            CompletionList list = collect(request, partialResults);
+            if (!list.isIncomplete()) {
+                saveResult(request, request.lists);
+            }
+            return list;
+        } finally {
+            synchronized (this) {
+                if (mCurrentRequest == request) {
+                    mCurrentRequest = null;
                 }
-            } catch (Throwable e) {
-                if (e instanceof ProcessCanceledException) {
-                    throw e;
+            }
+            request.cancel();
+        }
+    }
+
+    private CompletionList narrow(Request request,
+                                  LastResult lastResult,
+                                  @Nullable Consumer<CompletionList> partialResults) {
+        String typed = request.parameters.getPrefix().substring(lastResult.prefix.length());
+        CompletionList list = new CompletionList();
+        list.items = new ArrayList<>();
+        CompletionList[] lists = new CompletionList[lastResult.lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            CompletionList previous = lastResult.lists[i];
+            lists[i] = CompletionList.narrow(previous, previous.getPrefix() + typed);
+            list.items.addAll(lists[i].items);
+            if (partialResults != null && !lists[i].items.isEmpty()) {
+                partialResults.accept(lists[i]);
+            }
+        }
+        saveResult(request, lists);
+        return list;
+    }
+
+    private void saveResult(Request request, CompletionList[] lists) {
+        for (CompletionList list : lists) {
+            if (list == null || !list.canNarrow()) {
+                return;
+            }
+        }
+        synchronized (this) {
+            if (mCurrentRequest == request) {
+                mLastResult = new LastResult(request.parameters, lists);
+            }
+        }
+    }
+
+    private void run(Request request, Task task) {
+        if (request.canceled || task.indicator.isCanceled()) {
+            request.results.add(new Result(task.index, null, new ProcessCanceledException()));
+            return;
+        }
+        try {
+            CompletionList list = ProgressManager.getInstance().runProcess(
+                    () -> task.provider.complete(request.parameters), task.indicator);
+            request.results.add(new Result(task.index, list, null));
+        } catch (Throwable e) {
+            request.results.add(new Result(task.index, null, e));
+        }
+    }
+
+    private CompletionList collect(Request request,
+                                   @Nullable Consumer<CompletionList> partialResults) {
+        CompletionList[] lists = request.lists;
+        boolean incomplete = false;
+        int remaining = request.tasks.length;
+
+        while (remaining > 0) {
+            if (request.canceled) {
+                throw new ProcessCanceledException();
+            }
+            ProgressManager.checkCanceled();
+
+            Result result;
+            try {
+                result = request.results.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ProcessCanceledException();
+            }
+
+            if (result == null) {
+                cancelExpiredTasks(request);
+                continue;
+            }
+
+            remaining--;
+            Task task = request.tasks[result.index];
+            if (result.error != null) {
+                if (task.timedOut) {
+                    incomplete = true;
+                    logger.warning(task.provider.getClass().getSimpleName() +
+                                   " exceeded its budget of " + mProviderTimeout + "ms");
+                } else if (!(result.error instanceof ProcessCanceledException)) {
+                    logError(request.parameters, result.error);
                 }
+                continue;
+            }
+            if (result.list == null) {
+                continue;
+            }
+
+            lists[result.index] = result.list;
+            incomplete |= result.list.isIncomplete();
+            if (partialResults != null && !result.list.items.isEmpty()) {
+                partialResults.accept(result.list);
+            }
+        }
 
-                String message = "Failed to complete: \n" +
-                                 "index: " + index + "\n" +
-                                 "prefix: " + prefix + "\n" +
-                                 "File: " + file.getName() + "\n" +
-                                 "Stack trace: " + Throwables.getStackTraceAsString(e);
-                logger.severe(message);
+        CompletionList list = new CompletionList();
+        list.items = new ArrayList<>();
+        list.isIncomplete = incomplete;
+        for (CompletionList completionList : lists) {
+            if (completionList != null) {
+                list.items.addAll(completionList.items);
             }
         }
         return list;
     }
+
+    private void cancelExpiredTasks(Request request) {
+        long now = System.currentTimeMillis();
+        for (Task task : request.tasks) {
+            if (!task.timedOut && now - task.submitted > mProviderTimeout) {
+                task.timedOut = true;
+                task.indicator.cancel();
+            }
+        }
+    }
+
+    private void logError(CompletionParameters parameters, Throwable e) {
+        String message = "Failed to complete: \n" +
+                         "index: " + parameters.getIndex() + "\n" +
+                         "prefix: " + parameters.getPrefix() + "\n" +
+                         "File: " + parameters.getFile().getName() + "\n" +
+                         "Stack trace: " + Throwables.getStackTraceAsString(e);
+        logger.severe(message);
+    }
+
+    private static class Request {
+        final CompletionParameters parameters;
+        final Task[] tasks;
+        final CompletionList[] lists;
+        final BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        volatile boolean canceled;
+
+        Request(CompletionParameters parameters, int providerCount) {
+            this.parameters = parameters;
+            this.tasks = new Task[providerCount];
+            this.lists = new CompletionList[providerCount];
+        }
+
+        void cancel() {
+            canceled = true;
+            for (Task task : tasks) {
+                if (task != null) {
+                    task.indicator.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * The complete results of the last request, narrowed when the user types more
+     * characters of the same identifier
+     */
+    private static class LastResult {
+        final File file;
+        final int line;
+        final int column;
+        final long index;
+        final int contentsLength;
+        final String prefix;
+        final CompletionList[] lists;
+
+        LastResult(CompletionParameters parameters, CompletionList[] lists) {
+            this.file = parameters.getFile();
+            this.line = parameters.getLine();
+            this.column = parameters.getColumn();
+            this.index = parameters.getIndex();
+            this.contentsLength = parameters.getContents().length();
+            this.prefix = parameters.getPrefix();
+            this.lists = lists;
+        }
+
+        /**
+         * The result can be narrowed if the only change since then is that identifier
+         * characters have been typed at the end of the prefix
+         */
+        boolean canNarrow(CompletionParameters parameters) {
+            String newPrefix = parameters.getPrefix();
+            String contents = parameters.getContents();
+            if (contents == null ||
+                !file.equals(parameters.getFile()) ||
+                line != parameters.getLine() ||
+                newPrefix == null ||
+                newPrefix.length() <= prefix.length() ||
+                !newPrefix.startsWith(prefix)) {
+                return false;
+            }
+            int typed = newPrefix.length() - prefix.length();
+            if (parameters.getColumn() - column != typed ||
+                parameters.getIndex() - index != typed ||
+                parameters.getContents().length() - contentsLength != typed) {
+                return false;
+            }
+            int start = (int) index;
+            for (int i = 0; i < typed; i++) {
+                char c = newPrefix.charAt(prefix.length() + i);
+                if (!Character.isJavaIdentifierPart(c) || contents.charAt(start + i) != c) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Task {
+        final int index;
+        final CompletionProvider provider;
+        final ProgressIndicator indicator = new ProgressIndicator();
+        final long submitted = System.currentTimeMillis();
+        volatile boolean timedOut;
+
+        Task(int index, CompletionProvider provider) {
+            this.index = index;
+            this.provider = provider;
+        }
+    }
+
+    private static class Result {
+        final int index;
+        final CompletionList list;
+        final Throwable error;
+
+        Result(int index, CompletionList list, Throwable error) {
+            this.index = index;
+            this.list = list;
+            this.error = error;
+        }
+    }
 }
@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * A class representing the completion item shown in the user list
@@ -22,9 +23,16 @@ public class CompletionItem implements Comparable<CompletionItem> {
             Comparator.comparing((CompletionItem item) -> item.getMatchLevel()
                     .ordinal(), Comparator.reverseOrder())
                     .thenComparing(CompletionItem::getSortText)
-                    .thenComparing(it -> it.getFilterTexts()
-                            .isEmpty() ? it.getLabel() : it.getFilterTexts()
-                            .get(0));
+                    .thenComparing(CompletionItem::getFirstFilterText);
+
+    /**
+     * The order of the items without their match level, lists sorted by this order stay
+     * sorted by {@link #COMPARATOR} once they are grouped by match level.
+     */
+    @SuppressWarnings("NewApi")
+    public static final Comparator<CompletionItem> BASE_COMPARATOR =
+            Comparator.comparing(CompletionItem::getSortText)
+                    .thenComparing(CompletionItem::getFirstFilterText);
 
 
     public static CompletionItem create(String label, String detail, String commitText) {
@@ -40,6 +48,12 @@ public class CompletionItem implements Comparable<CompletionItem> {
     }
 
     private InsertHandler insertHandler;
+
+    /**
+     * Creates the insert handler when the item is inserted, so items that are never shown
+     * or selected do not allocate one.
+     */
+    private Function<CompletionItem, ? extends InsertHandler> insertHandlerFactory;
     public String label;
     public String detail;
     public String commitText;
@@ -53,8 +67,11 @@ public class CompletionItem implements Comparable<CompletionItem> {
     private List<String> filterTexts = new ArrayList<>(1);
     private CompletionPrefixMatcher.MatchLevel matchLevel;
 
+    // filter texts and their lower case forms, computed once and reused on every keystroke
+    private String[] filterKeys;
+    private String[] lowerFilterKeys;
+
     public CompletionItem() {
-        this.insertHandler = new DefaultInsertHandler(CompletionUtils.JAVA_PREDICATE, this);
         this.sortText = "";
     }
 
@@ -64,7 +81,6 @@ public class CompletionItem implements Comparable<CompletionItem> {
         this.commitText = commitText;
         this.cursorOffset = commitText.length();
         this.iconKind = kind;
-        this.insertHandler = new DefaultInsertHandler(CompletionUtils.JAVA_PREDICATE, this);
         this.sortText = "";
     }
 
@@ -85,6 +101,49 @@ public class CompletionItem implements Comparable<CompletionItem> {
 
     public void addFilterText(String text) {
         filterTexts.add(text);
+        filterKeys = null;
+        lowerFilterKeys = null;
+    }
+
+    private String getFirstFilterText() {
+        if (filterTexts.isEmpty()) {
+            return label;
+        }
+        return filterTexts.get(0);
+    }
+
+    /**
+     * Computes how well the filter texts of this item match the prefix, the best match
+     * of all the filter texts is returned.
+     *
+     * @param prefix the completion prefix
+     * @param lowerPrefix the lower case form of the prefix
+     */
+    public CompletionPrefixMatcher.MatchLevel computeMatchLevel(String prefix,
+                                                               String lowerPrefix) {
+        String[] keys = filterKeys;
+        String[] lowerKeys = lowerFilterKeys;
+        if (keys == null || lowerKeys == null) {
+            keys = filterTexts.isEmpty()
+                    ? new String[]{label}
+                    : filterTexts.toArray(new String[0]);
+            lowerKeys = new String[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                lowerKeys[i] = keys[i].toLowerCase();
+            }
+            filterKeys = keys;
+            lowerFilterKeys = lowerKeys;
+        }
+
+        CompletionPrefixMatcher.MatchLevel best = CompletionPrefixMatcher.MatchLevel.NOT_MATCH;
+        for (int i = 0; i < keys.length; i++) {
+            CompletionPrefixMatcher.MatchLevel level = CompletionPrefixMatcher
+                    .computeMatchLevel(keys[i], lowerKeys[i], prefix, lowerPrefix);
+            if (level.compareTo(best) > 0) {
+                best = level;
+            }
+        }
+        return best;
     }
 
     public String getSortText() {
@@ -109,6 +168,29 @@ public class CompletionItem implements Comparable<CompletionItem> {
 
     public void setInsertHandler(InsertHandler handler) {
         this.insertHandler = handler;
+        this.insertHandlerFactory = null;
+    }
+
+    /**
+     * Sets the factory used to create the insert handler of this item the first time it is
+     * inserted. Prefer this over {@link #setInsertHandler(InsertHandler)} for providers that
+     * create a lot of items, since most of them are never shown.
+     */
+    public void setInsertHandlerFactory(Function<CompletionItem, ? extends InsertHandler> factory) {
+        this.insertHandler = null;
+        this.insertHandlerFactory = factory;
+    }
+
+    private InsertHandler getInsertHandler() {
+        if (insertHandler == null) {
+            if (insertHandlerFactory != null) {
+                insertHandler = insertHandlerFactory.apply(this);
+                insertHandlerFactory = null;
+            } else {
+                insertHandler = new DefaultInsertHandler(CompletionUtils.JAVA_PREDICATE, this);
+            }
+        }
+        return insertHandler;
     }
 
     @Override
@@ -149,6 +231,6 @@ public class CompletionItem implements Comparable<CompletionItem> {
 
 
     public void handleInsert(Editor editor) {
-        insertHandler.handleInsert(editor);
+        getInsertHandler().handleInsert(editor);
     }
 }
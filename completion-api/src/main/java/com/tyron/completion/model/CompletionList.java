@@ -6,15 +6,14 @@ import static java.util.stream.Collectors.toList;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Ordering;
 import com.google.errorprone.annotations.Immutable;
-import com.tyron.completion.CompletionPrefixMatcher;
 import com.tyron.completion.CompletionPrefixMatcher.MatchLevel;
 import com.tyron.completion.CompletionProvider;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 
 /**
  * Represents a list of completion items to be return from a {@link CompletionProvider}
@@ -35,6 +34,18 @@ public class CompletionList {
 
     public List<CompletionItem> items = new ArrayList<>();
 
+    /**
+     * The prefix the items were matched against, null if the list was not created
+     * through a {@link Builder}
+     */
+    private String prefix;
+
+    /**
+     * The items sorted by {@link CompletionItem#BASE_COMPARATOR}, computed when the list is
+     * first narrowed
+     */
+    private List<CompletionItem> baseOrder;
+
     /**
      * For performance reasons, the completion items are limited to a certain amount.
      * A completion provider may indicate that its results are incomplete so next as
@@ -54,30 +65,143 @@ public class CompletionList {
         return items;
     }
 
+    /**
+     * A list can be narrowed to a longer prefix if it holds every item matching its prefix.
+     * A list that hit its maximum size only holds the best items for its prefix, the dropped
+     * items may be the best ones for a longer prefix.
+     *
+     * @return whether {@link #narrow(CompletionList, String)} gives the same items as
+     * completing the longer prefix again
+     */
+    public boolean canNarrow() {
+        return !isIncomplete && prefix != null;
+    }
+
+    /**
+     * @return the prefix the items of this list were matched against, or null if unknown
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
     public static CompletionList copy(CompletionList old, String newPrefix) {
-        Builder builder = CompletionList.builder(newPrefix);
-        if (old.isIncomplete) {
-            builder.incomplete();
+        return narrow(old, newPrefix);
+    }
+
+    /**
+     * Matches the items of the old list against the new prefix, used when the user types more
+     * characters after a list has been computed.
+     *
+     * <p>The items are visited in their base order and grouped by their new match level, so
+     * the result is sorted by {@link CompletionItem#COMPARATOR} without sorting it again.
+     * Items that were filtered out of the old list are not considered.</p>
+     */
+    public static CompletionList narrow(CompletionList old, String newPrefix) {
+        List<CompletionItem> base = old.getBaseOrder();
+        String lowerPrefix = newPrefix.toLowerCase();
+        List<CompletionItem> newBase = new ArrayList<>(base.size());
+        MatchLevel[] levels = new MatchLevel[base.size()];
+        for (CompletionItem item : base) {
+            MatchLevel level = item.computeMatchLevel(newPrefix, lowerPrefix);
+            if (level == MatchLevel.NOT_MATCH) {
+                continue;
+            }
+            levels[newBase.size()] = level;
+            newBase.add(item);
+        }
+
+        CompletionList list = new CompletionList();
+        list.isIncomplete = old.isIncomplete;
+        list.items = groupByMatchLevel(newBase, levels);
+        list.prefix = newPrefix;
+        list.baseOrder = newBase;
+        return list;
+    }
+
+    /**
+     * Groups the items by their match level, best match levels first. Each group keeps the
+     * order of the given items, so items in base order end up sorted by
+     * {@link CompletionItem#COMPARATOR}.
+     */
+    private static ImmutableList<CompletionItem> groupByMatchLevel(List<CompletionItem> base,
+                                                                   MatchLevel[] levels) {
+        int levelCount = MatchLevel.values().length;
+        int[] offsets = new int[levelCount];
+        for (int i = 0; i < base.size(); i++) {
+            offsets[levels[i].ordinal()]++;
+        }
+        int offset = 0;
+        for (int i = levelCount - 1; i >= 0; i--) {
+            int count = offsets[i];
+            offsets[i] = offset;
+            offset += count;
+        }
+
+        CompletionItem[] sorted = new CompletionItem[base.size()];
+        for (int i = 0; i < base.size(); i++) {
+            CompletionItem item = base.get(i);
+            item.setMatchLevel(levels[i]);
+            sorted[offsets[levels[i].ordinal()]++] = item;
         }
-        builder.addItems(old.getItems());
-        return builder.build();
+        return ImmutableList.copyOf(sorted);
+    }
+
+    private synchronized List<CompletionItem> getBaseOrder() {
+        if (baseOrder == null) {
+            List<CompletionItem> sorted = new ArrayList<>(items);
+            sorted.sort(CompletionItem.BASE_COMPARATOR);
+            baseOrder = sorted;
+        }
+        return baseOrder;
     }
 
     public static class Builder {
-        private final List<CompletionItem> items;
+
+        /**
+         * The order in which items are evicted when the builder is bounded, the worst item
+         * is at the head of the queue
+         */
+        @SuppressWarnings("NewApi")
+        private static final Comparator<CompletionItem> EVICTION_ORDER =
+                CompletionItem.COMPARATOR.reversed();
+
+        private Collection<CompletionItem> items;
         private boolean incomplete;
+        private int maxItems = Integer.MAX_VALUE;
 
         private final String completionPrefix;
+        private final String lowerCompletionPrefix;
 
         public Builder(String completionPrefix) {
             items = new ArrayList<>();
             this.completionPrefix = completionPrefix;
+            this.lowerCompletionPrefix = completionPrefix.toLowerCase();
         }
 
         public String getPrefix() {
             return completionPrefix;
         }
 
+        /**
+         * Limits the list to the best {@code maxItems} items according to
+         * {@link CompletionItem#COMPARATOR}. The items are kept in a heap so adding an item
+         * costs O(log maxItems) and only the kept items are sorted when the list is built.
+         * The list is marked as incomplete if any item has been dropped, so it is completed
+         * again instead of being narrowed as the user types.
+         */
+        public Builder setMaxItems(int maxItems) {
+            if (maxItems <= 0) {
+                throw new IllegalArgumentException("maxItems must be positive");
+            }
+            Collection<CompletionItem> added = items;
+            this.maxItems = maxItems;
+            this.items = new PriorityQueue<>(Math.min(maxItems, 256) + 1, EVICTION_ORDER);
+            for (CompletionItem item : added) {
+                offer(item);
+            }
+            return this;
+        }
+
         public Builder addItems(Collection<CompletionItem> items) {
             for (CompletionItem item : items) {
                 addItem(item);
@@ -94,25 +218,29 @@ public class CompletionList {
         }
 
         public Builder addItem(CompletionItem item) {
-            List<MatchLevel> matchLevels = new ArrayList<>();
-            for (String filterText : item.getFilterTexts()) {
-                MatchLevel matchLevel =
-                        CompletionPrefixMatcher.computeMatchLevel(filterText, completionPrefix);
-                if (matchLevel == MatchLevel.NOT_MATCH) {
-                    continue;
-                }
-                matchLevels.add(matchLevel);
-            }
-            if (matchLevels.isEmpty()) {
+            MatchLevel matchLevel = item.computeMatchLevel(completionPrefix,
+                    lowerCompletionPrefix);
+            if (matchLevel == MatchLevel.NOT_MATCH) {
                 return this;
             }
-            Collections.sort(matchLevels);
-            MatchLevel matchLevel = matchLevels.get(matchLevels.size() - 1);
             item.setMatchLevel(matchLevel);
-            items.add(item);
+            offer(item);
             return this;
         }
 
+        private void offer(CompletionItem item) {
+            if (items.size() < maxItems) {
+                items.add(item);
+                return;
+            }
+            incomplete = true;
+            PriorityQueue<CompletionItem> heap = (PriorityQueue<CompletionItem>) items;
+            if (CompletionItem.COMPARATOR.compare(item, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+
         public int getItemCount() {
             return items.size();
         }
@@ -127,9 +255,20 @@ public class CompletionList {
 
         @SuppressWarnings("NewApi")
         public CompletionList build() {
+            // sort without the match levels once, the same order is reused when the list
+            // is narrowed as the user types
+            List<CompletionItem> base = new ArrayList<>(items);
+            base.sort(CompletionItem.BASE_COMPARATOR);
+            MatchLevel[] levels = new MatchLevel[base.size()];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = base.get(i).getMatchLevel();
+            }
+
             CompletionList list = new CompletionList();
             list.isIncomplete = this.incomplete;
-            list.items = ITEM_ORDERING.immutableSortedCopy(items);
+            list.items = groupByMatchLevel(base, levels);
+            list.prefix = completionPrefix;
+            list.baseOrder = base;
             return list;
         }
     }
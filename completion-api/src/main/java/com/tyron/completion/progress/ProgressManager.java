@@ -11,18 +11,25 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.tyron.common.TestUtil;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.WeakHashMap;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class ProgressManager {
 
+    /**
+     * Tasks beyond the pool size are queued in priority order, a pool with more threads than
+     * cores would start every task right away and the priorities would have no effect
+     */
+    private static final int THREAD_COUNT =
+            Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+
     private static ProgressManager sInstance = null;
 
     public static ProgressManager getInstance() {
@@ -32,17 +39,35 @@ public class ProgressManager {
         return sInstance;
     }
 
+    /**
+     * Throws a {@link ProcessCanceledException} if the process running in the current thread
+     * has been canceled. This is called in tight loops so it only reads a thread local and
+     * the volatile state of the indicator.
+     */
     public static void checkCanceled() {
         getInstance().doCheckCanceled();
     }
 
-    private final ExecutorService mPool = Executors.newFixedThreadPool(32);
+    private final ThreadPoolExecutor mPool;
+    private final AtomicLong mTaskSequence = new AtomicLong();
     private final HandlerInterface mMainHandler;
 
+    private final ThreadLocal<ProgressIndicator> mCurrentIndicator = new ThreadLocal<>();
+
+    /**
+     * The indicators of the processes that are currently running, only used to cancel the
+     * process of another thread
+     */
     private final Map<Thread, ProgressIndicator> mThreadToIndicator;
 
     public ProgressManager() {
-        mThreadToIndicator = new WeakHashMap<>();
+        this(THREAD_COUNT);
+    }
+
+    ProgressManager(int threadCount) {
+        mPool = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>());
+        mThreadToIndicator = new ConcurrentHashMap<>();
         if (TestUtil.isDalvik()) {
             mMainHandler = new DefaultHandlerInterface(new Handler(Looper.getMainLooper()));
         } else {
@@ -61,19 +86,48 @@ public class ProgressManager {
     public void runAsync(Runnable runnable,
                          Consumer<ProgressIndicator> cancelConsumer,
                          ProgressIndicator indicator) {
-        mPool.execute(() -> {
-            Thread currentThread = Thread.currentThread();
+        runAsync(runnable, cancelConsumer, indicator, TaskPriority.NORMAL);
+    }
+
+    /**
+     * Same as {@link #runAsync(Runnable, Consumer, ProgressIndicator)} but the task starts
+     * before queued tasks of a lower priority.
+     */
+    public void runAsync(Runnable runnable,
+                         Consumer<ProgressIndicator> cancelConsumer,
+                         ProgressIndicator indicator,
+                         TaskPriority priority) {
+        execute(() -> {
+            ProgressIndicator previous = enter(indicator);
             try {
-                mThreadToIndicator.put(currentThread, indicator);
                 indicator.setRunning(true);
                 runnable.run();
             } catch (ProcessCanceledException e) {
                 cancelConsumer.accept(indicator);
             } finally {
                 indicator.setRunning(false);
-                mThreadToIndicator.remove(currentThread);
+                exit(previous);
             }
-        });
+        }, priority);
+    }
+
+    /**
+     * Run a cancelable process in the current thread. Calls to {@link #checkCanceled()} made
+     * by the process throw a {@link ProcessCanceledException} once the indicator is canceled.
+     *
+     * @param process   The process to run
+     * @param indicator The class used to control this process's execution
+     * @return the result of the process
+     */
+    public <T> T runProcess(Supplier<T> process, ProgressIndicator indicator) {
+        ProgressIndicator previous = enter(indicator);
+        try {
+            indicator.setRunning(true);
+            return process.get();
+        } finally {
+            indicator.setRunning(false);
+            exit(previous);
+        }
     }
 
     public void runAsync(Context uiContext,
@@ -113,11 +167,35 @@ public class ProgressManager {
      * @param runnable The code to run
      */
     public void runNonCancelableAsync(Runnable runnable) {
-        mPool.execute(runnable);
+        runNonCancelableAsync(runnable, TaskPriority.NORMAL);
+    }
+
+    /**
+     * Run an asynchronous operation that is not cancelable, the operation starts before
+     * queued tasks of a lower priority.
+     *
+     * @param runnable The code to run
+     * @param priority The priority of the operation
+     */
+    public void runNonCancelableAsync(Runnable runnable, TaskPriority priority) {
+        execute(runnable, priority);
     }
 
     public <T> ListenableFuture<T> computeNonCancelableAsync(AsyncCallable<T> callable) {
-        return Futures.submitAsync(callable, mPool);
+        return computeNonCancelableAsync(callable, TaskPriority.NORMAL);
+    }
+
+    public <T> ListenableFuture<T> computeNonCancelableAsync(AsyncCallable<T> callable,
+                                                             TaskPriority priority) {
+        return Futures.submitAsync(callable, getExecutor(priority));
+    }
+
+    /**
+     * @return an executor that runs its tasks in the pool of this manager with the given
+     * priority
+     */
+    public Executor getExecutor(TaskPriority priority) {
+        return runnable -> execute(runnable, priority);
     }
 
     /**
@@ -142,22 +220,78 @@ public class ProgressManager {
         mMainHandler.removeCallbacks(runnable);
     }
 
+    /**
+     * @return the indicator of the process running in the current thread, or null if the
+     * current thread is not running a cancelable process
+     */
+    public ProgressIndicator getProgressIndicator() {
+        return mCurrentIndicator.get();
+    }
+
+    /**
+     * Cancels the process currently running in the given thread, does nothing if the thread
+     * is not running a cancelable process.
+     */
     public void cancelThread(Thread thread) {
         ProgressIndicator indicator = mThreadToIndicator.get(thread);
-        if (indicator == null) {
-            indicator = new ProgressIndicator();
+        if (indicator != null) {
+            indicator.cancel();
         }
-        indicator.cancel();
-        mThreadToIndicator.put(thread, indicator);
     }
 
     private void doCheckCanceled() {
-        ProgressIndicator indicator = mThreadToIndicator.get(Thread.currentThread());
-        if (indicator != null) {
-            if (indicator.isCanceled()) {
-                mThreadToIndicator.remove(Thread.currentThread());
-                throw new ProcessCanceledException();
+        ProgressIndicator indicator = mCurrentIndicator.get();
+        if (indicator != null && indicator.isCanceled()) {
+            throw new ProcessCanceledException();
+        }
+    }
+
+    private ProgressIndicator enter(ProgressIndicator indicator) {
+        ProgressIndicator previous = mCurrentIndicator.get();
+        mCurrentIndicator.set(indicator);
+        mThreadToIndicator.put(Thread.currentThread(), indicator);
+        return previous;
+    }
+
+    private void exit(ProgressIndicator previous) {
+        Thread currentThread = Thread.currentThread();
+        if (previous != null) {
+            mCurrentIndicator.set(previous);
+            mThreadToIndicator.put(currentThread, previous);
+        } else {
+            mCurrentIndicator.remove();
+            mThreadToIndicator.remove(currentThread);
+        }
+    }
+
+    private void execute(Runnable runnable, TaskPriority priority) {
+        mPool.execute(new PrioritizedTask(runnable, priority, mTaskSequence.getAndIncrement()));
+    }
+
+    private static final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+
+        private final Runnable runnable;
+        private final TaskPriority priority;
+        private final long sequence;
+
+        PrioritizedTask(Runnable runnable, TaskPriority priority, long sequence) {
+            this.runnable = runnable;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask o) {
+            int result = priority.compareTo(o.priority);
+            if (result != 0) {
+                return result;
             }
+            return Long.compare(sequence, o.sequence);
         }
     }
 }
@@ -0,0 +1,21 @@
+package com.tyron.completion.progress;
+
+/**
+ * The order in which tasks queued in {@link ProgressManager} are started. Queued tasks with a
+ * higher priority start before tasks with a lower priority, tasks of the same priority start
+ * in the order they were queued. Tasks that are already running are not interrupted.
+ */
+public enum TaskPriority {
+
+    /**
+     * Work the user is waiting for, e.g. completion or hover
+     */
+    INTERACTIVE,
+
+    NORMAL,
+
+    /**
+     * Work the user is not waiting for, e.g. indexing or linting
+     */
+    BACKGROUND
+}
@@ -0,0 +1,102 @@
+package com.tyron.completion.model;
+
+import static com.tyron.completion.model.CompletionListTest.TYPED;
+
+import com.google.common.collect.Ordering;
+import com.tyron.completion.CompletionPrefixMatcher;
+import com.tyron.completion.CompletionPrefixMatcher.MatchLevel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the latency of each keystroke when a 5k item list is narrowed down as the user
+ * types, compared to rebuilding the list the way it was done before narrowing. Run manually,
+ * it is not part of the unit tests.
+ */
+public class CompletionListBenchmark {
+
+    private static final int ITERATIONS = 20;
+
+    public static void main(String[] args) {
+        List<CompletionItem> items = CompletionListTest.createItems(new Random(0));
+
+        // warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            typeLegacy(items);
+            typeNarrow(items);
+        }
+
+        long legacy = 0;
+        long narrow = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            legacy += typeLegacy(items);
+            narrow += typeNarrow(items);
+        }
+
+        int keystrokes = TYPED.length() * ITERATIONS;
+        System.out.println("Items: " + items.size() + ", keystrokes: " + keystrokes);
+        System.out.println("Rebuild: " + legacy / keystrokes / 1000 + " us per keystroke");
+        System.out.println("Narrow: " + narrow / keystrokes / 1000 + " us per keystroke");
+    }
+
+    /**
+     * Types the prefix one character at a time, rebuilding the list the way
+     * {@link CompletionList#copy(CompletionList, String)} used to
+     *
+     * @return the total time in nanoseconds
+     */
+    private static long typeLegacy(List<CompletionItem> items) {
+        List<CompletionItem> previous = legacyBuild(items, "");
+        long start = System.nanoTime();
+        for (int i = 1; i <= TYPED.length(); i++) {
+            previous = legacyBuild(previous, TYPED.substring(0, i));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long typeNarrow(List<CompletionItem> items) {
+        CompletionList previous = CompletionList.builder("").addItems(items).build();
+        long start = System.nanoTime();
+        for (int i = 1; i <= TYPED.length(); i++) {
+            previous = CompletionList.narrow(previous, TYPED.substring(0, i));
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * The previous implementation of {@link CompletionList.Builder}
+     */
+    private static List<CompletionItem> legacyBuild(List<CompletionItem> items, String prefix) {
+        List<CompletionItem> result = new ArrayList<>();
+        for (CompletionItem item : items) {
+            List<MatchLevel> matchLevels = new ArrayList<>();
+            for (String filterText : item.getFilterTexts()) {
+                MatchLevel matchLevel =
+                        CompletionPrefixMatcher.computeMatchLevel(filterText, prefix);
+                if (matchLevel == MatchLevel.NOT_MATCH) {
+                    continue;
+                }
+                matchLevels.add(matchLevel);
+            }
+            if (matchLevels.isEmpty()) {
+                continue;
+            }
+            Collections.sort(matchLevels);
+            item.setMatchLevel(matchLevels.get(matchLevels.size() - 1));
+            result.add(item);
+        }
+        return Ordering.from(LEGACY_COMPARATOR).immutableSortedCopy(result);
+    }
+
+    private static final Comparator<CompletionItem> LEGACY_COMPARATOR =
+            Comparator.comparing((CompletionItem item) -> item.getMatchLevel()
+                    .ordinal(), Comparator.reverseOrder())
+                    .thenComparing(CompletionItem::getSortText)
+                    .thenComparing(it -> it.getFilterTexts()
+                            .isEmpty() ? it.getLabel() : it.getFilterTexts()
+                            .get(0));
+}
@@ -0,0 +1,97 @@
+package com.tyron.completion.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class CompletionListTest {
+
+    private static final int ITEM_COUNT = 5000;
+    static final String TYPED = "getSupportAct";
+
+    private static final String[] WORDS = {"get", "set", "is", "add", "remove", "Support",
+            "Action", "Activity", "Bar", "Fragment", "Manager", "View", "Text", "Color",
+            "Layout", "Params", "Listener", "Count", "Item", "Value"};
+
+    @Test
+    public void testNarrowMatchesRebuild() {
+        List<CompletionItem> items = createItems(new Random(0));
+        CompletionList previous = CompletionList.builder("g").addItems(items).build();
+        for (int i = 2; i <= TYPED.length(); i++) {
+            String prefix = TYPED.substring(0, i);
+            CompletionList narrowed = CompletionList.narrow(previous, prefix);
+            CompletionList rebuilt = CompletionList.builder(prefix)
+                    .addItems(previous.items)
+                    .build();
+            assertEquals(rebuilt.items, narrowed.items);
+            previous = narrowed;
+        }
+    }
+
+    @Test
+    public void testBoundedBuilderKeepsBestItems() {
+        List<CompletionItem> items = createItems(new Random(0));
+        CompletionList all = CompletionList.builder("S").addItems(items).build();
+        CompletionList bounded = CompletionList.builder("S")
+                .setMaxItems(100)
+                .addItems(items)
+                .build();
+
+        assertTrue(bounded.isIncomplete());
+        assertFalse(all.isIncomplete());
+        assertEquals(all.items.subList(0, 100), bounded.items);
+    }
+
+    @Test
+    public void testListUnderCapIsNotCapped() {
+        List<CompletionItem> items = createItems(new Random(0));
+        CompletionList list = CompletionList.builder("S")
+                .setMaxItems(items.size())
+                .addItems(items)
+                .build();
+
+        assertFalse(list.isIncomplete());
+        assertTrue(list.canNarrow());
+    }
+
+    @Test
+    public void testCappedListIsNotReusedForLongerPrefix() {
+        List<CompletionItem> items = createItems(new Random(0));
+        CompletionList bounded = CompletionList.builder("g")
+                .setMaxItems(100)
+                .addItems(items)
+                .build();
+        CompletionList complete = CompletionList.builder("getSupportAct")
+                .setMaxItems(100)
+                .addItems(items)
+                .build();
+
+        assertFalse(bounded.canNarrow());
+        // the items dropped for the short prefix include the best ones for the longer prefix
+        assertTrue(complete.canNarrow());
+        assertFalse(CompletionList.narrow(bounded, "getSupportAct").items
+                .containsAll(complete.items));
+    }
+
+    static List<CompletionItem> createItems(Random random) {
+        List<CompletionItem> items = new ArrayList<>(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            StringBuilder label = new StringBuilder(WORDS[random.nextInt(5)]);
+            int words = 1 + random.nextInt(3);
+            for (int j = 0; j < words; j++) {
+                label.append(WORDS[5 + random.nextInt(WORDS.length - 5)]);
+            }
+            label.append(i);
+            CompletionItem item = CompletionItem.create(label.toString(), "", label.toString());
+            item.setSortText(String.valueOf(random.nextInt(3)));
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,87 @@
+package com.tyron.completion.progress;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Measures the cost of {@link ProgressManager#checkCanceled()} while a process is running,
+ * compared to the lookup in a synchronized map of threads that was used before. Run manually,
+ * it is not part of the unit tests.
+ */
+public class ProgressManagerBenchmark {
+
+    private static final int CHECKS = 1_000_000;
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] args) {
+        ProgressManager manager = ProgressManager.getInstance();
+        LegacyManager legacy = new LegacyManager();
+        ProgressIndicator indicator = new ProgressIndicator();
+
+        // warm up
+        for (int i = 0; i < ITERATIONS; i++) {
+            runChecks(manager, indicator);
+            runLegacyChecks(legacy, indicator);
+        }
+
+        long current = 0;
+        long previous = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            current += runChecks(manager, indicator);
+            previous += runLegacyChecks(legacy, indicator);
+        }
+
+        long checks = (long) CHECKS * ITERATIONS;
+        System.out.println("Checks: " + checks);
+        System.out.println("Synchronized map: " + previous / (double) checks + " ns per check");
+        System.out.println("Thread local: " + current / (double) checks + " ns per check");
+
+        // the handler of the manager keeps a timer thread alive
+        System.exit(0);
+    }
+
+    /**
+     * @return the time in nanoseconds it took to run the checks
+     */
+    private static long runChecks(ProgressManager manager, ProgressIndicator indicator) {
+        return manager.runProcess(() -> {
+            long start = System.nanoTime();
+            for (int i = 0; i < CHECKS; i++) {
+                ProgressManager.checkCanceled();
+            }
+            return System.nanoTime() - start;
+        }, indicator);
+    }
+
+    private static long runLegacyChecks(LegacyManager legacy, ProgressIndicator indicator) {
+        legacy.threadToIndicator.put(Thread.currentThread(), indicator);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < CHECKS; i++) {
+                legacy.checkCanceled();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            legacy.threadToIndicator.remove(Thread.currentThread());
+        }
+    }
+
+    /**
+     * The previous implementation of {@link ProgressManager#checkCanceled()}
+     */
+    private static class LegacyManager {
+        final Map<Thread, ProgressIndicator> threadToIndicator =
+                Collections.synchronizedMap(new WeakHashMap<>());
+
+        void checkCanceled() {
+            ProgressIndicator indicator = threadToIndicator.get(Thread.currentThread());
+            if (indicator != null) {
+                if (indicator.isCanceled()) {
+                    threadToIndicator.remove(Thread.currentThread());
+                    throw new ProcessCanceledException();
+                }
+            }
+        }
+    }
+}
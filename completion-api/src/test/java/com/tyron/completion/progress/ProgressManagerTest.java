@@ -0,0 +1,94 @@
+package com.tyron.completion.progress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ProgressManagerTest {
+
+    @Test
+    public void testCheckCanceled() {
+        ProgressManager manager = ProgressManager.getInstance();
+        ProgressIndicator outer = new ProgressIndicator();
+        ProgressIndicator inner = new ProgressIndicator();
+
+        manager.runProcess(() -> {
+            assertSame(outer, manager.getProgressIndicator());
+            manager.runProcess(() -> {
+                assertSame(inner, manager.getProgressIndicator());
+                inner.cancel();
+                try {
+                    ProgressManager.checkCanceled();
+                    fail("The inner process has been canceled");
+                } catch (ProcessCanceledException expected) {
+                    // expected
+                }
+                return null;
+            }, inner);
+            // the outer process is still running
+            assertSame(outer, manager.getProgressIndicator());
+            ProgressManager.checkCanceled();
+            return null;
+        }, outer);
+
+        assertNull(manager.getProgressIndicator());
+    }
+
+    @Test
+    public void testCancelThread() {
+        ProgressManager manager = new ProgressManager(1);
+        ProgressIndicator indicator = new ProgressIndicator();
+        manager.runProcess(() -> {
+            manager.cancelThread(Thread.currentThread());
+            return null;
+        }, indicator);
+        assertTrue(indicator.isCanceled());
+    }
+
+    @Test
+    public void testPriorityOrder() throws InterruptedException {
+        ProgressManager manager = new ProgressManager(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(4);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+        // occupy the only thread so the following tasks are queued
+        manager.runNonCancelableAsync(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        manager.runNonCancelableAsync(() -> {
+            order.add("index");
+            finished.countDown();
+        }, TaskPriority.BACKGROUND);
+        manager.runNonCancelableAsync(() -> {
+            order.add("lint");
+            finished.countDown();
+        }, TaskPriority.BACKGROUND);
+        manager.runNonCancelableAsync(() -> {
+            order.add("save");
+            finished.countDown();
+        });
+        manager.runNonCancelableAsync(() -> {
+            order.add("hover");
+            finished.countDown();
+        }, TaskPriority.INTERACTIVE);
+        blocked.countDown();
+
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("hover", "save", "index", "lint"), order);
+    }
+}
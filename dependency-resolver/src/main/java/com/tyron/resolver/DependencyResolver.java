@@ -7,17 +7,28 @@ import com.tyron.resolver.model.Pom;
 import com.tyron.resolver.repository.RepositoryManager;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
 
 public class DependencyResolver {
 
+    /**
+     * The maximum number of poms that are downloaded at the same time
+     */
+    public static final int DEFAULT_MAX_PARALLEL_REQUESTS = 8;
+
     private final RepositoryManager repository;
     private final Map<Pom, String> resolvedPoms;
 
     private ResolveListener mListener;
+    private int mMaxParallelRequests = DEFAULT_MAX_PARALLEL_REQUESTS;
 
     public DependencyResolver(RepositoryManager repository) {
         this.repository = repository;
@@ -28,6 +39,13 @@ public class DependencyResolver {
         mListener = listener;
     }
 
+    public void setMaxParallelRequests(int maxParallelRequests) {
+        if (maxParallelRequests <= 0) {
+            throw new IllegalArgumentException("maxParallelRequests must be positive");
+        }
+        mMaxParallelRequests = maxParallelRequests;
+    }
+
     public interface ResolveListener {
         void onResolve(String message);
 
@@ -35,24 +53,32 @@ public class DependencyResolver {
     }
 
     public List<Pom> resolveDependencies(List<Dependency> declaredDependencies) {
-        List<Pom> poms = new ArrayList<>();
-        for (Dependency dependency : declaredDependencies) {
-            if (mListener != null) {
-                mListener.onResolve("Getting POM: " + dependency);
-            }
+        Prefetcher prefetcher = new Prefetcher();
+        try {
+            prefetcher.prefetch(declaredDependencies, Collections.emptyList());
+            prefetcher.await();
 
-            Pom pom = repository.getPom(dependency.toString());
-            if (pom != null) {
-                pom.setExcludes(dependency.getExcludes());
-                pom.setUserDefined(true);
-                poms.add(pom);
-            } else {
+            List<Pom> poms = new ArrayList<>();
+            for (Dependency dependency : declaredDependencies) {
                 if (mListener != null) {
-                    mListener.onFailure("Unable to retrieve POM of " + dependency);
+                    mListener.onResolve("Getting POM: " + dependency);
+                }
+
+                Pom pom = repository.getPom(dependency.toString());
+                if (pom != null) {
+                    pom.setExcludes(dependency.getExcludes());
+                    pom.setUserDefined(true);
+                    poms.add(pom);
+                } else {
+                    if (mListener != null) {
+                        mListener.onFailure("Unable to retrieve POM of " + dependency);
+                    }
                 }
             }
+            return resolve(poms, prefetcher);
+        } finally {
+            prefetcher.shutdown();
         }
-        return resolve(poms);
     }
 
     /**
@@ -60,6 +86,19 @@ public class DependencyResolver {
      * the conflicting libraries
      */
     public List<Pom> resolve(List<Pom> declaredDependencies) {
+        Prefetcher prefetcher = new Prefetcher();
+        try {
+            return resolve(declaredDependencies, prefetcher);
+        } finally {
+            prefetcher.shutdown();
+        }
+    }
+
+    private List<Pom> resolve(List<Pom> declaredDependencies, Prefetcher prefetcher) {
+        for (Pom pom : declaredDependencies) {
+            prefetcher.prefetch(pom.getDependencies(), pom.getExcludes());
+        }
+        prefetcher.await();
         for (Pom pom : declaredDependencies) {
             resolve(pom);
         }
@@ -96,29 +135,7 @@ public class DependencyResolver {
                 continue;
             }
 
-            boolean excluded = excludes.stream().filter(Objects::nonNull).anyMatch(ex -> {
-                if (ex == null) {
-                    return false;
-                }
-                if (ex.getGroupId() == null) {
-                    return false;
-                }
-                if (!ex.getGroupId().equals(dependency.getGroupId())) {
-                    return false;
-                }
-
-                if (ex.getArtifactId() == null) {
-                    return false;
-                }
-
-                if (!ex.getArtifactId().equals(dependency.getArtifactId())) {
-                    return false;
-                }
-                if (TextUtils.isEmpty(ex.getVersionName())) {
-                    return true;
-                }
-                return ex.getVersionName().equals(dependency.getVersionName());
-            });
+            boolean excluded = isExcluded(excludes, dependency);
 
             if (excluded) {
                 continue;
@@ -139,6 +156,92 @@ public class DependencyResolver {
         resolvedPoms.put(pom, pom.getVersionName());
     }
 
+    /**
+     * Downloads the poms of dependencies and their transitive dependencies in parallel, so
+     * they are already in the repository when the dependencies are resolved. The resolution
+     * itself stays sequential so conflicts are resolved in the same order.
+     *
+     * <p>One prefetcher is used for a whole resolution, a dependency is downloaded once even
+     * if several poms depend on it.</p>
+     */
+    private class Prefetcher {
+
+        private final ExecutorService executor = Executors.newFixedThreadPool(mMaxParallelRequests);
+        private final Set<String> visited = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        private final Phaser phaser = new Phaser(1);
+
+        void prefetch(List<Dependency> dependencies, List<Dependency> excludes) {
+            for (Dependency dependency : dependencies) {
+                prefetch(dependency, excludes);
+            }
+        }
+
+        private void prefetch(Dependency dependency, List<Dependency> excludes) {
+            if ("test".equals(dependency.getScope()) || isExcluded(excludes, dependency)) {
+                return;
+            }
+            if (!visited.add(dependency.toString())) {
+                return;
+            }
+            phaser.register();
+            executor.execute(() -> {
+                try {
+                    Pom pom = repository.getPom(dependency.toString());
+                    if (pom == null) {
+                        return;
+                    }
+                    List<Dependency> childExcludes = new ArrayList<>(excludes);
+                    childExcludes.addAll(dependency.getExcludes());
+                    prefetch(pom.getDependencies(), childExcludes);
+                } catch (RuntimeException e) {
+                    // the failure is reported when the dependency is resolved
+                } finally {
+                    phaser.arriveAndDeregister();
+                }
+            });
+        }
+
+        /**
+         * Waits until the poms of all the dependencies given so far have been downloaded
+         */
+        void await() {
+            phaser.arriveAndAwaitAdvance();
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+        }
+    }
+
+    private static boolean isExcluded(List<Dependency> excludes, Dependency dependency) {
+        for (Dependency ex : excludes) {
+            if (ex == null) {
+                continue;
+            }
+            if (ex.getGroupId() == null) {
+                continue;
+            }
+            if (!ex.getGroupId().equals(dependency.getGroupId())) {
+                continue;
+            }
+
+            if (ex.getArtifactId() == null) {
+                continue;
+            }
+
+            if (!ex.getArtifactId().equals(dependency.getArtifactId())) {
+                continue;
+            }
+            if (TextUtils.isEmpty(ex.getVersionName())) {
+                return true;
+            }
+            if (ex.getVersionName().equals(dependency.getVersionName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private int getHigherVersion(String firstVersion, String secondVersion) {
         ComparableVersion firstComparableVersion = new ComparableVersion(firstVersion);
         ComparableVersion secondComparableVersion = new ComparableVersion(secondVersion);
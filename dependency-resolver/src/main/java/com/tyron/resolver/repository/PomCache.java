@@ -0,0 +1,240 @@
+package com.tyron.resolver.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tyron.resolver.model.Dependency;
+import com.tyron.resolver.model.Pom;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the parsed form of the pom files of the local repositories on disk, so they don't
+ * have to be parsed again in the next session. An entry is only used while the size and the
+ * modification time of its pom file are unchanged.
+ */
+class PomCache {
+
+    private static final int MAGIC = 0x504f4d43;
+    private static final int VERSION = 1;
+
+    private static class Entry {
+        final long lastModified;
+        final long length;
+        final Pom pom;
+        final String parent;
+
+        Entry(long lastModified, long length, Pom pom, @Nullable String parent) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.pom = pom;
+            this.parent = parent;
+        }
+
+        boolean isValid(File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+
+    private final File mStorage;
+    private final Map<String, Entry> mEntries = new HashMap<>();
+    private boolean mModified;
+
+    private PomCache(File storage) {
+        mStorage = storage;
+    }
+
+    /**
+     * Loads the cache previously saved in the given file. A corrupted or missing file
+     * results in an empty cache.
+     */
+    @NonNull
+    static PomCache load(@NonNull File storage) {
+        PomCache cache = new PomCache(storage);
+        if (!storage.exists()) {
+            return cache;
+        }
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(storage)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return cache;
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = input.readUTF();
+                long lastModified = input.readLong();
+                long length = input.readLong();
+                String parent = readString(input);
+                Pom pom = readPom(input);
+                cache.mEntries.put(path, new Entry(lastModified, length, pom, parent));
+            }
+        } catch (IOException e) {
+            cache.mEntries.clear();
+            return cache;
+        }
+
+        // the parents are only used to look up managed dependencies
+        Map<String, Pom> poms = new HashMap<>();
+        for (Entry entry : cache.mEntries.values()) {
+            poms.put(entry.pom.getDeclarationString(), entry.pom);
+        }
+        for (Entry entry : cache.mEntries.values()) {
+            if (entry.parent != null) {
+                entry.pom.setParent(poms.get(entry.parent));
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @return the parsed pom of the file, or null if the file has not been cached or has
+     * been modified since then
+     */
+    @Nullable
+    synchronized Pom get(@NonNull File file) {
+        Entry entry = mEntries.get(file.getAbsolutePath());
+        if (entry == null || !entry.isValid(file)) {
+            return null;
+        }
+        return entry.pom;
+    }
+
+    synchronized void put(@NonNull File file, @NonNull Pom pom) {
+        Pom parent = pom.getParent();
+        String parentDeclaration = parent == null ? null : parent.getDeclarationString();
+        mEntries.put(file.getAbsolutePath(),
+                new Entry(file.lastModified(), file.length(), pom, parentDeclaration));
+        mModified = true;
+    }
+
+    /**
+     * Removes the entries of the files that are not in the given collection
+     */
+    synchronized void retain(@NonNull Collection<File> files) {
+        Set<String> paths = new HashSet<>();
+        for (File file : files) {
+            paths.add(file.getAbsolutePath());
+        }
+        Iterator<String> iterator = mEntries.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!paths.contains(iterator.next())) {
+                iterator.remove();
+                mModified = true;
+            }
+        }
+    }
+
+    synchronized void save() throws IOException {
+        if (!mModified) {
+            return;
+        }
+        File temp = new File(mStorage.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(mEntries.size());
+            for (Map.Entry<String, Entry> entry : mEntries.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeLong(entry.getValue().lastModified);
+                output.writeLong(entry.getValue().length);
+                writeString(output, entry.getValue().parent);
+                writePom(output, entry.getValue().pom);
+            }
+        }
+        if (!temp.renameTo(mStorage)) {
+            FileUtils.deleteQuietly(temp);
+            throw new IOException("Unable to save pom cache to " + mStorage);
+        }
+        mModified = false;
+    }
+
+    private static void writePom(DataOutputStream output, Pom pom) throws IOException {
+        writeString(output, pom.getGroupId());
+        writeString(output, pom.getArtifactId());
+        writeString(output, pom.getVersionName());
+        writeString(output, pom.getPackaging());
+        writeDependencies(output, pom.getDependencies());
+        writeDependencies(output, pom.getManagedDependencies());
+    }
+
+    private static Pom readPom(DataInputStream input) throws IOException {
+        Pom pom = new Pom();
+        pom.setGroupId(readString(input));
+        pom.setArtifactId(readString(input));
+        pom.setVersionName(readString(input));
+        pom.setPackaging(readString(input));
+        pom.setDependencies(readDependencies(input));
+        pom.setManagedDependencies(readDependencies(input));
+        return pom;
+    }
+
+    private static void writeDependencies(DataOutputStream output,
+                                          List<Dependency> dependencies) throws IOException {
+        output.writeInt(dependencies.size());
+        for (Dependency dependency : dependencies) {
+            writeString(output, dependency.getGroupId());
+            writeString(output, dependency.getArtifactId());
+            writeString(output, dependency.getVersionName());
+            writeString(output, dependency.getScope());
+            writeString(output, dependency.getType());
+            output.writeInt(dependency.getExcludes().size());
+            for (Dependency exclude : dependency.getExcludes()) {
+                writeString(output, exclude.getGroupId());
+                writeString(output, exclude.getArtifactId());
+            }
+        }
+    }
+
+    private static List<Dependency> readDependencies(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        List<Dependency> dependencies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Dependency dependency = new Dependency();
+            dependency.setGroupId(readString(input));
+            dependency.setArtifactId(readString(input));
+            dependency.setVersionName(readString(input));
+            dependency.setScope(readString(input));
+            dependency.setType(readString(input));
+            int excludeCount = input.readInt();
+            for (int j = 0; j < excludeCount; j++) {
+                Dependency exclude = new Dependency();
+                exclude.setGroupId(readString(input));
+                exclude.setArtifactId(readString(input));
+                dependency.addExclude(exclude);
+            }
+            dependencies.add(dependency);
+        }
+        return dependencies;
+    }
+
+    private static void writeString(DataOutputStream output, @Nullable String value)
+            throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    private static String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+}
@@ -22,8 +22,14 @@ import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.jar.JarFile;
 import java.util.logging.Logger;
 import java.util.zip.ZipFile;
@@ -34,15 +40,36 @@ public class RepositoryManagerImpl implements RepositoryManager {
 
     private static final Logger sLogger = IdeLog.getCurrentLogger(RepositoryManagerImpl.class);
 
+    private static final String POM_CACHE_FILE = "poms.bin";
+
     private File cacheDir;
     private final List<Repository> repositories;
-    private final List<Pom> pomFiles;
+
+    // group:artifact:version -> pom
+    private final Map<String, Pom> pomFiles;
+    private final Map<String, FutureTask<Pom>> pendingPoms;
+
+    /**
+     * The poms that are being loaded by the current thread, a pom whose parent chain refers
+     * back to itself would otherwise wait for its own result
+     */
+    private final ThreadLocal<Set<String>> loadingPoms = new ThreadLocal<Set<String>>() {
+        @Override
+        protected Set<String> initialValue() {
+            return new HashSet<>();
+        }
+    };
 
     public RepositoryManagerImpl() {
         this.repositories = new ArrayList<>();
-        this.pomFiles = new ArrayList<>();
+        this.pomFiles = new ConcurrentHashMap<>();
+        this.pendingPoms = new ConcurrentHashMap<>();
     }
 
+    /**
+     * Safe to call from multiple threads, concurrent requests for the same pom wait for the
+     * same download instead of fetching it again.
+     */
     @Override
     @Nullable
     public Pom getPom(String declaration) {
@@ -50,32 +77,54 @@ public class RepositoryManagerImpl implements RepositoryManager {
         if (pomNames == null) {
             return null;
         }
-        for (Pom pom : pomFiles) {
-            if (!pomNames[0].equals(pom.getGroupId())) {
-                continue;
-            }
-            if (!pomNames[1].equals(pom.getArtifactId())) {
-                continue;
+        String key = getKey(pomNames);
+        Pom pom = pomFiles.get(key);
+        if (pom != null) {
+            return pom;
+        }
+
+        Set<String> loading = loadingPoms.get();
+        if (loading.contains(key)) {
+            return null;
+        }
+
+        FutureTask<Pom> task = new FutureTask<>(() -> getPomFromUrls(pomNames));
+        FutureTask<Pom> pending = pendingPoms.putIfAbsent(key, task);
+        if (pending == null) {
+            pending = task;
+            loading.add(key);
+            try {
+                task.run();
+            } finally {
+                loading.remove(key);
+                pendingPoms.remove(key, task);
             }
-            if (!pomNames[2].equals(pom.getVersionName())) {
-                continue;
+        }
+
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
-            return pom;
+            throw new RuntimeException(e.getCause());
         }
-        return getPomFromUrls(pomNames);
     }
 
     private Pom getPomFromUrls(String[] names) {
         InputStream is = getFromUrls(getPathFromDeclaration(names) + ".pom");
         if (is != null) {
             String contents;
-            try {
-                contents = CharStreams.toString(new InputStreamReader(is));
+            try (InputStreamReader reader = new InputStreamReader(is)) {
+                contents = CharStreams.toString(reader);
                 Pom parsed = new PomParser(this).parse(contents);
                 parsed.setGroupId(names[0]);
                 parsed.setArtifactId(names[1]);
                 parsed.setVersionName(names[2]);
-                pomFiles.add(parsed);
+                pomFiles.put(getKey(names), parsed);
                 return parsed;
             } catch (IOException | XmlPullParserException | SAXException e) {
                 String message = "Failed to parse input stream.\n" +
@@ -111,6 +160,10 @@ public class RepositoryManagerImpl implements RepositoryManager {
         return path + "/" + pomNames[1] + "-" + pomNames[2];
     }
 
+    private static String getKey(String[] pomNames) {
+        return pomNames[0] + ":" + pomNames[1] + ":" + pomNames[2];
+    }
+
     private String[] parsePomDeclaration(String declaration) {
         if (declaration.endsWith(".pom")) {
             declaration = declaration.substring(0, declaration.length() - 4);
@@ -203,6 +256,8 @@ public class RepositoryManagerImpl implements RepositoryManager {
             throw new IllegalStateException("Cache directory is not set.");
         }
 
+        PomCache cache = PomCache.load(new File(cacheDir, POM_CACHE_FILE));
+        List<File> cachedFiles = new ArrayList<>();
         for (Repository repository : repositories) {
             repository.setCacheDirectory(cacheDir);
 
@@ -216,17 +271,67 @@ public class RepositoryManagerImpl implements RepositoryManager {
             // save pom files for later
             while (pomFiles.hasNext()) {
                 File pom = pomFiles.next();
-                PomParser parser = new PomParser(this);
-                try {
-                    Pom parsed = parser.parse(pom);
-                    this.pomFiles.add(parsed);
-                } catch (XmlPullParserException | IOException | SAXException e) {
-                    // ignored
-                    // TODO: should the file be deleted if its corrupt?
-                    sLogger.severe("Unable to parse file " + pom + "\n" +
-                                   "Reason: " + e.getMessage());
+                Pom parsed = cache.get(pom);
+                if (parsed == null) {
+                    PomParser parser = new PomParser(this);
+                    try {
+                        parsed = parser.parse(pom);
+                    } catch (XmlPullParserException | IOException | SAXException e) {
+                        // ignored
+                        // TODO: should the file be deleted if its corrupt?
+                        sLogger.severe("Unable to parse file " + pom + "\n" +
+                                       "Reason: " + e.getMessage());
+                        continue;
+                    }
+                    if (parsed == null) {
+                        continue;
+                    }
+                    String[] names = getDeclarationFromPath(rootDirectory, pom);
+                    if (names != null) {
+                        parsed.setGroupId(names[0]);
+                        parsed.setArtifactId(names[1]);
+                        parsed.setVersionName(names[2]);
+                    }
+                    cache.put(pom, parsed);
+                }
+                cachedFiles.add(pom);
+                if (parsed.getGroupId() != null && parsed.getArtifactId() != null &&
+                    parsed.getVersionName() != null) {
+                    this.pomFiles.put(parsed.getDeclarationString(), parsed);
                 }
             }
         }
+
+        cache.retain(cachedFiles);
+        try {
+            cache.save();
+        } catch (IOException e) {
+            sLogger.warning("Unable to save the pom cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The coordinates of a pom file in a maven repository layout
+     * ({@code group/artifact/version/artifact-version.pom}), the group and version declared
+     * in the pom itself may be inherited from its parent.
+     */
+    @Nullable
+    private static String[] getDeclarationFromPath(File rootDirectory, File pom) {
+        String relativePath = rootDirectory.toURI().relativize(pom.toURI()).getPath();
+        String[] segments = relativePath.split("/");
+        int length = segments.length;
+        if (length < 4) {
+            return null;
+        }
+        String artifactId = segments[length - 3];
+        String version = segments[length - 2];
+        if (!pom.getName().equals(artifactId + "-" + version + ".pom")) {
+            return null;
+        }
+        StringBuilder groupId = new StringBuilder(segments[0]);
+        for (int i = 1; i < length - 3; i++) {
+            groupId.append('.').append(segments[i]);
+        }
+        return new String[]{groupId.toString(), artifactId, version};
     }
 }
@@ -0,0 +1,67 @@
+package com.tyron.resolver;
+
+import com.tyron.resolver.MaterialDependencyGraph.Result;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Resolves the material library from a local maven repository that simulates the latency of
+ * a remote one, comparing a sequential resolution with a parallel one, and initializing a
+ * repository manager from parsed poms with one from its cache. Run manually, it is not part
+ * of the unit tests.
+ */
+public class DependencyResolverBenchmark {
+
+    private static final long LATENCY_MS = 20;
+
+    public static void main(String[] args) throws IOException {
+        File root = Files.createTempDirectory("resolver").toFile();
+        try {
+            MaterialDependencyGraph.writePoms(new File(root, "maven"));
+            benchmarkResolution(root);
+            benchmarkInitialize(root);
+        } finally {
+            FileUtils.deleteDirectory(root);
+        }
+    }
+
+    private static void benchmarkResolution(File root) throws IOException {
+        int parallelRequests = DependencyResolver.DEFAULT_MAX_PARALLEL_REQUESTS;
+        // warm up
+        MaterialDependencyGraph.resolve(root, LATENCY_MS, 1);
+        MaterialDependencyGraph.resolve(root, LATENCY_MS, parallelRequests);
+
+        long start = System.nanoTime();
+        MaterialDependencyGraph.resolve(root, LATENCY_MS, 1);
+        long sequentialTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        Result parallel = MaterialDependencyGraph.resolve(root, LATENCY_MS, parallelRequests);
+        long parallelTime = System.nanoTime() - start;
+
+        System.out.println("Poms: " + MaterialDependencyGraph.GRAPH.length + ", resolved: " +
+                           parallel.resolved.size() + ", latency: " + LATENCY_MS + " ms");
+        System.out.println("Sequential: " + sequentialTime / 1_000_000 + " ms");
+        System.out.println("Parallel: " + parallelTime / 1_000_000 + " ms");
+    }
+
+    private static void benchmarkInitialize(File root) throws IOException {
+        File cacheDir = new File(root, "cache");
+        FileUtils.copyDirectory(new File(root, "maven"), new File(cacheDir, "maven"));
+
+        long start = System.nanoTime();
+        MaterialDependencyGraph.createManager(cacheDir);
+        long parseTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        MaterialDependencyGraph.createManager(cacheDir);
+        long cacheTime = System.nanoTime() - start;
+
+        System.out.println("Parse: " + parseTime / 1_000_000 + " ms");
+        System.out.println("Cached: " + cacheTime / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,73 @@
+package com.tyron.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import com.tyron.resolver.MaterialDependencyGraph.Result;
+import com.tyron.resolver.model.Dependency;
+import com.tyron.resolver.model.Pom;
+import com.tyron.resolver.repository.RepositoryManagerImpl;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DependencyResolverParallelTest {
+
+    private File mRoot;
+
+    @Before
+    public void setUp() throws IOException {
+        mRoot = Files.createTempDirectory("resolver").toFile();
+        MaterialDependencyGraph.writePoms(new File(mRoot, "maven"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(mRoot);
+    }
+
+    @Test
+    public void testParallelResolutionMatchesSequential() throws IOException {
+        Result sequential = MaterialDependencyGraph.resolve(mRoot, 0, 1);
+        Result parallel = MaterialDependencyGraph.resolve(mRoot, 0,
+                DependencyResolver.DEFAULT_MAX_PARALLEL_REQUESTS);
+
+        assertEquals(sequential.resolved, parallel.resolved);
+        // every pom is only downloaded once
+        assertEquals(sequential.requests, parallel.requests);
+    }
+
+    @Test
+    public void testCachedInitialize() throws IOException {
+        File cacheDir = new File(mRoot, "cache");
+        FileUtils.copyDirectory(new File(mRoot, "maven"), new File(cacheDir, "maven"));
+
+        RepositoryManagerImpl parsed = MaterialDependencyGraph.createManager(cacheDir);
+        RepositoryManagerImpl cached = MaterialDependencyGraph.createManager(cacheDir);
+
+        for (String[] row : MaterialDependencyGraph.GRAPH) {
+            Pom expected = parsed.getPom(row[0]);
+            Pom actual = cached.getPom(row[0]);
+            assertNotNull(actual);
+            assertEquals(expected.getDeclarationString(), actual.getDeclarationString());
+            assertEquals(toStrings(expected.getDependencies()),
+                    toStrings(actual.getDependencies()));
+        }
+    }
+
+    private static List<String> toStrings(List<Dependency> dependencies) {
+        List<String> strings = new ArrayList<>();
+        for (Dependency dependency : dependencies) {
+            strings.add(dependency.toString());
+        }
+        return strings;
+    }
+}
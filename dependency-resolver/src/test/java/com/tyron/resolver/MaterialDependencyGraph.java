@@ -0,0 +1,377 @@
+package com.tyron.resolver;
+
+import com.tyron.resolver.model.Dependency;
+import com.tyron.resolver.model.Pom;
+import com.tyron.resolver.repository.DefaultRepository;
+import com.tyron.resolver.repository.RepositoryManagerImpl;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A dependency graph modeled after the one of the material library, written as the poms of
+ * a local maven repository.
+ */
+class MaterialDependencyGraph {
+
+    /**
+     * Each row is a pom followed by its dependencies
+     */
+    static final String[][] GRAPH = {
+            {"com.google.android.material:material:1.4.0",
+                    "androidx.annotation:annotation:1.2.0",
+                    "androidx.appcompat:appcompat:1.1.0",
+                    "androidx.cardview:cardview:1.0.0",
+                    "androidx.coordinatorlayout:coordinatorlayout:1.1.0",
+                    "androidx.constraintlayout:constraintlayout:2.0.1",
+                    "androidx.core:core:1.5.0",
+                    "androidx.dynamicanimation:dynamicanimation:1.0.0",
+                    "androidx.annotation:annotation-experimental:1.0.0",
+                    "androidx.fragment:fragment:1.0.0",
+                    "androidx.lifecycle:lifecycle-runtime:2.0.0",
+                    "androidx.recyclerview:recyclerview:1.0.0",
+                    "androidx.transition:transition:1.2.0",
+                    "androidx.vectordrawable:vectordrawable:1.1.0",
+                    "androidx.viewpager2:viewpager2:1.0.0"},
+            {"androidx.annotation:annotation:1.0.0"},
+            {"androidx.annotation:annotation:1.1.0"},
+            {"androidx.annotation:annotation:1.2.0"},
+            {"androidx.annotation:annotation-experimental:1.0.0"},
+            {"androidx.appcompat:appcompat:1.1.0",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.core:core:1.1.0",
+                    "androidx.cursoradapter:cursoradapter:1.0.0",
+                    "androidx.fragment:fragment:1.1.0",
+                    "androidx.appcompat:appcompat-resources:1.1.0",
+                    "androidx.drawerlayout:drawerlayout:1.0.0",
+                    "androidx.collection:collection:1.0.0"},
+            {"androidx.appcompat:appcompat-resources:1.1.0",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.core:core:1.0.1",
+                    "androidx.vectordrawable:vectordrawable:1.1.0",
+                    "androidx.vectordrawable:vectordrawable-animated:1.1.0",
+                    "androidx.collection:collection:1.1.0"},
+            {"androidx.arch.core:core-common:2.0.0",
+                    "androidx.annotation:annotation:1.0.0"},
+            {"androidx.arch.core:core-common:2.1.0",
+                    "androidx.annotation:annotation:1.1.0"},
+            {"androidx.arch.core:core-runtime:2.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.arch.core:core-common:2.0.0"},
+            {"androidx.cardview:cardview:1.0.0",
+                    "androidx.annotation:annotation:1.0.0"},
+            {"androidx.collection:collection:1.0.0",
+                    "androidx.annotation:annotation:1.0.0"},
+            {"androidx.collection:collection:1.1.0",
+                    "androidx.annotation:annotation:1.1.0"},
+            {"androidx.constraintlayout:constraintlayout:2.0.1",
+                    "androidx.appcompat:appcompat:1.1.0",
+                    "androidx.core:core:1.1.0",
+                    "androidx.constraintlayout:constraintlayout-solver:2.0.1"},
+            {"androidx.constraintlayout:constraintlayout-solver:2.0.1"},
+            {"androidx.coordinatorlayout:coordinatorlayout:1.1.0",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.core:core:1.1.0",
+                    "androidx.customview:customview:1.0.0",
+                    "androidx.collection:collection:1.0.0"},
+            {"androidx.core:core:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.collection:collection:1.0.0",
+                    "androidx.lifecycle:lifecycle-runtime:2.0.0",
+                    "androidx.versionedparcelable:versionedparcelable:1.0.0"},
+            {"androidx.core:core:1.0.1",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.collection:collection:1.0.0",
+                    "androidx.lifecycle:lifecycle-runtime:2.0.0",
+                    "androidx.versionedparcelable:versionedparcelable:1.0.0"},
+            {"androidx.core:core:1.1.0",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.lifecycle:lifecycle-runtime:2.0.0",
+                    "androidx.versionedparcelable:versionedparcelable:1.1.0",
+                    "androidx.collection:collection:1.0.0"},
+            {"androidx.core:core:1.5.0",
+                    "androidx.annotation:annotation:1.2.0",
+                    "androidx.lifecycle:lifecycle-runtime:2.0.0",
+                    "androidx.versionedparcelable:versionedparcelable:1.1.1",
+                    "androidx.collection:collection:1.0.0"},
+            {"androidx.cursoradapter:cursoradapter:1.0.0",
+                    "androidx.annotation:annotation:1.0.0"},
+            {"androidx.customview:customview:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.core:core:1.0.0"},
+            {"androidx.documentfile:documentfile:1.0.0",
+                    "androidx.annotation:annotation:1.0.0"},
+            {"androidx.drawerlayout:drawerlayout:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.core:core:1.0.0",
+                    "androidx.customview:customview:1.0.0"},
+            {"androidx.dynamicanimation:dynamicanimation:1.0.0",
+                    "androidx.core:core:1.0.0",
+                    "androidx.collection:collection:1.0.0",
+                    "androidx.legacy:legacy-support-core-utils:1.0.0"},
+            {"androidx.fragment:fragment:1.0.0",
+                    "androidx.core:core:1.0.0",
+                    "androidx.legacy:legacy-support-core-ui:1.0.0",
+                    "androidx.legacy:legacy-support-core-utils:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.loader:loader:1.0.0",
+                    "androidx.lifecycle:lifecycle-viewmodel:2.0.0"},
+            {"androidx.fragment:fragment:1.1.0",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.core:core:1.1.0",
+                    "androidx.collection:collection:1.1.0",
+                    "androidx.viewpager:viewpager:1.0.0",
+                    "androidx.loader:loader:1.0.0",
+                    "androidx.activity:activity:1.0.0",
+                    "androidx.lifecycle:lifecycle-viewmodel:2.1.0"},
+            {"androidx.activity:activity:1.0.0",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.core:core:1.1.0",
+                    "androidx.lifecycle:lifecycle-runtime:2.1.0",
+                    "androidx.lifecycle:lifecycle-viewmodel:2.1.0",
+                    "androidx.savedstate:savedstate:1.0.0"},
+            {"androidx.interpolator:interpolator:1.0.0",
+                    "androidx.annotation:annotation:1.0.0"},
+            {"androidx.legacy:legacy-support-core-ui:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.core:core:1.0.0",
+                    "androidx.legacy:legacy-support-core-utils:1.0.0",
+                    "androidx.customview:customview:1.0.0",
+                    "androidx.viewpager:viewpager:1.0.0",
+                    "androidx.coordinatorlayout:coordinatorlayout:1.0.0",
+                    "androidx.drawerlayout:drawerlayout:1.0.0",
+                    "androidx.slidingpanelayout:slidingpanelayout:1.0.0",
+                    "androidx.interpolator:interpolator:1.0.0",
+                    "androidx.swiperefreshlayout:swiperefreshlayout:1.0.0",
+                    "androidx.asynclayoutinflater:asynclayoutinflater:1.0.0",
+                    "androidx.cursoradapter:cursoradapter:1.0.0"},
+            {"androidx.legacy:legacy-support-core-utils:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.core:core:1.0.0",
+                    "androidx.documentfile:documentfile:1.0.0",
+                    "androidx.loader:loader:1.0.0",
+                    "androidx.localbroadcastmanager:localbroadcastmanager:1.0.0",
+                    "androidx.print:print:1.0.0"},
+            {"androidx.coordinatorlayout:coordinatorlayout:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.core:core:1.0.0",
+                    "androidx.customview:customview:1.0.0"},
+            {"androidx.slidingpanelayout:slidingpanelayout:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.core:core:1.0.0",
+                    "androidx.customview:customview:1.0.0"},
+            {"androidx.swiperefreshlayout:swiperefreshlayout:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.core:core:1.0.0",
+                    "androidx.interpolator:interpolator:1.0.0"},
+            {"androidx.asynclayoutinflater:asynclayoutinflater:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.core:core:1.0.0"},
+            {"androidx.localbroadcastmanager:localbroadcastmanager:1.0.0",
+                    "androidx.annotation:annotation:1.0.0"},
+            {"androidx.print:print:1.0.0",
+                    "androidx.annotation:annotation:1.0.0"},
+            {"androidx.lifecycle:lifecycle-common:2.0.0",
+                    "androidx.annotation:annotation:1.0.0"},
+            {"androidx.lifecycle:lifecycle-common:2.1.0",
+                    "androidx.annotation:annotation:1.1.0"},
+            {"androidx.lifecycle:lifecycle-livedata:2.0.0",
+                    "androidx.arch.core:core-runtime:2.0.0",
+                    "androidx.lifecycle:lifecycle-livedata-core:2.0.0",
+                    "androidx.arch.core:core-common:2.0.0"},
+            {"androidx.lifecycle:lifecycle-livedata-core:2.0.0",
+                    "androidx.lifecycle:lifecycle-common:2.0.0",
+                    "androidx.arch.core:core-common:2.0.0",
+                    "androidx.arch.core:core-runtime:2.0.0"},
+            {"androidx.lifecycle:lifecycle-runtime:2.0.0",
+                    "androidx.lifecycle:lifecycle-common:2.0.0",
+                    "androidx.arch.core:core-common:2.0.0",
+                    "androidx.annotation:annotation:1.0.0"},
+            {"androidx.lifecycle:lifecycle-runtime:2.1.0",
+                    "androidx.lifecycle:lifecycle-common:2.1.0",
+                    "androidx.arch.core:core-common:2.1.0",
+                    "androidx.annotation:annotation:1.1.0"},
+            {"androidx.lifecycle:lifecycle-viewmodel:2.0.0",
+                    "androidx.annotation:annotation:1.0.0"},
+            {"androidx.lifecycle:lifecycle-viewmodel:2.1.0",
+                    "androidx.annotation:annotation:1.1.0"},
+            {"androidx.loader:loader:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.core:core:1.0.0",
+                    "androidx.lifecycle:lifecycle-livedata:2.0.0",
+                    "androidx.lifecycle:lifecycle-viewmodel:2.0.0"},
+            {"androidx.recyclerview:recyclerview:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.core:core:1.0.0",
+                    "androidx.legacy:legacy-support-core-ui:1.0.0"},
+            {"androidx.recyclerview:recyclerview:1.1.0",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.core:core:1.1.0",
+                    "androidx.customview:customview:1.0.0"},
+            {"androidx.savedstate:savedstate:1.0.0",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.arch.core:core-common:2.0.0",
+                    "androidx.lifecycle:lifecycle-common:2.0.0"},
+            {"androidx.transition:transition:1.2.0",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.core:core:1.0.1",
+                    "androidx.collection:collection:1.0.0"},
+            {"androidx.vectordrawable:vectordrawable:1.1.0",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.core:core:1.1.0",
+                    "androidx.collection:collection:1.1.0"},
+            {"androidx.vectordrawable:vectordrawable-animated:1.1.0",
+                    "androidx.vectordrawable:vectordrawable:1.1.0",
+                    "androidx.interpolator:interpolator:1.0.0",
+                    "androidx.collection:collection:1.1.0"},
+            {"androidx.versionedparcelable:versionedparcelable:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.collection:collection:1.0.0"},
+            {"androidx.versionedparcelable:versionedparcelable:1.1.0",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.collection:collection:1.0.0"},
+            {"androidx.versionedparcelable:versionedparcelable:1.1.1",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.collection:collection:1.0.0"},
+            {"androidx.viewpager:viewpager:1.0.0",
+                    "androidx.annotation:annotation:1.0.0",
+                    "androidx.core:core:1.0.0",
+                    "androidx.customview:customview:1.0.0"},
+            {"androidx.viewpager2:viewpager2:1.0.0",
+                    "androidx.annotation:annotation:1.1.0",
+                    "androidx.fragment:fragment:1.1.0",
+                    "androidx.recyclerview:recyclerview:1.1.0",
+                    "androidx.core:core:1.1.0",
+                    "androidx.collection:collection:1.1.0"},
+    };
+
+    /**
+     * Writes the poms of the graph in the layout of a maven repository
+     */
+    static void writePoms(File maven) throws IOException {
+        for (String[] row : GRAPH) {
+            String[] names = row[0].split(":");
+            String path = names[0].replace('.', '/') + "/" + names[1] + "/" + names[2] + "/" +
+                          names[1] + "-" + names[2] + ".pom";
+            FileUtils.writeStringToFile(new File(maven, path), createPom(row),
+                    StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Resolves the material library from the poms written to the maven folder of the root,
+     * with a new cache directory inside the root.
+     */
+    static Result resolve(File root, long latencyMs, int maxParallelRequests)
+            throws IOException {
+        File cacheDir = Files.createTempDirectory(root.toPath(), "cache").toFile();
+        LatencyRepository repository = new LatencyRepository(new File(root, "maven"), latencyMs);
+        RepositoryManagerImpl manager = new RepositoryManagerImpl();
+        manager.addRepository(repository);
+        manager.setCacheDirectory(cacheDir);
+        manager.initialize();
+
+        DependencyResolver resolver = new DependencyResolver(manager);
+        resolver.setMaxParallelRequests(maxParallelRequests);
+        List<Pom> poms = resolver.resolveDependencies(Collections.singletonList(
+                Dependency.valueOf(GRAPH[0][0])));
+
+        List<String> resolved = new ArrayList<>();
+        for (Pom pom : poms) {
+            resolved.add(pom.getDeclarationString());
+        }
+        Collections.sort(resolved);
+        return new Result(resolved, repository.getRequests());
+    }
+
+    /**
+     * @return a manager of the maven central repository that reads the poms from the cache
+     */
+    static RepositoryManagerImpl createManager(File cacheDir) {
+        RepositoryManagerImpl manager = new RepositoryManagerImpl();
+        manager.addRepository("maven", "https://repo1.maven.org/maven2");
+        manager.setCacheDirectory(cacheDir);
+        manager.initialize();
+        return manager;
+    }
+
+    private static String createPom(String[] row) {
+        String[] names = row[0].split(":");
+        StringBuilder sb = new StringBuilder();
+        sb.append("<project>\n");
+        sb.append("  <groupId>").append(names[0]).append("</groupId>\n");
+        sb.append("  <artifactId>").append(names[1]).append("</artifactId>\n");
+        sb.append("  <version>").append(names[2]).append("</version>\n");
+        sb.append("  <packaging>aar</packaging>\n");
+        sb.append("  <dependencies>\n");
+        for (int i = 1; i < row.length; i++) {
+            String[] dependency = row[i].split(":");
+            sb.append("    <dependency>\n");
+            sb.append("      <groupId>").append(dependency[0]).append("</groupId>\n");
+            sb.append("      <artifactId>").append(dependency[1]).append("</artifactId>\n");
+            sb.append("      <version>").append(dependency[2]).append("</version>\n");
+            sb.append("      <scope>compile</scope>\n");
+            sb.append("    </dependency>\n");
+        }
+        sb.append("  </dependencies>\n");
+        sb.append("</project>\n");
+        return sb.toString();
+    }
+
+    static class Result {
+        final List<String> resolved;
+        final int requests;
+
+        Result(List<String> resolved, int requests) {
+            this.resolved = resolved;
+            this.requests = requests;
+        }
+    }
+
+    /**
+     * A maven repository on the local file system that waits before serving each file
+     */
+    static class LatencyRepository extends DefaultRepository {
+
+        private final File mRoot;
+        private final long mLatencyMs;
+        private final AtomicInteger mRequests = new AtomicInteger();
+
+        LatencyRepository(File root, long latencyMs) {
+            mRoot = root;
+            mLatencyMs = latencyMs;
+        }
+
+        int getRequests() {
+            return mRequests.get();
+        }
+
+        @Override
+        public InputStream getInputStream(String path) throws IOException {
+            mRequests.incrementAndGet();
+            if (mLatencyMs > 0) {
+                try {
+                    Thread.sleep(mLatencyMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            File file = new File(mRoot, path);
+            if (!file.exists()) {
+                throw new IOException("File not found " + path);
+            }
+            return new FileInputStream(file);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.tyron.code.event;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Delivers events to a receiver on an {@link Executor} instead of the thread that dispatched
+ * them. Events are queued and delivered one at a time in the order they were queued.
+ * <p>
+ * If a {@link EventKeySelector} is given, an event replaces the queued event with the same key
+ * so a burst of events for the same key is delivered once.
+ * <p>
+ * Since the event is delivered after the dispatch has finished, intercepting it from the
+ * receiver has no effect on the other receivers.
+ *
+ * @param <T> Event type
+ * @see EventManager#subscribeEvent(Class, EventReceiver, Executor, EventKeySelector)
+ */
+public final class AsyncEventReceiver<T extends Event> implements EventReceiver<T> {
+
+    private static class Pending<T> {
+        T event;
+        final long queuedTime;
+
+        Pending(T event, long queuedTime) {
+            this.event = event;
+            this.queuedTime = queuedTime;
+        }
+    }
+
+    private final EventReceiver<T> receiver;
+    private final Executor executor;
+    private final EventKeySelector<T> keySelector;
+
+    private final Map<Object, Pending<T>> pending = new LinkedHashMap<>();
+    private boolean scheduled;
+    private volatile boolean cancelled;
+
+    // statistics, guarded by the pending map
+    private long dispatchedCount;
+    private long deliveredCount;
+    private long coalescedCount;
+    private int maxPendingCount;
+    private long totalWaitTime;
+    private long maxWaitTime;
+    private long totalReceiveTime;
+    private long maxReceiveTime;
+
+    AsyncEventReceiver(@NonNull EventReceiver<T> receiver,
+                       @NonNull Executor executor,
+                       @Nullable EventKeySelector<T> keySelector) {
+        this.receiver = receiver;
+        this.executor = executor;
+        this.keySelector = keySelector;
+    }
+
+    @NonNull
+    public EventReceiver<T> getReceiver() {
+        return receiver;
+    }
+
+    @Override
+    public void onReceive(T event, Unsubscribe unsubscribe) {
+        if (cancelled) {
+            unsubscribe.unsubscribe();
+            return;
+        }
+        Object key = keySelector == null ? new Object() : keySelector.getKey(event);
+        synchronized (pending) {
+            dispatchedCount++;
+            Pending<T> existing = pending.get(key);
+            if (existing != null) {
+                // keep the time of the oldest event so the wait time shows how far behind
+                // the receiver is
+                existing.event = event;
+                coalescedCount++;
+            } else {
+                pending.put(key, new Pending<>(event, System.nanoTime()));
+                maxPendingCount = Math.max(maxPendingCount, pending.size());
+            }
+            if (!scheduled) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * Discards the queued events, the receiver will not receive events after this call
+     * returns except for the one currently being delivered.
+     */
+    public void cancel() {
+        cancelled = true;
+        synchronized (pending) {
+            pending.clear();
+        }
+    }
+
+    /**
+     * @return the number of events waiting to be delivered
+     */
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * @return the highest number of events that were waiting to be delivered at once
+     */
+    public int getMaxPendingCount() {
+        synchronized (pending) {
+            return maxPendingCount;
+        }
+    }
+
+    /**
+     * @return the number of events dispatched to this receiver, including the coalesced ones
+     */
+    public long getDispatchedCount() {
+        synchronized (pending) {
+            return dispatchedCount;
+        }
+    }
+
+    public long getDeliveredCount() {
+        synchronized (pending) {
+            return deliveredCount;
+        }
+    }
+
+    /**
+     * @return the number of events that were replaced by a newer event with the same key
+     */
+    public long getCoalescedCount() {
+        synchronized (pending) {
+            return coalescedCount;
+        }
+    }
+
+    /**
+     * @return the average time in nanoseconds an event waited before the receiver was called
+     */
+    public long getAverageWaitTime() {
+        synchronized (pending) {
+            return deliveredCount == 0 ? 0 : totalWaitTime / deliveredCount;
+        }
+    }
+
+    public long getMaxWaitTime() {
+        synchronized (pending) {
+            return maxWaitTime;
+        }
+    }
+
+    /**
+     * @return the average time in nanoseconds the receiver took to handle an event
+     */
+    public long getAverageReceiveTime() {
+        synchronized (pending) {
+            return deliveredCount == 0 ? 0 : totalReceiveTime / deliveredCount;
+        }
+    }
+
+    public long getMaxReceiveTime() {
+        synchronized (pending) {
+            return maxReceiveTime;
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        synchronized (pending) {
+            return "AsyncEventReceiver{" +
+                   "receiver=" + receiver +
+                   ", pending=" + pending.size() +
+                   ", maxPending=" + maxPendingCount +
+                   ", dispatched=" + dispatchedCount +
+                   ", delivered=" + deliveredCount +
+                   ", coalesced=" + coalescedCount +
+                   ", avgWaitMs=" + getAverageWaitTime() / 1_000_000 +
+                   ", maxWaitMs=" + maxWaitTime / 1_000_000 +
+                   ", avgReceiveMs=" + getAverageReceiveTime() / 1_000_000 +
+                   ", maxReceiveMs=" + maxReceiveTime / 1_000_000 +
+                   '}';
+        }
+    }
+
+    /**
+     * Must be called while holding the lock of the pending map
+     */
+    private void schedule() {
+        scheduled = true;
+        try {
+            executor.execute(this::deliverPending);
+        } catch (RejectedExecutionException e) {
+            scheduled = false;
+            throw e;
+        }
+    }
+
+    private void deliverPending() {
+        Unsubscribe unsubscribe = new Unsubscribe();
+        while (true) {
+            Pending<T> next;
+            synchronized (pending) {
+                Iterator<Pending<T>> iterator = pending.values().iterator();
+                if (cancelled || !iterator.hasNext()) {
+                    scheduled = false;
+                    return;
+                }
+                next = iterator.next();
+                iterator.remove();
+            }
+
+            long start = System.nanoTime();
+            try {
+                receiver.onReceive(next.event, unsubscribe);
+            } catch (RuntimeException | Error e) {
+                // deliver the remaining events in a new task
+                synchronized (pending) {
+                    scheduled = false;
+                    if (!cancelled && !pending.isEmpty()) {
+                        schedule();
+                    }
+                }
+                throw e;
+            }
+            long end = System.nanoTime();
+
+            synchronized (pending) {
+                deliveredCount++;
+                totalWaitTime += start - next.queuedTime;
+                maxWaitTime = Math.max(maxWaitTime, start - next.queuedTime);
+                totalReceiveTime += end - start;
+                maxReceiveTime = Math.max(maxReceiveTime, end - start);
+            }
+
+            if (unsubscribe.isUnsubscribed()) {
+                // removed from the event manager on the next dispatch
+                cancel();
+            }
+        }
+    }
+}
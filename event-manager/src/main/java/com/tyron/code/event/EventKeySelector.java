@@ -0,0 +1,14 @@
+package com.tyron.code.event;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Selects the key used to coalesce events delivered to an {@link AsyncEventReceiver}.
+ * Events with equal keys that are waiting to be delivered are replaced by the newest one,
+ * for example a key of the changed file delivers only the latest change of each file.
+ */
+public interface EventKeySelector<T extends Event> {
+
+    @NonNull
+    Object getKey(@NonNull T event);
+}
@@ -10,6 +10,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -162,7 +163,7 @@ public final class EventManager {
                 .lock();
         try {
             List<EventReceiver<T>> list = receivers.receivers;
-            if (list.contains(receiver)) {
+            if (contains(list, receiver)) {
                 throw new IllegalArgumentException(
                         "the receiver is already registered for this type");
             }
@@ -174,6 +175,90 @@ public final class EventManager {
         return new SubscriptionReceipt<>(eventType, receiver, this);
     }
 
+    /**
+     * Register a receiver of the given event which receives the events on the given executor.
+     *
+     * @see #subscribeEvent(Class, EventReceiver, Executor, EventKeySelector)
+     */
+    public <T extends Event> SubscriptionReceipt<T> subscribeEvent(@NonNull Class<T> eventType,
+                                                                   @NonNull EventReceiver<T> receiver,
+                                                                   @NonNull Executor executor) {
+        return subscribeEvent(eventType, receiver, executor, null);
+    }
+
+    /**
+     * Register a receiver of the given event which receives the events on the given executor,
+     * the dispatching thread only queues the event. Events which are still queued are replaced
+     * by a newer event with the same key.
+     * <p>
+     * The receiver can not intercept the event since it is delivered after the dispatch.
+     *
+     * @param eventType   Event type to be received
+     * @param receiver    Receiver of event
+     * @param executor    Executor the receiver is called on
+     * @param keySelector Key of the events to coalesce, null to deliver every event
+     * @param <T>         Event type
+     * @see #getAsyncReceivers()
+     */
+    public <T extends Event> SubscriptionReceipt<T> subscribeEvent(@NonNull Class<T> eventType,
+                                                                   @NonNull EventReceiver<T> receiver,
+                                                                   @NonNull Executor executor,
+                                                                   @Nullable EventKeySelector<T> keySelector) {
+        return subscribeEvent(eventType, new AsyncEventReceiver<>(receiver, executor, keySelector));
+    }
+
+    /**
+     * Get the receivers registered in this manager that receive events on an executor,
+     * their statistics show which receivers can not keep up with the dispatched events.
+     */
+    @NonNull
+    @SuppressWarnings("rawtypes")
+    public List<AsyncEventReceiver<?>> getAsyncReceivers() {
+        List<Receivers> all;
+        lock.readLock()
+                .lock();
+        try {
+            all = new ArrayList<>(receivers.values());
+        } finally {
+            lock.readLock()
+                    .unlock();
+        }
+        List<AsyncEventReceiver<?>> result = new ArrayList<>();
+        for (Receivers<?> container : all) {
+            container.lock.readLock()
+                    .lock();
+            try {
+                for (EventReceiver<?> receiver : container.receivers) {
+                    if (receiver instanceof AsyncEventReceiver) {
+                        result.add((AsyncEventReceiver<?>) receiver);
+                    }
+                }
+            } finally {
+                container.lock.readLock()
+                        .unlock();
+            }
+        }
+        return result;
+    }
+
+    private static <T extends Event> boolean contains(List<EventReceiver<T>> list,
+                                                      EventReceiver<T> receiver) {
+        EventReceiver<T> target = unwrap(receiver);
+        for (EventReceiver<T> registered : list) {
+            if (unwrap(registered).equals(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T extends Event> EventReceiver<T> unwrap(EventReceiver<T> receiver) {
+        if (receiver instanceof AsyncEventReceiver) {
+            return ((AsyncEventReceiver<T>) receiver).getReceiver();
+        }
+        return receiver;
+    }
+
     /**
      * Dispatch the given event to its receivers registered in this manager.
      *
@@ -23,6 +23,9 @@ public class SubscriptionReceipt<R extends Event> {
             EventReceiver<R> target = receiver.get();
             if (target != null) {
                 receivers.receivers.remove(target);
+                if (target instanceof AsyncEventReceiver) {
+                    ((AsyncEventReceiver<R>) target).cancel();
+                }
             }
         } finally {
             receivers.lock.writeLock().unlock();
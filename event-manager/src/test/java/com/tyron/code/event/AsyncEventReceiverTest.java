@@ -0,0 +1,165 @@
+package com.tyron.code.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+public class AsyncEventReceiverTest {
+
+    private static class TestEvent extends Event {
+        final String key;
+        final int value;
+
+        TestEvent(String key, int value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Runs the submitted tasks only when {@link #runAll()} is called
+     */
+    private static class QueuedExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private EventManager mManager;
+    private QueuedExecutor mExecutor;
+    private List<Integer> mReceived;
+
+    @Before
+    public void setup() {
+        mManager = new EventManager();
+        mExecutor = new QueuedExecutor();
+        mReceived = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Test
+    public void testDeliveredOnExecutorInOrder() {
+        mManager.subscribeEvent(TestEvent.class,
+                (event, unsubscribe) -> mReceived.add(event.value), mExecutor);
+
+        mManager.dispatchEvent(new TestEvent("a", 1));
+        mManager.dispatchEvent(new TestEvent("a", 2));
+        mManager.dispatchEvent(new TestEvent("b", 3));
+        assertTrue(mReceived.isEmpty());
+        assertEquals(1, mExecutor.tasks.size());
+
+        mExecutor.runAll();
+        assertEquals(Arrays.asList(1, 2, 3), mReceived);
+
+        AsyncEventReceiver<?> receiver = mManager.getAsyncReceivers().get(0);
+        assertEquals(3, receiver.getDispatchedCount());
+        assertEquals(3, receiver.getDeliveredCount());
+        assertEquals(0, receiver.getCoalescedCount());
+    }
+
+    @Test
+    public void testCoalescesEventsWithSameKey() {
+        mManager.subscribeEvent(TestEvent.class,
+                (event, unsubscribe) -> mReceived.add(event.value), mExecutor,
+                event -> event.key);
+
+        mManager.dispatchEvent(new TestEvent("a", 1));
+        mManager.dispatchEvent(new TestEvent("b", 2));
+        mManager.dispatchEvent(new TestEvent("a", 3));
+        mManager.dispatchEvent(new TestEvent("a", 4));
+
+        AsyncEventReceiver<?> receiver = mManager.getAsyncReceivers().get(0);
+        assertEquals(2, receiver.getPendingCount());
+
+        mExecutor.runAll();
+        // the newest event takes the place of the first queued one
+        assertEquals(Arrays.asList(4, 2), mReceived);
+        assertEquals(4, receiver.getDispatchedCount());
+        assertEquals(2, receiver.getCoalescedCount());
+        assertEquals(0, receiver.getPendingCount());
+    }
+
+    @Test
+    public void testNotCalledOnDispatchingThread() throws InterruptedException {
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        Thread worker = new Thread(mExecutor::runAll);
+        mManager.subscribeEvent(TestEvent.class,
+                (event, unsubscribe) -> threads.add(Thread.currentThread()), mExecutor);
+
+        mManager.dispatchEvent(new TestEvent("a", 1));
+        worker.start();
+        worker.join();
+
+        assertEquals(Collections.singletonList(worker), threads);
+    }
+
+    @Test
+    public void testUnsubscribeDiscardsPendingEvents() {
+        SubscriptionReceipt<TestEvent> receipt = mManager.subscribeEvent(TestEvent.class,
+                (event, unsubscribe) -> mReceived.add(event.value), mExecutor);
+
+        mManager.dispatchEvent(new TestEvent("a", 1));
+        receipt.unsubscribe();
+        mManager.dispatchEvent(new TestEvent("a", 2));
+        mExecutor.runAll();
+
+        assertTrue(mReceived.isEmpty());
+        assertTrue(mManager.getAsyncReceivers().isEmpty());
+    }
+
+    @Test
+    public void testUnsubscribeFromReceiver() {
+        mManager.subscribeEvent(TestEvent.class, (event, unsubscribe) -> {
+            mReceived.add(event.value);
+            unsubscribe.unsubscribe();
+        }, mExecutor);
+
+        mManager.dispatchEvent(new TestEvent("a", 1));
+        mManager.dispatchEvent(new TestEvent("a", 2));
+        mExecutor.runAll();
+        mManager.dispatchEvent(new TestEvent("a", 3));
+        mExecutor.runAll();
+
+        assertEquals(Collections.singletonList(1), mReceived);
+    }
+
+    @Test
+    public void testExceptionDoesNotDropRemainingEvents() {
+        mManager.subscribeEvent(TestEvent.class, (event, unsubscribe) -> {
+            mReceived.add(event.value);
+            if (event.value == 1) {
+                throw new IllegalStateException();
+            }
+        }, mExecutor);
+
+        mManager.dispatchEvent(new TestEvent("a", 1));
+        mManager.dispatchEvent(new TestEvent("a", 2));
+        try {
+            mExecutor.runAll();
+        } catch (IllegalStateException ignored) {
+            // thrown by the first event
+        }
+        mExecutor.runAll();
+
+        assertEquals(Arrays.asList(1, 2), mReceived);
+    }
+}
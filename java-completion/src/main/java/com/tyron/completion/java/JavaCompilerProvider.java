@@ -33,6 +33,18 @@ public class JavaCompilerProvider extends CompilerProvider<JavaCompilerService>
         return provider.getCompiler(project, module);
     }
 
+    /**
+     * @return the compiler that has been created last, a new one is not created
+     */
+    @Nullable
+    public static JavaCompilerService getIfCreated() {
+        Object index = CompilerService.getInstance().getIndex(KEY);
+        if (!(index instanceof JavaCompilerProvider)) {
+            return null;
+        }
+        return ((JavaCompilerProvider) index).mProvider;
+    }
+
     private volatile JavaCompilerService mProvider;
     private final Set<File> mCachedPaths;
 
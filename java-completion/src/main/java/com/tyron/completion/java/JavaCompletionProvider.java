@@ -149,7 +149,8 @@ public class JavaCompletionProvider extends CompletionProvider {
         if (scanned == null || scanned.getLeaf() == null) {
             return null;
         }
-        CompletionList.Builder builder = CompletionList.builder(parameters.getPrefix());
+        CompletionList.Builder builder = CompletionList.builder(parameters.getPrefix())
+                .setMaxItems(Completions.MAX_LIST_ITEMS);
 
         switch (scanned.getLeaf().getKind()) {
             case IDENTIFIER:
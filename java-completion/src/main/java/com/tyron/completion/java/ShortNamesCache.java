@@ -1,17 +1,19 @@
 package com.tyron.completion.java;
 
-import com.tyron.builder.model.CodeAssistLibrary;
+import androidx.annotation.NonNull;
+
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
-import com.tyron.builder.project.impl.JavaModuleImpl;
+import com.tyron.builder.project.util.ClassNameIndex;
+import com.tyron.builder.project.util.ClassNameIndexStore;
+import com.tyron.builder.project.util.ModuleClassNameIndex;
 
-import java.util.Deque;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.function.Predicate;
 
 /**
  * Allows to retrieve java classes in a project by non-qualified names
@@ -19,7 +21,7 @@ import java.util.WeakHashMap;
 public class ShortNamesCache {
 
     private static final Map<Module, ShortNamesCache> map = new WeakHashMap<>();
-    public static ShortNamesCache getInstance(Module module) {
+    public static synchronized ShortNamesCache getInstance(Module module) {
         ShortNamesCache cache = map.get(module);
         if (cache == null) {
             cache = new ShortNamesCache(module);
@@ -29,12 +31,16 @@ public class ShortNamesCache {
     }
 
     /**
-     * module used to store JDK indexes
+     * index of the classes in the android jar
      */
-    private static final JavaModule JDK_MODULE = new JavaModuleImpl(null);
+    private static volatile ClassNameIndex sJdkIndex;
 
-    static {
-        JDK_MODULE.addLibrary(CodeAssistLibrary.forJar(Objects.requireNonNull(CompletionModule.getAndroidJar())));
+    private static ClassNameIndex getJdkIndex() {
+        if (sJdkIndex == null) {
+            sJdkIndex = ClassNameIndexStore.getInstance()
+                    .getIndex(Objects.requireNonNull(CompletionModule.getAndroidJar()));
+        }
+        return sJdkIndex;
     }
 
     private final Module module;
@@ -44,38 +50,34 @@ public class ShortNamesCache {
     }
 
     /**
-     * Returns the list of fully qualified names of all classes in the project and (optionally)
-     * libraries.
+     * Process the fully qualified names of the classes in the project, its libraries and the
+     * JDK whose simple names match the given prefix or camel humps.
+     *
+     * @param processor receives the fully qualified names, return false to stop processing
      */
-    public String[] getAllClassNames() {
+    public void processClassNames(@NonNull String prefix,
+                                  boolean caseSensitive,
+                                  @NonNull Predicate<String> processor) {
         if (!(module instanceof JavaModule)) {
-            return new String[0];
+            return;
         }
-
-        Set<String> classNames = new HashSet<>();
-
-        Deque<Module> queue = new LinkedList<>();
-        Set<Module> visitedModules = new HashSet<>();
-        queue.addLast(module);
-
-        while (!queue.isEmpty()) {
-            Module current = queue.removeFirst();
-
-            if (current instanceof JavaModule) {
-                JavaModule javaModule = (JavaModule) current;
-                classNames.addAll(javaModule.getClassIndex().getLeafNodes());
-            }
-
-            visitedModules.add(current);
-            for (String path : current.getModuleDependencies()) {
-                Module dependingModule = current.getProject().getModuleByName(path);
-                if (dependingModule != null && !visitedModules.contains(dependingModule)) {
-                    queue.addLast(dependingModule);
-                }
-            }
+        if (!ModuleClassNameIndex.processClassNames(module, prefix, caseSensitive, processor)) {
+            return;
         }
+        getJdkIndex().processClassNames(prefix, caseSensitive, processor);
+    }
 
-        classNames.addAll(JDK_MODULE.getClassIndex().getLeafNodes());
+    /**
+     * Returns the list of fully qualified names of all classes in the project and (optionally)
+     * libraries.
+     *
+     * @deprecated this creates a copy of every class name, use
+     * {@link #processClassNames(String, boolean, Predicate)} instead.
+     */
+    @Deprecated
+    public String[] getAllClassNames() {
+        List<String> classNames = new ArrayList<>();
+        processClassNames("", true, classNames::add);
         return classNames.toArray(new String[0]);
     }
 }
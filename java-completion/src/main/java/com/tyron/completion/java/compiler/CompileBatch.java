@@ -69,7 +69,12 @@ public class CompileBatch implements AutoCloseable {
             // You can get at `Element` values using `Trees`
             task.analyze();
         } catch (IOException e) {
+            borrow.close();
             throw new RuntimeException(e);
+        } catch (RuntimeException | Error e) {
+            // e.g. a CancelAbort, return the compiler so the next compilation can borrow it
+            borrow.close();
+            throw e;
         }
     }
 
@@ -106,6 +111,15 @@ public class CompileBatch implements AutoCloseable {
             File javaFile = module.getJavaFile(packageName);
             if (javaFile != null) {
                 addFiles.add(javaFile.toPath());
+                continue;
+            }
+
+            // the class may be a package private class declared in a file with another name
+            Path sourceFile = Paths.get(err.getSource().toUri());
+            Path location = parent.findPackagePrivateClass(
+                    StringSearch.packageName(sourceFile.toFile()), className);
+            if (!FILE_NOT_FOUND.equals(location)) {
+                addFiles.add(location);
             }
         }
         return addFiles;
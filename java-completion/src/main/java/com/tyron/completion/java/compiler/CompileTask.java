@@ -26,13 +26,16 @@ public class CompileTask implements AutoCloseable {
 
     private final Trees trees;
 
-    public CompileTask(CompileBatch batch) {
+    /**
+     * @param diagnostics the diagnostics reported while compiling the batch
+     */
+    public CompileTask(CompileBatch batch, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
         mCompileBatch = batch;
         this.task = batch.task;
         this.trees = JavacTrees.instance(task);
 
         this.roots = batch.roots;
-        this.diagnostics = batch.parent.getDiagnostics();
+        this.diagnostics = diagnostics;
     }
 
     public Trees getTrees() {
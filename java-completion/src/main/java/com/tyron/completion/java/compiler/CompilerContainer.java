@@ -3,19 +3,16 @@ package com.tyron.completion.java.compiler;
 import android.util.Log;
 
 import androidx.annotation.GuardedBy;
+import androidx.annotation.Nullable;
 
-import com.sun.source.util.JavacTask;
-import com.sun.tools.javac.api.JavacTaskImpl;
-import com.sun.tools.javac.util.Context;
 import com.tyron.completion.java.BuildConfig;
-import com.tyron.completion.java.compiler.services.CancelService;
 import com.tyron.completion.progress.ProcessCanceledException;
 import com.tyron.completion.progress.ProgressManager;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 import kotlin.jvm.functions.Function1;
@@ -26,45 +23,80 @@ import kotlin.jvm.functions.Function1;
  * A read is when the {@link CompileTask} is being accessed to get information about the parse tree.
  * A write is when the {@link CompileTask} is being changed from a compile call
  *
- * Any threads are allowed to read only if there is no thread that is currently writing.
- * If there is a thread that is currently writing, all other threads that attempts to read
- * will be blocked until the write thread has finished.
+ * Every compile publishes a new {@link Snapshot} of the {@link CompileTask}. Any number of
+ * threads can read the current snapshot at the same time. When a new compile starts, the
+ * current snapshot is retired: new readers wait for the next snapshot while the compile waits
+ * for the readers of the retired snapshot to finish. The writer is then free to release the
+ * {@link ReusableCompiler.Borrow} of the retired snapshot or keep it for later use.
  *
- * Only one thread is allowed to write at a time, during a write operation all threads that
- * attempts to read will be blocked until the thread writing has finished.
+ * Only one thread is allowed to write at a time.
  */
 public class CompilerContainer {
 
     private static final String TAG = CompilerContainer.class.getSimpleName();
 
+    /**
+     * An immutable, versioned view of a compilation shared by its readers
+     */
+    private static final class Snapshot {
+
+        private final CompileTask task;
+        private final long version;
+
+        /**
+         * Held by readers that need exclusive access to the compile task, see
+         * {@link #getWithLock(Function1)}
+         */
+        private final ReentrantLock exclusiveLock = new ReentrantLock();
+
+        @GuardedBy("mSnapshotLock")
+        private int readers;
+
+        private Snapshot(CompileTask task, long version) {
+            this.task = task;
+            this.version = version;
+        }
+    }
+
+    private final ReentrantLock mWriteLock = new ReentrantLock();
+    private final Object mSnapshotLock = new Object();
+
+    /**
+     * Written while holding {@code mSnapshotLock}, volatile so {@link #isWriting()} can read
+     * it without the lock
+     */
     private volatile boolean mIsWriting;
 
-    private static final Semaphore semaphore = new Semaphore(1);
+    @GuardedBy("mSnapshotLock")
+    private Snapshot mSnapshot;
 
-    private volatile CompileTask mCompileTask;
+    @GuardedBy("mSnapshotLock")
+    private long mVersion;
+
+    private volatile ReusableCompiler.CancelServiceImpl mWriteCancelService;
 
     public CompilerContainer() {
         System.out.println("New instance created - CompilerContainer");
     }
 
-    private void cancel() {
-        if (mCompileTask == null) {
-            return;
-        }
-
-        JavacTask task = mCompileTask.task;
-        if (!(task instanceof JavacTaskImpl)) {
-            return;
-        }
-
-        JavacTaskImpl taskImpl = ((JavacTaskImpl) task);
-        Context context = taskImpl.getContext();
-        if (context == null) {
-            return;
+    /**
+     * Cancels the compilation that is currently being written, if any. The compilation stops
+     * at the next cancellation check of the javac services and the thread that started it
+     * receives a {@link ProcessCanceledException}.
+     */
+    void cancel() {
+        ReusableCompiler.CancelServiceImpl cancelService = mWriteCancelService;
+        if (cancelService != null) {
+            cancelService.cancel();
         }
+    }
 
-        ReusableCompiler.CancelServiceImpl cancelService =
-                (ReusableCompiler.CancelServiceImpl) ReusableCompiler.CancelServiceImpl.instance(context);
+    /**
+     * Sets the cancel service of the compiler used by the current write, called from the
+     * runnable passed to {@link #initialize(Runnable)} before the compilation starts.
+     */
+    void setWriteCancelService(@Nullable ReusableCompiler.CancelServiceImpl cancelService) {
+        mWriteCancelService = cancelService;
     }
 
     /**
@@ -73,76 +105,130 @@ public class CompilerContainer {
      * are synchronized
      */
     public void run(Consumer<CompileTask> consumer) {
-        cancel();
-        semaphore.acquireUninterruptibly();
+        Snapshot snapshot = acquire();
         try {
-            consumer.accept(mCompileTask);
+            consumer.accept(snapshot.task);
         } finally {
-            mCompileTask.close();
-            semaphore.release();
+            release(snapshot);
         }
     }
 
     public <T> T get(Function1<CompileTask, T> fun) {
-        cancel();
+        Snapshot snapshot = acquire();
         try {
-            semaphore.acquire();
-        } catch (InterruptedException e) {
-            throw new ProcessCanceledException();
-        }
-
-        try {
-            return fun.invoke(mCompileTask);
+            return fun.invoke(snapshot.task);
         } finally {
-            mCompileTask.close();
-            semaphore.release();
+            release(snapshot);
         }
     }
 
+    /**
+     * Same as {@link #get(Function1)} but no other reader that also uses this method can
+     * access the compile task at the same time. Use this when the function modifies
+     * the compiler state.
+     */
     public <T> T getWithLock(Function1<CompileTask, T> fun) {
+        Snapshot snapshot = acquire();
         try {
-            semaphore.acquire();
-        } catch (InterruptedException e) {
-            throw new ProcessCanceledException();
-        }
-
-        try {
-            return fun.invoke(mCompileTask);
+            try {
+                snapshot.exclusiveLock.lockInterruptibly();
+            } catch (InterruptedException e) {
+                throw new ProcessCanceledException();
+            }
+            try {
+                return fun.invoke(snapshot.task);
+            } finally {
+                snapshot.exclusiveLock.unlock();
+            }
         } finally {
-            mCompileTask.close();
-            semaphore.release();
+            release(snapshot);
         }
+    }
 
+    public boolean isWriting() {
+        return mIsWriting || mWriteLock.hasQueuedThreads();
     }
 
-    public synchronized boolean isWriting() {
-        return mIsWriting || semaphore.hasQueuedThreads();
+    /**
+     * @return whether a compile task has been published and can be read
+     */
+    public boolean hasSnapshot() {
+        synchronized (mSnapshotLock) {
+            return mSnapshot != null;
+        }
+    }
+
+    /**
+     * @return the version of the current snapshot, incremented on every compile
+     */
+    public long getVersion() {
+        synchronized (mSnapshotLock) {
+            return mSnapshot == null ? 0 : mSnapshot.version;
+        }
     }
 
     void initialize(Runnable runnable) {
         try {
-            semaphore.acquire();
+            mWriteLock.lockInterruptibly();
         } catch (InterruptedException e) {
             throw new ProcessCanceledException();
         }
-        mIsWriting = true;
         try {
-            // ensure that compile task is closed
-            if (mCompileTask != null) {
-                mCompileTask.close();
+            synchronized (mSnapshotLock) {
+                mIsWriting = true;
+                Snapshot retired = mSnapshot;
+                // wait for the readers of the previous compilation to drain
+                while (retired != null && retired.readers > 0) {
+                    try {
+                        mSnapshotLock.wait();
+                    } catch (InterruptedException e) {
+                        throw new ProcessCanceledException();
+                    }
+                }
             }
 
-            cancel();
-
             runnable.run();
         } finally {
-            mIsWriting = false;
-            semaphore.release();
+            mWriteCancelService = null;
+            synchronized (mSnapshotLock) {
+                mIsWriting = false;
+                mSnapshotLock.notifyAll();
+            }
+            mWriteLock.unlock();
         }
     }
 
     void setCompileTask(CompileTask task) {
-        mCompileTask = task;
+        synchronized (mSnapshotLock) {
+            mSnapshot = new Snapshot(task, ++mVersion);
+        }
+    }
+
+    private Snapshot acquire() {
+        synchronized (mSnapshotLock) {
+            while (mIsWriting) {
+                try {
+                    mSnapshotLock.wait();
+                } catch (InterruptedException e) {
+                    throw new ProcessCanceledException();
+                }
+            }
+            Snapshot snapshot = mSnapshot;
+            if (snapshot == null) {
+                throw new IllegalStateException("Nothing has been compiled yet.");
+            }
+            snapshot.readers++;
+            return snapshot;
+        }
+    }
+
+    private void release(Snapshot snapshot) {
+        synchronized (mSnapshotLock) {
+            snapshot.readers--;
+            if (snapshot.readers == 0) {
+                mSnapshotLock.notifyAll();
+            }
+        }
     }
 
     private static void assertNotClosed(CompileTask task) {
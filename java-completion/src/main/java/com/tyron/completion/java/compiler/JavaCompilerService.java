@@ -4,21 +4,26 @@ import android.annotation.SuppressLint;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
-import com.sun.tools.javac.api.JavacTaskImpl;
 import com.tyron.builder.model.SourceFileObject;
 import com.tyron.builder.project.Project;
+import com.tyron.builder.project.api.FileManager;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
+import com.tyron.builder.project.listener.FileListener;
+import com.tyron.builder.project.listener.TextChange;
 import com.tyron.builder.project.util.PackageTrie;
 import com.tyron.common.util.Cache;
-import com.tyron.common.util.StringSearch;
+import com.tyron.common.util.WordIndex;
 import com.tyron.completion.java.CompilerProvider;
 import com.tyron.completion.java.Docs;
 import com.tyron.completion.java.FindTypeDeclarations;
 
+import org.jetbrains.kotlin.com.intellij.openapi.util.LowMemoryWatcher;
+
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaFileObject;
@@ -27,6 +32,7 @@ import javax.tools.StandardLocation;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.tools.javac.file.PathFileObject;
 import com.tyron.completion.java.compiler.services.CancelAbort;
+import com.tyron.completion.java.parse.CompilationInfo;
 import com.tyron.completion.progress.ProcessCanceledException;
 
 import java.io.File;
@@ -40,12 +46,15 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
@@ -67,7 +76,96 @@ public class JavaCompilerService implements CompilerProvider {
 
     private final CompilerContainer mContainer = new CompilerContainer();
     private CompileBatch cachedCompile;
-    private final Map<JavaFileObject, Long> cachedModified = new HashMap<>();
+
+    /**
+     * The maximum number of compilations kept in {@link #mCompileCache}, each one holds its
+     * own javac context so only the current one and the one before it are kept, enough to
+     * switch back and forth between two files.
+     */
+    private static final int MAX_CACHED_COMPILES = 2;
+
+    /**
+     * A compilation that can be reused when the same set of sources is requested again,
+     * e.g. when switching between editor tabs. Each one has its own {@link ReusableCompiler}
+     * since a borrowed compiler cannot be shared between compilations.
+     */
+    private static class CachedCompile {
+        final ReusableCompiler compiler = new ReusableCompiler();
+        final Map<JavaFileObject, Long> modified = new HashMap<>();
+        CompileBatch batch;
+        /**
+         * The diagnostics of {@link #batch}, the diagnostics of the service are replaced
+         * by every compilation
+         */
+        List<Diagnostic<? extends JavaFileObject>> diagnostics = Collections.emptyList();
+
+        boolean isValid() {
+            return batch != null && !batch.closed;
+        }
+
+        void close() {
+            if (batch == null) {
+                return;
+            }
+            batch.close();
+            batch.borrow.close();
+            batch = null;
+            diagnostics = Collections.emptyList();
+        }
+    }
+
+    /**
+     * Least recently used compilations, keyed by the uris of their sources
+     */
+    private final LinkedHashMap<Set<URI>, CachedCompile> mCompileCache =
+            new LinkedHashMap<>(MAX_CACHED_COMPILES, 0.75f, true);
+    private CachedCompile mCurrentCompile;
+
+    private final AtomicLong mCacheHits = new AtomicLong();
+    private final AtomicLong mCacheMisses = new AtomicLong();
+    private final AtomicLong mCacheEvictions = new AtomicLong();
+    private final AtomicLong mCompletedCompiles = new AtomicLong();
+    private final AtomicLong mCanceledCompiles = new AtomicLong();
+
+    /**
+     * The sources of the compilation that is currently running, used to cancel it when a
+     * newer request for the same sources arrives
+     */
+    private static class RunningCompile {
+        final Set<URI> key;
+        final Map<JavaFileObject, Long> modified = new HashMap<>();
+        final ReusableCompiler.CancelServiceImpl cancelService;
+
+        RunningCompile(Collection<? extends JavaFileObject> sources,
+                       ReusableCompiler.CancelServiceImpl cancelService) {
+            this.key = getCacheKey(sources);
+            this.cancelService = cancelService;
+            for (JavaFileObject source : sources) {
+                modified.put(source, source.getLastModified());
+            }
+        }
+    }
+
+    private volatile RunningCompile mRunningCompile;
+
+    // must be strongly referenced, the watcher only keeps a weak reference to it
+    private final LowMemoryWatcher mLowMemoryWatcher;
+
+    private final FileListener mSnapshotListener = new FileListener() {
+        @Override
+        public void onSnapshotChanged(File file, CharSequence contents) {
+            JavaCompilerService.this.onSnapshotChanged(file, contents, null);
+        }
+
+        @Override
+        public void onSnapshotChanged(File file, CharSequence contents, TextChange change) {
+            JavaCompilerService.this.onSnapshotChanged(file, contents, change);
+        }
+    };
+    private final Set<FileManager> mListenedFileManagers = new HashSet<>();
+
+    private final Map<Module, WordIndex> mWordIndexes = new HashMap<>();
+    private final Object mWordIndexLoadLock = new Object();
 
     public final ReentrantLock mLock = new ReentrantLock();
 
@@ -81,6 +179,7 @@ public class JavaCompilerService implements CompilerProvider {
         this.addExports = Collections.unmodifiableSet(addExports);
         this.mSourceFileManager = new SourceFileManager(project);
         this.docs = new Docs(project, docPath);
+        this.mLowMemoryWatcher = LowMemoryWatcher.register(this::onLowMemory);
     }
 
     public Project getProject() {
@@ -90,6 +189,154 @@ public class JavaCompilerService implements CompilerProvider {
     public void setCurrentModule(@NonNull JavaModule module) {
         mSourceFileManager.setCurrentModule(module);
         mCurrentModule = module;
+
+        addSnapshotListener(module);
+        for (Module dependency : mProject.getDependencies(module)) {
+            addSnapshotListener(dependency);
+        }
+    }
+
+    private synchronized void addSnapshotListener(Module module) {
+        FileManager fileManager = module.getFileManager();
+        if (fileManager != null && mListenedFileManagers.add(fileManager)) {
+            fileManager.addSnapshotListener(mSnapshotListener);
+        }
+    }
+
+    private synchronized void removeSnapshotListeners() {
+        for (FileManager fileManager : mListenedFileManagers) {
+            fileManager.removeSnapshotListener(mSnapshotListener);
+        }
+        mListenedFileManagers.clear();
+    }
+
+    private void onSnapshotChanged(File file, CharSequence contents, TextChange change) {
+        Path path = file.toPath();
+        parseCache.invalidate(path);
+        cacheContainsType.invalidate(path);
+
+        // pass the change to the partial reparse of the file, if it has been parsed already
+        Module module = file.getName().endsWith(".java") ? mProject.getModule(file) : null;
+        CompilationInfo info = module == null
+                ? null
+                : module.getUserData(CompilationInfo.COMPILATION_INFO_KEY);
+        if (info != null) {
+            info.onSnapshotChanged(file.toURI(), contents, change);
+        }
+
+        // the words are read on the next lookup instead of on every edit
+        for (WordIndex index : getWordIndexes()) {
+            if (!index.contains(path)) {
+                continue;
+            }
+            if (contents != null) {
+                index.update(path, contents);
+            } else {
+                // contents are unknown, read it again from disk on the next lookup
+                index.remove(path);
+            }
+        }
+    }
+
+    /**
+     * Called when a file has been created outside of the editor, e.g. by the create class
+     * actions
+     */
+    public void onFileCreated(@NonNull File file) {
+        if (!file.getName().endsWith(".java")) {
+            return;
+        }
+        Path path = file.toPath();
+        parseCache.invalidate(path);
+        cacheContainsType.invalidate(path);
+
+        Module module = mProject.getModule(file);
+        WordIndex index = module == null ? null : getLoadedWordIndex(module);
+        if (index != null) {
+            index.remove(path);
+            index.index(path);
+        }
+    }
+
+    /**
+     * Called when a file or a directory has been deleted
+     */
+    public void onFileDeleted(@NonNull File file) {
+        Path path = file.toPath();
+        parseCache.invalidate(path);
+        cacheContainsType.invalidate(path);
+
+        for (WordIndex index : getWordIndexes()) {
+            index.removeRecursively(path);
+        }
+    }
+
+    private List<WordIndex> getWordIndexes() {
+        synchronized (mWordIndexes) {
+            return new ArrayList<>(mWordIndexes.values());
+        }
+    }
+
+    @Nullable
+    private WordIndex getLoadedWordIndex(@NonNull Module module) {
+        synchronized (mWordIndexes) {
+            return mWordIndexes.get(module);
+        }
+    }
+
+    /**
+     * Returns the word index of the module. The index is loaded from the build directory of
+     * the module and is synced with the source files of the module when it is first used,
+     * after that it is kept up to date by the snapshot listener, {@link #onFileCreated(File)}
+     * and {@link #onFileDeleted(File)}.
+     */
+    @NonNull
+    private WordIndex getWordIndex(@NonNull Module module) {
+        WordIndex index = getLoadedWordIndex(module);
+        if (index != null) {
+            return index;
+        }
+        synchronized (mWordIndexLoadLock) {
+            index = getLoadedWordIndex(module);
+            if (index != null) {
+                return index;
+            }
+
+            File storage = new File(module.getBuildDirectory(), "intermediate/index/words.bin");
+            index = WordIndex.load(storage);
+            if (module instanceof JavaModule) {
+                JavaModule javaModule = (JavaModule) module;
+                Set<Path> files = new HashSet<>();
+                for (File file : javaModule.getJavaFiles().values()) {
+                    files.add(file.toPath());
+                }
+                for (File file : javaModule.getInjectedClasses().values()) {
+                    files.add(file.toPath());
+                }
+                index.sync(files);
+            }
+            // persist the files indexed from disk so the next session only reads changed files
+            try {
+                index.save();
+            } catch (IOException e) {
+                Log.w("JavaCompilerService", "Unable to save word index", e);
+            }
+
+            synchronized (mWordIndexes) {
+                mWordIndexes.put(module, index);
+            }
+            return index;
+        }
+    }
+
+    private void saveWordIndexes() {
+        for (WordIndex index : getWordIndexes()) {
+            try {
+                index.save();
+            } catch (IOException e) {
+                Log.w("JavaCompilerService", "Unable to save word index", e);
+            }
+        }
     }
 
     /**
@@ -98,7 +345,8 @@ public class JavaCompilerService implements CompilerProvider {
      * @param sources list of java files to compile
      * @return true if there's a valid cache for it, false otherwise
      */
-    private boolean needsCompile(Collection<? extends JavaFileObject> sources) {
+    private boolean needsCompile(Map<JavaFileObject, Long> cachedModified,
+                                 Collection<? extends JavaFileObject> sources) {
         if (cachedModified.size() != sources.size()) {
             return true;
         }
@@ -117,17 +365,117 @@ public class JavaCompilerService implements CompilerProvider {
         return false;
     }
 
-    private synchronized void loadCompile(Collection<? extends JavaFileObject> sources) {
-        if (cachedCompile != null) {
-            if (!cachedCompile.closed) {
-                throw new RuntimeException("Compiler is still in-use!");
-            }
-            cachedCompile.borrow.close();
+    private synchronized void loadCompile(CachedCompile cached,
+                                          Collection<? extends JavaFileObject> sources) {
+        // readers of the previous compilation have finished at this point
+        cached.close();
+        compiler = cached.compiler;
+        mContainer.setWriteCancelService(compiler.getCancelService());
+        mRunningCompile = new RunningCompile(sources, compiler.getCancelService());
+        try {
+            cached.batch = doCompile(sources);
+        } finally {
+            mRunningCompile = null;
         }
-        cachedCompile = doCompile(sources);
-        cachedModified.clear();
+        cached.diagnostics = getDiagnostics();
+        mCompletedCompiles.incrementAndGet();
+        cached.modified.clear();
         for (JavaFileObject f : sources) {
-            cachedModified.put(f, f.getLastModified());
+            cached.modified.put(f, f.getLastModified());
+        }
+    }
+
+    private static Set<URI> getCacheKey(Collection<? extends JavaFileObject> sources) {
+        Set<URI> key = new HashSet<>();
+        for (JavaFileObject source : sources) {
+            key.add(source.toUri());
+        }
+        return key;
+    }
+
+    /**
+     * Drops the entry of a compilation that did not complete, the borrow of the aborted
+     * compilation has already been released by {@link CompileBatch}.
+     */
+    private void dropCompile(Set<URI> key, CachedCompile cached) {
+        cached.close();
+        cached.modified.clear();
+        mCompileCache.remove(key, cached);
+        if (mCurrentCompile == cached) {
+            mCurrentCompile = null;
+            cachedCompile = null;
+        }
+    }
+
+    private static boolean isCanceled(Throwable t) {
+        return t instanceof CancelAbort ||
+               t.getCause() instanceof CancelAbort ||
+               t instanceof ProcessCanceledException;
+    }
+
+    private void evictCompiles(int maxSize) {
+        Iterator<CachedCompile> iterator = mCompileCache.values().iterator();
+        while (mCompileCache.size() > maxSize && iterator.hasNext()) {
+            CachedCompile eldest = iterator.next();
+            if (eldest == mCurrentCompile) {
+                continue;
+            }
+            eldest.close();
+            iterator.remove();
+            mCacheEvictions.incrementAndGet();
+        }
+    }
+
+    private synchronized void onLowMemory() {
+        mContainer.initialize(() -> evictCompiles(1));
+        Log.w("JavaCompilerService", "Cached compilations cleared due to low memory");
+    }
+
+    /**
+     * @return the number of compile requests answered by an existing compilation
+     */
+    public long getCacheHitCount() {
+        return mCacheHits.get();
+    }
+
+    /**
+     * @return the number of compile requests that needed to run javac
+     */
+    public long getCacheMissCount() {
+        return mCacheMisses.get();
+    }
+
+    /**
+     * @return the number of compilations dropped from the cache
+     */
+    public long getCacheEvictionCount() {
+        return mCacheEvictions.get();
+    }
+
+    /**
+     * @return the number of compilations that ran to completion
+     */
+    public long getCompletedCompileCount() {
+        return mCompletedCompiles.get();
+    }
+
+    /**
+     * @return the number of compilations that were canceled before they completed
+     */
+    public long getCanceledCompileCount() {
+        return mCanceledCompiles.get();
+    }
+
+    /**
+     * Cancels the running compilation of the same sources if any of them has been modified
+     * since it started, its result would be thrown away by this request anyway.
+     */
+    private void cancelSupersededCompile(Collection<? extends JavaFileObject> sources) {
+        RunningCompile running = mRunningCompile;
+        if (running != null &&
+            running.key.equals(getCacheKey(sources)) &&
+            needsCompile(running.modified, sources)) {
+            running.cancelService.cancel();
         }
     }
 
@@ -135,9 +483,16 @@ public class JavaCompilerService implements CompilerProvider {
         invalidate(Collections.singletonList(new SourceFileObject(source)));
     }
 
-    public void invalidate(Collection<? extends JavaFileObject> sources) {
+    public synchronized void invalidate(Collection<? extends JavaFileObject> sources) {
+        for (CachedCompile cached : mCompileCache.values()) {
+            for (JavaFileObject source : sources) {
+                cached.modified.remove(source);
+            }
+        }
         for (JavaFileObject source : sources) {
-            cachedModified.remove(source);
+            if (source instanceof SourceFileObject) {
+                onSnapshotChanged(((SourceFileObject) source).mFile.toFile(), null, null);
+            }
         }
     }
 
@@ -146,7 +501,14 @@ public class JavaCompilerService implements CompilerProvider {
             throw new RuntimeException("empty sources");
         }
         CompileBatch firstAttempt = new CompileBatch(this, sources);
-        Set<Path> addFiles = firstAttempt.needsAdditionalSources();
+        Set<Path> addFiles;
+        try {
+            addFiles = firstAttempt.needsAdditionalSources();
+        } catch (RuntimeException | Error e) {
+            firstAttempt.close();
+            firstAttempt.borrow.close();
+            throw e;
+        }
         if (addFiles.isEmpty()) {
             return firstAttempt;
         }
@@ -169,23 +531,54 @@ public class JavaCompilerService implements CompilerProvider {
      * @return CompileBatch for this compilation
      */
     private CompilerContainer compileBatch(Collection<? extends JavaFileObject> sources) {
+        Set<URI> key = getCacheKey(sources);
+
+        // the current snapshot is still valid, readers can keep sharing it
+        CachedCompile current = mCurrentCompile;
+        if (mContainer.hasSnapshot() &&
+            current != null &&
+            current.isValid() &&
+            mCompileCache.get(key) == current &&
+            !needsCompile(current.modified, sources)) {
+            mCacheHits.incrementAndGet();
+            return mContainer;
+        }
         try {
             mContainer.initialize(() -> {
-                if (needsCompile(sources)) {
-                    loadCompile(sources);
-                }
-                if (cachedCompile.task == null || ((JavacTaskImpl) cachedCompile.task).getContext() == null) {
-                    System.out.println();
+                CachedCompile cached = mCompileCache.get(key);
+                if (cached != null && cached.isValid() && !needsCompile(cached.modified, sources)) {
+                    // reuse the attributed trees of a previous compilation
+                    mCacheHits.incrementAndGet();
+                } else {
+                    mCacheMisses.incrementAndGet();
+                    if (cached == null) {
+                        cached = new CachedCompile();
+                        mCompileCache.put(key, cached);
+                    }
+                    try {
+                        loadCompile(cached, sources);
+                    } catch (RuntimeException | Error e) {
+                        if (isCanceled(e)) {
+                            mCanceledCompiles.incrementAndGet();
+                        }
+                        dropCompile(key, cached);
+                        throw e;
+                    }
                 }
-                CompileTask task = new CompileTask(cachedCompile);
+
+                mCurrentCompile = cached;
+                compiler = cached.compiler;
+                cachedCompile = cached.batch;
+                evictCompiles(MAX_CACHED_COMPILES);
+
+                CompileTask task = new CompileTask(cached.batch, cached.diagnostics);
                 mContainer.setCompileTask(task);
             });
             return mContainer;
+        } catch (ProcessCanceledException e) {
+            throw e;
         } catch (Throwable t) {
-            if (t instanceof CancelAbort || t.getCause() instanceof CancelAbort) {
-                if (cachedCompile != null) {
-                    cachedCompile.borrow.close();
-                }
+            if (isCanceled(t)) {
                 throw new ProcessCanceledException();
             }
             throw t;
@@ -330,25 +723,23 @@ public class JavaCompilerService implements CompilerProvider {
         return "";
     }
 
-    private static final Cache<String, Boolean> cacheContainsWord = new Cache<>();
-
-    private boolean containsWord(Path file, String word) {
-        if (cacheContainsWord.needs(file, word)) {
-            cacheContainsWord.load(file, word, StringSearch.containsWord(file, word));
-        }
-        return cacheContainsWord.get(file, word);
-    }
-
-    private static final Cache<Void, List<String>> cacheContainsType = new Cache<>();
+    /**
+     * The cache below is not checked against the last modified time of the files,
+     * it is invalidated through the snapshot events of the file managers instead.
+     * See {@link #onSnapshotChanged(File, CharSequence, TextChange)}
+     */
+    private static final Cache<Void, List<String>> cacheContainsType =
+            new Cache<>(20_000, (key, types) -> types.size() + 1, false);
 
     private boolean containsType(Path file, String className) {
-        if (cacheContainsType.needs(file, null)) {
+        List<String> types = cacheContainsType.getIfPresent(file, null);
+        if (types == null) {
             CompilationUnitTree root = parse(file).root;
-            List<String> types = new ArrayList<>();
+            types = new ArrayList<>();
             new FindTypeDeclarations().scan(root, types);
             cacheContainsType.load(file, null, types);
         }
-        return cacheContainsType.get(file, null).contains(className);
+        return types.contains(className);
     }
 
 
@@ -374,20 +765,83 @@ public class JavaCompilerService implements CompilerProvider {
         return NOT_FOUND;
     }
 
+    @Override
+    public Path[] findTypeReferences(String className) {
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        return findWordReferences(simpleName);
+    }
+
+    @Override
+    public Path[] findMemberReferences(String className, String memberName) {
+        return findWordReferences(memberName);
+    }
+
+    /**
+     * @return the files of the current module and its dependencies that contain the word,
+     * answered from the word indexes without reading the files
+     */
+    private Path[] findWordReferences(String word) {
+        if (mCurrentModule == null) {
+            return new Path[0];
+        }
+        Set<Path> files = new HashSet<>(getWordIndex(mCurrentModule).getFiles(word));
+        for (Module dependency : mProject.getDependencies(mCurrentModule)) {
+            files.addAll(getWordIndex(dependency).getFiles(word));
+        }
+        return files.toArray(new Path[0]);
+    }
+
     private Path findPublicTypeDeclarationInModule(Module module,
                                                    String packageName,
                                                    String simpleName,
                                                    String className) {
+        Set<Path> candidates = getWordIndex(module).getFiles(simpleName);
+        if (candidates.isEmpty()) {
+            return NOT_FOUND;
+        }
         for (File file : SourceFileManager.list(module, packageName)) {
-            if (containsWord(file.toPath(), simpleName) && containsType(file.toPath(), className)) {
+            Path path = file.toPath();
+            if (candidates.contains(path) && containsType(path, className)) {
                 if (file.getName().endsWith(".java")) {
-                    return file.toPath();
+                    return path;
                 }
             }
         }
         return NOT_FOUND;
     }
 
+    /**
+     * Finds the file in the current module that declares the class in the given package,
+     * used for package private classes declared in files with a different name.
+     * <p>
+     * This is called while compiling, so the word index is not loaded here. Only the files
+     * of the package are read, the ones that are known not to contain the name are skipped.
+     */
+    public Path findPackagePrivateClass(String packageName, String className) {
+        if (mCurrentModule == null) {
+            return NOT_FOUND;
+        }
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        String qualifiedName = packageName.isEmpty()
+                ? simpleName
+                : packageName + "." + simpleName;
+
+        WordIndex index = getLoadedWordIndex(mCurrentModule);
+        for (File file : SourceFileManager.list(mCurrentModule, packageName)) {
+            if (!file.getName().endsWith(".java")) {
+                continue;
+            }
+            Path path = file.toPath();
+            if (index != null && index.contains(path) && !index.containsWord(path, simpleName)) {
+                continue;
+            }
+            if (containsType(path, qualifiedName)) {
+                return path;
+            }
+        }
+        return NOT_FOUND;
+    }
+
     private Path findPublicTypeDeclaration(String className) {
         JavaFileObject source;
         try {
@@ -421,24 +875,21 @@ public class JavaCompilerService implements CompilerProvider {
         return Optional.ofNullable(source);
     }
 
-    @Override
-    public Path[] findTypeReferences(String className) {
-        return null;
-    }
-
-    @Override
-    public Path[] findMemberReferences(String className, String memberName) {
-        return null;
-    }
+    /**
+     * The maximum number of parsed files kept, each one holds its own javac context
+     */
+    private static final int MAX_CACHED_PARSES = 16;
 
-    private final Cache<String, ParseTask> parseCache = new Cache<>();
+    private final Cache<String, ParseTask> parseCache = new Cache<>(MAX_CACHED_PARSES, false);
 
     private ParseTask cachedParse(Path file) {
-        if (parseCache.needs(file, file.toFile().getName())) {
+        ParseTask task = parseCache.getIfPresent(file, file.toFile().getName());
+        if (task == null) {
             Parser parser = Parser.parseFile(mProject, file);
-            parseCache.load(file, file.toFile().getName(), new ParseTask(parser.task, parser.root));
+            task = new ParseTask(parser.task, parser.root);
+            parseCache.load(file, file.toFile().getName(), task);
         }
-        return parseCache.get(file, file.toFile().getName());
+        return task;
     }
 
     private ParseTask cachedParse(JavaFileObject file) {
@@ -448,14 +899,15 @@ public class JavaCompilerService implements CompilerProvider {
                     file.toUri().toString().substring(4, file.toUri().toString().lastIndexOf("!"));
 
             Path parsedPath = new File(URI.create(path)).toPath();
-            if (parseCache.needs(parsedPath, file.getName())) {
+            ParseTask task = parseCache.getIfPresent(parsedPath, file.getName());
+            if (task == null) {
                 Parser parser = Parser.parseJavaFileObject(mProject, file);
-                parseCache
-                        .load(parsedPath, file.getName(), new ParseTask(parser.task, parser.root));
+                task = new ParseTask(parser.task, parser.root);
+                parseCache.load(parsedPath, file.getName(), task);
             } else {
                 Log.d("JavaCompilerService", "Using cached parse for " + file.getName());
             }
-            return parseCache.get(parsedPath, file.getName());
+            return task;
         } else if (file instanceof SourceFileObject) {
             return cachedParse(((SourceFileObject) file).mFile);
         }
@@ -517,8 +969,12 @@ public class JavaCompilerService implements CompilerProvider {
      * @return a CompileTask for this compilation
      */
     @Override
-    public synchronized CompilerContainer compile(Collection<? extends JavaFileObject> sources) {
-        return compileBatch(sources);
+    public CompilerContainer compile(Collection<? extends JavaFileObject> sources) {
+        // the running compilation holds the lock, cancel it first if this request supersedes it
+        cancelSupersededCompile(sources);
+        synchronized (this) {
+            return compileBatch(sources);
+        }
     }
 
     public synchronized void close() {
@@ -535,16 +991,18 @@ public class JavaCompilerService implements CompilerProvider {
     }
 
     public void destroy() {
+        removeSnapshotListeners();
+        saveWordIndexes();
+        parseCache.clear();
+        mContainer.cancel();
         mContainer.initialize(() -> {
             close();
-            if (cachedCompile != null) {
-                final ReusableCompiler.Borrow borrow = cachedCompile.borrow;
-                if (borrow != null) {
-                    borrow.close();
-                }
+            for (CachedCompile cached : mCompileCache.values()) {
+                cached.close();
             }
+            mCompileCache.clear();
+            mCurrentCompile = null;
             cachedCompile = null;
-            cachedModified.clear();
             compiler = new ReusableCompiler();
         });
     }
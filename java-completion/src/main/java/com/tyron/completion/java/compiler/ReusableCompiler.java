@@ -23,9 +23,13 @@ import com.sun.tools.javac.model.JavacElements;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.DefinedBy;
 import com.sun.tools.javac.util.Log;
+
+import androidx.annotation.Nullable;
+
 import com.tyron.common.logging.IdeLog;
 import com.tyron.completion.java.compiler.services.CancelService;
 import com.tyron.completion.java.compiler.services.NBAttr;
+import com.tyron.completion.java.compiler.services.NBCheck;
 import com.tyron.completion.java.compiler.services.NBClassFinder;
 import com.tyron.completion.java.compiler.services.NBEnter;
 import com.tyron.completion.java.compiler.services.NBJavaCompiler;
@@ -35,6 +39,8 @@ import com.tyron.completion.java.compiler.services.NBMemberEnter;
 import com.tyron.completion.java.compiler.services.NBParserFactory;
 import com.tyron.completion.java.compiler.services.NBResolve;
 import com.tyron.completion.java.compiler.services.NBTreeMaker;
+import com.tyron.completion.progress.ProgressIndicator;
+import com.tyron.completion.progress.ProgressManager;
 
 import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
@@ -86,13 +92,23 @@ public class ReusableCompiler {
 
     private final CancelServiceImpl cancelService = new CancelServiceImpl();
 
+    /**
+     * Cancels the compilation of the borrowed task. A compilation stops at the next check made
+     * by the {@code NB*} services once {@link #cancel()} has been called or once the
+     * {@link ProgressIndicator} of the thread that borrowed the task has been canceled.
+     */
     public static class CancelServiceImpl extends CancelService {
 
         private final AtomicBoolean canceled = new AtomicBoolean(false);
         private final AtomicBoolean running = new AtomicBoolean(false);
 
+        private volatile ProgressIndicator indicator;
+        private volatile long cancelRequestTime;
+
         public void cancel() {
-            canceled.set(true);
+            if (canceled.compareAndSet(false, true)) {
+                cancelRequestTime = System.nanoTime();
+            }
         }
 
         public boolean isRunning() {
@@ -103,14 +119,38 @@ public class ReusableCompiler {
             running.set(value);
         }
 
+        /**
+         * Called when a task is borrowed, clears the previous cancellation and binds this
+         * service to the indicator of the calling thread.
+         */
+        void start(@Nullable ProgressIndicator indicator) {
+            this.indicator = indicator;
+            canceled.set(false);
+            running.set(true);
+        }
+
+        void finish() {
+            indicator = null;
+            running.set(false);
+        }
+
         @Override
         public boolean isCanceled() {
-            return false;
+            if (canceled.get()) {
+                return true;
+            }
+            ProgressIndicator indicator = this.indicator;
+            return indicator != null && indicator.isCanceled();
         }
 
         @Override
         protected void onCancel() {
-            LOG.info("Compilation task cancelled.x");
+            if (canceled.get()) {
+                long elapsed = (System.nanoTime() - cancelRequestTime) / 1_000_000;
+                LOG.info("Compilation task cancelled " + elapsed + "ms after the request.");
+            } else {
+                LOG.info("Compilation task cancelled by its progress indicator.");
+            }
             running.set(false);
         }
     }
@@ -163,7 +203,7 @@ public class ReusableCompiler {
 			null, fileManager, diagnosticListener, opts, classes, compilationUnits, currentContext);
         task.addTaskListener(currentContext);
 
-        cancelService.setRunning(true);
+        cancelService.start(ProgressManager.getInstance().getProgressIndicator());
 
         return new Borrow(task, currentContext);
     }
@@ -193,6 +233,7 @@ public class ReusableCompiler {
             } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
                 throw new RuntimeException(e);
             } finally {
+                cancelService.finish();
                 checkedOut = false;
                 closed = true;
             }
@@ -218,6 +259,7 @@ public class ReusableCompiler {
             NBJavacTrees.preRegister(context);
             NBResolve.preRegister(context);
             NBEnter.preRegister(context);
+            NBCheck.preRegister(context);
             NBMemberEnter.preRegister(context, false);
             NBClassFinder.preRegister(context);
 
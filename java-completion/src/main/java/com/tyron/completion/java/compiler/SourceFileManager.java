@@ -22,14 +22,9 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class SourceFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
 
@@ -57,25 +52,30 @@ public class SourceFileManager extends ForwardingJavaFileManager<StandardJavaFil
 	@Override
 	public Iterable<JavaFileObject> list(JavaFileManager.Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
 		if (location == StandardLocation.SOURCE_PATH) {
-		    List<File> found = new ArrayList<>();
+		    List<JavaFileObject> found = new ArrayList<>();
             for (Module module : mProject.getModules()) {
-                found.addAll(list(module, packageName));
+                // the files are listed per module, no need to look up the module of each file
+                for (File file : list(module, packageName)) {
+                    found.add(new SourceFileObject(file.toPath(), (JavaModule) module));
+                }
             }
-            Stream<JavaFileObject> stream = found.stream()
-                    .map(this::asJavaFileObject);
-            return stream.collect(Collectors.toList());
+            return found;
 		}
 		return super.list(location, packageName, kinds, recurse);
 	}
 	
-	private JavaFileObject asJavaFileObject(File file) {
-		return new SourceFileObject(file.toPath(), (JavaModule) mProject.getModule(file));
-	}
-	
 	@Override
     public String inferBinaryName(Location location, JavaFileObject file) {
         if (location == StandardLocation.SOURCE_PATH) {
             SourceFileObject source = (SourceFileObject) file;
+            JavaModule module = source.getModule();
+            if (module != null) {
+                String className = module.getClassName(source.mFile.toFile());
+                if (className != null) {
+                    return className;
+                }
+            }
+            // not indexed by its module, read the package from the file
             String packageName = StringSearch.packageName(source.mFile.toFile());
             String className = removeExtension(source.mFile.getFileName().toString());
             if (!packageName.isEmpty()) className = packageName + "." + className;
@@ -135,28 +135,13 @@ public class SourceFileManager extends ForwardingJavaFileManager<StandardJavaFil
 	    fileManager.setLocation(location, path);
     }
 
+    /**
+     * @return the java files and injected classes of the module directly inside the package
+     */
     public static List<File> list(Module module, String packageName) {
 	    if (!(module instanceof JavaModule)) {
 	        return Collections.emptyList();
         }
-	    JavaModule javaModule = (JavaModule) module;
-
-	    List<File> list = new ArrayList<>();
-        Map<String, File> toSearch = new HashMap<>(javaModule.getJavaFiles());
-        toSearch.putAll(javaModule.getInjectedClasses());
-
-        for (String file : toSearch.keySet()) {
-            String name = file;
-            if (file.endsWith(".")) {
-                name = file.substring(0, file.length() - 1);
-            }
-            if (!name.startsWith(packageName)) {
-                continue;
-            }
-            if (name.substring(0, name.lastIndexOf(".")).equals(packageName) || name.equals(packageName)) {
-                list.add(toSearch.get(file));
-            }
-        }
-        return list;
+        return ((JavaModule) module).getJavaFiles(packageName);
     }
 }
@@ -62,6 +62,7 @@ public class NBAttr extends Attr {
 
     @Override
     public void visitVarDef(JCVariableDecl tree) {
+        cancelService.abortIfCanceled();
         //for erroneous "var", make sure the synthetic make.Error() has an invalid/synthetic position:
         tm.at(-1);
         super.visitVarDef(tree);
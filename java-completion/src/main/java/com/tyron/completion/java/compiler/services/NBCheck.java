@@ -1,9 +1,11 @@
 package com.tyron.completion.java.compiler.services;
 
 import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.comp.Attr;
 import com.sun.tools.javac.comp.Check;
 import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
 
 public class NBCheck extends Check {
 
@@ -11,8 +13,11 @@ public class NBCheck extends Check {
         context.put(checkKey, (Context.Factory<Check>) NBCheck::new);
     }
 
+    private final CancelService cancelService;
+
     protected NBCheck(Context context) {
         super(context);
+        cancelService = CancelService.instance(context);
     }
 
     @Override
@@ -21,4 +26,17 @@ public class NBCheck extends Check {
             super.clearLocalClassNameIndexes(c);
         }
     }
+
+    @Override
+    public Type checkType(DiagnosticPosition pos, Type found, Type req) {
+        // called for most attributed expressions, the finest grained point to stop at
+        cancelService.abortIfCanceled();
+        return super.checkType(pos, found, req);
+    }
+
+    @Override
+    public void checkCompatibleConcretes(DiagnosticPosition pos, Type site) {
+        cancelService.abortIfCanceled();
+        super.checkCompatibleConcretes(pos, site);
+    }
 }
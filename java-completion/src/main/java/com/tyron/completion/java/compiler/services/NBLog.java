@@ -2,19 +2,24 @@ package com.tyron.completion.java.compiler.services;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.tree.EndPosTable;
+import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.DiagnosticSource;
 import com.sun.tools.javac.util.JCDiagnostic;
 import com.sun.tools.javac.util.Log;
 import com.sun.tools.javac.util.Pair;
+import com.sun.tools.javac.util.Position;
 
 import java.io.PrintWriter;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import javax.tools.Diagnostic;
@@ -141,4 +146,106 @@ public class NBLog extends Log {
     public void removeDiagnostics(URI toUri) {
         diagnosticMap.removeAll(toUri);
     }
+
+    /**
+     * Removes the diagnostics and the recorded positions of the file that start between the
+     * given positions of the previous contents, the ones after the end are moved by the
+     * difference in length of the contents. Diagnostics without a position are kept.
+     */
+    public void removeDiagnostics(JavaFileObject file, int start, int end, int delta) {
+        URI uri = file.toUri();
+        // the moved diagnostics compute their lines from the new contents
+        DiagnosticSource source = getSource(file);
+        ListIterator<JCDiagnostic> iterator = diagnosticMap.get(uri).listIterator();
+        while (iterator.hasNext()) {
+            JCDiagnostic diagnostic = iterator.next();
+            long position = diagnostic.getStartPosition();
+            if (position < start) {
+                continue;
+            }
+            if (position < end) {
+                iterator.remove();
+            } else {
+                iterator.set(move(diagnostic, source, delta));
+            }
+        }
+
+        List<Pair<JavaFileObject, Integer>> moved = new ArrayList<>();
+        recorded.removeIf(pair -> {
+            if (pair.snd < start || !pair.fst.toUri().equals(uri)) {
+                return false;
+            }
+            if (pair.snd >= end) {
+                moved.add(new Pair<>(file, pair.snd + delta));
+            }
+            return true;
+        });
+        recorded.addAll(moved);
+    }
+
+    private JCDiagnostic move(JCDiagnostic diagnostic, DiagnosticSource source, int delta) {
+        // the code is <prefix>.<kind>.<key>, the factory adds the prefix and the kind back
+        String code = diagnostic.getCode();
+        int kindEnd = code.indexOf('.', code.indexOf('.') + 1);
+        String key = code.substring(kindEnd + 1);
+
+        Set<JCDiagnostic.DiagnosticFlag> flags = EnumSet.noneOf(JCDiagnostic.DiagnosticFlag.class);
+        for (JCDiagnostic.DiagnosticFlag flag : JCDiagnostic.DiagnosticFlag.values()) {
+            if (diagnostic.isFlagSet(flag)) {
+                flags.add(flag);
+            }
+        }
+        JCDiagnostic.DiagnosticPosition position = new MovedPosition(
+                movePosition(diagnostic.getStartPosition(), delta),
+                movePosition(diagnostic.getPosition(), delta),
+                movePosition(diagnostic.getEndPosition(), delta));
+        JCDiagnostic moved = diags.create(diagnostic.getType(), diagnostic.getLintCategory(),
+                flags, source, position, key, diagnostic.getArgs());
+        if (diagnostic instanceof JCDiagnostic.MultilineDiagnostic) {
+            return new JCDiagnostic.MultilineDiagnostic(moved,
+                    ((JCDiagnostic.MultilineDiagnostic) diagnostic).getSubdiagnostics());
+        }
+        return moved;
+    }
+
+    private static int movePosition(long position, int delta) {
+        return position == Position.NOPOS ? Position.NOPOS : (int) position + delta;
+    }
+
+    /**
+     * The position of a diagnostic moved by a partial reparse. It does not keep the tree of
+     * the original position since the reparse moves the tree as well.
+     */
+    private static class MovedPosition implements JCDiagnostic.DiagnosticPosition {
+
+        private final int start;
+        private final int preferred;
+        private final int end;
+
+        MovedPosition(int start, int preferred, int end) {
+            this.start = start;
+            this.preferred = preferred;
+            this.end = end;
+        }
+
+        @Override
+        public JCTree getTree() {
+            return null;
+        }
+
+        @Override
+        public int getStartPosition() {
+            return start;
+        }
+
+        @Override
+        public int getPreferredPosition() {
+            return preferred;
+        }
+
+        @Override
+        public int getEndPosition(EndPosTable endPosTable) {
+            return end;
+        }
+    }
 }
\ No newline at end of file
@@ -1,22 +1,30 @@
 package com.tyron.completion.java.parse;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.Scope;
+import com.sun.source.util.SourcePositions;
 import com.sun.source.util.Trees;
 import com.sun.tools.javac.api.JavacTaskImpl;
 import com.sun.tools.javac.api.JavacTrees;
 import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.comp.MemberEnter;
 import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Pair;
+import com.sun.tools.javac.util.Position;
 import com.tyron.builder.model.CodeAssistAndroidLibrary;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
 import com.tyron.builder.project.impl.AndroidModuleImpl;
+import com.tyron.builder.project.listener.TextChange;
 import com.tyron.common.util.DebouncerStore;
 import com.tyron.completion.java.compiler.services.NBEnter;
 import com.tyron.completion.java.compiler.services.NBLog;
@@ -27,24 +35,31 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
+import javax.tools.ForwardingJavaFileObject;
 import javax.tools.JavaFileObject;
 
 public class CompilationInfo {
 
+    private static final Logger LOGGER = Logger.getLogger("CompilationInfo");
+
     public static final Key<CompilationInfo> COMPILATION_INFO_KEY = Key.create("compilationInfo");
 
     public static CompilationInfo get(Module module) {
@@ -83,6 +98,20 @@ public class CompilationInfo {
     public final CompilationInfoImpl impl;
     private final Map<URI, JCCompilationUnit> compiledMap = new HashMap<>();
 
+    /**
+     * The contents each compilation unit in {@link #compiledMap} was parsed from, used to find
+     * what changed on the next update
+     */
+    private final Map<URI, String> contentsMap = new HashMap<>();
+
+    /**
+     * The changes reported by the file managers since each file was last updated, merged into
+     * a single change. Used to find the changed method instead of comparing the contents
+     * character by character.
+     */
+    private final Map<URI, TextChange> pendingChanges = new HashMap<>();
+    private final PartialReparser partialReparser = new DefaultPartialReparser();
+
     private final DebouncerStore<String> debouncerStore = DebouncerStore.DEFAULT;
 
     private final Object parseLock = new Object();
@@ -93,6 +122,24 @@ public class CompilationInfo {
         this.impl = impl;
     }
 
+    /**
+     * Records a change of an opened file, the next update of the file uses it to find the
+     * changed method if the change turns the parsed contents into the new contents.
+     *
+     * @param contents the contents after the change
+     * @param change   the change, or null if it is unknown
+     */
+    public void onSnapshotChanged(URI uri, CharSequence contents, @Nullable TextChange change) {
+        synchronized (pendingChanges) {
+            TextChange pending = pendingChanges.get(uri);
+            if (change == null) {
+                pendingChanges.remove(uri);
+            } else {
+                pendingChanges.put(uri, pending == null ? change : pending.merge(change, contents));
+            }
+        }
+    }
+
     public JCCompilationUnit updateImmediately(JavaFileObject fileObject) {
         CompletableFuture<JCCompilationUnit> future = new CompletableFuture<>();
         update(fileObject, 0, future::complete);
@@ -121,21 +168,42 @@ public class CompilationInfo {
                 try {
                     JavacTaskImpl javacTask = impl.getJavacTask();
 
+                    // read the contents once, they are needed both to find the changes and
+                    // to parse the file
+                    String contents = fileObject.getCharContent(true).toString();
+                    JavaFileObject source = new ForwardingJavaFileObject<JavaFileObject>(fileObject) {
+                        @Override
+                        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                            return contents;
+                        }
+                    };
+
                     NBLog log = NBLog.instance(javacTask.getContext());
-                    log.useSource(fileObject);
+                    log.useSource(source);
+
+                    URI uri = fileObject.toUri();
+                    TextChange change;
+                    synchronized (pendingChanges) {
+                        change = pendingChanges.remove(uri);
+                    }
+                    JCCompilationUnit previous = compiledMap.get(uri);
+                    if (previous != null && reparseMethod(javacTask, previous,
+                            contentsMap.get(uri), source, contents, change)) {
+                        contentsMap.put(uri, contents);
+                        treeConsumer.accept(previous);
+                        return;
+                    }
 
                     Set<Pair<JavaFileObject, Integer>> toRemove = new HashSet<>();
                     for (Pair<JavaFileObject, Integer> pair : log.getRecorded()) {
-                        if (pair.fst.toUri().equals(fileObject.toUri())) {
+                        if (pair.fst.toUri().equals(uri)) {
                             toRemove.add(pair);
                         }
                     }
                     log.getRecorded().removeAll(toRemove);
-                    log.removeDiagnostics(fileObject.toUri());
+                    log.removeDiagnostics(uri);
                     log.removeFileObject(fileObject);
 
-
-                    JCCompilationUnit previous = compiledMap.get(fileObject.toUri());
                     if (previous != null) {
                         NBEnter enter = (NBEnter) NBEnter.instance(javacTask.getContext());
                         enter.unenter(previous, previous);
@@ -146,7 +214,7 @@ public class CompilationInfo {
                     JCCompilationUnit unit;
                     try {
                         JavaCompiler compiler = JavaCompiler.instance(javacTask.getContext());
-                        unit = compiler.parse(fileObject);
+                        unit = compiler.parse(source);
                     } catch (Exception e) {
                         throw new RuntimeException(e);
                     }
@@ -160,7 +228,8 @@ public class CompilationInfo {
                     Iterable<? extends Element> analyze = javacTask.analyze(enter);
 
                     JCCompilationUnit newUnit = unit;
-                    compiledMap.put(fileObject.toUri(), newUnit);
+                    compiledMap.put(uri, newUnit);
+                    contentsMap.put(uri, contents);
 
                     treeConsumer.accept(unit);
                 } catch (Throwable t) {
@@ -171,6 +240,278 @@ public class CompilationInfo {
         });
     }
 
+    /**
+     * Parses the given files, then enters and attributes them together in a single round
+     * instead of one round per file like {@link #update(JavaFileObject)}. Used to index a
+     * module, the files are usually pruned by {@link PrunedSources} first.
+     *
+     * <p>If the files cannot be attributed together, they are entered and attributed one by one
+     * so a single broken file does not drop the others.</p>
+     *
+     * @return the compilation units of the files that were parsed, files that are already
+     * entered with the same contents are skipped
+     */
+    public Map<URI, JCCompilationUnit> updateAll(Collection<? extends JavaFileObject> fileObjects) {
+        synchronized (parseLock) {
+            JavacTaskImpl javacTask = impl.getJavacTask();
+            NBLog log = NBLog.instance(javacTask.getContext());
+            NBEnter enter = (NBEnter) NBEnter.instance(javacTask.getContext());
+            JavaCompiler compiler = JavaCompiler.instance(javacTask.getContext());
+
+            long start = System.currentTimeMillis();
+            Map<URI, JCCompilationUnit> units = new LinkedHashMap<>();
+            Map<URI, String> contents = new HashMap<>();
+            Map<URI, JavaFileObject> sources = new LinkedHashMap<>();
+            Map<URI, JCCompilationUnit> previousUnits = new HashMap<>();
+            try {
+                for (JavaFileObject fileObject : fileObjects) {
+                    URI uri = fileObject.toUri();
+                    String content = fileObject.getCharContent(true).toString();
+                    if (compiledMap.containsKey(uri) && content.equals(contentsMap.get(uri))) {
+                        // already entered, such as when the project is opened again
+                        continue;
+                    }
+                    JavaFileObject source = new ForwardingJavaFileObject<JavaFileObject>(fileObject) {
+                        @Override
+                        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                            return content;
+                        }
+                    };
+
+                    log.getRecorded().removeIf(pair -> pair.fst.toUri().equals(uri));
+                    log.removeDiagnostics(uri);
+                    log.removeFileObject(fileObject);
+
+                    JCCompilationUnit previous = compiledMap.get(uri);
+                    if (previous != null) {
+                        enter.unenter(previous, previous);
+                        enter.removeCompilationUnit(fileObject);
+                        previousUnits.put(uri, previous);
+                    }
+
+                    sources.put(uri, source);
+                    contents.put(uri, content);
+                    units.put(uri, compiler.parse(source));
+                }
+                long parsed = System.currentTimeMillis();
+
+                Iterable<? extends Element> entered = javacTask.enter(units.values());
+                for (Map.Entry<URI, JCCompilationUnit> entry : previousUnits.entrySet()) {
+                    units.get(entry.getKey()).packge = entry.getValue().packge;
+                }
+                long enterEnd = System.currentTimeMillis();
+
+                javacTask.analyze(entered);
+                long analyzed = System.currentTimeMillis();
+
+                compiledMap.putAll(units);
+                contentsMap.putAll(contents);
+
+                LOGGER.info("Indexed " + units.size() + " files, parse: " + (parsed - start) +
+                            "ms, enter: " + (enterEnd - parsed) + "ms, analyze: " +
+                            (analyzed - enterEnd) + "ms");
+                return units;
+            } catch (Throwable t) {
+                LOGGER.log(Level.WARNING, "Failed to index files together, indexing them one " +
+                                          "by one", t);
+                return updateEach(javacTask, sources, contents, units, previousUnits);
+            }
+        }
+    }
+
+    /**
+     * Enters and attributes the files of a failed {@link #updateAll(Collection)} round one by
+     * one. The units of the failed round are unentered first, the previous units of the files
+     * have already been unentered by the round.
+     */
+    private Map<URI, JCCompilationUnit> updateEach(JavacTaskImpl javacTask,
+                                                   Map<URI, JavaFileObject> sources,
+                                                   Map<URI, String> contents,
+                                                   Map<URI, JCCompilationUnit> failedUnits,
+                                                   Map<URI, JCCompilationUnit> previousUnits) {
+        NBEnter enter = (NBEnter) NBEnter.instance(javacTask.getContext());
+        JavaCompiler compiler = JavaCompiler.instance(javacTask.getContext());
+        Map<URI, JCCompilationUnit> units = new LinkedHashMap<>();
+        for (Map.Entry<URI, JavaFileObject> entry : sources.entrySet()) {
+            URI uri = entry.getKey();
+            JavaFileObject source = entry.getValue();
+            compiledMap.remove(uri);
+            contentsMap.remove(uri);
+            try {
+                JCCompilationUnit failed = failedUnits.get(uri);
+                if (failed != null) {
+                    enter.unenter(failed, failed);
+                }
+                enter.removeCompilationUnit(source);
+
+                JCCompilationUnit unit = compiler.parse(source);
+                Iterable<? extends Element> entered = javacTask.enter(List.of(unit));
+                JCCompilationUnit previous = previousUnits.get(uri);
+                if (previous != null) {
+                    unit.packge = previous.packge;
+                }
+                javacTask.analyze(entered);
+
+                compiledMap.put(uri, unit);
+                contentsMap.put(uri, contents.get(uri));
+                units.put(uri, unit);
+            } catch (Throwable t) {
+                LOGGER.log(Level.WARNING, "Failed to index " + uri, t);
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Runs the consumer with the context of the compiler while no file is being parsed, used
+     * to modify symbols of the context directly such as in {@link ResourceClassSymbols}.
+     */
+    public void updateSymbols(Consumer<Context> consumer) {
+        synchronized (parseLock) {
+            consumer.accept(impl.getJavacTask().getContext());
+        }
+    }
+
+    /**
+     * Reparses and attributes only the body of the method that contains all the changes
+     * between the previous contents and the new contents, the positions of the trees after
+     * the method are shifted by {@link TranslatePositionsVisitor}.
+     *
+     * @param change the change reported for the file, it is only used if it turns the
+     *               previous contents into the new contents
+     *
+     * @return true if the previous compilation unit has been updated to the new contents,
+     * false if the file needs to be reparsed as a whole
+     */
+    private boolean reparseMethod(JavacTaskImpl javacTask,
+                                  JCCompilationUnit previous,
+                                  String previousContents,
+                                  JavaFileObject source,
+                                  String contents,
+                                  @Nullable TextChange change) {
+        if (previousContents == null) {
+            return false;
+        }
+        if (previousContents.equals(contents)) {
+            previous.sourcefile = source;
+            return true;
+        }
+
+        SourcePositions positions = Trees.instance(javacTask).getSourcePositions();
+        JCMethodDecl method;
+        if (change != null && isChangeOf(previousContents, contents, change)) {
+            method = findChangedMethod(previous, positions, previous.defs, change.getStart(),
+                    change.getOldEnd());
+        } else {
+            method = findChangedMethod(previous, positions, previousContents, contents);
+        }
+        if (method == null) {
+            return false;
+        }
+
+        int previousLength = previousContents.length();
+        int length = contents.length();
+        int bodyStart = (int) positions.getStartPosition(previous, method.body);
+        int bodyEnd = (int) positions.getEndPosition(previous, method.body);
+        String newBody = contents.substring(bodyStart, bodyEnd + length - previousLength);
+
+        // the diagnostics inside the body are reported again and the ones after it are
+        // moved, if the reparse fails the whole file is reparsed anyway
+        NBLog log = NBLog.instance(javacTask.getContext());
+        log.removeDiagnostics(source, bodyStart, bodyEnd, length - previousLength);
+        try {
+            if (!partialReparser.reparseMethod(impl, contents, previous, method, newBody)) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        } finally {
+            log.endPartialReparse(source);
+        }
+
+        previous.sourcefile = source;
+        previous.lineMap = Position.makeLineMap(contents.toCharArray(), length, true);
+        return true;
+    }
+
+    /**
+     * @return whether the contents are the previous contents with only the region of the
+     * change replaced. The replaced text itself is not compared, the region may be larger
+     * than the actual difference.
+     */
+    static boolean isChangeOf(String previousContents, String contents, TextChange change) {
+        int start = change.getStart();
+        int oldEnd = change.getOldEnd();
+        int newEnd = oldEnd + contents.length() - previousContents.length();
+        return oldEnd <= previousContents.length() &&
+               newEnd == change.getNewEnd() &&
+               contents.regionMatches(0, previousContents, 0, start) &&
+               contents.regionMatches(newEnd, previousContents, oldEnd,
+                       previousContents.length() - oldEnd);
+    }
+
+    /**
+     * Finds the only method whose body has changed between the previous contents and the new
+     * contents. The changed region is the previous contents without their common prefix and
+     * suffix with the new contents.
+     *
+     * @return the method declaration in the given unit of the previous contents, or null if
+     * the changes are not inside a single method body
+     */
+    static JCMethodDecl findChangedMethod(JCCompilationUnit previous,
+                                          SourcePositions positions,
+                                          String previousContents,
+                                          String contents) {
+        int previousLength = previousContents.length();
+        int length = contents.length();
+        int minLength = Math.min(previousLength, length);
+        int prefix = 0;
+        while (prefix < minLength && previousContents.charAt(prefix) == contents.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < minLength - prefix &&
+               previousContents.charAt(previousLength - 1 - suffix) ==
+               contents.charAt(length - 1 - suffix)) {
+            suffix++;
+        }
+        return findChangedMethod(previous, positions, previous.defs, prefix,
+                previousLength - suffix);
+    }
+
+    /**
+     * Finds the method whose body contains the changed region of the previous contents without
+     * including its braces. Only methods of classes are considered, a change inside a field
+     * initializer or a declaration needs a full reparse.
+     */
+    private static JCMethodDecl findChangedMethod(JCCompilationUnit unit,
+                                                  SourcePositions positions,
+                                                  List<? extends JCTree> defs,
+                                                  int changeStart,
+                                                  int changeEnd) {
+        for (JCTree def : defs) {
+            long start = positions.getStartPosition(unit, def);
+            long end = positions.getEndPosition(unit, def);
+            if (start > changeStart || end < changeEnd) {
+                continue;
+            }
+            if (def instanceof JCClassDecl) {
+                return findChangedMethod(unit, positions, ((JCClassDecl) def).defs, changeStart,
+                        changeEnd);
+            }
+            if (def instanceof JCMethodDecl && ((JCMethodDecl) def).body != null) {
+                JCTree.JCBlock body = ((JCMethodDecl) def).body;
+                long bodyStart = positions.getStartPosition(unit, body);
+                long bodyEnd = positions.getEndPosition(unit, body);
+                if (bodyStart >= 0 && bodyStart < changeStart && changeEnd < bodyEnd) {
+                    return (JCMethodDecl) def;
+                }
+            }
+            return null;
+        }
+        return null;
+    }
+
     public JCCompilationUnit getCompilationUnit(JavaFileObject fileObject) {
         return getCompilationUnit(fileObject.toUri());
     }
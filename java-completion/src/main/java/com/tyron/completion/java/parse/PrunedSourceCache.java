@@ -0,0 +1,154 @@
+package com.tyron.completion.java.parse;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tyron.completion.java.provider.PruneMethodBodies;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * The pruned sources of a module, stored in a directory by the hash of the path and the
+ * contents of each file.
+ * <p>
+ * Each entry starts with a header line holding its key and the checksum of the pruned source,
+ * an entry that was cut short or changed after it was written is not used.
+ */
+class PrunedSourceCache {
+
+    /**
+     * Change this when the output of {@link PruneMethodBodies} or the format of the entries
+     * changes so the cached sources are not used
+     */
+    private static final int CACHE_VERSION = 2;
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    /** A temporary file older than this was left by a run that did not finish. */
+    private static final long STALE_TEMP_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final File mDirectory;
+
+    PrunedSourceCache(@NonNull File directory) {
+        mDirectory = directory;
+    }
+
+    /**
+     * @param length the length of the contents of the file, pruning keeps the length
+     * @return the pruned source stored for the key, null if there is none or it is not valid
+     */
+    @Nullable
+    String read(@NonNull String key, int length) {
+        File file = new File(mDirectory, key);
+        if (!file.isFile()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            return null;
+        }
+
+        int headerEnd = 0;
+        while (headerEnd < bytes.length && bytes[headerEnd] != '\n') {
+            headerEnd++;
+        }
+        if (headerEnd == bytes.length) {
+            return null;
+        }
+        byte[] pruned = Arrays.copyOfRange(bytes, headerEnd + 1, bytes.length);
+        String header = new String(bytes, 0, headerEnd, StandardCharsets.UTF_8);
+        if (!header.equals(createHeader(key, pruned))) {
+            return null;
+        }
+        String contents = new String(pruned, StandardCharsets.UTF_8);
+        return contents.length() == length ? contents : null;
+    }
+
+    /**
+     * Stores the pruned source, it replaces the previous entry at once so a run reading the
+     * cache at the same time either sees the previous entry or this one
+     */
+    void write(@NonNull String key, @NonNull String pruned) {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            return;
+        }
+        byte[] bytes = pruned.getBytes(StandardCharsets.UTF_8);
+        byte[] header = (createHeader(key, bytes) + "\n").getBytes(StandardCharsets.UTF_8);
+        Path tempFile = null;
+        try {
+            // unique so runs writing the same entry do not write to the same file
+            tempFile = Files.createTempFile(mDirectory.toPath(), key, TEMP_SUFFIX);
+            byte[] entry = Arrays.copyOf(header, header.length + bytes.length);
+            System.arraycopy(bytes, 0, entry, header.length, bytes.length);
+            Files.write(tempFile, entry);
+            Files.move(tempFile, new File(mDirectory, key).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // the file will be pruned again next time
+            if (tempFile != null) {
+                tempFile.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * Deletes the entries that are not in the given keys. The temporary files are only
+     * deleted once they are stale since another run may still be writing them.
+     */
+    void deleteUnused(@NonNull Set<String> used) {
+        File[] cached = mDirectory.listFiles();
+        if (cached == null) {
+            return;
+        }
+        long staleTime = System.currentTimeMillis() - STALE_TEMP_MS;
+        for (File file : cached) {
+            String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                if (file.lastModified() < staleTime) {
+                    file.delete();
+                }
+            } else if (!used.contains(name)) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * The key contains the path of the file since the file name is part of the source, such
+     * as for public classes
+     */
+    @NonNull
+    static String getKey(@NonNull File file, @NonNull String contents) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((CACHE_VERSION + ":" + file.getAbsolutePath() + ":")
+                    .getBytes(StandardCharsets.UTF_8));
+            digest.update(contents.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String createHeader(String key, byte[] pruned) {
+        CRC32 crc = new CRC32();
+        crc.update(pruned, 0, pruned.length);
+        return key + " " + pruned.length + " " + Long.toHexString(crc.getValue());
+    }
+}
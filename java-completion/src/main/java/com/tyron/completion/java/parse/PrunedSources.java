@@ -0,0 +1,186 @@
+package com.tyron.completion.java.parse;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.tools.javac.api.JavacTool;
+import com.tyron.builder.model.SourceFileObject;
+import com.tyron.builder.project.api.JavaModule;
+import com.tyron.completion.java.compiler.SourceFileManager;
+import com.tyron.completion.java.provider.PruneMethodBodies;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.tools.JavaFileObject;
+
+/**
+ * Creates the sources used to index a module, the statements inside the method bodies
+ * are removed since only the declarations are needed.
+ * <p>
+ * The files are split into one chunk per processor, each chunk is parsed by its own javac
+ * task so the chunks can be parsed at the same time.
+ * <p>
+ * The pruned sources are cached in the build directory of the module by the hash of the
+ * contents of the file, see {@link PrunedSourceCache}. Only the files that have changed since
+ * they were last indexed are parsed again.
+ */
+public class PrunedSources {
+
+    private static final Logger LOGGER = Logger.getLogger("PrunedSources");
+
+    private static final String CACHE_DIRECTORY = "injected/pruned";
+
+    private static final ForkJoinPool sPrunePool =
+            new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private static class Source {
+        final File file;
+        final String contents;
+        final String key;
+        JavaFileObject pruned;
+
+        Source(File file, String contents, String key) {
+            this.file = file;
+            this.contents = contents;
+            this.key = key;
+        }
+    }
+
+    /**
+     * @return the pruned sources in the same order as the given files, files that could not
+     * be read are skipped
+     */
+    @NonNull
+    public static List<JavaFileObject> create(@NonNull JavaModule module,
+                                              @NonNull Collection<File> files) {
+        if (files.isEmpty()) {
+            return Collections.emptyList();
+        }
+        PrunedSourceCache cache =
+                new PrunedSourceCache(new File(module.getBuildDirectory(), CACHE_DIRECTORY));
+
+        // the files are read from the module so the contents of the opened files are used
+        List<Source> sources = sPrunePool.submit(() -> files.parallelStream()
+                .map(file -> readSource(module, cache, file))
+                .collect(Collectors.toList())).join();
+
+        List<Source> dirty = new ArrayList<>();
+        for (Source source : sources) {
+            if (source != null && source.pruned == null) {
+                dirty.add(source);
+            }
+        }
+        if (!dirty.isEmpty()) {
+            prune(module, dirty);
+            sPrunePool.submit(() -> dirty.parallelStream()
+                    .forEach(source -> writeCache(cache, source))).join();
+        }
+        LOGGER.info("Pruned " + dirty.size() + " of " + files.size() + " files of " +
+                    module.getName() + ", the others were cached");
+
+        List<JavaFileObject> result = new ArrayList<>(sources.size());
+        Set<String> used = new HashSet<>();
+        for (Source source : sources) {
+            if (source != null && source.pruned != null) {
+                result.add(source.pruned);
+                used.add(source.key);
+            }
+        }
+        cache.deleteUnused(used);
+        return result;
+    }
+
+    private static void prune(JavaModule module, List<Source> sources) {
+        int chunkCount = Math.min(sources.size(), sPrunePool.getParallelism());
+        int chunkSize = (sources.size() + chunkCount - 1) / chunkCount;
+
+        sPrunePool.submit(() -> IntStream.range(0, chunkCount).parallel()
+                .mapToObj(i -> sources.subList(i * chunkSize,
+                        Math.min(sources.size(), (i + 1) * chunkSize)))
+                .forEach(chunk -> pruneChunk(module, chunk))).join();
+    }
+
+    private static void pruneChunk(JavaModule module, List<Source> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<URI, Source> sources = new HashMap<>();
+        List<JavaFileObject> fileObjects = new ArrayList<>(chunk.size());
+        for (Source source : chunk) {
+            SourceFileObject fileObject = new SourceFileObject(source.file.toPath(),
+                    source.contents, Instant.now());
+            sources.put(fileObject.toUri(), source);
+            fileObjects.add(fileObject);
+        }
+
+        SourceFileManager fileManager = new SourceFileManager(module.getProject());
+        JavacTask task = JavacTool.create().getTask(null, fileManager, d -> {},
+                Collections.emptyList(), Collections.emptyList(), fileObjects);
+        try {
+            for (CompilationUnitTree root : task.parse()) {
+                Source source = sources.get(root.getSourceFile().toUri());
+                String contents = new PruneMethodBodies(task).scan(root, 0L).toString();
+                source.pruned = createPruned(source.file, contents);
+            }
+        } catch (IOException | RuntimeException e) {
+            // fall back to pruning the files one at a time so one file that cannot be parsed
+            // does not drop the whole chunk
+            if (chunk.size() == 1) {
+                return;
+            }
+            for (Source source : chunk) {
+                source.pruned = null;
+                pruneChunk(module, Collections.singletonList(source));
+            }
+        }
+    }
+
+    @Nullable
+    private static Source readSource(JavaModule module, PrunedSourceCache cache, File file) {
+        CharSequence content = new SourceFileObject(file.toPath(), module).getCharContent(true);
+        if (content == null) {
+            return null;
+        }
+        String contents = content.toString();
+        Source source = new Source(file, contents, PrunedSourceCache.getKey(file, contents));
+
+        String pruned = cache.read(source.key, contents.length());
+        if (pruned != null) {
+            source.pruned = createPruned(file, pruned);
+        }
+        return source;
+    }
+
+    private static JavaFileObject createPruned(File file, String contents) {
+        // not given the module, the module would return the contents of the opened file
+        return new SourceFileObject(file.toPath(), contents, Instant.now());
+    }
+
+    private static void writeCache(PrunedSourceCache cache, Source source) {
+        if (source.pruned == null) {
+            return;
+        }
+        try {
+            cache.write(source.key, source.pruned.getCharContent(true).toString());
+        } catch (IOException e) {
+            // the file will be pruned again next time
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.tyron.completion.java.parse;
+
+import androidx.annotation.NonNull;
+
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.Scope.WriteableScope;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.ModuleSymbol;
+import com.sun.tools.javac.code.Symbol.PackageSymbol;
+import com.sun.tools.javac.code.Symbol.VarSymbol;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.Type.ArrayType;
+import com.sun.tools.javac.code.Type.ClassType;
+import com.sun.tools.javac.comp.Modules;
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Declares the R class of a module directly as symbols of a javac context, so changing a
+ * resource only adds or removes the fields of the changed nested class instead of generating
+ * and attributing the source of the whole R class.
+ *
+ * The classes are entered as completed symbols without a source or class file, they must be
+ * updated while no other thread is using the context.
+ */
+public class ResourceClassSymbols {
+
+    private static final String R_CLASS = "R";
+
+    /**
+     * The classes declared by this class, used to tell them apart from an R class that has been
+     * loaded from the class path or entered from source.
+     */
+    private static final Context.Key<Set<ClassSymbol>> DECLARED_KEY = new Context.Key<>();
+
+    public static class Field {
+
+        private final String mName;
+        private final boolean mArray;
+        private final int mValue;
+
+        /**
+         * @param array whether the field is an {@code int[]}, otherwise the field is an
+         *              {@code int} constant with the given value
+         */
+        public Field(@NonNull String name, boolean array, int value) {
+            mName = name;
+            mArray = array;
+            mValue = value;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public boolean isArray() {
+            return mArray;
+        }
+
+        public int getValue() {
+            return mValue;
+        }
+    }
+
+    /**
+     * Adds and removes fields of a nested class of the R class of the package, the classes
+     * are created if they do not exist yet. A nested class without fields is removed.
+     *
+     * @param className The simple name of the nested class, such as {@code string}
+     * @param added     The fields to add, replacing existing fields with the same name
+     * @param removed   The names of the fields to remove
+     */
+    public static void update(@NonNull Context context,
+                              @NonNull String packageName,
+                              @NonNull String className,
+                              @NonNull Collection<Field> added,
+                              @NonNull Collection<String> removed) {
+        Symtab syms = Symtab.instance(context);
+        Names names = Names.instance(context);
+        Set<ClassSymbol> declared = getDeclared(context);
+
+        ClassSymbol rClass = getOrCreateRClass(context, syms, names, declared, packageName);
+        Name name = names.fromString(className);
+        ClassSymbol nested = null;
+        for (Symbol symbol : rClass.members_field.getSymbolsByName(name)) {
+            if (symbol instanceof ClassSymbol) {
+                nested = (ClassSymbol) symbol;
+            }
+        }
+        if (nested == null) {
+            if (added.isEmpty()) {
+                return;
+            }
+            nested = syms.enterClass(rClass.packge().modle, name, rClass);
+            declare(syms, nested, Flags.PUBLIC | Flags.STATIC | Flags.FINAL);
+            declared.add(nested);
+            rClass.members_field.enter(nested);
+        }
+
+        WriteableScope members = nested.members_field;
+        for (String fieldName : removed) {
+            removeField(members, names.fromString(fieldName));
+        }
+        for (Field field : added) {
+            Name fieldName = names.fromString(field.getName());
+            removeField(members, fieldName);
+
+            Type type;
+            if (field.isArray()) {
+                type = new ArrayType(syms.intType, syms.arrayClass);
+            } else {
+                type = syms.intType.constType(field.getValue());
+            }
+            VarSymbol symbol = new VarSymbol(Flags.PUBLIC | Flags.STATIC | Flags.FINAL,
+                    fieldName, type, nested);
+            if (!field.isArray()) {
+                symbol.setData(field.getValue());
+            }
+            members.enter(symbol);
+        }
+
+        if (!members.getSymbols().iterator().hasNext()) {
+            rClass.members_field.remove(nested);
+            declared.remove(nested);
+        }
+    }
+
+    /**
+     * @return whether the R class of the package has been declared by this class in the context
+     */
+    public static boolean isDeclared(@NonNull Context context, @NonNull String packageName) {
+        Set<ClassSymbol> declared = context.get(DECLARED_KEY);
+        if (declared == null) {
+            return false;
+        }
+        Names names = Names.instance(context);
+        ModuleSymbol module = getModule(context);
+        ClassSymbol rClass = Symtab.instance(context).getClass(module,
+                names.fromString(getFlatName(packageName)));
+        return rClass != null && declared.contains(rClass);
+    }
+
+    private static void removeField(WriteableScope members, Name name) {
+        for (Symbol symbol : members.getSymbolsByName(name)) {
+            if (symbol instanceof VarSymbol) {
+                members.remove(symbol);
+            }
+        }
+    }
+
+    private static ClassSymbol getOrCreateRClass(Context context,
+                                                 Symtab syms,
+                                                 Names names,
+                                                 Set<ClassSymbol> declared,
+                                                 String packageName) {
+        ModuleSymbol module = getModule(context);
+        Name flatName = names.fromString(getFlatName(packageName));
+        ClassSymbol rClass = syms.getClass(module, flatName);
+        if (rClass != null && declared.contains(rClass)) {
+            return rClass;
+        }
+
+        // replaces the members of an existing R class, just like the generated R.java did
+        rClass = syms.enterClass(module, flatName);
+        declare(syms, rClass, Flags.PUBLIC | Flags.FINAL);
+        declared.add(rClass);
+
+        PackageSymbol packge = rClass.packge();
+        packge.flags_field |= Flags.EXISTS;
+        WriteableScope packageMembers = packge.members();
+        if (packageMembers.findFirst(rClass.name) != rClass) {
+            packageMembers.enter(rClass);
+        }
+        return rClass;
+    }
+
+    private static void declare(Symtab syms, ClassSymbol symbol, long flags) {
+        symbol.completer = Symbol.Completer.NULL_COMPLETER;
+        symbol.flags_field = flags;
+        symbol.members_field = WriteableScope.create(symbol);
+        symbol.sourcefile = null;
+        symbol.classfile = null;
+
+        ClassType type = (ClassType) symbol.type;
+        type.supertype_field = syms.objectType;
+        type.interfaces_field = List.nil();
+        type.all_interfaces_field = List.nil();
+        type.typarams_field = List.nil();
+    }
+
+    private static Set<ClassSymbol> getDeclared(Context context) {
+        Set<ClassSymbol> declared = context.get(DECLARED_KEY);
+        if (declared == null) {
+            declared = Collections.synchronizedSet(new HashSet<>());
+            context.put(DECLARED_KEY, declared);
+        }
+        return declared;
+    }
+
+    private static ModuleSymbol getModule(Context context) {
+        Modules modules = Modules.instance(context);
+        if (modules.getDefaultModule() == null) {
+            // nothing has been entered yet
+            JavaCompiler.instance(context).initModules(List.nil());
+        }
+        return modules.getDefaultModule();
+    }
+
+    private static String getFlatName(String packageName) {
+        return packageName.isEmpty() ? R_CLASS : packageName + "." + R_CLASS;
+    }
+}
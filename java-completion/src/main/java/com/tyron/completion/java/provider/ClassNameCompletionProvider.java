@@ -11,20 +11,18 @@ import com.sun.source.util.TreePath;
 import com.tyron.builder.project.api.Module;
 import com.tyron.common.ApplicationProvider;
 import com.tyron.common.SharedPreferenceKeys;
-import com.tyron.common.util.StringSearch;
 import com.tyron.completion.java.ShortNamesCache;
 import com.tyron.completion.java.compiler.JavaCompilerService;
 import com.tyron.completion.java.insert.ClassImportInsertHandler;
-import com.tyron.completion.java.util.ActionUtil;
 import com.tyron.completion.model.CompletionItem;
 import com.tyron.completion.model.CompletionList;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.function.Predicate;
+import java.util.function.Function;
 
 public class ClassNameCompletionProvider extends BaseCompletionProvider {
 
@@ -53,12 +51,14 @@ public class ClassNameCompletionProvider extends BaseCompletionProvider {
 
         List<String> fullyQualifiedNames =
                 getFullyQualifiedNames(root, partial, task, caseSensitive);
+        File file = new File(root.getSourceFile().toUri());
+        // most of the items are never shown, create their insert handler only when inserted
+        Function<CompletionItem, ClassImportInsertHandler> insertHandlerFactory =
+                item -> new ClassImportInsertHandler(task, file, item);
         for (String className : fullyQualifiedNames) {
             CompletionItem item = classItem(className);
             item.data = className;
-            item.setInsertHandler(
-                    new ClassImportInsertHandler(task, new File(root.getSourceFile().toUri()),
-                            item));
+            item.setInsertHandlerFactory(insertHandlerFactory);
             item.setSortText(JavaSortCategory.TO_IMPORT.toString());
             list.addItem(item);
         }
@@ -70,30 +70,18 @@ public class ClassNameCompletionProvider extends BaseCompletionProvider {
                                                       boolean caseSensitive) {
         checkCanceled();
 
-        Predicate<String> predicate;
-        if (caseSensitive) {
-            predicate = string -> StringSearch.matchesPartialName(string, partial);
-        } else {
-            predicate = string -> StringSearch.matchesPartialNameLowercase(string, partial);
-        }
+        // a single dot matches every class
+        String prefix = ".".equals(partial) ? "" : partial;
 
-        Set<String> uniques = new HashSet<>();
+        Set<String> uniques = new LinkedHashSet<>();
         File fileToComplete = new File(root.getSourceFile().toUri());
         final Module module = task.getProject().getModule(fileToComplete);
         ShortNamesCache cache = ShortNamesCache.getInstance(module);
-
-        for (String className : cache.getAllClassNames()) {
-            // more strict on matching class names
-            String simpleName = ActionUtil.getSimpleName(className);
-            if (!predicate.test(simpleName)) {
-                continue;
-            }
-            if (uniques.contains(className)) {
-                continue;
-            }
-
+        cache.processClassNames(prefix, caseSensitive, className -> {
+            checkCanceled();
             uniques.add(className);
-        }
+            return true;
+        });
 
         return new ArrayList<>(uniques);
     }
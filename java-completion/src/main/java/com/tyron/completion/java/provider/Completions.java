@@ -48,6 +48,12 @@ import java.util.Collections;
 public class Completions {
 
     public static final int MAX_COMPLETION_ITEMS = 70;
+
+    /**
+     * The maximum number of items kept in a single completion list, only the best items are
+     * kept when a short prefix matches more than this
+     */
+    public static final int MAX_LIST_ITEMS = 500;
     private static final String TAG = Completions.class.getSimpleName();
 
     // patterns
@@ -109,6 +115,8 @@ public class Completions {
 
         try {
             return container.get(task -> {
+                // a canceled request does not read the compilation shared with other readers
+                checkCanceled();
                 if (task == null || task.task == null) {
                     return null;
                 }
@@ -130,13 +138,14 @@ public class Completions {
         } catch (Throwable e) {
             boolean cancelled = e instanceof CancelAbort || e.getCause() instanceof CancelAbort;
 
-            if (cancelled || e instanceof ProcessCanceledException) {
-                compiler.close();
-                if (compiler.getCompileBatch() != null) {
-                    compiler.getCompileBatch().borrow.close();
-                }
+            if (e instanceof ProcessCanceledException) {
                 throw e;
             }
+            if (cancelled) {
+                // only this request is abandoned, the compilation is still used by the other
+                // readers and is released by the compiler service when it is replaced
+                throw new ProcessCanceledException(e);
+            }
 
 
             compiler.destroy();
@@ -43,6 +43,7 @@ public class SmartClassNameCompletionProvider extends BaseCompletionProvider {
                         partial,
                         task,
                         true);
+        File file = new File(path.getCompilationUnit().getSourceFile().toUri());
         for (String fullyQualifiedName : fullyQualifiedNames) {
             TypeElement typeElement = task.getElements().getTypeElement(fullyQualifiedName);
             if (typeElement == null) {
@@ -53,13 +54,7 @@ public class SmartClassNameCompletionProvider extends BaseCompletionProvider {
             if (assignable) {
                 CompletionItem item = CompletionItemFactory.classItem(fullyQualifiedName);
                 item.data = fullyQualifiedName;
-                item.setInsertHandler(
-                        new ClassImportInsertHandler(
-                                task,
-                                new File(path.getCompilationUnit().getSourceFile().toUri()),
-                                item
-                        )
-                );
+                item.setInsertHandlerFactory(it -> new ClassImportInsertHandler(task, file, it));
                 item.setSortText(JavaSortCategory.TO_IMPORT.toString());
                 builder.addItem(item);
             }
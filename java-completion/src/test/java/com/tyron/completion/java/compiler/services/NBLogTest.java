@@ -0,0 +1,102 @@
+package com.tyron.completion.java.compiler.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.JCDiagnostic;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+public class NBLogTest {
+
+    private static final URI URI = java.net.URI.create("string:///Main.java");
+
+    private static final String CONTENTS = "class Main {\n" +
+                                           "    void first() {\n" +
+                                           "        int a = missingA;\n" +
+                                           "    }\n" +
+                                           "    void second() {\n" +
+                                           "        int b = missingB;\n" +
+                                           "    }\n" +
+                                           "}\n";
+
+    @Test
+    public void testEditKeepsDiagnosticsOfOtherMethods() throws Exception {
+        Context context = new Context();
+        NBLog.preRegister(context, new PrintWriter(new StringWriter()));
+        JavacTaskImpl task = (JavacTaskImpl) JavacTool.create().getTask(null, null, null, null,
+                null, Collections.singletonList(createSource(CONTENTS)), context);
+        JCCompilationUnit unit = (JCCompilationUnit) task.parse().iterator().next();
+        task.analyze();
+
+        NBLog log = NBLog.instance(context);
+        assertEquals(2, log.getDiagnostics(URI).size());
+
+        JCMethodDecl first = (JCMethodDecl) ((JCClassDecl) unit.defs.get(0)).defs.get(1);
+        SourcePositions positions = Trees.instance(task).getSourcePositions();
+        int bodyStart = (int) positions.getStartPosition(unit, first.body);
+        int bodyEnd = (int) positions.getEndPosition(unit, first.body);
+
+        String contents = CONTENTS.replace("int a = missingA;", "int a = 1;\n        a++;");
+        log.removeDiagnostics(createSource(contents), bodyStart, bodyEnd,
+                contents.length() - CONTENTS.length());
+
+        List<JCDiagnostic> diagnostics = log.getDiagnostics(URI);
+        assertEquals(1, diagnostics.size());
+        JCDiagnostic second = diagnostics.get(0);
+        assertEquals("compiler.err.cant.resolve.location", second.getCode());
+        assertTrue(second.getMessage(Locale.ENGLISH).contains("missingB"));
+        assertEquals(contents.indexOf("missingB"), second.getStartPosition());
+        assertEquals(contents.indexOf("missingB") + "missingB".length(),
+                second.getEndPosition());
+        // the line is computed from the new contents
+        assertEquals(7, second.getLineNumber());
+    }
+
+    @Test
+    public void testDiagnosticsBeforeEditAreKept() throws Exception {
+        Context context = new Context();
+        NBLog.preRegister(context, new PrintWriter(new StringWriter()));
+        JavacTaskImpl task = (JavacTaskImpl) JavacTool.create().getTask(null, null, null, null,
+                null, Collections.singletonList(createSource(CONTENTS)), context);
+        task.analyze();
+
+        NBLog log = NBLog.instance(context);
+        int start = CONTENTS.indexOf("int b");
+        int end = CONTENTS.indexOf(";", start) + 1;
+        String contents = CONTENTS.substring(0, start) + "int b = 2;" + CONTENTS.substring(end);
+        log.removeDiagnostics(createSource(contents), start, end,
+                contents.length() - CONTENTS.length());
+
+        List<JCDiagnostic> diagnostics = log.getDiagnostics(URI);
+        assertEquals(1, diagnostics.size());
+        assertEquals(CONTENTS.indexOf("missingA"), diagnostics.get(0).getStartPosition());
+    }
+
+    private static JavaFileObject createSource(String contents) {
+        return new SimpleJavaFileObject(URI, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return contents;
+            }
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.tyron.completion.java.parse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.Trees;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.tyron.builder.project.listener.TextChange;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+public class CompilationInfoTest {
+
+    private static final String CONTENTS = "class Main {\n" +
+                                           "    int field = 1;\n" +
+                                           "    void first() {\n" +
+                                           "        int a = 1;\n" +
+                                           "    }\n" +
+                                           "    void second() {\n" +
+                                           "        int b = 2;\n" +
+                                           "    }\n" +
+                                           "}\n";
+
+    @Test
+    public void testEditInsideMethodBody() throws IOException {
+        String contents = CONTENTS.replace("int b = 2;", "int b = 2;\n        b++;");
+
+        JCMethodDecl method = findChangedMethod(contents);
+        assertNotNull(method);
+        assertEquals("second", method.getName().toString());
+    }
+
+    @Test
+    public void testEditAcrossMethodBodyBoundary() throws IOException {
+        // removes the closing brace of the first method and the declaration of the second
+        String contents = CONTENTS.replace("    }\n    void second() {\n", "");
+
+        assertNull(findChangedMethod(contents));
+    }
+
+    @Test
+    public void testEditOutsideMethodBody() throws IOException {
+        String contents = CONTENTS.replace("int field = 1;", "int field = 2;");
+
+        assertNull(findChangedMethod(contents));
+    }
+
+    @Test
+    public void testChangeOfContents() {
+        int start = CONTENTS.indexOf("int b = 2;") + "int b = 2;".length();
+        String contents = CONTENTS.substring(0, start) + " b++;" + CONTENTS.substring(start);
+
+        assertTrue(CompilationInfo.isChangeOf(CONTENTS, contents,
+                new TextChange(start, start, " b++;", 1)));
+        // a larger region is still a valid change of the contents
+        assertTrue(CompilationInfo.isChangeOf(CONTENTS, contents,
+                new TextChange(start - 2, start + 1, "2; b++;\n", 1)));
+    }
+
+    @Test
+    public void testStaleChangeIsNotUsed() {
+        int start = CONTENTS.indexOf("int b = 2;") + "int b = 2;".length();
+        String contents = CONTENTS.substring(0, start) + " b++;" + CONTENTS.substring(start);
+        String edited = contents.replace("int a = 1;", "int a = 3;");
+
+        // the contents were changed outside of the reported region
+        assertFalse(CompilationInfo.isChangeOf(CONTENTS, edited,
+                new TextChange(start, start, " b++;", 1)));
+        // the reported change does not match the length of the contents
+        assertFalse(CompilationInfo.isChangeOf(CONTENTS, contents,
+                new TextChange(start, start, " b", 1)));
+    }
+
+    private static JCMethodDecl findChangedMethod(String contents) throws IOException {
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///Main.java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return CONTENTS;
+            }
+        };
+        JavacTask task = JavacTool.create().getTask(null, null, null, null, null,
+                Collections.singletonList(file));
+        JCCompilationUnit unit = (JCCompilationUnit) task.parse().iterator().next();
+        SourcePositions positions = Trees.instance(task).getSourcePositions();
+        return CompilationInfo.findChangedMethod(unit, positions, CONTENTS, contents);
+    }
+}
@@ -0,0 +1,121 @@
+package com.tyron.completion.java.parse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+public class PrunedSourceCacheTest {
+
+    private static final String CONTENTS = "class Main {\n" +
+                                           "    void main() {\n" +
+                                           "        int a = 1;\n" +
+                                           "    }\n" +
+                                           "}\n";
+    private static final String PRUNED = "class Main {\n" +
+                                         "    void main() {\n" +
+                                         "                  \n" +
+                                         "    }\n" +
+                                         "}\n";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDirectory;
+    private PrunedSourceCache mCache;
+    private File mFile;
+
+    @Before
+    public void setup() throws Exception {
+        mDirectory = mFolder.newFolder("pruned");
+        mCache = new PrunedSourceCache(mDirectory);
+        mFile = new File(mFolder.getRoot(), "src/Main.java");
+    }
+
+    @Test
+    public void testHit() {
+        String key = PrunedSourceCache.getKey(mFile, CONTENTS);
+        mCache.write(key, PRUNED);
+
+        assertEquals(PRUNED, mCache.read(key, CONTENTS.length()));
+        assertEquals(PRUNED, new PrunedSourceCache(mDirectory).read(key, CONTENTS.length()));
+    }
+
+    @Test
+    public void testMissAfterEdit() {
+        mCache.write(PrunedSourceCache.getKey(mFile, CONTENTS), PRUNED);
+
+        String edited = CONTENTS.replace("int a = 1;", "int a = 2;");
+        assertNull(mCache.read(PrunedSourceCache.getKey(mFile, edited), edited.length()));
+    }
+
+    @Test
+    public void testRenameChangesKey() {
+        String key = PrunedSourceCache.getKey(mFile, CONTENTS);
+        mCache.write(key, PRUNED);
+
+        File renamed = new File(mFolder.getRoot(), "src/Renamed.java");
+        String renamedKey = PrunedSourceCache.getKey(renamed, CONTENTS);
+        assertNotEquals(key, renamedKey);
+        assertNull(mCache.read(renamedKey, CONTENTS.length()));
+    }
+
+    @Test
+    public void testDeleteUnusedEvictsStaleKeys() throws Exception {
+        String key = PrunedSourceCache.getKey(mFile, CONTENTS);
+        mCache.write(key, PRUNED);
+        String edited = CONTENTS.replace("int a = 1;", "int a = 2;");
+        String editedKey = PrunedSourceCache.getKey(mFile, edited);
+        mCache.write(editedKey, PRUNED);
+
+        mCache.deleteUnused(Collections.singleton(editedKey));
+        assertFalse(new File(mDirectory, key).exists());
+        assertEquals(PRUNED, mCache.read(editedKey, edited.length()));
+    }
+
+    @Test
+    public void testDeleteUnusedKeepsWritesInProgress() throws Exception {
+        File writing = new File(mDirectory, "entry1234.tmp");
+        File stale = new File(mDirectory, "entry5678.tmp");
+        Files.write(writing.toPath(), new byte[]{1});
+        Files.write(stale.toPath(), new byte[]{1});
+        assertTrue(stale.setLastModified(
+                System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+
+        mCache.deleteUnused(Collections.emptySet());
+        assertTrue(writing.exists());
+        assertFalse(stale.exists());
+    }
+
+    @Test
+    public void testChangedEntryIsNotUsed() throws Exception {
+        String key = PrunedSourceCache.getKey(mFile, CONTENTS);
+        mCache.write(key, PRUNED);
+        File entry = new File(mDirectory, key);
+
+        // the same length as the contents but not what was written
+        String changed = new String(Files.readAllBytes(entry.toPath()), StandardCharsets.UTF_8)
+                .replace("void main", "void mane");
+        Files.write(entry.toPath(), changed.getBytes(StandardCharsets.UTF_8));
+        assertNull(mCache.read(key, CONTENTS.length()));
+
+        // an entry that was cut short
+        mCache.write(key, PRUNED);
+        byte[] bytes = Files.readAllBytes(entry.toPath());
+        Files.write(entry.toPath(), Arrays.copyOf(bytes, bytes.length - 10));
+        assertNull(mCache.read(key, CONTENTS.length()));
+    }
+}
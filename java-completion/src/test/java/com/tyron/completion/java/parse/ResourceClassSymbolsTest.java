@@ -0,0 +1,214 @@
+package com.tyron.completion.java.parse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.VarSymbol;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.comp.Modules;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Names;
+import com.tyron.completion.java.parse.ResourceClassSymbols.Field;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+public class ResourceClassSymbolsTest {
+
+    private static final String PACKAGE = "com.test";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void testEnterField() {
+        Compilation compilation = new Compilation(Collections.emptyList(),
+                "int name = R.string.app_name;");
+        Context context = compilation.getContext();
+        ResourceClassSymbols.update(context, PACKAGE, "string",
+                Collections.singletonList(new Field("app_name", false, 0x7f0a0000)),
+                Collections.emptyList());
+
+        assertTrue(ResourceClassSymbols.isDeclared(context, PACKAGE));
+        assertEquals(0x7f0a0000, getField(context, "string", "app_name").getConstantValue());
+        assertEquals(Collections.emptyList(), compilation.analyze());
+    }
+
+    @Test
+    public void testRemoveLastField() {
+        Compilation compilation = new Compilation(Collections.emptyList(),
+                "int name = R.string.app_name;\n" +
+                "int id = R.id.button;");
+        Context context = compilation.getContext();
+        ResourceClassSymbols.update(context, PACKAGE, "string",
+                Collections.singletonList(new Field("app_name", false, 1)),
+                Collections.emptyList());
+        ResourceClassSymbols.update(context, PACKAGE, "id",
+                Collections.singletonList(new Field("button", false, 2)),
+                Collections.emptyList());
+
+        ResourceClassSymbols.update(context, PACKAGE, "string", Collections.emptyList(),
+                Collections.singletonList("app_name"));
+        assertNull(getNested(context, "string"));
+        assertNotNull(getField(context, "id", "button"));
+        // only the reference to the removed class is an error
+        assertEquals(1, compilation.analyze().size());
+    }
+
+    @Test
+    public void testReplaceClassFromClasspath() throws Exception {
+        File classes = mFolder.newFolder("classes");
+        String rClass = "package com.test;\n" +
+                        "public final class R {\n" +
+                        "    public static final class string {\n" +
+                        "        public static final int old_name = 1;\n" +
+                        "    }\n" +
+                        "}\n";
+        assertTrue(ToolProvider.getSystemJavaCompiler().getTask(null, null, null,
+                Arrays.asList("-d", classes.getAbsolutePath()), null,
+                Collections.singletonList(source("R", rClass))).call());
+
+        Compilation compilation = new Compilation(
+                Arrays.asList("-classpath", classes.getAbsolutePath()),
+                "int name = R.string.app_name;");
+        Context context = compilation.getContext();
+        TypeElement loaded = compilation.mTask.getElements().getTypeElement(PACKAGE + ".R");
+        assertNotNull(loaded);
+        assertFalse(ResourceClassSymbols.isDeclared(context, PACKAGE));
+
+        ResourceClassSymbols.update(context, PACKAGE, "string",
+                Collections.singletonList(new Field("app_name", false, 2)),
+                Collections.emptyList());
+        assertTrue(ResourceClassSymbols.isDeclared(context, PACKAGE));
+        // the members of the class file are replaced
+        assertNull(getField(context, "string", "old_name"));
+        assertEquals(Collections.emptyList(), compilation.analyze());
+    }
+
+    @Test
+    public void testValuesAreConstants() {
+        Compilation compilation = new Compilation(Collections.emptyList(),
+                "switch (0) {\n" +
+                "    case R.id.first:\n" +
+                "    case R.id.second:\n" +
+                "    case R.id.third:\n" +
+                "        break;\n" +
+                "}\n" +
+                "int[] styleable = R.styleable.View;");
+        Context context = compilation.getContext();
+        ResourceClassSymbols.update(context, PACKAGE, "id",
+                Arrays.asList(new Field("first", false, 1), new Field("second", false, 2)),
+                Collections.emptyList());
+        Symbol first = getField(context, "id", "first");
+
+        // adding a field keeps the symbols of the others
+        ResourceClassSymbols.update(context, PACKAGE, "id",
+                Collections.singletonList(new Field("third", false, 3)),
+                Collections.emptyList());
+        assertSame(first, getField(context, "id", "first"));
+
+        ResourceClassSymbols.update(context, PACKAGE, "styleable",
+                Collections.singletonList(new Field("View", true, 0)),
+                Collections.emptyList());
+        assertEquals(Collections.emptyList(), compilation.analyze());
+    }
+
+    /**
+     * A task that compiles a class of the package with the given statements, the class is
+     * entered like the classes of a context the symbols are updated in.
+     */
+    private static class Compilation {
+
+        private final DiagnosticCollector<JavaFileObject> mDiagnostics =
+                new DiagnosticCollector<>();
+        private final JavacTaskImpl mTask;
+
+        Compilation(List<String> options, String body) {
+            String contents = "package com.test;\n" +
+                              "class Main {\n" +
+                              "    void main() {\n" +
+                              "        " + body + "\n" +
+                              "    }\n" +
+                              "}\n";
+            List<String> allOptions = new ArrayList<>(options);
+            allOptions.add("-proc:none");
+            mTask = (JavacTaskImpl) JavacTool.create().getTask(null, null, mDiagnostics,
+                    allOptions, null, Collections.singletonList(source("Main", contents)));
+            mTask.enter();
+        }
+
+        Context getContext() {
+            return mTask.getContext();
+        }
+
+        /**
+         * @return the error messages
+         */
+        List<String> analyze() {
+            mTask.analyze();
+            return mDiagnostics.getDiagnostics().stream()
+                    .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                    .map(d -> d.getMessage(null))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static ClassSymbol getNested(Context context, String name) {
+        ClassSymbol rClass = Symtab.instance(context).getClass(
+                Modules.instance(context).getDefaultModule(),
+                Names.instance(context).fromString(PACKAGE + ".R"));
+        for (Symbol symbol : rClass.members().getSymbols()) {
+            if (symbol instanceof ClassSymbol && symbol.getSimpleName().contentEquals(name)) {
+                return (ClassSymbol) symbol;
+            }
+        }
+        return null;
+    }
+
+    private static VarSymbol getField(Context context, String className, String name) {
+        ClassSymbol nested = getNested(context, className);
+        if (nested == null) {
+            return null;
+        }
+        for (Symbol symbol : nested.members().getSymbols()) {
+            if (symbol instanceof VarSymbol && symbol.getSimpleName().contentEquals(name)) {
+                return (VarSymbol) symbol;
+            }
+        }
+        return null;
+    }
+
+    private static JavaFileObject source(String name, String contents) {
+        return new SimpleJavaFileObject(URI.create("string:///com/test/" + name + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return contents;
+            }
+        };
+    }
+}
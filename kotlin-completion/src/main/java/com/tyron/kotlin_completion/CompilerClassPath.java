@@ -89,6 +89,16 @@ public class CompilerClassPath implements Closeable {
         dest.addAll(added);
     }
 
+    public AndroidModule getProject() {
+        return mProject;
+    }
+
+    public Set<Path> getCompiledJars() {
+        synchronized (mClassPath) {
+            return mClassPath.stream().map(ClassPathEntry::getCompiledJar).collect(Collectors.toSet());
+        }
+    }
+
     public Compiler getCompiler() {
         return compiler;
     }
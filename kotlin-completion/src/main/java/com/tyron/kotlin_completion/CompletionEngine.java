@@ -110,7 +110,8 @@ public class CompletionEngine {
 
         return async.compute(() -> {
             Pair<CompiledFile, Integer> pair = recover(file, contents, Recompile.NEVER, cursor);
-            return new Completions().completions(pair.getFirst(), cursor, sp.getIndex());
+            return new Completions().completions(pair.getFirst(), cursor, sp.getIndex(),
+                    mProject);
         });
     }
 
@@ -144,7 +145,7 @@ public class CompletionEngine {
 
         Pair<CompiledFile, Integer> recover = recover(file, contents, Recompile.NEVER, cursor);
         CompletionList completions = new Completions().completions(recover.getFirst(), cursor,
-                sp.getIndex());
+                sp.getIndex(), mProject);
         String partialIdentifier = partialIdentifier(contents, cursor);
         cachedCompletion = new CachedCompletion(file, line, column, partialIdentifier, completions);
         return completions;
@@ -14,6 +14,7 @@ import org.jetbrains.kotlin.com.intellij.psi.PsiFile;
 import org.jetbrains.kotlin.container.ComponentProvider;
 import org.jetbrains.kotlin.descriptors.ModuleDescriptor;
 import org.jetbrains.kotlin.idea.KotlinLanguage;
+import org.jetbrains.kotlin.name.FqName;
 import org.jetbrains.kotlin.psi.KtFile;
 import org.jetbrains.kotlin.resolve.BindingContext;
 import org.slf4j.Logger;
@@ -27,6 +28,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantLock;
@@ -229,16 +231,58 @@ public class SourcePath {
         return UtilKt.util(sourcesContext, sources, allChanged);
     }
 
+    /**
+     * Loads the symbol index from its snapshot or indexes the whole module. The snapshot is
+     * keyed by the compiled jars only, so the packages of the source files are not saved in it
+     * and are indexed again after it is loaded.
+     */
     private void initializeIndexAsyncIfNeeded(ComponentProvider container) {
+        if (!indexEnabled || indexInitialized) {
+            return;
+        }
+        Set<FqName> sourcePackages = all(false).stream()
+                .map(KtFile::getPackageFqName)
+                .collect(Collectors.toSet());
         indexAsync.execute(() -> {
             if (indexEnabled && !indexInitialized) {
+                File snapshot = getIndexSnapshotFile();
+                String key = SymbolIndex.getClassPathKey(cp.getCompiledJars());
                 ModuleDescriptor module = (ModuleDescriptor) container.resolve(ModuleDescriptor.class).getValue();
-                index.refresh(module, true);
+                if (index.load(snapshot, key)) {
+                    index.refresh(module, sourcePackages);
+                } else {
+                    index.refresh(module, true);
+                    try {
+                        index.save(snapshot, key, sourcePackages);
+                    } catch (IOException e) {
+                        Log.w(TAG, "Unable to save the symbol index", e);
+                    }
+                }
                 indexInitialized = true;
             }
         });
     }
 
+    /**
+     * Indexes the given packages again after their source files have been compiled, the
+     * packages the files were in before should be included so removed symbols are dropped.
+     */
+    private void updateIndexAsync(Set<FqName> changedPackages, ComponentProvider container) {
+        if (!indexEnabled || changedPackages.isEmpty()) {
+            return;
+        }
+        indexAsync.execute(() -> {
+            if (indexInitialized) {
+                ModuleDescriptor module = (ModuleDescriptor) container.resolve(ModuleDescriptor.class).getValue();
+                index.refresh(module, changedPackages);
+            }
+        });
+    }
+
+
+    private File getIndexSnapshotFile() {
+        return new File(cp.getProject().getBuildDirectory(), "intermediate/kotlin/symbols.bin");
+    }
 
     private BindingContext compileAndUpdate(Set<SourceFile> changed) {
         if (changed.isEmpty()) return null;
@@ -250,10 +294,15 @@ public class SourcePath {
         Pair<BindingContext, ComponentProvider> pair = cp.getCompiler()
                 .compileKtFiles(parse.values(), all, CompletionKind.DEFAULT);
 
+        Set<FqName> changedPackages = new HashSet<>();
         parse.forEach((f, parsed) -> {
             parsedDataWriteLock.lock();
             try {
                 if (f.parsed.equals(parsed)) {
+                    if (f.compiledFile != null) {
+                        changedPackages.add(f.compiledFile.getPackageFqName());
+                    }
+                    changedPackages.add(parsed.getPackageFqName());
                     f.compiledFile = parsed;
                     f.compiledContext = pair.getFirst();
                     f.compiledcontainer = pair.getSecond();
@@ -264,6 +313,7 @@ public class SourcePath {
         });
 
         initializeIndexAsyncIfNeeded(pair.getSecond());
+        updateIndexAsync(changedPackages, pair.getSecond());
         return pair.getFirst();
     }
 
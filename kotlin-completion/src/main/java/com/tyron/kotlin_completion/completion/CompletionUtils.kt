@@ -1,6 +1,8 @@
 package com.tyron.kotlin_completion.completion
 
 import android.util.Log
+import com.tyron.builder.project.api.Module
+import com.tyron.builder.project.util.ModuleClassNameIndex
 import com.tyron.completion.model.CompletionItem
 import com.tyron.completion.model.CompletionList
 import com.tyron.completion.model.DrawableKind
@@ -43,7 +45,8 @@ fun completions(
     file: CompiledFile,
     cursor: Int,
     index: SymbolIndex,
-    partial: String
+    partial: String,
+    module: Module? = null
 ): CompletionList {
 
     val (elementItems, isExhaustive, receiver) = elementCompletionItems(file, cursor, partial)
@@ -58,6 +61,11 @@ fun completions(
         receiver,
         index,
         partial
+    ).filter { it.label !in elementItemLabels } else emptySequence())
+            + (if (!isExhaustive && receiver == null && module != null) classNameCompletionItems(
+        file,
+        module,
+        partial
     ).filter { it.label !in elementItemLabels } else emptySequence())
             + (if (elementItemList.isEmpty()) keywordCompletionItems(partial) else emptySequence())
             )
@@ -141,6 +149,38 @@ private fun indexCompletionItems(
     return result;
 }
 
+private fun classNameCompletionItems(
+    file: CompiledFile,
+    module: Module,
+    partial: String
+): Sequence<CompletionItem> {
+    if (partial.isEmpty()) {
+        return emptySequence()
+    }
+    val importNames = file.parse.importDirectives
+        .mapNotNull { it.importedFqName?.shortName()?.toString() }
+        .toSet()
+
+    val classNames = mutableListOf<String>()
+    ModuleClassNameIndex.processClassNames(module, partial, false) {
+        ProgressManager.checkCanceled()
+        classNames.add(it)
+        classNames.size < MAX_COMPLETION_ITEMS
+    }
+    return classNames.asSequence()
+        .map { FqName(it) }
+        .filter { it.shortName().toString() !in importNames }
+        .map {
+            CompletionItem().apply {
+                label = it.shortName().toString()
+                commitText = label
+                cursorOffset = label.length
+                iconKind = DrawableKind.Class
+                detail = "(import from ${it.parent()})"
+            }
+        }
+}
+
 private fun findImportInsertionPosition(parsedFile: KtFile, fqName: FqName): Position =
     (closestImport(parsedFile.importDirectives, fqName) as? KtElement
         ?: parsedFile.packageDirective as? KtElement)
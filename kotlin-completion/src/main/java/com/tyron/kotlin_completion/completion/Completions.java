@@ -1,7 +1,8 @@
 package com.tyron.kotlin_completion.completion;
 
-import android.util.Log;
+import androidx.annotation.Nullable;
 
+import com.tyron.builder.project.api.Module;
 import com.tyron.completion.model.CompletionList;
 import com.tyron.kotlin_completion.CompiledFile;
 import com.tyron.kotlin_completion.index.SymbolIndex;
@@ -17,8 +18,19 @@ import kotlin.text.StringsKt;
 public class Completions {
 
     public CompletionList completions(CompiledFile file, int cursor, SymbolIndex index) {
+        return completions(file, cursor, index, null);
+    }
+
+    /**
+     * @param module if not null, classes of the module and its libraries are also suggested
+     *               from the shared class name index
+     */
+    public CompletionList completions(CompiledFile file,
+                                      int cursor,
+                                      SymbolIndex index,
+                                      @Nullable Module module) {
         String partial = findPartialIdentifier(file, cursor);
-        return CompletionUtilsKt.completions(file, cursor, index, partial);
+        return CompletionUtilsKt.completions(file, cursor, index, partial, module);
     }
 
     private String findPartialIdentifier(CompiledFile file, int cursor) {
@@ -2,129 +2,288 @@ package com.tyron.kotlin_completion.index
 
 import android.util.Log
 import com.tyron.kotlin_completion.util.PsiUtils
-import org.jetbrains.exposed.sql.*
-import org.jetbrains.exposed.sql.transactions.transaction
 import org.jetbrains.kotlin.descriptors.DeclarationDescriptor
 import org.jetbrains.kotlin.descriptors.ModuleDescriptor
 import org.jetbrains.kotlin.name.FqName
 import org.jetbrains.kotlin.resolve.scopes.DescriptorKindFilter
 import org.jetbrains.kotlin.resolve.scopes.MemberScope
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
 import java.lang.IllegalStateException
-import java.time.Duration
-import java.time.Instant
+import java.nio.file.Path
+import java.security.MessageDigest
+import java.util.Arrays
 import kotlin.sequences.Sequence
 
-private const val MAX_FQNAME_LENGTH = 255
-private const val MAX_SHORT_NAME_LENGTH = 80
+private const val SNAPSHOT_MAGIC = 0x4b534958
+private const val SNAPSHOT_VERSION = 1
 
-private object Symbols : Table() {
-    val fqName = varchar("fqname", length = MAX_FQNAME_LENGTH) references FqNames.fqName
-    val kind = integer("kind")
-    val visibility = integer("visibility")
-    val extensionReceiverType = varchar("extensionreceivertype", length = MAX_FQNAME_LENGTH).nullable()
-
-    override val primaryKey = PrimaryKey(fqName)
-}
+/**
+ * Indexes the symbols of a module by their short name. The symbols are kept per package so
+ * a package can be refreshed on its own, queries run against sorted arrays of short names
+ * that are rebuilt after the index has changed.
+ */
+class SymbolIndex {
 
-private object FqNames : Table() {
-    val fqName = varchar("fqname", length = MAX_FQNAME_LENGTH)
-    val shortName = varchar("shortname", length = MAX_SHORT_NAME_LENGTH)
+    // package -> fully qualified name -> symbol
+    private val packages = HashMap<FqName, Map<FqName, Symbol>>()
 
-    override val primaryKey = PrimaryKey(fqName)
-}
-class SymbolIndex {
-    private val db = Database.connect("jdbc:h2:mem:symbolindex;DB_CLOSE_DELAY=-1", "org.h2.Driver")
+    @Volatile
+    private var snapshot: Snapshot? = null
 
+    @Volatile
     var indexing: Boolean = false
 
-    init {
-       transaction (db) {
-           SchemaUtils.create(Symbols, FqNames)
-       }
-    }
-
     fun refresh(module: ModuleDescriptor, forced: Boolean = true) {
         val started = System.currentTimeMillis()
-        Log.d("SymbolIndex", "Updating symbol index...");
+        Log.d("SymbolIndex", "Updating symbol index...")
 
         indexing = true
         try {
-            transaction(db) {
+            val indexed = allPackages(module).associateWith { indexPackage(module, it) }
+            synchronized(packages) {
                 if (forced) {
-                    Symbols.deleteAll()
+                    packages.clear()
                 }
-                for (descriptor in allDescriptors(module)) {
-                    val descriptorFqn = PsiUtils.getFqNameSafe(descriptor)
-                    val extensionReceiverFqn = descriptor.accept(ExtractSymbolExtensionReceiverType, Unit)
-
-                    if (canStoreFqName(descriptorFqn) && (extensionReceiverFqn?.let { canStoreFqName(it) } != false)) {
-
-                        for (fqn in listOfNotNull(descriptorFqn, extensionReceiverFqn)) {
-                            FqNames.replace {
-                                it[fqName] = fqn.toString()
-                                it[shortName] = fqn.shortName().toString()
-                            }
-                        }
-
-
-                        Symbols.replace {
-                            it[fqName] = descriptorFqn.toString()
-                            it[kind] = descriptor.accept(ExtractSymbolKind, Unit).rawValue
-                            it[visibility] = descriptor.accept(ExtractSymbolVisibility, Unit).rawValue
-                            it[extensionReceiverType] = extensionReceiverFqn?.toString()
-                        }
-                    } else {
-                        Log.w("SymbolIndex",
-                            "Excluding symbol $descriptorFqn from index since its name is too long"
-                        );
-                    }
+                for ((pkg, symbols) in indexed) {
+                    putPackage(pkg, symbols)
                 }
+                snapshot = null
+            }
+            Log.d("SymbolIndex", "Updated symbol index in " +
+                    (System.currentTimeMillis() - started) + " ms")
+        } catch (e: Exception) {
+            Log.e("SymbolIndex", "Error while updating symbol index", e)
+        } finally {
+            indexing = false
+        }
+    }
 
-                indexing = false
+    /**
+     * Indexes the given packages again, the symbols of the other packages are kept.
+     */
+    fun refresh(module: ModuleDescriptor, changedPackages: Collection<FqName>) {
+        try {
+            val indexed = changedPackages.associateWith { indexPackage(module, it) }
+            synchronized(packages) {
+                for ((pkg, symbols) in indexed) {
+                    putPackage(pkg, symbols)
+                }
+                snapshot = null
             }
         } catch (e: Exception) {
-            Log.e("SymbolIndex", "Error while updating symbol index", e);
+            Log.e("SymbolIndex", "Error while updating symbol index", e)
         }
     }
 
+    /**
+     * @param receiverType the type of the extension receiver, symbols that are not
+     * extensions are returned if null
+     */
     fun query(prefix: String, receiverType: FqName? = null, limit: Int = 20): List<Symbol> {
-        val start = Instant.now()
+        val start = System.nanoTime()
         try {
-            return transaction(db) {
-                (Symbols innerJoin FqNames)
-                    .select { FqNames.shortName.like("$prefix%") and (Symbols.extensionReceiverType eq receiverType?.toString()) }
-                    .limit(limit)
-                    .map {
-                        Symbol(
-                            fqName = FqName(it[Symbols.fqName]),
-                            kind = Symbol.Kind.fromRaw(it[Symbols.kind]),
-                            visibility = Symbol.Visibility.fromRaw(it[Symbols.visibility]),
-                            extensionReceiverType = it[Symbols.extensionReceiverType]?.let(::FqName)
+            val names = getSnapshot().byReceiver[receiverType] ?: return emptyList()
+            return names.query(prefix, limit)
+        } finally {
+            Log.d("SymbolIndex", "Query took " + (System.nanoTime() - start) / 1000 + " us")
+        }
+    }
+
+    /**
+     * Saves the symbols of this index, the key identifies the class path they were
+     * indexed from.
+     *
+     * @param excludedPackages packages that are not saved, such as the packages of source
+     * files that may change without changing the key. They are refreshed after loading.
+     */
+    @Throws(IOException::class)
+    fun save(file: File, key: String, excludedPackages: Collection<FqName> = emptySet()) {
+        val copy = synchronized(packages) { HashMap(packages) }
+        copy.keys.removeAll(excludedPackages.toSet())
+        file.parentFile?.mkdirs()
+        DataOutputStream(BufferedOutputStream(FileOutputStream(file))).use { output ->
+            output.writeInt(SNAPSHOT_MAGIC)
+            output.writeInt(SNAPSHOT_VERSION)
+            output.writeUTF(key)
+            output.writeInt(copy.size)
+            for ((pkg, symbols) in copy) {
+                output.writeUTF(pkg.asString())
+                output.writeInt(symbols.size)
+                for (symbol in symbols.values) {
+                    output.writeUTF(symbol.fqName.asString())
+                    output.writeInt(symbol.kind.rawValue)
+                    output.writeInt(symbol.visibility.rawValue)
+                    output.writeBoolean(symbol.extensionReceiverType != null)
+                    symbol.extensionReceiverType?.let { output.writeUTF(it.asString()) }
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of this index with the symbols saved in the file.
+     *
+     * @return false if the file does not exist, is corrupted or was saved with a
+     * different key
+     */
+    fun load(file: File, key: String): Boolean {
+        if (!file.exists()) {
+            return false
+        }
+        val loaded = HashMap<FqName, Map<FqName, Symbol>>()
+        try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                if (input.readInt() != SNAPSHOT_MAGIC || input.readInt() != SNAPSHOT_VERSION) {
+                    return false
+                }
+                if (input.readUTF() != key) {
+                    return false
+                }
+                repeat(input.readInt()) {
+                    val pkg = FqName(input.readUTF())
+                    val count = input.readInt()
+                    val symbols = HashMap<FqName, Symbol>(count)
+                    repeat(count) {
+                        val symbol = Symbol(
+                            fqName = FqName(input.readUTF()),
+                            kind = Symbol.Kind.fromRaw(input.readInt()),
+                            visibility = Symbol.Visibility.fromRaw(input.readInt()),
+                            extensionReceiverType =
+                                if (input.readBoolean()) FqName(input.readUTF()) else null
                         )
+                        symbols[symbol.fqName] = symbol
                     }
+                    loaded[pkg] = symbols
+                }
             }
-        } finally {
-            Log.d("SymbolIndex", "Query took " + Duration.between(start, Instant.now()).toMillis() + " ms")
+        } catch (e: IOException) {
+            Log.w("SymbolIndex", "Unable to load symbol index from $file", e)
+            return false
+        }
+        synchronized(packages) {
+            packages.clear()
+            packages.putAll(loaded)
+            snapshot = null
         }
+        return true
     }
 
-    private fun canStoreFqName(fqName: FqName) =
-        fqName.toString().length <= MAX_FQNAME_LENGTH
-                && fqName.shortName().toString().length <= MAX_SHORT_NAME_LENGTH
-
-    private fun allDescriptors(module: ModuleDescriptor) : Sequence<DeclarationDescriptor> = allPackages(module)
-        .map(module::getPackage)
-        .flatMap {
-            try {
-                it.memberScope.getContributedDescriptors(DescriptorKindFilter.ALL, MemberScope.ALL_NAME_FILTER)
-            } catch (e: IllegalStateException) {
-                Log.w("SymbolIndex", "Couldn't query descriptors in package $it")
-                emptyList()
-            }
+    private fun putPackage(pkg: FqName, symbols: Map<FqName, Symbol>) {
+        if (symbols.isEmpty()) {
+            packages.remove(pkg)
+        } else {
+            packages[pkg] = symbols
+        }
+    }
+
+    private fun getSnapshot(): Snapshot {
+        snapshot?.let { return it }
+        synchronized(packages) {
+            return snapshot ?: Snapshot.create(packages.values).also { snapshot = it }
+        }
+    }
+
+    private fun indexPackage(module: ModuleDescriptor, pkg: FqName): Map<FqName, Symbol> {
+        val symbols = HashMap<FqName, Symbol>()
+        for (descriptor in packageDescriptors(module, pkg)) {
+            val descriptorFqn = PsiUtils.getFqNameSafe(descriptor)
+            symbols[descriptorFqn] = Symbol(
+                fqName = descriptorFqn,
+                kind = descriptor.accept(ExtractSymbolKind, Unit),
+                visibility = descriptor.accept(ExtractSymbolVisibility, Unit),
+                extensionReceiverType = descriptor.accept(ExtractSymbolExtensionReceiverType, Unit)
+            )
+        }
+        return symbols
+    }
+
+    private fun packageDescriptors(module: ModuleDescriptor, pkg: FqName): Collection<DeclarationDescriptor> =
+        try {
+            module.getPackage(pkg).memberScope
+                .getContributedDescriptors(DescriptorKindFilter.ALL, MemberScope.ALL_NAME_FILTER)
+        } catch (e: IllegalStateException) {
+            Log.w("SymbolIndex", "Couldn't query descriptors in package $pkg")
+            emptyList()
         }
 
     private fun allPackages(module: ModuleDescriptor, pkgName: FqName = FqName.ROOT) : Sequence<FqName> = module
         .getSubPackagesOf(pkgName) { it.toString()  != "META-INF"}
         .asSequence()
         .flatMap { sequenceOf(it) + allPackages(module, it) }
-}
\ No newline at end of file
+
+    /**
+     * The symbols grouped by their extension receiver type, each group is sorted by
+     * short name so a prefix is found with a binary search.
+     */
+    private class Snapshot(val byReceiver: Map<FqName?, ShortNames>) {
+
+        companion object {
+            fun create(packages: Collection<Map<FqName, Symbol>>): Snapshot {
+                val grouped = HashMap<FqName?, MutableList<Symbol>>()
+                for (symbols in packages) {
+                    for (symbol in symbols.values) {
+                        grouped.getOrPut(symbol.extensionReceiverType) { ArrayList() }.add(symbol)
+                    }
+                }
+                return Snapshot(grouped.mapValues { ShortNames.create(it.value) })
+            }
+        }
+    }
+
+    private class ShortNames(private val names: Array<String>, private val symbols: Array<Symbol>) {
+
+        fun query(prefix: String, limit: Int): List<Symbol> {
+            var index = Arrays.binarySearch(names, prefix)
+            if (index < 0) {
+                index = -index - 1
+            } else {
+                // the same short name may be declared in several packages
+                while (index > 0 && names[index - 1] == prefix) {
+                    index--
+                }
+            }
+            val result = ArrayList<Symbol>()
+            while (index < names.size && result.size < limit && names[index].startsWith(prefix)) {
+                result.add(symbols[index])
+                index++
+            }
+            return result
+        }
+
+        companion object {
+            fun create(symbols: List<Symbol>): ShortNames {
+                val sorted = symbols.sortedBy { it.fqName.shortName().asString() }
+                return ShortNames(
+                    sorted.map { it.fqName.shortName().asString() }.toTypedArray(),
+                    sorted.toTypedArray()
+                )
+            }
+        }
+    }
+
+    companion object {
+
+        /**
+         * @return a key that changes when a file of the class path is added, removed or
+         * modified, used to check if a saved index is still valid
+         */
+        @JvmStatic
+        fun getClassPathKey(classPath: Collection<Path>): String {
+            val digest = MessageDigest.getInstance("SHA-256")
+            for (path in classPath.map { it.toAbsolutePath().toString() }.sorted()) {
+                val file = File(path)
+                digest.update(path.toByteArray())
+                digest.update(file.length().toString().toByteArray())
+                digest.update(file.lastModified().toString().toByteArray())
+            }
+            return digest.digest().joinToString("") { "%02x".format(it) }
+        }
+    }
+}
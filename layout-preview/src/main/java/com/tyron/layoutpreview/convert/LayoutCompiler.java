@@ -0,0 +1,296 @@
+package com.tyron.layoutpreview.convert;
+
+import static com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory.PROTEUS_INSTANCE_HOLDER;
+import static com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory.compileString;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+
+import com.flipkart.android.proteus.FunctionManager;
+import com.flipkart.android.proteus.ProteusConstants;
+import com.flipkart.android.proteus.ProteusContext;
+import com.flipkart.android.proteus.ViewTypeParser;
+import com.flipkart.android.proteus.value.Array;
+import com.flipkart.android.proteus.value.Layout;
+import com.flipkart.android.proteus.value.ObjectValue;
+import com.flipkart.android.proteus.value.Value;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles layout XML directly into proteus {@link Layout}s, producing the same values as
+ * converting it with {@link XmlToJsonConverter} and reading the JSON back.
+ *
+ * <p>Compiled elements are cached by their contents, so when a layout is edited only the
+ * elements that changed and their parents are compiled again. Layouts are mutable, so each
+ * call returns a copy of the cached values.</p>
+ */
+public class LayoutCompiler {
+
+    private static final String CHILDREN = "children";
+    private static final int MAX_CACHED_ELEMENTS = 2048;
+
+    private final ProteusContext mContext;
+    private final Map<Element, Value> mCache =
+            new LinkedHashMap<Element, Value>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Element, Value> eldest) {
+                    return size() > MAX_CACHED_ELEMENTS;
+                }
+            };
+
+    private int mCompiledCount;
+    private int mCachedCount;
+
+    public LayoutCompiler(ProteusContext context) {
+        mContext = context;
+    }
+
+    /**
+     * @param contents The xml string to compile
+     * @return The layout, or an {@link ObjectValue} if the root element is not a layout
+     * @throws IOException if an error has occurred while reading the string content
+     * @throws XmlPullParserException if the XML content is malformed
+     * @throws ConvertException if the XML has no root element
+     */
+    @NonNull
+    public Value compile(@NonNull String contents)
+            throws IOException, XmlPullParserException, ConvertException {
+        XmlPullParser parser = XmlPullParserFactory.newInstance().newPullParser();
+        parser.setInput(new StringReader(contents));
+        advanceToRootNode(parser);
+
+        Element root = readElement(parser);
+        synchronized (mCache) {
+            return copy(compile(root));
+        }
+    }
+
+    /**
+     * @return the number of elements that have been compiled, elements taken from the cache
+     * are not included
+     */
+    public int getCompiledCount() {
+        synchronized (mCache) {
+            return mCompiledCount;
+        }
+    }
+
+    /**
+     * @return the number of elements that have been taken from the cache
+     */
+    public int getCachedCount() {
+        synchronized (mCache) {
+            return mCachedCount;
+        }
+    }
+
+    public void clear() {
+        synchronized (mCache) {
+            mCache.clear();
+        }
+    }
+
+    private Value compile(Element element) {
+        Value cached = mCache.get(element);
+        if (cached != null) {
+            mCachedCount++;
+            return cached;
+        }
+
+        Array children = null;
+        if (!element.children.isEmpty()) {
+            children = new Array(element.children.size());
+            for (Element child : element.children) {
+                children.add(compile(child));
+            }
+        }
+
+        Value compiled;
+        if (PROTEUS_INSTANCE_HOLDER.isLayout(element.type)) {
+            compiled = compileLayout(element, children);
+        } else {
+            ObjectValue object = new ObjectValue();
+            object.add(ProteusConstants.TYPE, compileString(mContext, element.type));
+            for (int i = 0; i < element.attributes.length; i += 2) {
+                object.add(element.attributes[i], compileString(mContext, element.attributes[i + 1]));
+            }
+            if (children != null) {
+                object.add(CHILDREN, children);
+            }
+            compiled = object;
+        }
+        mCompiledCount++;
+        mCache.put(element, compiled);
+        return compiled;
+    }
+
+    /**
+     * Same as {@link com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory.LayoutTypeAdapter}
+     */
+    private Layout compileLayout(Element element, Array children) {
+        ViewTypeParser<View> parser = mContext.getParser(element.type);
+        List<Layout.Attribute> attributes = new ArrayList<>();
+        ObjectValue extras = new ObjectValue();
+        for (int i = 0; i < element.attributes.length; i += 2) {
+            addAttribute(parser, element.attributes[i],
+                    compileString(mContext, element.attributes[i + 1]), attributes, extras);
+        }
+        if (children != null) {
+            addAttribute(parser, CHILDREN, children, attributes, extras);
+        }
+        return new Layout(element.type, attributes.size() > 0 ? attributes : null, null,
+                extras.entrySet().size() > 0 ? extras : null);
+    }
+
+    private void addAttribute(ViewTypeParser<View> parser,
+                              String name,
+                              Value value,
+                              List<Layout.Attribute> attributes,
+                              ObjectValue extras) {
+        ViewTypeParser.AttributeSet.Attribute attribute =
+                parser != null ? parser.getAttributeSet().getAttribute(name) : null;
+        if (attribute != null) {
+            FunctionManager manager = PROTEUS_INSTANCE_HOLDER.getProteus().functions;
+            Value compiled = attribute.processor.precompile(value, mContext, manager);
+            attributes.add(new Layout.Attribute(attribute.id, compiled));
+        } else {
+            extras.add(name, value);
+        }
+    }
+
+    /**
+     * Copies the layouts, objects and arrays of the value so the cached value is not modified
+     * when the copy is edited. Other values are shared.
+     */
+    private static Value copy(Value value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.isLayout()) {
+            Layout layout = value.getAsLayout();
+            List<Layout.Attribute> attributes = null;
+            if (layout.attributes != null) {
+                attributes = new ArrayList<>(layout.attributes.size());
+                for (Layout.Attribute attribute : layout.attributes) {
+                    attributes.add(new Layout.Attribute(attribute.id, copy(attribute.value)));
+                }
+            }
+            ObjectValue extras = layout.extras == null ? null : copy(layout.extras);
+            return new Layout(layout.type, attributes, layout.data, extras);
+        }
+        if (value.isObject()) {
+            return copy(value.getAsObject());
+        }
+        if (value.isArray()) {
+            Array array = value.getAsArray();
+            Array copy = new Array(array.size());
+            Iterator<Value> iterator = array.iterator();
+            while (iterator.hasNext()) {
+                copy.add(copy(iterator.next()));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    private static ObjectValue copy(ObjectValue object) {
+        ObjectValue copy = new ObjectValue();
+        for (Map.Entry<String, Value> entry : object.entrySet()) {
+            copy.add(entry.getKey(), copy(entry.getValue()));
+        }
+        return copy;
+    }
+
+    private static Element readElement(XmlPullParser parser)
+            throws IOException, XmlPullParserException {
+        String[] attributes = new String[parser.getAttributeCount() * 2];
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+            attributes[i * 2] = parser.getAttributeName(i);
+            attributes[i * 2 + 1] = parser.getAttributeValue(i);
+        }
+        String tag = parser.getName();
+
+        List<Element> children = new ArrayList<>();
+        final int depth = parser.getDepth();
+        int type;
+        while (((type = parser.next()) != XmlPullParser.END_TAG ||
+                parser.getDepth() > depth) && type != XmlPullParser.END_DOCUMENT) {
+            if (type != XmlPullParser.START_TAG) {
+                continue;
+            }
+            children.add(readElement(parser));
+        }
+        return new Element(tag, attributes,
+                children.isEmpty() ? Collections.emptyList() : children);
+    }
+
+    /**
+     * Advances the given parser to the first START_TAG. Throws ConvertException if no start tag is
+     * found.
+     */
+    private static void advanceToRootNode(XmlPullParser parser)
+            throws IOException, XmlPullParserException, ConvertException {
+        int type;
+        while ((type = parser.next()) != XmlPullParser.START_TAG &&
+                type != XmlPullParser.END_DOCUMENT) {
+            // Empty
+        }
+
+        if (type != XmlPullParser.START_TAG) {
+            throw new ConvertException(parser.getPositionDescription()
+                    + ": No start tag found!");
+        }
+    }
+
+    /**
+     * An XML element with its attributes and children, used as the key of the compiled values
+     */
+    private static final class Element {
+        final String type;
+        // name and value pairs
+        final String[] attributes;
+        final List<Element> children;
+        final int hash;
+
+        Element(String type, String[] attributes, List<Element> children) {
+            this.type = type;
+            this.attributes = attributes;
+            this.children = children;
+            this.hash = 31 * (31 * type.hashCode() + Arrays.hashCode(attributes))
+                        + children.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Element)) {
+                return false;
+            }
+            Element element = (Element) o;
+            return hash == element.hash && type.equals(element.type) &&
+                   Arrays.equals(attributes, element.attributes) &&
+                   children.equals(element.children);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
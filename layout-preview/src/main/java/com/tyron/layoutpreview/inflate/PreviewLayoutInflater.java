@@ -33,7 +33,7 @@ import com.tyron.layout.appcompat.AppCompatModule;
 import com.tyron.layout.cardview.CardViewModule;
 import com.tyron.layout.constraintlayout.ConstraintLayoutModule;
 import com.tyron.layoutpreview.ResourceManager;
-import com.tyron.layoutpreview.convert.XmlToJsonConverter;
+import com.tyron.layoutpreview.convert.LayoutCompiler;
 import com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory;
 import com.tyron.layoutpreview.manager.ResourceDrawableManager;
 import com.tyron.layoutpreview.manager.ResourceLayoutManager;
@@ -54,6 +54,7 @@ public class PreviewLayoutInflater {
     private final Proteus mProteus;
     private final AndroidModule mProject;
     private ProteusContext mContext;
+    private final LayoutCompiler mLayoutCompiler;
 
     private final ProteusLayoutInflater.Callback mCallback = new ProteusLayoutInflater.Callback() {
         @Override
@@ -161,14 +162,19 @@ public class PreviewLayoutInflater {
         ProteusTypeAdapterFactory.PROTEUS_INSTANCE_HOLDER.setProteus(mProteus);
 
         mParser.setProteusContext(mContext);
+        mLayoutCompiler = new LayoutCompiler(mContext);
     }
 
+    /**
+     * Parses the resources of the module, it can be called again to read the resources that
+     * have changed. Layouts that have not changed are taken from the compiler's cache.
+     */
     public CompletableFuture<PreviewLayoutInflater> parseResources(Executor executor) {
         return CompletableFuture.supplyAsync(() -> {
             ResourceManager resourceManager = new ResourceManager(mContext,
                     mProject, mProject.getFileManager());
             mDrawableManager.setDrawables(resourceManager.getDrawables());
-            mLayoutManager.setLayouts(resourceManager.getLayouts());
+            mLayoutManager.setLayouts(resourceManager.getLayouts(mLayoutCompiler));
 
 
             mParser.parse(mProject);
@@ -205,6 +211,31 @@ public class PreviewLayoutInflater {
         return mContext;
     }
 
+    @NonNull
+    public LayoutCompiler getLayoutCompiler() {
+        return mLayoutCompiler;
+    }
+
+    /**
+     * Compiles the contents of an edited layout file and registers it under the given name,
+     * the elements that have not changed are taken from the compiler's cache.
+     *
+     * @return false if the contents are not a valid layout
+     */
+    public boolean updateLayout(@NonNull String name, @NonNull String contents) {
+        try {
+            Value value = mLayoutCompiler.compile(contents);
+            if (!value.isLayout()) {
+                return false;
+            }
+            mLayoutManager.setLayout(name, value.getAsLayout());
+            return true;
+        } catch (Exception e) {
+            Log.d("PreviewLayoutInflater", "Unable to compile layout " + name, e);
+            return false;
+        }
+    }
+
     public Optional<ProteusView> inflateLayout(@NonNull String name) {
         ProteusLayoutInflater inflater = mContext.getInflater();
         if (mContext.getLayout(name) == null) {
@@ -219,9 +250,7 @@ public class PreviewLayoutInflater {
     @Deprecated
     public ProteusView inflate(String xml) throws InflateException {
         try {
-            JsonObject object = new XmlToJsonConverter()
-                    .convert(xml);
-            return inflate(object);
+            return inflate(mLayoutCompiler.compile(xml).getAsLayout());
         } catch (Exception e) {
             throw new InflateException("Unable to inflate layout: " + e.getMessage());
         }
@@ -22,4 +22,8 @@ public class ResourceLayoutManager extends LayoutManager {
         mLayouts.clear();
         mLayouts.putAll(map);
     }
+
+    public void setLayout(String name, Layout layout) {
+        mLayouts.put(name, layout);
+    }
 }
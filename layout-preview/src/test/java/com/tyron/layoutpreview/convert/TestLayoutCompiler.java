@@ -0,0 +1,90 @@
+package com.tyron.layoutpreview.convert;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.flipkart.android.proteus.value.Value;
+import com.tyron.layoutpreview.BaseTest;
+
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+
+public class TestLayoutCompiler extends BaseTest {
+
+    private static final String TEST_LAYOUT = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+            "    android:layout_width=\"match_parent\"\n" +
+            "    android:layout_height=\"match_parent\"\n" +
+            "    android:orientation=\"vertical\">\n" +
+            "\n" +
+            "    <TextView\n" +
+            "        android:layout_width=\"wrap_content\"\n" +
+            "        android:layout_height=\"wrap_content\"\n" +
+            "        android:text=\"First\" />\n" +
+            "\n" +
+            "    <FrameLayout\n" +
+            "        android:layout_width=\"match_parent\"\n" +
+            "        android:layout_height=\"wrap_content\">\n" +
+            "\n" +
+            "        <TextView\n" +
+            "            android:layout_width=\"wrap_content\"\n" +
+            "            android:layout_height=\"wrap_content\"\n" +
+            "            android:text=\"Second\" />\n" +
+            "    </FrameLayout>\n" +
+            "</LinearLayout>";
+
+    @Test
+    public void testCompile() throws Exception {
+        LayoutCompiler compiler = new LayoutCompiler(mInflater.getContext());
+        Value value = compiler.compile(TEST_LAYOUT);
+        assertThat(value.isLayout()).isTrue();
+        assertThat(value.getAsLayout().type).isEqualTo("LinearLayout");
+        assertThat(compiler.getCompiledCount()).isEqualTo(4);
+        assertThat(mInflater.inflate(value.getAsLayout())).isNotNull();
+    }
+
+    @Test
+    public void testUnchangedElementsAreReused() throws Exception {
+        LayoutCompiler compiler = new LayoutCompiler(mInflater.getContext());
+        Value first = compiler.compile(TEST_LAYOUT);
+        assertThat(compiler.getCompiledCount()).isEqualTo(4);
+
+        // only the first text view and its parent have changed
+        Value second = compiler.compile(TEST_LAYOUT.replace("First", "Edited"));
+        assertThat(compiler.getCompiledCount()).isEqualTo(6);
+        assertThat(compiler.getCachedCount()).isEqualTo(1);
+
+        // the results are copies, editing one does not affect the cache
+        assertThat(second).isNotSameInstanceAs(first);
+        compiler.compile(TEST_LAYOUT);
+        assertThat(compiler.getCompiledCount()).isEqualTo(6);
+    }
+
+    @Test
+    public void testUpdateLayoutReusesSiblings() throws Exception {
+        LayoutCompiler compiler = mInflater.getLayoutCompiler();
+        assertThat(mInflater.updateLayout("test_layout", TEST_LAYOUT)).isTrue();
+        int compiled = compiler.getCompiledCount();
+        int cached = compiler.getCachedCount();
+
+        // the text view in the frame layout is edited
+        String edited = TEST_LAYOUT.replace("Second", "Edited");
+        assertThat(mInflater.updateLayout("test_layout", edited)).isTrue();
+        // the text view and its two parents are compiled again, the first text view is not
+        assertThat(compiler.getCompiledCount()).isEqualTo(compiled + 3);
+        assertThat(compiler.getCachedCount()).isEqualTo(cached + 1);
+        assertThat(mInflater.inflateLayout("test_layout").isPresent()).isTrue();
+
+        assertThat(mInflater.updateLayout("test_layout", "<not a layout")).isFalse();
+    }
+
+    @Test
+    public void testParseResourcesAgainUsesCache() throws Exception {
+        LayoutCompiler compiler = mInflater.getLayoutCompiler();
+        int compiled = compiler.getCompiledCount();
+
+        // the layout editor parses the resources each time it is opened
+        mInflater.parseResources(Executors.newSingleThreadExecutor()).get();
+        assertThat(compiler.getCompiledCount()).isEqualTo(compiled);
+    }
+}
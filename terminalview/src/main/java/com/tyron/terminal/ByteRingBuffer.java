@@ -0,0 +1,133 @@
+package com.tyron.terminal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A circular byte buffer allowing many producer threads and one consumer thread without
+ * locking. Producers reserve a region of the buffer with a compare and set, copy their
+ * bytes into it and publish the regions in the order they were reserved. The consumer
+ * never blocks, it reads whatever has been published.
+ * <p>
+ * A producer waits while the buffer is full, so a slow consumer slows down the producers
+ * instead of dropping their output.
+ */
+public final class ByteRingBuffer {
+
+    private static final long FULL_WAIT_NANOS = 100_000;
+
+    private final byte[] mBuffer;
+    private final int mMask;
+
+    /** The end of the last region reserved by a producer. */
+    private final AtomicLong mReserved = new AtomicLong();
+    /** The end of the bytes that can be read, regions before it have been copied. */
+    private final AtomicLong mPublished = new AtomicLong();
+    /** The position of the consumer, only written by the consumer. */
+    private volatile long mHead;
+    private volatile boolean mClosed;
+
+    /**
+     * @param capacity the size of the buffer, rounded up to a power of two
+     */
+    public ByteRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mBuffer = new byte[size];
+        mMask = size - 1;
+    }
+
+    public int getCapacity() {
+        return mBuffer.length;
+    }
+
+    /**
+     * Writes the bytes to the buffer, waiting while the buffer is full. Bytes written by one
+     * call stay in order, a write larger than the capacity may be interleaved with the writes
+     * of other threads.
+     *
+     * @return false if the buffer has been closed before all the bytes were written
+     */
+    public boolean write(byte[] buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IndexOutOfBoundsException(
+                    "offset: " + offset + ", length: " + length + ", size: " + buffer.length);
+        }
+        while (length > 0) {
+            int chunk = Math.min(length, mBuffer.length);
+            long start;
+            while (true) {
+                if (mClosed) {
+                    return false;
+                }
+                start = mReserved.get();
+                if (start + chunk - mHead > mBuffer.length) {
+                    LockSupport.parkNanos(FULL_WAIT_NANOS);
+                    continue;
+                }
+                if (mReserved.compareAndSet(start, start + chunk)) {
+                    break;
+                }
+            }
+
+            int index = (int) (start & mMask);
+            int firstRun = Math.min(chunk, mBuffer.length - index);
+            System.arraycopy(buffer, offset, mBuffer, index, firstRun);
+            if (firstRun < chunk) {
+                System.arraycopy(buffer, offset + firstRun, mBuffer, 0, chunk - firstRun);
+            }
+
+            // the regions reserved before this one must be readable first
+            while (mPublished.get() != start) {
+                if (mClosed) {
+                    return false;
+                }
+                Thread.yield();
+            }
+            mPublished.set(start + chunk);
+
+            offset += chunk;
+            length -= chunk;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the published bytes without waiting, must only be called from the consumer
+     * thread.
+     *
+     * @return the number of bytes read, 0 if there are none
+     */
+    public int read(byte[] buffer, int offset, int length) {
+        long head = mHead;
+        int count = (int) Math.min(length, mPublished.get() - head);
+        if (count <= 0) {
+            return 0;
+        }
+        int index = (int) (head & mMask);
+        int firstRun = Math.min(count, mBuffer.length - index);
+        System.arraycopy(mBuffer, index, buffer, offset, firstRun);
+        if (firstRun < count) {
+            System.arraycopy(mBuffer, 0, buffer, offset + firstRun, count - firstRun);
+        }
+        mHead = head + count;
+        return count;
+    }
+
+    /**
+     * @return the number of bytes that can be read
+     */
+    public int available() {
+        return (int) (mPublished.get() - mHead);
+    }
+
+    /**
+     * Producers waiting for space or writing after this call return false.
+     */
+    public void close() {
+        mClosed = true;
+    }
+
+    public boolean isClosed() {
+        return mClosed;
+    }
+}
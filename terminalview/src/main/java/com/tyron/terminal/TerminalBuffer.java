@@ -119,6 +119,14 @@ public final class TerminalBuffer {
         return mActiveTranscriptRows;
     }
 
+    /**
+     * @return the number of rows of the screen and the transcript, rows scrolled past this
+     * are discarded
+     */
+    public int getTotalRows() {
+        return mTotalRows;
+    }
+
     public int getActiveRows() {
         return mActiveTranscriptRows + mScreenRows;
     }
@@ -491,7 +491,17 @@ public final class TerminalEmulator {
      * @param length the number of bytes in the array to process
      */
     public void append(byte[] buffer, int length) {
-        for (int i = 0; i < length; i++)
+        append(buffer, 0, length);
+    }
+
+    /**
+     * Accept the bytes of a region of the array and process them.
+     *
+     * @param offset the index of the first byte to process
+     * @param length the number of bytes to process
+     */
+    public void append(byte[] buffer, int offset, int length) {
+        for (int i = offset; i < offset + length; i++)
             processByte(buffer[i]);
     }
 
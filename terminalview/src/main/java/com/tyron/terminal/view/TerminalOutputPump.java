@@ -0,0 +1,287 @@
+package com.tyron.terminal.view;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+import com.tyron.terminal.ByteRingBuffer;
+import com.tyron.terminal.TerminalEmulator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Feeds output written from any thread to the emulator of a {@link TerminalView} without a
+ * process behind it, such as the output of a build.
+ * <p>
+ * Writes are copied to a {@link ByteRingBuffer} and the main thread drains it once per frame,
+ * appending everything written since the last frame to the emulator in one batch. Rows that
+ * would scroll past the transcript of the emulator within a batch are dropped before they are
+ * processed.
+ * <p>
+ * If no frame arrives shortly after output was written, such as while the screen is off and
+ * the choreographer stops producing frames, the buffer is drained from the main handler instead
+ * so the producers do not wait on a full buffer until the screen is turned on.
+ */
+public final class TerminalOutputPump implements Choreographer.FrameCallback {
+
+    private static final int BUFFER_CAPACITY = 1024 * 1024;
+    private static final int FRAME_BYTES = 256 * 1024;
+    /** The bytes kept while the emulator has not been created yet. */
+    private static final int MAX_PENDING_BYTES = 256 * 1024;
+    /** How long to wait for a frame before draining the buffer without one. */
+    private static final long FRAME_TIMEOUT_MS = 100;
+    /** Finishes the row of the cursor, see appendVisible. */
+    private static final byte[] ROW_BREAK = {'\r', '\n'};
+
+    private final TerminalView mView;
+    private final ByteRingBuffer mBuffer = new ByteRingBuffer(BUFFER_CAPACITY);
+    private final byte[] mBatch = new byte[FRAME_BYTES];
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean mScheduled = new AtomicBoolean();
+    private final Runnable mDrainWithoutFrame = this::drainWithoutFrame;
+    private final Runnable mPostFrame = () -> {
+        Choreographer.getInstance().postFrameCallback(this);
+        mMainHandler.postDelayed(mDrainWithoutFrame, FRAME_TIMEOUT_MS);
+    };
+
+    private byte[] mPending = new byte[0];
+    private int mPendingLength;
+    private long mDroppedBytes;
+
+    private final OutputStream mOutputStream = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            if (len > 0 && mBuffer.write(b, off, len)) {
+                schedule();
+            }
+        }
+    };
+
+    public TerminalOutputPump(@NonNull TerminalView view) {
+        mView = view;
+    }
+
+    /**
+     * @return a stream that can be written to from any thread, the bytes written after
+     * {@link #close()} are discarded
+     */
+    @NonNull
+    public OutputStream getOutputStream() {
+        return mOutputStream;
+    }
+
+    /**
+     * Called when the emulator of the view has been created, the output received before it
+     * is appended on the next frame
+     */
+    public void onEmulatorSet() {
+        schedule();
+    }
+
+    /**
+     * Stops delivering output to the view, must be called from the main thread
+     */
+    public void close() {
+        mBuffer.close();
+        mMainHandler.removeCallbacks(mPostFrame);
+        mMainHandler.removeCallbacks(mDrainWithoutFrame);
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    /**
+     * @return the number of bytes that were dropped because they scrolled past the transcript
+     */
+    public long getDroppedBytes() {
+        return mDroppedBytes;
+    }
+
+    private void schedule() {
+        if (mBuffer.isClosed() || !mScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            mPostFrame.run();
+        } else {
+            mMainHandler.post(mPostFrame);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mMainHandler.removeCallbacks(mDrainWithoutFrame);
+        drain();
+        finishDrain();
+    }
+
+    /**
+     * Called when no frame arrived within {@link #FRAME_TIMEOUT_MS}, drains up to the capacity
+     * of the buffer at once since nothing is drawn in between.
+     */
+    private void drainWithoutFrame() {
+        Choreographer.getInstance().removeFrameCallback(this);
+        for (int i = 0; i < BUFFER_CAPACITY / FRAME_BYTES && mBuffer.available() > 0; i++) {
+            drain();
+        }
+        finishDrain();
+    }
+
+    private void drain() {
+        TerminalEmulator emulator = mView.mEmulator;
+        int read = mBuffer.read(mBatch, 0, mBatch.length);
+
+        if (emulator == null) {
+            if (read > 0) {
+                keepPending(read);
+            }
+        } else if (read > 0 || mPendingLength > 0) {
+            if (mPendingLength > 0) {
+                mDroppedBytes += appendVisible(emulator, mPending, 0, mPendingLength);
+                mPending = new byte[0];
+                mPendingLength = 0;
+            }
+            mDroppedBytes += appendVisible(emulator, mBatch, 0, read);
+            mView.onScreenUpdated();
+        }
+    }
+
+    private void finishDrain() {
+        // a write after the read above either sees the flag cleared or is read below
+        mScheduled.set(false);
+        if (mBuffer.available() > 0) {
+            schedule();
+        }
+    }
+
+    private void keepPending(int read) {
+        if (mPendingLength + read > mPending.length) {
+            mPending = Arrays.copyOf(mPending,
+                    Math.max(mPendingLength + read, mPending.length * 2));
+        }
+        System.arraycopy(mBatch, 0, mPending, mPendingLength, read);
+        mPendingLength += read;
+
+        if (mPendingLength > MAX_PENDING_BYTES) {
+            // keep the last rows, starting at a row so no sequence is cut in half
+            int start = mPendingLength - MAX_PENDING_BYTES;
+            while (start < mPendingLength && mPending[start - 1] != '\n') {
+                start++;
+            }
+            mDroppedBytes += start;
+            mPendingLength -= start;
+            System.arraycopy(mPending, start, mPending, 0, mPendingLength);
+        }
+    }
+
+    /**
+     * Appends the output to the emulator, skipping the rows that would scroll past its
+     * transcript.
+     * <p>
+     * The output is only cut at a line feed, the graphic rendition set by the skipped rows
+     * is kept by processing their SGR sequences after the last one that resets it.
+     *
+     * @return the number of bytes that were skipped
+     */
+    public static int appendVisible(TerminalEmulator emulator, byte[] buffer, int offset,
+                                    int length) {
+        int start = findVisibleStart(buffer, offset, length, emulator.getScreen().getTotalRows());
+        if (start > offset) {
+            // the skipped output would have finished the row the cursor is on
+            emulator.append(ROW_BREAK, ROW_BREAK.length);
+            replayRendition(emulator, buffer, offset, start);
+        }
+        emulator.append(buffer, start, offset + length - start);
+        return start - offset;
+    }
+
+    /**
+     * Processes the SGR sequences of the skipped output that still affect the rendition, those
+     * after the last sequence that starts with a reset.
+     */
+    private static void replayRendition(TerminalEmulator emulator, byte[] buffer, int offset,
+                                        int end) {
+        int from = offset;
+        for (int i = offset; i < end; i++) {
+            int sequenceEnd = findSgrEnd(buffer, i, end);
+            if (sequenceEnd != -1) {
+                if (startsWithReset(buffer, i + 2)) {
+                    from = i;
+                }
+                i = sequenceEnd - 1;
+            }
+        }
+        for (int i = from; i < end; i++) {
+            int sequenceEnd = findSgrEnd(buffer, i, end);
+            if (sequenceEnd != -1) {
+                emulator.append(buffer, i, sequenceEnd - i);
+                i = sequenceEnd - 1;
+            }
+        }
+    }
+
+    /**
+     * @return the index after the SGR sequence ({@code ESC [ params m}) starting at the index,
+     * or -1 if there is none or it does not end before the end
+     */
+    private static int findSgrEnd(byte[] buffer, int index, int end) {
+        if (buffer[index] != 0x1b || index + 1 >= end || buffer[index + 1] != '[') {
+            return -1;
+        }
+        for (int i = index + 2; i < end; i++) {
+            byte b = buffer[i];
+            if (b == 'm') {
+                return i + 1;
+            }
+            if (!isDigit(b) && b != ';' && b != ':') {
+                // another sequence or a private one
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param index the index of the parameters of an SGR sequence
+     * @return whether the first parameter is empty or 0
+     */
+    private static boolean startsWithReset(byte[] buffer, int index) {
+        while (buffer[index] == '0') {
+            index++;
+        }
+        return !isDigit(buffer[index]);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Finds where the last rows of the output start, the output before it would scroll past
+     * the transcript once appended. Rows are counted by line feeds, a line wrapped into several
+     * rows only counts once so more output than needed may be kept.
+     * <p>
+     * The line before the last rows is kept as well, it scrolls past the transcript but it
+     * moves the cursor from the row it was on to the start of the first kept row.
+     *
+     * @param rows the number of rows of the screen and its transcript
+     * @return the index of the first byte to process
+     */
+    public static int findVisibleStart(byte[] buffer, int offset, int length, int rows) {
+        int lineFeeds = 0;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            if (buffer[i] == '\n' && ++lineFeeds == rows + 1) {
+                return i + 1;
+            }
+        }
+        return offset;
+    }
+}
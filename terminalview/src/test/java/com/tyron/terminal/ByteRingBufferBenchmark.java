@@ -0,0 +1,45 @@
+package com.tyron.terminal;
+
+import com.tyron.terminal.ByteRingBufferTest.NoOutput;
+import com.tyron.terminal.view.TerminalOutputPump;
+
+/**
+ * Compares appending a 50 MB build log to an emulator directly with writing it from 4 threads
+ * to a {@link ByteRingBuffer} drained by {@link TerminalOutputPump}. Run manually, it is not
+ * part of the unit tests.
+ */
+public class ByteRingBufferBenchmark {
+
+    private static final int LOG_SIZE = 50 * 1024 * 1024;
+    private static final int PRODUCERS = 4;
+
+    public static void main(String[] args) throws InterruptedException {
+        byte[] chunk = ByteRingBufferTest.createLog(8 * 1024);
+        // both paths write the same whole chunks
+        int chunksPerProducer = LOG_SIZE / chunk.length / PRODUCERS;
+        long total = (long) chunksPerProducer * PRODUCERS * chunk.length;
+
+        long directStart = System.nanoTime();
+        TerminalEmulator direct = new TerminalEmulator(new NoOutput(), 120, 40, null, null);
+        for (int i = 0; i < chunksPerProducer * PRODUCERS; i++) {
+            direct.append(chunk, chunk.length);
+        }
+        long directTime = System.nanoTime() - directStart;
+
+        long pumpStart = System.nanoTime();
+        TerminalEmulator emulator = new TerminalEmulator(new NoOutput(), 120, 40, null, null);
+        long dropped = ByteRingBufferTest.replay(emulator, chunk, PRODUCERS, chunksPerProducer);
+        long pumpTime = System.nanoTime() - pumpStart;
+
+        System.out.printf("direct append: %d MB in %d ms (%.1f MB/s)%n",
+                total >> 20, directTime / 1_000_000, mbPerSecond(total, directTime));
+        System.out.printf("ring buffer + batches: %d MB in %d ms (%.1f MB/s), " +
+                          "%d KB processed by the emulator%n",
+                total >> 20, pumpTime / 1_000_000, mbPerSecond(total, pumpTime),
+                (total - dropped) >> 10);
+    }
+
+    private static double mbPerSecond(long bytes, long nanos) {
+        return (bytes / (1024.0 * 1024.0)) / (nanos / 1_000_000_000.0);
+    }
+}
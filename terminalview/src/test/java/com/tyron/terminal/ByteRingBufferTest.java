@@ -0,0 +1,230 @@
+package com.tyron.terminal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.tyron.terminal.view.TerminalOutputPump;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ByteRingBufferTest {
+
+    @Test
+    public void testProducersKeepTheirOrder() throws Exception {
+        ByteRingBuffer buffer = new ByteRingBuffer(1024);
+        int producers = 4;
+        int linesPerProducer = 20_000;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int id = p;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < linesPerProducer; i++) {
+                    byte[] line = (id + ":" + i + "\n").getBytes(StandardCharsets.UTF_8);
+                    assertTrue(buffer.write(line, 0, line.length));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        int[] next = new int[producers];
+        int lines = 0;
+        StringBuilder current = new StringBuilder();
+        byte[] batch = new byte[300];
+        while (lines < producers * linesPerProducer) {
+            int read = buffer.read(batch, 0, batch.length);
+            for (int i = 0; i < read; i++) {
+                if (batch[i] != '\n') {
+                    current.append((char) batch[i]);
+                    continue;
+                }
+                String[] parts = current.toString().split(":");
+                int id = Integer.parseInt(parts[0]);
+                assertEquals(next[id]++, Integer.parseInt(parts[1]));
+                current.setLength(0);
+                lines++;
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, buffer.available());
+    }
+
+    @Test
+    public void testCloseReleasesWaitingProducer() throws Exception {
+        ByteRingBuffer buffer = new ByteRingBuffer(16);
+        AtomicBoolean result = new AtomicBoolean(true);
+        Thread producer = new Thread(() -> result.set(buffer.write(new byte[64], 0, 64)));
+        producer.start();
+        producer.join(100);
+        buffer.close();
+        producer.join();
+        assertFalse(result.get());
+    }
+
+    @Test
+    public void testFindVisibleStart() {
+        byte[] text = "a\nb\nc\nd".getBytes(StandardCharsets.UTF_8);
+        // the line before the last rows is kept
+        assertEquals(4, TerminalOutputPump.findVisibleStart(text, 0, text.length, 1));
+        assertEquals(2, TerminalOutputPump.findVisibleStart(text, 0, text.length, 2));
+        assertEquals(0, TerminalOutputPump.findVisibleStart(text, 0, text.length, 3));
+        assertEquals(0, TerminalOutputPump.findVisibleStart(text, 0, text.length, 10));
+    }
+
+    @Test
+    public void testAppendVisibleKeepsRendition() {
+        TerminalEmulator emulator = new TerminalEmulator(new NoOutput(), 120, 40, null, null);
+        StringBuilder text = new StringBuilder("\033[31m");
+        appendRows(text, emulator.getScreen().getTotalRows() + 10);
+        text.append("last");
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(TerminalOutputPump.appendVisible(emulator, bytes, 0, bytes.length) > 0);
+        long style = emulator.getScreen().getStyleAt(emulator.getCursorRow(), 0);
+        // the red foreground was set by a skipped row
+        assertEquals(1, TextStyle.decodeForeColor(style));
+    }
+
+    @Test
+    public void testAppendVisibleKeepsRenditionAfterReset() {
+        TerminalEmulator emulator = new TerminalEmulator(new NoOutput(), 120, 40, null, null);
+        StringBuilder text = new StringBuilder("\033[1;31m");
+        appendRows(text, 10);
+        text.append("\033[0m\033[32m");
+        appendRows(text, 10);
+        text.append("\033[;34merror\033[4m\r\n");
+        appendRows(text, emulator.getScreen().getTotalRows() + 10);
+        text.append("last");
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(TerminalOutputPump.appendVisible(emulator, bytes, 0, bytes.length) > 0);
+        long style = emulator.getScreen().getStyleAt(emulator.getCursorRow(), 0);
+        assertEquals(4, TextStyle.decodeForeColor(style));
+        int effect = TextStyle.decodeEffect(style);
+        assertEquals(0, effect & TextStyle.CHARACTER_ATTRIBUTE_BOLD);
+        assertTrue((effect & TextStyle.CHARACTER_ATTRIBUTE_UNDERLINE) != 0);
+    }
+
+    /**
+     * Appends a log written by 4 threads, drained in batches of the size used by
+     * {@link TerminalOutputPump}, the emulator must show the same transcript as when all of
+     * the log is appended.
+     */
+    @Test
+    public void testLogReplayKeepsTranscript() throws Exception {
+        byte[] chunk = createLog(8 * 1024);
+        int producers = 4;
+        int chunksPerProducer = 64;
+
+        TerminalEmulator direct = new TerminalEmulator(new NoOutput(), 120, 40, null, null);
+        for (int i = 0; i < chunksPerProducer * producers; i++) {
+            direct.append(chunk, chunk.length);
+        }
+
+        TerminalEmulator emulator = new TerminalEmulator(new NoOutput(), 120, 40, null, null);
+        // the rows past the transcript are dropped
+        assertTrue(replay(emulator, chunk, producers, chunksPerProducer) > 0);
+        // every write is the same chunk so dropping rows must not change what is shown
+        assertEquals(direct.getScreen().getTranscriptText(),
+                emulator.getScreen().getTranscriptText());
+    }
+
+    /**
+     * Writes the chunk from the producers to a ring buffer and appends it to the emulator in
+     * batches of the size used by {@link TerminalOutputPump}.
+     *
+     * @return the number of bytes that were skipped
+     */
+    static long replay(TerminalEmulator emulator, byte[] chunk, int producers,
+                       int chunksPerProducer) throws InterruptedException {
+        long total = (long) chunksPerProducer * producers * chunk.length;
+        ByteRingBuffer buffer = new ByteRingBuffer(1024 * 1024);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < chunksPerProducer; i++) {
+                    buffer.write(chunk, 0, chunk.length);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        byte[] batch = new byte[256 * 1024];
+        long read = 0;
+        long dropped = 0;
+        while (read < total) {
+            int count = buffer.read(batch, 0, batch.length);
+            if (count == 0) {
+                Thread.yield();
+                continue;
+            }
+            dropped += TerminalOutputPump.appendVisible(emulator, batch, 0, count);
+            read += count;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return dropped;
+    }
+
+    private static void appendRows(StringBuilder text, int rows) {
+        for (int i = 0; i < rows; i++) {
+            text.append("row ").append(i).append("\r\n");
+        }
+    }
+
+    static byte[] createLog(int size) {
+        StringBuilder builder = new StringBuilder(size);
+        int line = 0;
+        while (true) {
+            String text = "> Task :app:compileDebugJavaWithJavac [INFO] processing source " +
+                          line++ + "\r\n";
+            if (builder.length() + text.length() > size) {
+                break;
+            }
+            builder.append(text);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static class NoOutput extends TerminalOutput {
+
+        @Override
+        public void write(byte[] data, int offset, int count) {
+
+        }
+
+        @Override
+        public void titleChanged(String oldTitle, String newTitle) {
+
+        }
+
+        @Override
+        public void onCopyTextToClipboard(String text) {
+
+        }
+
+        @Override
+        public void onPasteTextFromClipboard() {
+
+        }
+
+        @Override
+        public void onBell() {
+
+        }
+
+        @Override
+        public void onColorsChanged() {
+
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.tyron.completion.xml.task;
+
+import androidx.annotation.NonNull;
+
+import com.android.ide.common.rendering.api.AttrResourceValue;
+import com.android.ide.common.rendering.api.ResourceNamespace;
+import com.android.ide.common.rendering.api.StyleableResourceValue;
+import com.android.ide.common.resources.ResourceItem;
+import com.android.ide.common.resources.ResourceRepository;
+import com.android.ide.common.resources.SingleNamespaceResourceRepository;
+import com.android.resources.ResourceType;
+import com.sun.tools.javac.util.Context;
+import com.tyron.builder.project.api.AndroidModule;
+import com.tyron.completion.java.parse.ResourceClassSymbols;
+import com.tyron.completion.xml.v2.project.LocalResourceRepository;
+
+import org.jetbrains.kotlin.com.intellij.openapi.util.Key;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * The fields of the R class of a module, kept per leaf resource repository so only the
+ * repositories whose modification count has changed are read again. The nested classes
+ * whose fields have changed are updated in the javac context through
+ * {@link ResourceClassSymbols}.
+ */
+class ResourceClassModel {
+
+    private static final Key<ResourceClassModel> RESOURCE_CLASS_MODEL_KEY =
+            Key.create("resourceClassModel");
+
+    static synchronized ResourceClassModel get(@NonNull AndroidModule module) {
+        ResourceClassModel model = module.getUserData(RESOURCE_CLASS_MODEL_KEY);
+        if (model == null) {
+            model = new ResourceClassModel();
+            module.putUserData(RESOURCE_CLASS_MODEL_KEY, model);
+        }
+        return model;
+    }
+
+    /**
+     * A leaf repository as seen by the model
+     */
+    static class Leaf {
+        final Object key;
+        final long modificationCount;
+        final Supplier<Map<ResourceType, Map<String, Boolean>>> fields;
+
+        /**
+         * @param key               identifies the leaf between calls to install
+         * @param modificationCount the fields are only read again when this has changed
+         * @param fields            reads the fields declared by the leaf, the value is whether
+         *                          the field is an array
+         */
+        Leaf(@NonNull Object key,
+             long modificationCount,
+             @NonNull Supplier<Map<ResourceType, Map<String, Boolean>>> fields) {
+            this.key = key;
+            this.modificationCount = modificationCount;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * The fields declared by a leaf repository, the value is whether the field is an array
+     */
+    private static class Contribution {
+        final long modificationCount;
+        final Map<ResourceType, Map<String, Boolean>> fields;
+
+        Contribution(long modificationCount, Map<ResourceType, Map<String, Boolean>> fields) {
+            this.modificationCount = modificationCount;
+            this.fields = fields;
+        }
+    }
+
+    private Map<Object, Contribution> mContributions = new IdentityHashMap<>();
+
+    // the fields declared in the installed context
+    private final Map<ResourceType, Map<String, Boolean>> mInstalled =
+            new EnumMap<>(ResourceType.class);
+    private WeakReference<Context> mInstalledContext = new WeakReference<>(null);
+    private String mInstalledPackage;
+
+    // the values are kept while the resource exists so adding a resource does not
+    // change the values of the other fields
+    private final Map<ResourceType, Values> mValues = new EnumMap<>(ResourceType.class);
+
+    /**
+     * The values of the fields of a resource type, the last 16 bits of a value are its entry
+     * so the values of removed resources are given to new ones.
+     */
+    private static class Values {
+        final Map<String, Integer> values = new HashMap<>();
+        final ArrayDeque<Integer> free = new ArrayDeque<>();
+        int next;
+    }
+
+    /**
+     * Brings the R class declared in the context up to date with the repository. Must be
+     * called while no other thread is using the context.
+     */
+    synchronized void install(@NonNull Context context,
+                              @NonNull String packageName,
+                              @NonNull ResourceRepository repository) {
+        List<Leaf> leaves = new ArrayList<>();
+        for (SingleNamespaceResourceRepository leaf : repository.getLeafResourceRepositories()) {
+            // library repositories don't change
+            long modificationCount = leaf instanceof LocalResourceRepository
+                    ? ((LocalResourceRepository) leaf).getModificationCount()
+                    : 0;
+            leaves.add(new Leaf(leaf, modificationCount, () -> collectFields(leaf)));
+        }
+        install(context, packageName, leaves);
+    }
+
+    synchronized void install(@NonNull Context context,
+                              @NonNull String packageName,
+                              @NonNull List<Leaf> leaves) {
+        Set<ResourceType> changed = updateContributions(leaves);
+
+        if (mInstalledContext.get() != context ||
+            !packageName.equals(mInstalledPackage) ||
+            !ResourceClassSymbols.isDeclared(context, packageName)) {
+            mInstalled.clear();
+            changed = EnumSet.allOf(ResourceType.class);
+            mInstalledContext = new WeakReference<>(context);
+            mInstalledPackage = packageName;
+        }
+
+        for (ResourceType type : changed) {
+            Map<String, Boolean> fields = mergeFields(type);
+            releaseValues(type, fields);
+            Map<String, Boolean> installed = mInstalled.getOrDefault(type, Collections.emptyMap());
+
+            List<ResourceClassSymbols.Field> added = new ArrayList<>();
+            for (Map.Entry<String, Boolean> entry : fields.entrySet()) {
+                if (!entry.getValue().equals(installed.get(entry.getKey()))) {
+                    added.add(new ResourceClassSymbols.Field(entry.getKey(), entry.getValue(),
+                            getValue(type, entry.getKey())));
+                }
+            }
+            List<String> removed = new ArrayList<>();
+            for (String name : installed.keySet()) {
+                if (!fields.containsKey(name)) {
+                    removed.add(name);
+                }
+            }
+            if (added.isEmpty() && removed.isEmpty()) {
+                continue;
+            }
+
+            ResourceClassSymbols.update(context, packageName, type.getName(), added, removed);
+            if (fields.isEmpty()) {
+                mInstalled.remove(type);
+            } else {
+                mInstalled.put(type, fields);
+            }
+        }
+    }
+
+    /**
+     * Reads the leaf repositories that have changed since the last call.
+     *
+     * @return the resource types whose fields may have changed
+     */
+    private Set<ResourceType> updateContributions(List<Leaf> leaves) {
+        Set<ResourceType> changed = EnumSet.noneOf(ResourceType.class);
+        Map<Object, Contribution> contributions = new IdentityHashMap<>();
+        for (Leaf leaf : leaves) {
+            Contribution previous = mContributions.remove(leaf.key);
+            Contribution contribution = previous;
+            if (previous == null || previous.modificationCount != leaf.modificationCount) {
+                contribution = new Contribution(leaf.modificationCount, leaf.fields.get());
+                addChangedTypes(changed, previous, contribution);
+            }
+            contributions.put(leaf.key, contribution);
+        }
+        // the repositories that are no longer part of the module
+        for (Contribution removed : mContributions.values()) {
+            changed.addAll(removed.fields.keySet());
+        }
+        mContributions = contributions;
+        return changed;
+    }
+
+    private static void addChangedTypes(Set<ResourceType> changed,
+                                        Contribution previous,
+                                        Contribution contribution) {
+        if (previous == null) {
+            changed.addAll(contribution.fields.keySet());
+            return;
+        }
+        Set<ResourceType> types = EnumSet.noneOf(ResourceType.class);
+        types.addAll(previous.fields.keySet());
+        types.addAll(contribution.fields.keySet());
+        for (ResourceType type : types) {
+            if (!Objects.equals(previous.fields.get(type), contribution.fields.get(type))) {
+                changed.add(type);
+            }
+        }
+    }
+
+    private Map<String, Boolean> mergeFields(ResourceType type) {
+        Map<String, Boolean> fields = new HashMap<>();
+        for (Contribution contribution : mContributions.values()) {
+            Map<String, Boolean> contributed = contribution.fields.get(type);
+            if (contributed != null) {
+                fields.putAll(contributed);
+            }
+        }
+        return fields;
+    }
+
+    private int getValue(ResourceType type, String name) {
+        Values values = mValues.computeIfAbsent(type, t -> new Values());
+        Integer value = values.values.get(name);
+        if (value == null) {
+            value = values.free.poll();
+            if (value == null) {
+                if (values.next > 0xffff) {
+                    throw new IllegalStateException("More than 65536 resources of type " +
+                                                    type.getName());
+                }
+                value = 0x7f000000 | (type.ordinal() << 16) | values.next++;
+            }
+            values.values.put(name, value);
+        }
+        return value;
+    }
+
+    /**
+     * Frees the values of the resources of the type that no longer exist
+     */
+    private void releaseValues(ResourceType type, Map<String, Boolean> fields) {
+        Values values = mValues.get(type);
+        if (values == null) {
+            return;
+        }
+        Iterator<Map.Entry<String, Integer>> iterator = values.values.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Integer> entry = iterator.next();
+            if (!fields.containsKey(entry.getKey())) {
+                values.free.add(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    private static Map<ResourceType, Map<String, Boolean>> collectFields(
+            SingleNamespaceResourceRepository repository) {
+        Map<ResourceType, Map<String, Boolean>> result = new EnumMap<>(ResourceType.class);
+        ResourceNamespace namespace = repository.getNamespace();
+        for (ResourceType type : repository.getResourceTypes(namespace)) {
+            if (!type.getCanBeReferenced() && type != ResourceType.STYLEABLE) {
+                continue;
+            }
+            Map<String, Boolean> fields = new HashMap<>();
+            for (ResourceItem item : repository.getResources(namespace, type).values()) {
+                if (type == ResourceType.STYLEABLE) {
+                    addStyleableFields(fields, item);
+                } else {
+                    fields.put(convertName(item.getName()), false);
+                }
+            }
+            if (!fields.isEmpty()) {
+                result.put(type, fields);
+            }
+        }
+        return result;
+    }
+
+    private static void addStyleableFields(Map<String, Boolean> fields, ResourceItem item) {
+        if (!(item.getResourceValue() instanceof StyleableResourceValue)) {
+            return;
+        }
+        StyleableResourceValue styleable = (StyleableResourceValue) item.getResourceValue();
+        String name = convertName(item.getName());
+        fields.put(name, true);
+
+        for (AttrResourceValue attr : styleable.getAllAttributes()) {
+            String attrName = attr.getName();
+            if (attrName.isEmpty()) {
+                continue;
+            }
+            fields.put(name + "_" + attrName.replace(':', '_'), false);
+        }
+    }
+
+    private static String convertName(String name) {
+        if (!name.contains(".")) {
+            return name;
+        }
+        return name.replace('.', '_');
+    }
+}
@@ -1,21 +1,24 @@
 package com.tyron.completion.xml.v2.events;
 
 import com.tyron.code.event.Event;
-import com.tyron.editor.Content;
-
 import java.io.File;
 
 public class XmlResourceChangeEvent extends Event {
 
     private final File file;
-    private final Content newContent;
+    private final String newContent;
 
-    public XmlResourceChangeEvent(File file, Content newContent) {
+    /**
+     * @param newContent the contents of the file, or null to read them from disk. The contents
+     *                   are copied since receivers may run on a background thread while the
+     *                   editor keeps modifying them.
+     */
+    public XmlResourceChangeEvent(File file, CharSequence newContent) {
         this.file = file;
-        this.newContent = newContent;
+        this.newContent = newContent == null ? null : newContent.toString();
     }
 
-    public Content getNewContent() {
+    public String getNewContent() {
         return newContent;
     }
 
@@ -9,6 +9,8 @@ import com.android.resources.ResourceType;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ListMultimap;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.tyron.builder.project.api.AndroidContentRoot;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.completion.xml.v2.aar.FrameworkResourceRepository;
@@ -21,6 +23,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 public class ModuleResourceRepository extends MultiResourceRepository implements SingleNamespaceResourceRepository {
@@ -32,6 +36,22 @@ public class ModuleResourceRepository extends MultiResourceRepository implements
 
     private enum SourceSet { MAIN, TEST }
 
+    /**
+     * Used with {@link ResourceFolderRepository#CACHE_FILE_FORMAT_VERSION} to discard cache
+     * files written by a different version of the resource repositories.
+     */
+    private static final String CACHE_CODE_VERSION = "7.4";
+
+    /**
+     * Writes the cache files of the resource folders in the background so opening a project
+     * does not wait for them.
+     */
+    private static final Executor CACHE_CREATION_EXECUTOR = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("resource-cache-writer")
+                    .setDaemon(true)
+                    .build());
+
     /**
      * Creates a new resource repository for the given module, <b>not</b> including its dependent
      * modules.
@@ -91,11 +111,27 @@ public class ModuleResourceRepository extends MultiResourceRepository implements
                     facet,
                     resourceDirectory,
                     ResourceRepositoryManager.getInstance(facet).getNamespace(),
-                    null);
+                    createCachingData(facet, resourceDirectory));
             childRepositories.add(resourceFolderRepository);
         }
     }
 
+    /**
+     * The cache file of a resource directory is stored in the build directory of the module,
+     * named after the hash of the path of the resource directory.
+     */
+    @NotNull
+    private static ResourceFolderRepositoryCachingData createCachingData(@NotNull AndroidModule facet,
+                                                                         @NotNull File resourceDirectory) {
+        String pathHash = Hashing.farmHashFingerprint64()
+                .hashUnencodedChars(resourceDirectory.getAbsolutePath())
+                .toString();
+        File cacheFile = new File(facet.getBuildDirectory(),
+                "intermediate/resources/" + pathHash + ".dat");
+        return new ResourceFolderRepositoryCachingData(cacheFile.toPath(), false,
+                CACHE_CODE_VERSION, CACHE_CREATION_EXECUTOR);
+    }
+
     private ModuleResourceRepository(@NotNull AndroidModule facet,
                                      @NotNull ResourceNamespace namespace,
                                      @NotNull List<? extends LocalResourceRepository> delegates,
@@ -11,6 +11,7 @@ import static com.android.ide.common.util.PathStringUtil.toPathString;
 import static com.android.resources.ResourceFolderType.VALUES;
 import static com.android.utils.TraceUtils.getSimpleId;
 import static com.tyron.completion.xml.v2.project.ResourceUpdateTracer.pathForLogging;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.jetbrains.kotlin.com.intellij.openapi.util.io.FileUtil.isAncestor;
 
 import androidx.annotation.GuardedBy;
@@ -28,9 +29,12 @@ import com.android.resources.FolderTypeRelationship;
 import com.android.resources.ResourceFolderType;
 import com.android.resources.ResourceType;
 import com.android.resources.ResourceVisibility;
+import com.android.utils.Base128InputStream;
 import com.android.utils.SdkUtils;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.completion.progress.ProcessCanceledException;
 import com.tyron.completion.progress.ProgressManager;
@@ -40,6 +44,7 @@ import com.tyron.completion.xml.v2.base.BasicValueResourceItemBase;
 import com.tyron.completion.xml.v2.base.LoadableResourceRepository;
 import com.tyron.completion.xml.v2.base.RepositoryConfiguration;
 import com.tyron.completion.xml.v2.base.RepositoryLoader;
+import com.tyron.completion.xml.v2.base.ResourceSerializationUtil;
 import com.tyron.completion.xml.v2.base.ResourceSourceFile;
 import com.tyron.completion.xml.v2.events.XmlReparsedEvent;
 import com.tyron.completion.xml.v2.events.XmlResourceChangeEvent;
@@ -55,16 +60,21 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.com.intellij.openapi.diagnostic.Logger;
 import org.jetbrains.kotlin.com.intellij.openapi.util.text.StringUtil;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -73,8 +83,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 import javax.lang.model.SourceVersion;
 
@@ -83,6 +96,27 @@ import kotlin.io.FilesKt;
 
 public final class ResourceFolderRepository extends LocalResourceRepository implements LoadableResourceRepository {
 
+    /**
+     * Increment when making changes that may affect content of repository cache files.
+     * Used together with {@link ResourceFolderRepositoryCachingData#getCodeVersion()}.
+     */
+    static final String CACHE_FILE_FORMAT_VERSION = "1";
+    private static final byte[] CACHE_FILE_HEADER = "Project resource cache".getBytes(UTF_8);
+    /**
+     * The cache file is rewritten only if more than this fraction of the XML files had to be
+     * parsed because they were missing from the cache or changed since it was written.
+     */
+    private static final double CACHE_STALENESS_THRESHOLD = 0.1;
+    /**
+     * Rescans the changed resource files off the thread that dispatched the change, a burst of
+     * changes to the same file is scanned once.
+     */
+    private static final Executor SCAN_EXECUTOR = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("resource-folder-scanner")
+                    .setDaemon(true)
+                    .build());
+
     @NotNull
     private final ConcurrentMap<File, ResourceItemSource<?>> mySources = new ConcurrentHashMap<>();
     @SuppressWarnings("InstanceGuardedByStatic")
@@ -140,7 +174,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                 .getEventManager()
                 .subscribeEvent(XmlResourceChangeEvent.class, (event, unsubscribe) -> {
                     scan(event.getFile(), event.getNewContent());
-                });
+                }, SCAN_EXECUTOR, XmlResourceChangeEvent::getFile);
     }
 
     private static void addToResult(@NotNull ResourceItem item,
@@ -256,6 +290,104 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         return ResourceVisitor.VisitResult.CONTINUE;
     }
 
+    /**
+     * Reads a source file written by {@link VfsResourceFile#serialize}. The file is set to null
+     * if it has been changed or deleted since the cache was written, so its resources are
+     * dropped and the file is parsed again.
+     */
+    @Override
+    @NotNull
+    public ResourceSourceFile deserializeResourceSourceFile(@NotNull Base128InputStream stream,
+                                                            @NotNull List<RepositoryConfiguration> configurations) throws IOException {
+        String relativePath = stream.readString();
+        if (relativePath == null) {
+            throw Base128InputStream.StreamFormatException.invalidFormat();
+        }
+        RepositoryConfiguration configuration = configurations.get(stream.readInt());
+        File file = new File(myResourceDir, relativePath);
+        if (!stream.validateContents(FileTimeStampLengthHasher.hash(file))) {
+            file = null;
+        }
+        return new VfsResourceFile(file, configuration);
+    }
+
+    /**
+     * Reads a file resource written by {@link VfsFileResourceItem#serialize}. Same as
+     * {@link #deserializeResourceSourceFile}, the file of the resource is set to null if it is
+     * out of date.
+     */
+    @Override
+    @NotNull
+    public BasicFileResourceItem deserializeFileResourceItem(@NotNull Base128InputStream stream,
+                                                             @NotNull ResourceType resourceType,
+                                                             @NotNull String name,
+                                                             @NotNull ResourceVisibility visibility,
+                                                             @NotNull List<RepositoryConfiguration> configurations) throws IOException {
+        String relativePath = stream.readString();
+        if (relativePath == null) {
+            throw Base128InputStream.StreamFormatException.invalidFormat();
+        }
+        RepositoryConfiguration configuration = configurations.get(stream.readInt());
+        int encodedDensity = stream.readInt();
+        File file = new File(myResourceDir, relativePath);
+        if (!stream.validateContents(FileTimeStampLengthHasher.hash(file))) {
+            file = null;
+        }
+        if (encodedDensity == 0) {
+            return new VfsFileResourceItem(resourceType, name, configuration, visibility,
+                    relativePath, file);
+        }
+        Density density = Density.values()[encodedDensity - 1];
+        return new VfsDensityBasedFileResourceItem(resourceType, name, configuration,
+                visibility, relativePath, file, density);
+    }
+
+    @NotNull
+    private static byte[] getCacheFileHeader(@NotNull ResourceFolderRepositoryCachingData cachingData) {
+        return ResourceSerializationUtil.getCacheFileHeader(stream -> {
+            stream.write(CACHE_FILE_HEADER);
+            stream.writeString(CACHE_FILE_FORMAT_VERSION);
+            stream.writeString(cachingData.getCodeVersion());
+        });
+    }
+
+    /**
+     * Saves the resources of this repository to the cache file if too many files had to be
+     * parsed during the initial load. Resources that were not read from the XML files by the
+     * loader are not saved, their files are scanned again on the next load.
+     */
+    private void createCacheFile(@NotNull ResourceFolderRepositoryCachingData cachingData) {
+        if (myNumXmlFilesLoadedInitiallyFromSources <=
+            myNumXmlFilesLoadedInitially * CACHE_STALENESS_THRESHOLD) {
+            return;
+        }
+
+        Map<ResourceType, ListMultimap<String, ResourceItem>> resources =
+                new EnumMap<>(ResourceType.class);
+        synchronized (ITEM_MAP_LOCK) {
+            for (ListMultimap<String, ResourceItem> map : myResourceTable.values()) {
+                for (ResourceItem item : map.values()) {
+                    if (item instanceof BasicValueResourceItemBase ||
+                        item instanceof VfsFileResourceItem) {
+                        addToResult(item, resources);
+                    }
+                }
+            }
+        }
+
+        Path cacheFile = cachingData.getCacheFile();
+        try {
+            Files.createDirectories(cacheFile.getParent());
+        } catch (IOException e) {
+            Loader.LOG.warn("Unable to create directory for " + cacheFile, e);
+            return;
+        }
+        byte[] header = getCacheFileHeader(cachingData);
+        ResourceSerializationUtil.createPersistentCache(cacheFile, header,
+                stream -> ResourceSerializationUtil.writeResourcesToStream(resources, stream,
+                        config -> true));
+    }
+
     private boolean checkResourceFilename(@NotNull PathString file,
                                           @NotNull ResourceFolderType folderType) {
         return SourceVersion.isIdentifier(fileNameToResourceName(file.getFileName()));
@@ -294,6 +426,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
 
         if (!file.exists()) {
             removeResourcesContainedInFileOrDirectory(file);
+            myFacet.getProject().getEventManager().dispatchEvent(new XmlReparsedEvent(file));
             return;
         }
 
@@ -519,8 +652,9 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
             }
         }
 
-        myFacet.getProject().getEventManager().dispatchEvent(new XmlReparsedEvent(file));
         commitToRepository(result);
+        // listeners read the repository, so only notify them once the new items are visible
+        myFacet.getProject().getEventManager().dispatchEvent(new XmlReparsedEvent(file));
     }
 
 
@@ -715,6 +849,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
 
         private final ResourceFolderRepository myRepository;
         private final File myResourceDir;
+        @Nullable
+        private final ResourceFolderRepositoryCachingData myCachingData;
 
         @NotNull
         private final Map<ResourceType, ListMultimap<String, ResourceItem>> myResources =
@@ -732,6 +868,22 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         private PathString myLastPathString;
 
         @NotNull Set<File> myFilesToReparseAsPsi = new HashSet<>();
+        /**
+         * The maximum number of files read ahead of the parsing, bounds the memory used by
+         * the prefetched contents
+         */
+        private static final int PREFETCH_WINDOW = 32;
+
+        /**
+         * The files that are going to be parsed in the order they are parsed, read ahead of
+         * the parsing by at most {@link #PREFETCH_WINDOW} files
+         */
+        @NotNull
+        private Iterator<File> myFilesToPrefetch = Collections.emptyIterator();
+        @NotNull
+        private final Deque<File> myPrefetchQueue = new ArrayDeque<>();
+        @NotNull
+        private final Map<File, CompletableFuture<byte[]>> myPrefetchedContents = new HashMap<>();
         private static final Logger LOG = Logger.getInstance(ResourceFolderRepository.class);
 
         Loader(@NotNull ResourceFolderRepository repository,
@@ -739,6 +891,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
             super(repository.myResourceDir.toPath(), null, repository.getNamespace());
             myRepository = repository;
             myResourceDir = repository.myResourceDir;
+            myCachingData = cachingData;
             myDefaultVisibility = ResourceVisibility.UNDEFINED;
         }
 
@@ -747,11 +900,57 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                 return;
             }
 
+            loadFromPersistentCache();
+
+            ProgressManager.checkCanceled();
+
             scanResFolder();
 
             populateRepository();
 
             scanQueuedPsiResources();
+
+            if (myCachingData != null) {
+                Executor executor = myCachingData.getCacheCreationExecutor();
+                if (executor != null) {
+                    executor.execute(() -> myRepository.createCacheFile(myCachingData));
+                }
+            }
+        }
+
+        /**
+         * Loads the resources of the files that have not changed since the cache file was
+         * written. {@link #scanResFolder()} then only parses the files that are not loaded.
+         */
+        private void loadFromPersistentCache() {
+            if (myCachingData == null || myCachingData.getCacheIsInvalidated()) {
+                return;
+            }
+
+            byte[] header = getCacheFileHeader(myCachingData);
+            try (Base128InputStream stream =
+                         new Base128InputStream(myCachingData.getCacheFile())) {
+                if (!stream.validateContents(header)) {
+                    return; // Cache file header doesn't match.
+                }
+                ResourceSerializationUtil.readResourcesFromStream(stream,
+                        Maps.newHashMapWithExpectedSize(1000), null, myRepository,
+                        item -> addResourceItem(item, myRepository));
+            } catch (NoSuchFileException e) {
+                // The cache file does not exist yet.
+            } catch (ProcessCanceledException e) {
+                cleanupAfterFailedLoadingFromCache();
+                throw e;
+            } catch (Throwable e) {
+                cleanupAfterFailedLoadingFromCache();
+                LOG.warn("Failed to load resources from cache file " +
+                         myCachingData.getCacheFile(), e);
+            }
+        }
+
+        private void cleanupAfterFailedLoadingFromCache() {
+            mySources.clear();
+            myFileResources.clear();
         }
 
         /**
@@ -769,6 +968,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                 if (files == null) {
                     return;
                 }
+                prefetchParsableFiles(files);
                 for (File subDir : files) {
                     String folderName = subDir.getName();
                     FolderInfo folderInfo = FolderInfo.create(folderName, myFolderConfigCache);
@@ -811,6 +1011,10 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                 throw e;
             } catch (Exception e) {
                 LOG.error("Failed to load resources from " + myResourceDirectoryOrFile, e);
+            } finally {
+                myFilesToPrefetch = Collections.emptyIterator();
+                myPrefetchQueue.clear();
+                myPrefetchedContents.clear();
             }
 
             super.finishLoading(myRepository);
@@ -839,6 +1043,66 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
             }
         }
 
+        /**
+         * Reads the files that {@link #scanResFolder()} is going to parse in parallel, a window
+         * of files ahead of the parser. The parsing itself stays sequential since the loader
+         * resolves attrs and styleables across files.
+         */
+        private void prefetchParsableFiles(@NotNull File[] subDirs) {
+            List<File> toRead = new ArrayList<>();
+            for (File subDir : subDirs) {
+                FolderInfo folderInfo = FolderInfo.create(subDir.getName(), myFolderConfigCache);
+                File[] children = subDir.listFiles();
+                if (folderInfo == null || children == null) {
+                    continue;
+                }
+                for (File file : children) {
+                    if (file.getName().startsWith(".") || !isParsableFile(file, folderInfo)) {
+                        continue;
+                    }
+                    if (folderInfo.folderType ==
+                        VALUES ? mySources.containsKey(file) : myFileResources.containsKey(file)) {
+                        continue;
+                    }
+                    toRead.add(file);
+                }
+            }
+            myFilesToPrefetch = toRead.iterator();
+            fillPrefetchWindow();
+        }
+
+        private void fillPrefetchWindow() {
+            while (myPrefetchQueue.size() < PREFETCH_WINDOW && myFilesToPrefetch.hasNext()) {
+                File file = myFilesToPrefetch.next();
+                myPrefetchQueue.add(file);
+                myPrefetchedContents.put(file, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return Files.readAllBytes(file.toPath());
+                    } catch (IOException e) {
+                        // the file is read again when it is parsed, which reports the error
+                        return null;
+                    }
+                }));
+            }
+        }
+
+        /**
+         * @return the prefetched contents of the file, or null if it has not been prefetched.
+         * The files prefetched before it have been skipped by the parser and are dropped.
+         */
+        @Nullable
+        private byte[] takePrefetchedContents(@NotNull File file) {
+            CompletableFuture<byte[]> contents = myPrefetchedContents.remove(file);
+            if (contents == null) {
+                return null;
+            }
+            File head;
+            while ((head = myPrefetchQueue.poll()) != null && !head.equals(file)) {
+                myPrefetchedContents.remove(head);
+            }
+            fillPrefetchWindow();
+            return contents.join();
+        }
 
         private void loadResourceFile(@NotNull PathString file,
                                       @NotNull FolderInfo folderInfo,
@@ -943,6 +1207,10 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         @Override
         @NotNull
         protected InputStream getInputStream(@NotNull PathString file) throws IOException {
+            byte[] contents = takePrefetchedContents(file.toFile());
+            if (contents != null) {
+                return new ByteArrayInputStream(contents);
+            }
             return new FileInputStream(file.toFile());
         }
 
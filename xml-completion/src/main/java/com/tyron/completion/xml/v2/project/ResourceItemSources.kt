@@ -55,7 +55,7 @@ internal class VfsResourceFile(
     }
 
     override val relativePath: String?
-        get() = virtualFile?.let { getRelativePath(it, repository.resourceDir) }
+        get() = virtualFile?.let { getRelativePath(repository.resourceDir.path, it.path, '/') }
 
     fun isValid(): Boolean = virtualFile != null
 
@@ -0,0 +1,192 @@
+package com.tyron.completion.xml.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.android.resources.ResourceType;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.VarSymbol;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.comp.Modules;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Names;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+public class ResourceClassModelTest {
+
+    private static final String PACKAGE = "com.test";
+
+    private Context mContext;
+
+    @Before
+    public void setup() {
+        JavaFileObject main = new SimpleJavaFileObject(
+                URI.create("string:///com/test/Main.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return "package com.test;\nclass Main {}\n";
+            }
+        };
+        JavacTaskImpl task = (JavacTaskImpl) JavacTool.create().getTask(null, null, null,
+                Collections.singletonList("-proc:none"), null,
+                Collections.singletonList(main));
+        task.enter();
+        mContext = task.getContext();
+    }
+
+    @Test
+    public void testInstallUpdatesChangedClasses() {
+        ResourceClassModel model = new ResourceClassModel();
+        Object app = new Object();
+        Object library = new Object();
+        Map<ResourceType, Map<String, Boolean>> appFields = new EnumMap<>(ResourceType.class);
+        appFields.put(ResourceType.STRING, fields("app_name"));
+        appFields.put(ResourceType.ID, fields("button"));
+        Map<ResourceType, Map<String, Boolean>> libraryFields =
+                new EnumMap<>(ResourceType.class);
+        libraryFields.put(ResourceType.STRING, fields("library_name"));
+
+        model.install(mContext, PACKAGE, Arrays.asList(leaf(app, 1, appFields),
+                leaf(library, 0, libraryFields)));
+        VarSymbol appName = getField("string", "app_name");
+        VarSymbol button = getField("id", "button");
+        assertNotNull(appName);
+        assertNotNull(getField("string", "library_name"));
+        assertNotNull(button);
+
+        // only the ids of the module have changed
+        appFields.put(ResourceType.ID, fields("button", "text"));
+        model.install(mContext, PACKAGE, Arrays.asList(leaf(app, 2, appFields),
+                leaf(library, 0, libraryFields)));
+        assertSame(appName, getField("string", "app_name"));
+        assertSame(button, getField("id", "button"));
+        assertNotNull(getField("id", "text"));
+        assertNotEquals(button.getConstantValue(), getField("id", "text").getConstantValue());
+
+        // the leaf is not read again while its modification count is the same
+        model.install(mContext, PACKAGE, Arrays.asList(leaf(app, 2, () -> {
+            throw new AssertionError("The fields of the leaf were read again");
+        }), leaf(library, 0, libraryFields)));
+
+        appFields.remove(ResourceType.ID);
+        model.install(mContext, PACKAGE, Arrays.asList(leaf(app, 3, appFields),
+                leaf(library, 0, libraryFields)));
+        assertNull(getNested("id"));
+        assertSame(appName, getField("string", "app_name"));
+    }
+
+    @Test
+    public void testRemovedValuesAreReused() {
+        ResourceClassModel model = new ResourceClassModel();
+        Object app = new Object();
+        Map<ResourceType, Map<String, Boolean>> appFields = new EnumMap<>(ResourceType.class);
+        appFields.put(ResourceType.ID, fields("first", "second"));
+        model.install(mContext, PACKAGE, Arrays.asList(leaf(app, 1, appFields)));
+        Object first = getField("id", "first").getConstantValue();
+        Object second = getField("id", "second").getConstantValue();
+
+        appFields.put(ResourceType.ID, fields("second", "third"));
+        model.install(mContext, PACKAGE, Arrays.asList(leaf(app, 2, appFields)));
+        assertEquals(second, getField("id", "second").getConstantValue());
+        assertEquals(first, getField("id", "third").getConstantValue());
+    }
+
+    @Test
+    public void testTooManyResources() {
+        ResourceClassModel model = new ResourceClassModel();
+        Object app = new Object();
+        Map<ResourceType, Map<String, Boolean>> appFields = new EnumMap<>(ResourceType.class);
+        appFields.put(ResourceType.ID, names("first", 0x10000));
+        model.install(mContext, PACKAGE, Arrays.asList(leaf(app, 1, appFields)));
+
+        // the values of the removed ids are given to the new ones
+        appFields.put(ResourceType.ID, names("second", 0x10000));
+        model.install(mContext, PACKAGE, Arrays.asList(leaf(app, 2, appFields)));
+
+        appFields.put(ResourceType.ID, names("third", 0x10001));
+        try {
+            model.install(mContext, PACKAGE, Arrays.asList(leaf(app, 3, appFields)));
+            fail("The values of the ids overflowed");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    private static ResourceClassModel.Leaf leaf(Object key, long modificationCount,
+                                                Map<ResourceType, Map<String, Boolean>> fields) {
+        Map<ResourceType, Map<String, Boolean>> copy = new EnumMap<>(ResourceType.class);
+        fields.forEach((type, names) -> copy.put(type, new HashMap<>(names)));
+        return leaf(key, modificationCount, () -> copy);
+    }
+
+    private static ResourceClassModel.Leaf leaf(
+            Object key,
+            long modificationCount,
+            Supplier<Map<ResourceType, Map<String, Boolean>>> fields) {
+        return new ResourceClassModel.Leaf(key, modificationCount, fields);
+    }
+
+    private static Map<String, Boolean> fields(String... names) {
+        Map<String, Boolean> fields = new HashMap<>();
+        for (String name : names) {
+            fields.put(name, false);
+        }
+        return fields;
+    }
+
+    private static Map<String, Boolean> names(String prefix, int count) {
+        Map<String, Boolean> fields = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            fields.put(prefix + i, false);
+        }
+        return fields;
+    }
+
+    private ClassSymbol getNested(String name) {
+        ClassSymbol rClass = Symtab.instance(mContext).getClass(
+                Modules.instance(mContext).getDefaultModule(),
+                Names.instance(mContext).fromString(PACKAGE + ".R"));
+        if (rClass == null) {
+            return null;
+        }
+        for (Symbol symbol : rClass.members().getSymbols()) {
+            if (symbol instanceof ClassSymbol && symbol.getSimpleName().contentEquals(name)) {
+                return (ClassSymbol) symbol;
+            }
+        }
+        return null;
+    }
+
+    private VarSymbol getField(String className, String name) {
+        ClassSymbol nested = getNested(className);
+        if (nested == null) {
+            return null;
+        }
+        for (Symbol symbol : nested.members().getSymbols()) {
+            if (symbol instanceof VarSymbol && symbol.getSimpleName().contentEquals(name)) {
+                return (VarSymbol) symbol;
+            }
+        }
+        return null;
+    }
+}